@@ -0,0 +1,103 @@
+#!/bin/bash
+
+# 导出配置（preview / standard / archive）的耗时和输出大小对比
+#
+# 关闭结果缓存启动服务，对每个样例文件依次用三种导出配置转换，
+# 记录接口耗时（curl time_total）和下载到的PDF大小。
+#
+# 用法: ./benchmark-profiles.sh 样例文件... [-- jar路径]
+# 示例: ./benchmark-profiles.sh samples/report.docx samples/sales.xlsx samples/deck.pptx
+# 前提: mvn package，已安装LibreOffice
+
+PROFILES="preview standard archive"
+JAR=target/excel-to-pdf-server-1.0.0.jar
+PORT=${PORT:-18789}
+WORK_DIR=${WORK_DIR:-/tmp/pdftool-benchmark}
+ROUNDS=${ROUNDS:-3}
+
+FILES=()
+while [ $# -gt 0 ]; do
+    if [ "$1" = "--" ]; then
+        JAR=$2
+        break
+    fi
+    FILES+=("$1")
+    shift
+done
+
+if [ ${#FILES[@]} -eq 0 ]; then
+    echo "用法: $0 样例文件... [-- jar路径]"
+    exit 1
+fi
+if [ ! -f "$JAR" ]; then
+    echo "找不到 $JAR，请先执行: mvn package"
+    exit 1
+fi
+
+mkdir -p "$WORK_DIR"
+LOG="$WORK_DIR/server-profiles.log"
+
+endpoint() {
+    case "$(echo "${1##*.}" | tr 'A-Z' 'a-z')" in
+        xls|xlsx|xlsm) echo "/excel/topdf" ;;
+        doc|docx) echo "/word/topdf" ;;
+        ppt|pptx) echo "/ppt/topdf" ;;
+    esac
+}
+
+# 关闭结果缓存，否则同一文件第二轮起直接命中缓存
+java -jar "$JAR" \
+    --server.port=$PORT \
+    --pdftool.cache.enabled=false \
+    > "$LOG" 2>&1 &
+SERVER_PID=$!
+trap 'kill $SERVER_PID 2>/dev/null; wait $SERVER_PID 2>/dev/null' EXIT
+
+# 等待Office进程池就绪
+for i in $(seq 1 120); do
+    [ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/health/ready")" = "200" ] && break
+    sleep 1
+done
+
+RESULTS=()
+for FILE in "${FILES[@]}"; do
+    URL_PATH=$(endpoint "$FILE")
+    if [ -z "$URL_PATH" ]; then
+        echo "跳过不支持的文件: $FILE"
+        continue
+    fi
+    NAME=$(basename "$FILE")
+    echo "========================================"
+    echo "文件: $NAME ($(($(stat -c %s "$FILE") / 1024)) KB)"
+    echo "========================================"
+
+    for PROFILE in $PROFILES; do
+        TOTAL_MS=0
+        SIZE=0
+        for ROUND in $(seq 1 $ROUNDS); do
+            RESPONSE="$WORK_DIR/response.json"
+            SECONDS_TOTAL=$(curl -s -o "$RESPONSE" -w '%{time_total}' \
+                -F "file=@$FILE" -F "profile=$PROFILE" "http://localhost:$PORT$URL_PATH")
+            DOWNLOAD=$(grep -o '"url":"[^"]*"' "$RESPONSE" | head -1 | cut -d'"' -f4)
+            if [ -z "$DOWNLOAD" ]; then
+                echo "$PROFILE 第 $ROUND 轮失败: $(cat "$RESPONSE")"
+                continue
+            fi
+            SIZE=$(curl -s -o /dev/null -w '%{size_download}' "http://localhost:$PORT$DOWNLOAD")
+            MS=$(awk "BEGIN { printf \"%d\", $SECONDS_TOTAL * 1000 }")
+            TOTAL_MS=$((TOTAL_MS + MS))
+            echo "$PROFILE 第 $ROUND 轮: $MS ms, $((SIZE / 1024)) KB"
+        done
+        RESULTS+=("$NAME|$PROFILE|$((TOTAL_MS / ROUNDS))|$((SIZE / 1024))")
+    done
+done
+
+echo ""
+echo "========================================"
+echo "结果（每种配置 $ROUNDS 轮平均）"
+echo "========================================"
+printf "%-30s %-10s %12s %12s\n" "文件" "配置" "耗时(ms)" "大小(KB)"
+for r in "${RESULTS[@]}"; do
+    IFS='|' read -r NAME PROFILE MS KB <<< "$r"
+    printf "%-30s %-10s %12s %12s\n" "$NAME" "$PROFILE" "$MS" "$KB"
+done
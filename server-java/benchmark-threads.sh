@@ -0,0 +1,116 @@
+#!/bin/bash
+
+# 平台线程 vs 虚拟线程 负载对比
+#
+# 分别以两种模式启动服务，发起N个限速上传（上传期间请求一直在处理中），
+# 采样JVM平台线程数、堆内存（/metrics 的 runtime）以及进程的操作系统线程数和RSS。
+#
+# 用法: ./benchmark-threads.sh [并发数] [单个上传限速] [jar路径]
+# 示例: ./benchmark-threads.sh 1000 20k
+# 前提: Java 21 + mvn -Pjava21 package（低于Java 21时虚拟线程模式会回退到平台线程）
+
+CONCURRENCY=${1:-1000}
+RATE=${2:-20k}
+JAR=${3:-target/excel-to-pdf-server-1.0.0.jar}
+PORT=${PORT:-18788}
+WORK_DIR=${WORK_DIR:-/tmp/pdftool-benchmark}
+SAMPLES=5
+
+if [ ! -f "$JAR" ]; then
+    echo "找不到 $JAR，请先执行: mvn -Pjava21 package"
+    exit 1
+fi
+
+mkdir -p "$WORK_DIR"
+
+# 生成一张256x256的24位BMP（约192KB），按RATE限速时每个上传持续约10秒
+IMAGE="$WORK_DIR/upload.bmp"
+le32() {
+    printf "\\x$(printf %02x $(($1 & 255)))\\x$(printf %02x $((($1 >> 8) & 255)))"
+    printf "\\x$(printf %02x $((($1 >> 16) & 255)))\\x$(printf %02x $((($1 >> 24) & 255)))"
+}
+if [ ! -f "$IMAGE" ]; then
+    PIXELS=$((256 * 256 * 3))
+    {
+        printf 'BM'; le32 $((54 + PIXELS)); le32 0; le32 54
+        le32 40; le32 256; le32 256; printf '\x01\x00\x18\x00'; le32 0; le32 $PIXELS
+        le32 2835; le32 2835; le32 0; le32 0
+        head -c $PIXELS /dev/urandom
+    } > "$IMAGE"
+fi
+
+metric() {
+    # 从 /metrics 的JSON中取 runtime 下的数值字段
+    echo "$1" | grep -o "\"$2\":[0-9]*" | head -1 | cut -d: -f2
+}
+
+run_mode() {
+    MODE=$1
+    LOG="$WORK_DIR/server-$MODE.log"
+
+    echo "========================================"
+    echo "模式: $MODE, 并发上传: $CONCURRENCY, 限速: $RATE/s"
+    echo "========================================"
+
+    java -jar "$JAR" \
+        --server.port=$PORT \
+        --jodconverter.enabled=false \
+        --pdftool.threads.virtual=$([ "$MODE" = "virtual" ] && echo true || echo false) \
+        --server.tomcat.threads.max=$((CONCURRENCY + 50)) \
+        --server.tomcat.accept-count=$CONCURRENCY \
+        --server.tomcat.max-connections=$((CONCURRENCY * 2)) \
+        --pdftool.admission.image-to-pdf.max-queued=$CONCURRENCY \
+        > "$LOG" 2>&1 &
+    SERVER_PID=$!
+
+    for i in $(seq 1 60); do
+        curl -s -o /dev/null "http://localhost:$PORT/health" && break
+        sleep 1
+    done
+
+    BASE=$(curl -s "http://localhost:$PORT/metrics")
+    echo "空闲: 平台线程 $(metric "$BASE" threads), 堆 $(metric "$BASE" heapUsedMb) MB"
+
+    CLIENT_PIDS=()
+    for i in $(seq 1 $CONCURRENCY); do
+        curl -s -o /dev/null --limit-rate "$RATE" -F "file=@$IMAGE;filename=upload.bmp" \
+            "http://localhost:$PORT/image/topdf" &
+        CLIENT_PIDS+=($!)
+    done
+    sleep 3
+
+    PEAK_THREADS=0; PEAK_HEAP=0; PEAK_OS_THREADS=0; PEAK_RSS=0
+    for i in $(seq 1 $SAMPLES); do
+        M=$(curl -s --max-time 10 "http://localhost:$PORT/metrics")
+        THREADS=$(metric "$M" threads); HEAP=$(metric "$M" heapUsedMb)
+        OS_THREADS=$(ls /proc/$SERVER_PID/task 2>/dev/null | wc -l)
+        RSS=$(($(ps -o rss= -p $SERVER_PID) / 1024))
+        echo "采样 $i: 平台线程 ${THREADS:-?}, 堆 ${HEAP:-?} MB, OS线程 $OS_THREADS, RSS $RSS MB"
+        [ "${THREADS:-0}" -gt "$PEAK_THREADS" ] && PEAK_THREADS=$THREADS
+        [ "${HEAP:-0}" -gt "$PEAK_HEAP" ] && PEAK_HEAP=$HEAP
+        [ "$OS_THREADS" -gt "$PEAK_OS_THREADS" ] && PEAK_OS_THREADS=$OS_THREADS
+        [ "$RSS" -gt "$PEAK_RSS" ] && PEAK_RSS=$RSS
+        sleep 2
+    done
+
+    kill "${CLIENT_PIDS[@]}" 2>/dev/null
+    wait "${CLIENT_PIDS[@]}" 2>/dev/null
+    kill $SERVER_PID
+    wait $SERVER_PID 2>/dev/null
+
+    RESULTS+=("$MODE|$PEAK_THREADS|$PEAK_OS_THREADS|$PEAK_HEAP|$PEAK_RSS")
+}
+
+RESULTS=()
+run_mode platform
+run_mode virtual
+
+echo ""
+echo "========================================"
+echo "结果（$CONCURRENCY 个并发上传，峰值）"
+echo "========================================"
+printf "%-10s %12s %10s %10s %10s\n" "模式" "JVM平台线程" "OS线程" "堆(MB)" "RSS(MB)"
+for r in "${RESULTS[@]}"; do
+    IFS='|' read -r MODE T OT H R <<< "$r"
+    printf "%-10s %12s %10s %10s %10s\n" "$MODE" "$T" "$OT" "$H" "$R"
+done
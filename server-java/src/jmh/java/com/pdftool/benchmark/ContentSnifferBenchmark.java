@@ -0,0 +1,218 @@
+package com.pdftool.benchmark;
+
+import com.pdftool.service.ContentSniffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.poi.hslf.usermodel.HSLFSlideShow;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ContentSniffer的识别耗时
+ *
+ * sniffFile：按文件识别（实际使用的方式，读取开头8KB）
+ * sniffHeader：只解析内存中的文件头，不含IO
+ * openContainer：对照组，打开ZIP中央目录或OLE2文件系统查找条目（不读文件头、按容器完整解析时的开销）
+ *
+ * 运行：mvn -Pjmh test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentSnifferBenchmark {
+
+    @Param({"docx", "xlsx", "pptx", "odt", "xls", "ppt", "pdf", "png", "csv"})
+    private String format;
+
+    private File directory;
+    private File file;
+    private byte[] header;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("sniffer-benchmark-").toFile();
+        file = new File(directory, "sample." + format);
+        try (OutputStream out = new FileOutputStream(file)) {
+            writeSample(out);
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            header = in.readNBytes(8 * 1024);
+        }
+        ContentSniffer.Format detected = ContentSniffer.sniff(file);
+        System.out.println("[识别] " + format + " -> " + detected + " (" + file.length() / 1024 + " KB)");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    public ContentSniffer.Format sniffFile() throws IOException {
+        return ContentSniffer.sniff(file);
+    }
+
+    @Benchmark
+    public ContentSniffer.Format sniffHeader() {
+        return ContentSniffer.sniff(header);
+    }
+
+    @Benchmark
+    public Object openContainer() throws IOException {
+        switch (format) {
+            case "docx":
+            case "xlsx":
+            case "pptx":
+            case "odt":
+                try (ZipFile zipFile = new ZipFile(file)) {
+                    ZipEntry entry = zipFile.getEntry("[Content_Types].xml");
+                    return entry != null ? entry : zipFile.getEntry("mimetype");
+                }
+            case "xls":
+            case "ppt":
+                try (POIFSFileSystem fileSystem = new POIFSFileSystem(file, true)) {
+                    return fileSystem.getRoot().getEntryNames();
+                }
+            default:
+                try (InputStream in = Files.newInputStream(file.toPath())) {
+                    return in.readNBytes(8);
+                }
+        }
+    }
+
+    /**
+     * 生成各格式的样例文件：包含多个工作表 / 段落 / 幻灯片，文件头之后有足够的内容
+     */
+    private void writeSample(OutputStream out) throws IOException {
+        switch (format) {
+            case "docx":
+                try (XWPFDocument document = new XWPFDocument()) {
+                    for (int i = 0; i < 200; i++) {
+                        document.createParagraph().createRun().setText("段落 " + i + " 用于识别格式的样例文本。");
+                    }
+                    document.write(out);
+                }
+                break;
+            case "xlsx":
+                try (Workbook workbook = new XSSFWorkbook()) {
+                    fillWorkbook(workbook);
+                    workbook.write(out);
+                }
+                break;
+            case "xls":
+                try (Workbook workbook = new HSSFWorkbook()) {
+                    fillWorkbook(workbook);
+                    workbook.write(out);
+                }
+                break;
+            case "pptx":
+                try (XMLSlideShow slideShow = new XMLSlideShow()) {
+                    for (int i = 0; i < 20; i++) {
+                        slideShow.createSlide();
+                    }
+                    slideShow.write(out);
+                }
+                break;
+            case "ppt":
+                try (HSLFSlideShow slideShow = new HSLFSlideShow()) {
+                    for (int i = 0; i < 20; i++) {
+                        slideShow.createSlide();
+                    }
+                    slideShow.write(out);
+                }
+                break;
+            case "odt":
+                writeOdt(out);
+                break;
+            case "pdf":
+                try (PDDocument document = new PDDocument()) {
+                    for (int i = 0; i < 10; i++) {
+                        document.addPage(new PDPage());
+                    }
+                    document.save(out);
+                }
+                break;
+            case "png":
+                ImageIO.write(new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB), "png", out);
+                break;
+            default:
+                StringBuilder csv = new StringBuilder("id,name,amount\n");
+                for (int i = 0; i < 1000; i++) {
+                    csv.append(i).append(",item").append(i).append(',').append(i * 3).append('\n');
+                }
+                out.write(csv.toString().getBytes(StandardCharsets.UTF_8));
+                break;
+        }
+    }
+
+    private static void fillWorkbook(Workbook workbook) {
+        for (int s = 0; s < 10; s++) {
+            Sheet sheet = workbook.createSheet("Sheet" + s);
+            for (int r = 0; r < 100; r++) {
+                sheet.createRow(r).createCell(0).setCellValue(r * s);
+            }
+        }
+    }
+
+    /**
+     * 最小的ODT：mimetype（第一个条目，不压缩）+ content.xml
+     */
+    private static void writeOdt(OutputStream out) throws IOException {
+        byte[] mimetype = "application/vnd.oasis.opendocument.text".getBytes(StandardCharsets.US_ASCII);
+        byte[] content = ("<office:document-content xmlns:office=\"urn:oasis:names:tc:opendocument:xmlns:office:1.0\">"
+                + "<office:body><office:text/></office:body>".repeat(200)
+                + "</office:document-content>").getBytes(StandardCharsets.UTF_8);
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            ZipEntry entry = new ZipEntry("mimetype");
+            entry.setMethod(ZipEntry.STORED);
+            CRC32 crc = new CRC32();
+            crc.update(mimetype);
+            entry.setSize(mimetype.length);
+            entry.setCompressedSize(mimetype.length);
+            entry.setCrc(crc.getValue());
+            zip.putNextEntry(entry);
+            zip.write(mimetype);
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("content.xml"));
+            zip.write(content);
+            zip.closeEntry();
+        }
+    }
+}
@@ -3,22 +3,38 @@ package com.pdftool.config;
 import org.jodconverter.core.DocumentConverter;
 import org.jodconverter.core.office.OfficeManager;
 import org.jodconverter.local.LocalConverter;
+import org.jodconverter.local.office.ExternalOfficeManager;
 import org.jodconverter.local.office.LocalOfficeManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 
 import com.pdftool.filter.CalcFitToWidthFilter;
-import com.pdftool.filter.WordToPdfOptimizationFilter;
+import com.pdftool.office.ElasticOfficeManager;
+import com.pdftool.office.OfficeEndpoint;
+import com.pdftool.office.OfficeLane;
+import com.pdftool.office.OfficeProfileTemplate;
+import com.pdftool.office.OfficeWarmup;
+import com.pdftool.office.OfficeWorkerFactory;
 
 import javax.annotation.PreDestroy;
 import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 高性能JodConverter配置
  * 
  * 优化目标：
- * 1. 性能高 - 使用连接池，支持并发转换
+ * 1. 性能高 - Writer/Calc/Impress独立进程通道，弹性进程池按负载扩缩容
  * 2. 速度快 - 优化启动时间和转换超时
  * 3. 格式完整 - 配置高质量PDF导出选项
  * 
@@ -33,92 +49,320 @@ import java.io.File;
 )
 public class OptimizedJodConverterConfig {
 
-    private OfficeManager officeManager;
+    private final Map<OfficeLane, ElasticOfficeManager> officeManagers = new EnumMap<>(OfficeLane.class);
+
+    @Autowired
+    private Environment environment;
+
+    // 所有通道共享的LibreOffice用户配置模板，第一个进程启动时构建
+    private OfficeProfileTemplate profileTemplate;
+
+    // 单个LibreOffice进程预估内存占用（MB），用于自动计算最大进程数
+    @Value("${pdftool.office.pool.memory-per-process-mb:512}")
+    private long memoryPerProcessMb;
+
+    // 排队等待超过该时间（毫秒）时扩容
+    @Value("${pdftool.office.pool.scale-up-wait-ms:1500}")
+    private long scaleUpWaitMillis;
+
+    // 进程空闲超过该时间（毫秒）后缩容
+    @Value("${pdftool.office.pool.idle-timeout-ms:300000}")
+    private long idleTimeoutMillis;
+
+    // 进程启动和回收后是否执行预热转换
+    @Value("${pdftool.office.pool.warmup-enabled:true}")
+    private boolean warmupEnabled;
+
+    // 进程常驻内存超过该值（MB）后在任务间隙回收，0表示不检查
+    @Value("${pdftool.office.pool.max-rss-mb:1536}")
+    private long maxRssMb;
+
+    // 空闲进程CPU占用超过该百分比时回收，0表示不检查
+    @Value("${pdftool.office.pool.max-idle-cpu-percent:80}")
+    private int maxIdleCpuPercent;
+
+    // 进程内存/CPU采样周期（毫秒）
+    @Value("${pdftool.office.pool.watchdog-interval-ms:5000}")
+    private long watchdogIntervalMillis;
+
+    // 兜底：进程处理该数量的任务后重启，0表示不限制
+    @Value("${pdftool.office.pool.max-tasks-per-process:200}")
+    private int maxTasksPerProcess;
+
+    // local：本服务自行启动LibreOffice进程；external：连接已运行的soffice（可多个服务节点共享）
+    @Value("${pdftool.office.mode:local}")
+    private String officeMode;
+
+    // 外部模式健康检查周期（毫秒）
+    @Value("${pdftool.office.external.health-check-interval-ms:5000}")
+    private long healthCheckIntervalMillis;
+
+    // 预置LibreOffice用户配置模板，缩短进程启动和回收时间
+    @Value("${pdftool.office.pool.profile-template-enabled:true}")
+    private boolean profileTemplateEnabled;
+
+    /**
+     * Word文档通道（Writer）
+     */
+    @Bean
+    @Primary
+    public ElasticOfficeManager writerOfficeManager() {
+        return createOfficeManager(OfficeLane.WRITER);
+    }
+
+    /**
+     * Excel表格通道（Calc）
+     */
+    @Bean
+    public ElasticOfficeManager calcOfficeManager() {
+        return createOfficeManager(OfficeLane.CALC);
+    }
+
+    /**
+     * PPT演示文稿通道（Impress）
+     */
+    @Bean
+    public ElasticOfficeManager impressOfficeManager() {
+        return createOfficeManager(OfficeLane.IMPRESS);
+    }
 
     /**
-     * 配置优化的OfficeManager
+     * 创建某个通道的OfficeManager（弹性进程池）
      * 
      * 性能优化：
-     * - 多进程池：最多3个LibreOffice进程并发处理
+     * - 通道隔离：Writer/Calc/Impress各自独立的进程池，互不排队
+     * - 弹性进程池：进程数随排队等待时间扩容，空闲后缩容
+     * - 上限自适应：根据CPU核数和物理内存计算最大进程数，按通道均分
      * - 快速启动：90秒启动超时
      * - 快速转换：5分钟任务超时
-     * - 自动回收：每个进程处理50个任务后重启
-     * - 失败重试：失败后2次重试机会
+     * - 按资源回收：看门狗采样进程内存/CPU，超过阈值后在任务间隙重启，任务数上限仅作兜底
+     * - 启动预热：新进程和回收后的进程先转换内置样例文档，再接收用户请求
+     * - 非阻塞启动：进程在后台启动，不阻塞Spring容器启动
+     * - 配置模板：进程从预置的用户配置启动，跳过LibreOffice首次启动初始化
+     *
+     * 外部模式（pdftool.office.mode=external）下不启动进程，而是连接
+     * pdftool.office.<通道>.external-endpoints 中的soffice，办公进程容量与HTTP服务分开扩展
      */
-    @Bean
-    @Primary
-    public OfficeManager optimizedOfficeManager() {
+    private ElasticOfficeManager createOfficeManager(OfficeLane lane) {
+        if ("external".equalsIgnoreCase(officeMode)) {
+            return createExternalOfficeManager(lane);
+        }
+
         // 获取LibreOffice安装路径
         String officeHome = findLibreOfficeHome();
         
-        System.out.println("================================");
-        System.out.println("初始化高性能JodConverter配置");
-        System.out.println("LibreOffice路径: " + officeHome);
-        System.out.println("================================");
-        
-        LocalOfficeManager.Builder builder = LocalOfficeManager.builder();
-        
-        // LibreOffice安装目录
-        if (officeHome != null) {
-            builder.officeHome(officeHome);
-        }
-        
-        // 性能优化：进程池配置
-        builder.maxTasksPerProcess(50)           // 每个进程最多处理50个任务后重启（防止内存泄漏）
-               .taskExecutionTimeout(300_000L)   // 任务超时：5分钟（300秒）
-               .taskQueueTimeout(30_000L);       // 队列等待超时：30秒
-        
-        // 启动优化
-        builder.processTimeout(90_000L)          // 进程启动超时：90秒
-               .processRetryInterval(500L);      // 重试间隔：500毫秒
-        
         // 工作目录（使用临时目录，如果不存在则创建）
         File workingDir = new File(System.getProperty("java.io.tmpdir"), "jodconverter");
         if (!workingDir.exists()) {
             boolean created = workingDir.mkdirs();
             System.out.println("创建JodConverter工作目录: " + workingDir.getAbsolutePath() + " - " + (created ? "成功" : "失败"));
         }
-        builder.workingDir(workingDir);
-        
-        // JodConverter的并发处理是通过portNumbers来实现的
-        // 设置多个端口，每个端口对应一个LibreOffice进程
-        builder.portNumbers(2002, 2003, 2004);   // 3个端口 = 3个并发进程
-        
-        // 构建OfficeManager
-        this.officeManager = builder.build();
-        
-        // 关键：启动OfficeManager
-        try {
-            System.out.println("正在启动OfficeManager...");
-            this.officeManager.start();
-            System.out.println("✅ OfficeManager启动成功！");
-            System.out.println("================================");
-        } catch (Exception e) {
-            System.err.println("❌ OfficeManager启动失败: " + e.getMessage());
-            e.printStackTrace();
-            throw new RuntimeException("无法启动OfficeManager", e);
+
+        OfficeProfileTemplate template = getProfileTemplate(officeHome, workingDir);
+
+        // 通道配置：pdftool.office.<通道>.min-processes / max-processes / base-port
+        String prefix = "pdftool.office." + lane.getKey() + ".";
+        int maxProcesses = environment.getProperty(prefix + "max-processes", Integer.class, 0);
+        int minProcesses = environment.getProperty(prefix + "min-processes", Integer.class, 1);
+        int basePort = environment.getProperty(prefix + "base-port", Integer.class, lane.getDefaultBasePort());
+
+        int max = maxProcesses > 0 ? maxProcesses : Math.max(1, calculateMaxProcesses() / OfficeLane.values().length);
+        int min = Math.max(1, Math.min(minProcesses, max));
+
+        System.out.println("================================");
+        System.out.println("初始化高性能JodConverter配置 - " + lane.getDescription() + "通道");
+        System.out.println("LibreOffice路径: " + officeHome);
+        System.out.println("进程池: " + min + " - " + max + " 个进程, 端口从 " + basePort + " 开始 (CPU核数: " +
+                         Runtime.getRuntime().availableProcessors() + ")");
+        System.out.println("================================");
+
+        // 每个进程由一个单端口LocalOfficeManager承载，由弹性进程池统一调度和扩缩容
+        OfficeWorkerFactory workerFactory = endpoint -> {
+            LocalOfficeManager.Builder builder = LocalOfficeManager.builder();
+
+            // LibreOffice安装目录
+            if (officeHome != null) {
+                builder.officeHome(officeHome);
+            }
+
+            // 性能优化：进程配置
+            // 任务数回收由弹性进程池负责（回收后需要重新预热），这里关闭LocalOfficeManager自身的回收
+            builder.maxTasksPerProcess(0)
+                   .taskExecutionTimeout(300_000L)   // 任务超时：5分钟（300秒）
+                   .taskQueueTimeout(30_000L);       // 队列等待超时：30秒
+
+            // 启动优化
+            builder.processTimeout(90_000L)          // 进程启动超时：90秒
+                   .processRetryInterval(500L);      // 重试间隔：500毫秒
+
+            builder.workingDir(workingDir);
+            builder.portNumbers(endpoint.getPort());
+
+            // 在后台启动进程时才构建模板，不阻塞容器启动
+            File templateDir = template != null ? template.get() : null;
+            if (templateDir != null) {
+                builder.templateProfileDir(templateDir);
+            }
+            return builder.build();
+        };
+
+        ElasticOfficeManager officeManager = ElasticOfficeManager.builder()
+                .name(lane.getKey())
+                .workerFactory(workerFactory)
+                .minProcesses(min)
+                .maxProcesses(max)
+                .basePort(basePort)
+                .taskQueueTimeout(30_000L)           // 队列等待超时：30秒
+                .scaleUpWaitMillis(scaleUpWaitMillis)
+                .idleTimeoutMillis(idleTimeoutMillis)
+                .maxTasksPerProcess(maxTasksPerProcess)
+                .maxRssMb(maxRssMb)
+                .maxIdleCpuPercent(maxIdleCpuPercent)
+                .watchdogIntervalMillis(watchdogIntervalMillis)
+                .warmup(warmupEnabled ? new OfficeWarmup(lane) : null)
+                .build();
+        return startOfficeManager(lane, officeManager);
+    }
+
+    /**
+     * 外部模式：连接已运行的soffice（soffice --headless --accept="socket,host=0.0.0.0,port=2002;urp;"）
+     *
+     * - 每个地址一个连接，进程数固定为地址数，不扩缩容
+     * - 定期TCP健康检查，不可用的地址移出进程池并自动重连
+     * - 任务轮询分配到各地址
+     * - 进程由外部管理，不做预热、内存看门狗和按任务数回收
+     */
+    private ElasticOfficeManager createExternalOfficeManager(OfficeLane lane) {
+        String key = "pdftool.office." + lane.getKey() + ".external-endpoints";
+        List<OfficeEndpoint> endpoints = OfficeEndpoint.parseList(environment.getProperty(key));
+        if (endpoints.isEmpty()) {
+            throw new IllegalStateException("外部模式需要配置 " + key);
         }
-        
-        return this.officeManager;
+
+        System.out.println("================================");
+        System.out.println("初始化高性能JodConverter配置 - " + lane.getDescription() + "通道（外部模式）");
+        System.out.println("LibreOffice地址: " + endpoints);
+        System.out.println("================================");
+
+        OfficeWorkerFactory workerFactory = endpoint -> ExternalOfficeManager.builder()
+                .hostName(endpoint.getHost())
+                .portNumbers(endpoint.getPort())
+                .connectOnStart(true)
+                .connectTimeout(10_000L)             // 连接超时：10秒，失败后由进程池退避重连
+                .connectRetryInterval(500L)
+                .taskExecutionTimeout(300_000L)      // 任务超时：5分钟（300秒）
+                .taskQueueTimeout(30_000L)
+                .build();
+
+        ElasticOfficeManager officeManager = ElasticOfficeManager.builder()
+                .name(lane.getKey())
+                .workerFactory(workerFactory)
+                .externalEndpoints(endpoints)
+                .healthCheckIntervalMillis(healthCheckIntervalMillis)
+                .taskQueueTimeout(30_000L)
+                .build();
+        return startOfficeManager(lane, officeManager);
+    }
+
+    private ElasticOfficeManager startOfficeManager(OfficeLane lane, ElasticOfficeManager officeManager) {
+        officeManagers.put(lane, officeManager);
+
+        // 后台启动OfficeManager：LibreOffice进程启动和预热期间应用已可接收请求，
+        // 依赖该通道的接口返回"启动中"，其他接口（图片转PDF、PDF转Excel）不受影响
+        System.out.println("正在后台启动OfficeManager (" + lane.getKey() + ")...");
+        officeManager.startAsync();
+
+        return officeManager;
+    }
+
+    private synchronized OfficeProfileTemplate getProfileTemplate(String officeHome, File workingDir) {
+        if (profileTemplateEnabled && profileTemplate == null) {
+            profileTemplate = new OfficeProfileTemplate(officeHome, new File(workingDir, "profile-template"));
+        }
+        return profileTemplate;
+    }
+
+    /**
+     * 根据CPU核数和物理内存计算最大进程数（所有通道合计）
+     *
+     * 进程数不超过CPU核数，且所有进程的预估内存占用不超过
+     * （物理内存 - JVM最大堆）的75%
+     */
+    private int calculateMaxProcesses() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int byMemory = cores;
+
+        long totalMemory = getTotalMemorySize();
+        if (totalMemory > 0) {
+            long available = (long) ((totalMemory - Runtime.getRuntime().maxMemory()) * 0.75);
+            byMemory = (int) (available / (memoryPerProcessMb * 1024 * 1024));
+        }
+
+        return Math.max(1, Math.min(cores, byMemory));
+    }
+
+    /**
+     * 物理内存总量（字节），无法获取时返回-1
+     *
+     * JDK 14起getTotalPhysicalMemorySize已废弃，改为getTotalMemorySize（容器中返回cgroup限制）；
+     * 按Java 11编译时没有新方法，因此按名称查找，优先使用新方法
+     */
+    private static long getTotalMemorySize() {
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        if (!(osBean instanceof com.sun.management.OperatingSystemMXBean)) {
+            return -1;
+        }
+        for (String name : new String[]{"getTotalMemorySize", "getTotalPhysicalMemorySize"}) {
+            try {
+                Method method = com.sun.management.OperatingSystemMXBean.class.getMethod(name);
+                return (Long) method.invoke(osBean);
+            } catch (NoSuchMethodException e) {
+                // 低版本JDK没有getTotalMemorySize，继续尝试旧方法
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                System.err.println("获取物理内存大小失败: " + e.getMessage());
+                return -1;
+            }
+        }
+        return -1;
     }
 
     /**
-     * 配置优化的DocumentConverter
+     * Word转PDF的DocumentConverter（Writer通道）
      * 
-     * 格式保留优化：
-     * - 添加Word转PDF优化过滤器
-     * - 保留图片、表格、样式
-     * - 高质量PDF导出
+     * PDF导出选项（图片质量、分辨率、书签等）不在这里配置，
+     * 由每次转换的目标格式携带（见ConversionProfile）
      */
     @Bean
     @Primary
-    public DocumentConverter optimizedDocumentConverter(OfficeManager optimizedOfficeManager) {
+    public DocumentConverter writerDocumentConverter(
+            @Qualifier("writerOfficeManager") OfficeManager writerOfficeManager) {
+        return LocalConverter.builder()
+                .officeManager(writerOfficeManager)
+                .build();
+    }
+
+    /**
+     * Excel转PDF的DocumentConverter（Calc通道）
+     * 
+     * 只有Calc通道需要将所有列缩放到同一页宽度
+     */
+    @Bean
+    public DocumentConverter calcDocumentConverter(
+            @Qualifier("calcOfficeManager") OfficeManager calcOfficeManager) {
         return LocalConverter.builder()
-                .officeManager(optimizedOfficeManager)
-                // Excel转PDF过滤器（保留）
+                .officeManager(calcOfficeManager)
                 .filterChain(new CalcFitToWidthFilter())
-                // Word转PDF优化过滤器（新增）
-                .filterChain(new WordToPdfOptimizationFilter())
+                .build();
+    }
+
+    /**
+     * PPT转PDF的DocumentConverter（Impress通道）
+     */
+    @Bean
+    public DocumentConverter impressDocumentConverter(
+            @Qualifier("impressOfficeManager") OfficeManager impressOfficeManager) {
+        return LocalConverter.builder()
+                .officeManager(impressOfficeManager)
                 .build();
     }
 
@@ -181,11 +425,11 @@ public class OptimizedJodConverterConfig {
      */
     @PreDestroy
     public void destroy() {
-        if (this.officeManager != null) {
+        for (Map.Entry<OfficeLane, ElasticOfficeManager> entry : officeManagers.entrySet()) {
             try {
                 System.out.println("================================");
-                System.out.println("正在关闭OfficeManager...");
-                this.officeManager.stop();
+                System.out.println("正在关闭OfficeManager (" + entry.getKey().getKey() + ")...");
+                entry.getValue().stop();
                 System.out.println("✅ OfficeManager已安全关闭");
                 System.out.println("================================");
             } catch (Exception e) {
@@ -195,4 +439,3 @@ public class OptimizedJodConverterConfig {
         }
     }
 }
-
@@ -0,0 +1,39 @@
+package com.pdftool.config;
+
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 虚拟线程模式（pdftool.threads.virtual=true，需要Java 21，见pom.xml的java21 profile）
+ *
+ * Tomcat请求处理改为每个请求一个虚拟线程；任务线程和调度器线程见JobService、ConversionScheduler。
+ * 这些线程大部分时间阻塞在上传读取、磁盘I/O和LibreOffice socket上，
+ * 虚拟线程阻塞时不占用操作系统线程，并发连接数不再受server.tomcat.threads.max限制。
+ *
+ * 运行在Java 21以下时打印警告并保持平台线程。
+ */
+@Configuration
+@org.springframework.boot.autoconfigure.condition.ConditionalOnProperty(
+    name = "pdftool.threads.virtual",
+    havingValue = "true",
+    matchIfMissing = false
+)
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("http-virtual-");
+            if (executor == null) {
+                System.err.println("⚠️  当前Java版本 " + System.getProperty("java.version") +
+                                 " 不支持虚拟线程，Tomcat继续使用平台线程");
+                return;
+            }
+            protocolHandler.setExecutor(executor);
+            System.out.println("Tomcat请求处理使用虚拟线程");
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.pdftool.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程（Java 21）工具
+ *
+ * 项目仍以Java 11为编译目标，这里通过反射调用 Thread.ofVirtual() 和
+ * Executors.newThreadPerTaskExecutor()，在Java 21上运行时可用，低版本返回null由调用方回退到平台线程。
+ *
+ * 由 pdftool.threads.virtual=true 启用，见VirtualThreadConfig。
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前JVM是否支持虚拟线程（Java 21+）
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * 虚拟线程工厂，线程名为 prefix + 序号；不支持时返回null
+     */
+    public static ThreadFactory newThreadFactory(String prefix) {
+        if (OF_VIRTUAL == null) {
+            return null;
+        }
+        try {
+            // Thread.ofVirtual().name(prefix, 1).factory()
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("⚠️  创建虚拟线程工厂失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 每个任务一个虚拟线程的执行器；不支持时返回null
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        ThreadFactory factory = newThreadFactory(prefix);
+        if (factory == null) {
+            return null;
+        }
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("⚠️  创建虚拟线程执行器失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Method findMethod(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
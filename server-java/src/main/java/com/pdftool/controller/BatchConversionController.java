@@ -0,0 +1,536 @@
+package com.pdftool.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdftool.office.ElasticOfficeManager;
+import com.pdftool.office.OfficeLane;
+import com.pdftool.service.AdmissionControl;
+import com.pdftool.service.ConversionJob;
+import com.pdftool.service.ConversionProfile;
+import com.pdftool.service.ConversionPriority;
+import com.pdftool.service.ConversionService;
+import com.pdftool.service.ConversionType;
+import com.pdftool.service.InputSpool;
+import com.pdftool.service.JobService;
+import com.pdftool.service.OptimizedConversionService;
+import com.pdftool.service.OutputStore;
+import com.pdftool.service.SingleFlight;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 批量Office转PDF Controller
+ *
+ * 一次上传多个Excel/Word/PPT文件，按完成顺序把PDF流式写入ZIP响应，最后一个条目是manifest.json（每个文件的状态）：
+ * 1. 每个文件作为一个任务（JobService）执行，批量优先级，不挤占交互请求
+ * 2. 每个通道同时提交的文件数等于该通道的最大进程数，完成一个再提交下一个：
+ *    所有进程都在转换本批文件，排队等待不会超过一个转换的时间，总耗时约为 文件数 / 进程数
+ * 3. 准入控制按类型各占一个许可（整批算一个请求），队列已满时在转存上传内容之前返回429
+ * 4. 客户端断开后不再提交剩余文件
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+@RestController
+@CrossOrigin(origins = "*")
+@org.springframework.boot.autoconfigure.condition.ConditionalOnProperty(
+    name = "jodconverter.enabled",
+    havingValue = "true",
+    matchIfMissing = false
+)
+public class BatchConversionController {
+
+    private static final String MANIFEST_ENTRY = "manifest.json";
+
+    // Office通道启动中时建议客户端的重试间隔（秒）
+    private static final int WARMING_RETRY_AFTER_SECONDS = 5;
+
+    @Autowired
+    private ConversionService conversionService;
+
+    @Autowired
+    @Qualifier("optimizedConversionService")
+    private OptimizedConversionService optimizedConversionService;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private InputSpool inputSpool;
+
+    @Autowired
+    private OutputStore outputStore;
+
+    @Autowired
+    private List<ElasticOfficeManager> officeManagers;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 单次批量请求最多的文件数
+    @Value("${pdftool.batch.max-files:100}")
+    private int maxFiles;
+
+    // 等待下一个文件完成的最长时间（毫秒），超时后剩余文件记为失败并结束ZIP，需大于最长的转换超时
+    @Value("${pdftool.batch.item-timeout-ms:900000}")
+    private long itemTimeoutMillis;
+
+    /**
+     * 批量Office转PDF
+     * POST /office/batch/topdf
+     * 参数files：多个Excel（.xls/.xlsx/.xlsm）、Word（.doc/.docx）、PPT（.ppt/.pptx）文件
+     * 参数profile：整批使用的导出配置 preview / standard（默认）/ archive，见ConversionProfile
+     * 返回ZIP：转换成功的PDF按完成顺序写入，最后是manifest.json
+     */
+    @PostMapping(value = "/office/batch/topdf", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> convertBatch(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "profile", required = false, defaultValue = "standard") String profile) {
+        if (files.isEmpty()) {
+            return ResponseEntity.badRequest().body(createErrorResponse("没有上传文件"));
+        }
+        ConversionProfile conversionProfile = ConversionProfile.fromKey(profile);
+        if (conversionProfile == null) {
+            return ResponseEntity.badRequest()
+                    .body(createErrorResponse("不支持的导出配置: " + profile + "（可选 preview, standard, archive）"));
+        }
+        if (files.size() > maxFiles) {
+            return ResponseEntity.badRequest().body(createErrorResponse("单次最多上传 " + maxFiles + " 个文件"));
+        }
+
+        // 识别类型，不支持的文件记入manifest，不影响其他文件
+        List<BatchItem> items = new ArrayList<>();
+        Set<ConversionType> types = new HashSet<>();
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            String originalFilename = file.getOriginalFilename() != null ? file.getOriginalFilename() : "file" + (i + 1);
+            BatchItem item = new BatchItem(i, originalFilename, getConversionType(originalFilename));
+            if (item.type == null) {
+                item.error = "只支持 Excel、Word、PPT 文件";
+            } else if (file.isEmpty()) {
+                item.error = "上传的文件为空";
+            } else {
+                types.add(item.type);
+            }
+            items.add(item);
+        }
+
+        for (ConversionType type : types) {
+            ElasticOfficeManager officeManager = getOfficeManager(type.getOfficeLane());
+            if (officeManager != null && !officeManager.isReady()) {
+                return createWarmingResponse(officeManager);
+            }
+        }
+
+        Batch batch = new Batch(items, conversionProfile);
+        try {
+            // 准入控制：整批按类型各占一个许可，在转存上传内容之前判断
+            for (ConversionType type : types) {
+                AdmissionControl.Permit permit = admissionControl.tryAcquire(type);
+                if (permit == null) {
+                    return createBusyResponse(type);
+                }
+                batch.permits.add(permit);
+            }
+
+            for (BatchItem item : items) {
+                if (item.error == null) {
+                    item.input = inputSpool.spool(files.get(item.index));
+                }
+            }
+
+            System.out.println("[批量转换] 开始: " + files.size() + " 个文件, 有效 " +
+                             items.stream().filter(item -> item.input != null).count() + " 个");
+            batch.start();
+
+            // 之后由响应输出负责结束批量
+            StreamingResponseBody body = batch::writeZip;
+            batch = null;
+            String zipName = "batch-" + System.currentTimeMillis() + ".zip";
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(zipName).build().toString())
+                    .header("X-Batch-Files", String.valueOf(files.size()))
+                    .body(body);
+
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("批量转换失败: " + e.getMessage()));
+        } finally {
+            if (batch != null) {
+                batch.abort();
+            }
+        }
+    }
+
+    /**
+     * 按扩展名判断转换类型，不支持时返回null
+     */
+    private ConversionType getConversionType(String filename) {
+        String lower = filename.toLowerCase();
+        if (lower.endsWith(".xls") || lower.endsWith(".xlsx") || lower.endsWith(".xlsm")) {
+            return ConversionType.EXCEL_TO_PDF;
+        }
+        if (lower.endsWith(".doc") || lower.endsWith(".docx")) {
+            return ConversionType.WORD_TO_PDF;
+        }
+        if (lower.endsWith(".ppt") || lower.endsWith(".pptx")) {
+            return ConversionType.PPT_TO_PDF;
+        }
+        return null;
+    }
+
+    private ElasticOfficeManager getOfficeManager(OfficeLane lane) {
+        for (ElasticOfficeManager officeManager : officeManagers) {
+            if (lane.getKey().equals(officeManager.getName())) {
+                return officeManager;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 提交单个文件的转换任务（批量优先级），与单文件接口使用相同的合并键
+     */
+    private ConversionJob submit(BatchItem item, InputSpool.SpooledFile input, ConversionProfile profile)
+            throws IOException {
+        File inputFile = input.getFile();
+        String inputSha256 = input.getSha256();
+        String flightKey = SingleFlight.key(item.type, profile.getKey(), inputSha256);
+        String outputFilename = getOutputFilename(item.sourceFilename, ".pdf");
+        List<InputSpool.SpooledFile> inputs = Collections.singletonList(input);
+        switch (item.type) {
+            case EXCEL_TO_PDF:
+                return jobService.submit(item.type, item.sourceFilename, outputFilename, null, inputs, flightKey,
+                        sink -> conversionService.convertExcelToPdf(inputFile, inputSha256, sink, profile, null,
+                                ConversionPriority.BULK));
+            case WORD_TO_PDF:
+                return jobService.submit(item.type, item.sourceFilename, outputFilename, null, inputs, flightKey,
+                        sink -> conversionService.convertWordToPdf(inputFile, inputSha256, sink, profile, null,
+                                ConversionPriority.BULK));
+            default:
+                return jobService.submit(item.type, item.sourceFilename, outputFilename, null, inputs, flightKey,
+                        sink -> optimizedConversionService.convertPptToPdf(inputFile, inputSha256, sink, profile, null,
+                                ConversionPriority.BULK));
+        }
+    }
+
+    /**
+     * 生成输出PDF文件名
+     */
+    private String getOutputFilename(String originalFilename, String targetExtension) {
+        int lastDotIndex = originalFilename.lastIndexOf('.');
+        String baseName = originalFilename;
+        if (lastDotIndex > 0) {
+            baseName = originalFilename.substring(0, lastDotIndex);
+        }
+        return baseName + targetExtension;
+    }
+
+    private ResponseEntity<?> createWarmingResponse(ElasticOfficeManager officeManager) {
+        Map<String, Object> warming = new HashMap<>();
+        warming.put("status", "warming");
+        warming.put("state", officeManager.getState());
+        warming.put("lane", officeManager.getName());
+        warming.put("error", "转换服务正在启动，请稍后重试");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(WARMING_RETRY_AFTER_SECONDS))
+                .body(warming);
+    }
+
+    private ResponseEntity<?> createBusyResponse(ConversionType type) {
+        long retryAfterSeconds = admissionControl.getRetryAfterSeconds(type);
+        Map<String, Object> busy = new HashMap<>();
+        busy.put("error", "服务繁忙（" + type.getDescription() + "排队已满），请" + retryAfterSeconds + "秒后重试");
+        busy.put("retryAfter", retryAfterSeconds);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(busy);
+    }
+
+    private Map<String, String> createErrorResponse(String message) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", message);
+        return error;
+    }
+
+    /**
+     * 批量中的一个文件
+     */
+    private static final class BatchItem {
+
+        private final int index;
+        private final String sourceFilename;
+        private final ConversionType type;
+        private InputSpool.SpooledFile input;
+        private ConversionJob job;
+        private String error;
+
+        private BatchItem(int index, String sourceFilename, ConversionType type) {
+            this.index = index;
+            this.sourceFilename = sourceFilename;
+            this.type = type;
+        }
+    }
+
+    /**
+     * 一次批量请求：按通道控制同时提交的文件数，收集完成的文件并写出ZIP
+     */
+    private final class Batch {
+
+        private final List<BatchItem> items;
+        private final ConversionProfile profile;
+        private final List<AdmissionControl.Permit> permits = new ArrayList<>();
+        // 每个通道尚未提交的文件，读写都持有Batch锁
+        private final Map<OfficeLane, Deque<BatchItem>> pending = new EnumMap<>(OfficeLane.class);
+        private final BlockingQueue<BatchItem> completed = new LinkedBlockingQueue<>();
+        private final long startTime = System.currentTimeMillis();
+        private int expected;
+        private boolean aborted;
+
+        private Batch(List<BatchItem> items, ConversionProfile profile) {
+            this.items = items;
+            this.profile = profile;
+        }
+
+        /**
+         * 每个通道先提交最大进程数个文件，之后每完成一个提交一个
+         */
+        private void start() {
+            synchronized (this) {
+                for (BatchItem item : items) {
+                    if (item.input != null) {
+                        pending.computeIfAbsent(item.type.getOfficeLane(), lane -> new ArrayDeque<>()).add(item);
+                        expected++;
+                    }
+                }
+            }
+            for (OfficeLane lane : new ArrayList<>(pending.keySet())) {
+                ElasticOfficeManager officeManager = getOfficeManager(lane);
+                int window = officeManager != null ? Math.max(1, officeManager.getMaxProcesses()) : 1;
+                for (int i = 0; i < window; i++) {
+                    submitNext(lane);
+                }
+            }
+        }
+
+        private void submitNext(OfficeLane lane) {
+            BatchItem item;
+            InputSpool.SpooledFile input;
+            synchronized (this) {
+                if (aborted) {
+                    return;
+                }
+                item = pending.get(lane).poll();
+                if (item == null) {
+                    return;
+                }
+                // 输入文件交给任务，任务结束时删除
+                input = item.input;
+                item.input = null;
+            }
+            ConversionJob job;
+            try {
+                job = submit(item, input, profile);
+            } catch (IOException | RuntimeException e) {
+                // 在完成回调中执行，异常不能抛出，否则该文件永远不会进入completed
+                System.err.println("[批量转换] 提交失败: " + item.sourceFilename + " - " + e.getMessage());
+                input.close();
+                item.error = "提交失败: " + e.getMessage();
+                completed.add(item);
+                submitNext(lane);
+                return;
+            }
+            item.job = job;
+            job.getCompletion().whenComplete((done, e) -> {
+                completed.add(item);
+                submitNext(lane);
+            });
+        }
+
+        /**
+         * 按完成顺序写出ZIP，最后写manifest.json
+         */
+        private void writeZip(OutputStream out) throws IOException {
+            Set<String> entryNames = new HashSet<>();
+            List<Map<String, Object>> results = new ArrayList<>(Collections.nCopies(items.size(), null));
+            int succeeded = 0;
+            try (ZipOutputStream zip = new ZipOutputStream(out)) {
+                // PDF本身已压缩，只用最快的压缩级别
+                zip.setLevel(Deflater.BEST_SPEED);
+                for (int i = 0; i < expected; i++) {
+                    BatchItem item = completed.poll(itemTimeoutMillis, TimeUnit.MILLISECONDS);
+                    if (item == null) {
+                        System.err.println("[批量转换] 等待转换结果超时, 剩余 " + (expected - i) + " 个文件");
+                        break;
+                    }
+                    Map<String, Object> result = createResult(item);
+                    ConversionJob job = item.job;
+                    if (job == null) {
+                        result.put("status", "failed");
+                        result.put("error", item.error);
+                        results.set(item.index, result);
+                        continue;
+                    }
+                    OutputStore.StoredFile storedFile = job.getStatus() == ConversionJob.Status.SUCCEEDED
+                            ? outputStore.get(job.getResultFilename()) : null;
+                    // 写入条目前打开结果文件：打开后被淘汰也能读完；打开失败只影响这一个文件
+                    InputStream resultStream = storedFile != null ? openResult(storedFile) : null;
+                    if (resultStream != null) {
+                        String entryName = uniqueEntryName(entryNames, job.getOutputFilename());
+                        try (InputStream in = resultStream) {
+                            zip.putNextEntry(new ZipEntry(entryName));
+                            in.transferTo(zip);
+                            zip.closeEntry();
+                        }
+                        zip.flush();
+                        result.put("status", "succeeded");
+                        result.put("entry", entryName);
+                        result.put("size", storedFile.getSize());
+                        result.put("sha256", storedFile.getSha256());
+                        result.put("url", "/download/" + storedFile.getFilename());
+                        succeeded++;
+                    } else {
+                        result.put("status", "failed");
+                        result.put("error", job.getError() != null ? job.getError().getMessage() : "结果文件已被清理");
+                    }
+                    result.put("durationMs", job.getDurationMillis());
+                    results.set(item.index, result);
+                }
+                for (BatchItem item : items) {
+                    if (results.get(item.index) == null) {
+                        Map<String, Object> result = createResult(item);
+                        if (item.job != null) {
+                            // 已提交但在等待时间内没有完成，任务结束后结果留在结果存储中按期清理
+                            result.put("status", "failed");
+                            result.put("error", "等待转换结果超时");
+                        } else {
+                            result.put("status", "skipped");
+                            result.put("error", item.error != null ? item.error : "等待转换结果超时");
+                        }
+                        results.set(item.index, result);
+                    }
+                }
+
+                Map<String, Object> manifest = new LinkedHashMap<>();
+                manifest.put("files", items.size());
+                manifest.put("succeeded", succeeded);
+                manifest.put("failed", items.size() - succeeded);
+                manifest.put("durationMs", System.currentTimeMillis() - startTime);
+                manifest.put("results", results);
+                zip.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+                zip.write(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest));
+                zip.closeEntry();
+
+                System.out.println("[批量转换] 完成: " + succeeded + "/" + items.size() + " 个文件成功, 耗时 " +
+                                 (System.currentTimeMillis() - startTime) + " ms");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("批量转换被中断", e);
+            } catch (IOException | RuntimeException e) {
+                // 客户端断开等情况：不再提交剩余文件，已提交的任务结果留在结果存储中按期清理
+                System.err.println("[批量转换] 输出中断: " + e.getMessage());
+                throw e;
+            } finally {
+                abort();
+            }
+        }
+
+        /**
+         * 打开结果文件，在get()之后被淘汰或删除时返回null
+         */
+        private InputStream openResult(OutputStore.StoredFile storedFile) {
+            try {
+                return Files.newInputStream(storedFile.getFile().toPath());
+            } catch (IOException e) {
+                System.err.println("[批量转换] 结果文件已被清理: " + storedFile.getFilename());
+                return null;
+            }
+        }
+
+        private Map<String, Object> createResult(BatchItem item) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("index", item.index);
+            result.put("source", item.sourceFilename);
+            if (item.job != null) {
+                result.put("jobId", item.job.getId());
+            }
+            return result;
+        }
+
+        private String uniqueEntryName(Set<String> entryNames, String name) {
+            String entryName = name;
+            int lastDotIndex = name.lastIndexOf('.');
+            String baseName = lastDotIndex > 0 ? name.substring(0, lastDotIndex) : name;
+            String extension = lastDotIndex > 0 ? name.substring(lastDotIndex) : "";
+            for (int n = 2; !entryNames.add(entryName); n++) {
+                entryName = baseName + " (" + n + ")" + extension;
+            }
+            return entryName;
+        }
+
+        /**
+         * 结束批量：释放许可，删除尚未提交的输入文件；可重复调用
+         */
+        private void abort() {
+            List<BatchItem> remaining = new ArrayList<>();
+            synchronized (this) {
+                if (aborted) {
+                    return;
+                }
+                aborted = true;
+                for (Deque<BatchItem> queue : pending.values()) {
+                    remaining.addAll(queue);
+                    queue.clear();
+                }
+            }
+            for (AdmissionControl.Permit permit : permits) {
+                permit.release();
+            }
+            // 未交给任务的输入文件（包括未提交的文件）
+            for (BatchItem item : items) {
+                if (item.input != null) {
+                    item.input.close();
+                }
+            }
+            if (!remaining.isEmpty()) {
+                System.out.println("[批量转换] 取消未提交的文件 " + remaining.size() + " 个");
+            }
+        }
+    }
+}
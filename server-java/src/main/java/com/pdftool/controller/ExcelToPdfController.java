@@ -1,27 +1,40 @@
 package com.pdftool.controller;
 
+import com.pdftool.service.AdmissionControl;
+import com.pdftool.service.ConversionJob;
+import com.pdftool.service.ConversionProfile;
+import com.pdftool.service.ConversionType;
 import com.pdftool.service.ConversionService;
 import com.pdftool.service.OptimizedConversionService;
 import com.pdftool.service.EnhancedPdfToExcelService;
+import com.pdftool.service.FileDownloadService;
+import com.pdftool.service.InputSpool;
+import com.pdftool.service.JobService;
+import com.pdftool.service.OutputStore;
+import com.pdftool.service.PageRange;
+import com.pdftool.service.SingleFlight;
+import com.pdftool.office.ElasticOfficeManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.MediaTypeFactory;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 @RestController
 @CrossOrigin(origins = "*")
@@ -42,60 +55,114 @@ public class ExcelToPdfController {
     @Autowired
     private EnhancedPdfToExcelService enhancedPdfToExcelService;
 
-    // 临时文件存储目录
-    private static final String TEMP_DIR = "temp";
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private InputSpool inputSpool;
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
+
+    @Autowired
+    private OutputStore outputStore;
+
+    @Autowired
+    private List<ElasticOfficeManager> officeManagers;
+
+    @Autowired
+    @Qualifier("calcOfficeManager")
+    private ElasticOfficeManager calcOfficeManager;
+
+    @Autowired
+    @Qualifier("writerOfficeManager")
+    private ElasticOfficeManager writerOfficeManager;
+
+    // Office通道启动中时建议客户端的重试间隔（秒）
+    private static final int WARMING_RETRY_AFTER_SECONDS = 5;
 
     /**
      * Excel转PDF
      * POST /excel/topdf
      * 返回JSON: {url: "/download/xxx.pdf"}
+     * async=true时立即返回202和任务ID，通过 /jobs/{id} 查询结果
+     * profile：导出配置 preview / standard（默认）/ archive，见ConversionProfile
+     * pages：只导出指定页，如 1-3,5（按打印分页计算，跨工作表连续编号）
      */
     @PostMapping(value = "/excel/topdf", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> convertExcelToPdf(@RequestParam("file") MultipartFile file) {
+    public CompletableFuture<ResponseEntity<?>> convertExcelToPdf(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "profile", required = false, defaultValue = "standard") String profile,
+            @RequestParam(value = "pages", required = false) String pages,
+            @RequestParam(value = "async", required = false, defaultValue = "false") boolean async) {
+        AdmissionControl.Permit permit = null;
+        InputSpool.SpooledFile input = null;
         try {
             // 验证文件
             if (file.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("上传的文件为空"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("上传的文件为空")));
             }
 
             String originalFilename = file.getOriginalFilename();
             if (originalFilename == null || !isExcelFile(originalFilename)) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("只支持 Excel 文件 (.xls, .xlsx, .xlsm)"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("只支持 Excel 文件 (.xls, .xlsx, .xlsm)")));
             }
 
-            System.out.println("开始转换: " + originalFilename);
-
-            // 转换Excel到PDF
-            byte[] pdfBytes = conversionService.convertExcelToPdf(file.getBytes());
-
-            // 保存PDF到临时目录
-            File tempDir = new File(TEMP_DIR);
-            if (!tempDir.exists()) {
-                tempDir.mkdirs();
+            ConversionProfile conversionProfile = ConversionProfile.fromKey(profile);
+            if (conversionProfile == null) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("不支持的导出配置: " + profile + "（可选 preview, standard, archive）")));
             }
 
-            // 生成唯一文件名
-            String pdfFileName = UUID.randomUUID().toString() + "_" + getOutputFilename(originalFilename, ".pdf");
-            File pdfFile = new File(tempDir, pdfFileName);
+            PageRange pageRange;
+            try {
+                pageRange = PageRange.parse(pages);
+            } catch (IllegalArgumentException e) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse(e.getMessage())));
+            }
 
-            try (FileOutputStream fos = new FileOutputStream(pdfFile)) {
-                fos.write(pdfBytes);
+            if (!calcOfficeManager.isReady()) {
+                return CompletableFuture.completedFuture(createWarmingResponse(calcOfficeManager));
+            }
+            // 准入控制：在读取上传内容之前判断，队列已满时快速返回429
+            permit = admissionControl.tryAcquire(ConversionType.EXCEL_TO_PDF);
+            if (permit == null) {
+                return CompletableFuture.completedFuture(createBusyResponse(ConversionType.EXCEL_TO_PDF));
             }
 
-            System.out.println("转换成功: " + originalFilename + " -> " + pdfFileName + 
-                             " (大小: " + (pdfBytes.length / 1024) + "KB)");
+            System.out.println("开始转换: " + originalFilename);
 
-            // 返回JSON响应，包含下载URL
-            Map<String, String> response = new HashMap<>();
-            response.put("url", "/download/" + pdfFileName);
-            return ResponseEntity.ok(response);
+            // 转换Excel到PDF（在任务线程中执行，许可和落盘的上传文件随任务结束释放）
+            input = inputSpool.spool(file);
+            File excelFile = input.getFile();
+            String excelSha256 = input.getSha256();
+            ConversionJob job = jobService.submit(ConversionType.EXCEL_TO_PDF, originalFilename,
+                    getOutputFilename(originalFilename, ".pdf"), permit, Collections.singletonList(input),
+                    SingleFlight.key(ConversionType.EXCEL_TO_PDF, conversionProfile.getKey(pageRange), excelSha256),
+                    sink -> conversionService.convertExcelToPdf(excelFile, excelSha256, sink, conversionProfile,
+                            pageRange, conversionProfile.getPriority()));
+            permit = null;
+            input = null;
+
+            return respond(job, async, this::createUrlResponse);
 
         } catch (Exception e) {
             e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(createErrorResponse("转换失败: " + e.getMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("转换失败: " + e.getMessage())));
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
+            if (input != null) {
+                input.close();
+            }
         }
     }
 
@@ -103,126 +170,158 @@ public class ExcelToPdfController {
      * Word转PDF
      * POST /word/topdf
      * 接收Word文件（.doc或.docx），返回PDF文件的下载URL
+     * async=true时立即返回202和任务ID，通过 /jobs/{id} 查询结果
+     * profile：导出配置 preview / standard（默认）/ archive，见ConversionProfile
+     * pages：只导出指定页，如 1-3,5
      */
     @PostMapping(value = "/word/topdf", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> convertWordToPdf(@RequestParam("file") MultipartFile file) {
+    public CompletableFuture<ResponseEntity<?>> convertWordToPdf(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "profile", required = false, defaultValue = "standard") String profile,
+            @RequestParam(value = "pages", required = false) String pages,
+            @RequestParam(value = "async", required = false, defaultValue = "false") boolean async) {
+        AdmissionControl.Permit permit = null;
+        InputSpool.SpooledFile input = null;
         try {
             // 验证文件
             if (file.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("上传的文件为空"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("上传的文件为空")));
             }
 
             String originalFilename = file.getOriginalFilename();
             if (originalFilename == null || !isWordFile(originalFilename)) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("只支持 Word 文件 (.doc, .docx)"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("只支持 Word 文件 (.doc, .docx)")));
             }
 
-            System.out.println("开始转换 Word -> PDF: " + originalFilename);
-
-            // 转换Word到PDF
-            byte[] pdfBytes = conversionService.convertWordToPdf(file.getBytes());
+            ConversionProfile conversionProfile = ConversionProfile.fromKey(profile);
+            if (conversionProfile == null) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("不支持的导出配置: " + profile + "（可选 preview, standard, archive）")));
+            }
 
-            // 保存PDF到临时目录
-            File tempDir = new File(TEMP_DIR);
-            if (!tempDir.exists()) {
-                tempDir.mkdirs();
+            PageRange pageRange;
+            try {
+                pageRange = PageRange.parse(pages);
+            } catch (IllegalArgumentException e) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse(e.getMessage())));
             }
 
-            // 生成唯一文件名
-            String pdfFileName = UUID.randomUUID().toString() + "_" + getOutputFilename(originalFilename, ".pdf");
-            File pdfFile = new File(tempDir, pdfFileName);
+            if (!writerOfficeManager.isReady()) {
+                return CompletableFuture.completedFuture(createWarmingResponse(writerOfficeManager));
+            }
 
-            try (FileOutputStream fos = new FileOutputStream(pdfFile)) {
-                fos.write(pdfBytes);
+            // 准入控制：在读取上传内容之前判断，队列已满时快速返回429
+            permit = admissionControl.tryAcquire(ConversionType.WORD_TO_PDF);
+            if (permit == null) {
+                return CompletableFuture.completedFuture(createBusyResponse(ConversionType.WORD_TO_PDF));
             }
 
-            System.out.println("转换成功: " + originalFilename + " -> " + pdfFileName + 
-                             " (大小: " + (pdfBytes.length / 1024) + "KB)");
+            System.out.println("开始转换 Word -> PDF: " + originalFilename);
 
-            // 返回JSON响应，包含下载URL
-            Map<String, String> response = new HashMap<>();
-            response.put("url", "/download/" + pdfFileName);
-            return ResponseEntity.ok(response);
+            // 转换Word到PDF（在任务线程中执行，许可和落盘的上传文件随任务结束释放）
+            input = inputSpool.spool(file);
+            File wordFile = input.getFile();
+            String wordSha256 = input.getSha256();
+            ConversionJob job = jobService.submit(ConversionType.WORD_TO_PDF, originalFilename,
+                    getOutputFilename(originalFilename, ".pdf"), permit, Collections.singletonList(input),
+                    SingleFlight.key(ConversionType.WORD_TO_PDF, conversionProfile.getKey(pageRange), wordSha256),
+                    sink -> conversionService.convertWordToPdf(wordFile, wordSha256, sink, conversionProfile,
+                            pageRange, conversionProfile.getPriority()));
+            permit = null;
+            input = null;
+
+            return respond(job, async, this::createUrlResponse);
 
         } catch (Exception e) {
             e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(createErrorResponse("转换失败: " + e.getMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("转换失败: " + e.getMessage())));
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
+            if (input != null) {
+                input.close();
+            }
         }
     }
 
     /**
      * PDF转Excel
      * POST /pdf/toexcel
+     * async=true时立即返回202和任务ID，通过 /jobs/{id} 查询结果
      */
     @PostMapping(value = "/pdf/toexcel", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> convertPdfToExcel(@RequestParam("file") MultipartFile file) {
+    public CompletableFuture<ResponseEntity<?>> convertPdfToExcel(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "async", required = false, defaultValue = "false") boolean async) {
+        AdmissionControl.Permit permit = null;
+        InputSpool.SpooledFile input = null;
         try {
             if (file.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("上传的文件为空"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("上传的文件为空")));
             }
 
             String originalFilename = file.getOriginalFilename();
             if (originalFilename == null || !isPdfFile(originalFilename)) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("只支持 PDF 文件 (.pdf)"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("只支持 PDF 文件 (.pdf)")));
             }
-
-            System.out.println("开始转换 PDF -> Excel (增强版): " + originalFilename);
-
-            // 使用增强版PDF转Excel服务，支持复杂表格
-            byte[] excelBytes = enhancedPdfToExcelService.convertPdfToExcel(file.getBytes());
-
-            File tempDir = new File(TEMP_DIR);
-            if (!tempDir.exists()) {
-                tempDir.mkdirs();
+            // 准入控制：在读取上传内容之前判断，队列已满时快速返回429
+            permit = admissionControl.tryAcquire(ConversionType.PDF_TO_EXCEL);
+            if (permit == null) {
+                return CompletableFuture.completedFuture(createBusyResponse(ConversionType.PDF_TO_EXCEL));
             }
 
-            String excelFileName = UUID.randomUUID().toString() + "_" + getOutputFilename(originalFilename, ".xlsx");
-            File excelFile = new File(tempDir, excelFileName);
-
-            try (FileOutputStream fos = new FileOutputStream(excelFile)) {
-                fos.write(excelBytes);
-            }
+            System.out.println("开始转换 PDF -> Excel (增强版): " + originalFilename);
 
-            System.out.println("转换成功: " + originalFilename + " -> " + excelFileName +
-                    " (大小: " + (excelBytes.length / 1024) + "KB)");
+            // 使用增强版PDF转Excel服务，支持复杂表格（在任务线程中执行，许可和落盘的上传文件随任务结束释放）
+            input = inputSpool.spool(file);
+            File pdfFile = input.getFile();
+            ConversionJob job = jobService.submit(ConversionType.PDF_TO_EXCEL, originalFilename,
+                    getOutputFilename(originalFilename, ".xlsx"), permit, Collections.singletonList(input),
+                    SingleFlight.key(ConversionType.PDF_TO_EXCEL, "enhanced", input.getSha256()),
+                    sink -> enhancedPdfToExcelService.convertPdfToExcel(pdfFile, sink));
+            permit = null;
+            input = null;
 
-            Map<String, String> response = new HashMap<>();
-            response.put("url", "/download/" + excelFileName);
-            return ResponseEntity.ok(response);
+            return respond(job, async, this::createUrlResponse);
 
         } catch (Exception e) {
             e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(createErrorResponse("转换失败: " + e.getMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("转换失败: " + e.getMessage())));
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
+            if (input != null) {
+                input.close();
+            }
         }
     }
 
+    /**
+     * 下载结果文件
+     * 支持Range断点续传、ETag（结果内容的SHA-256）和If-None-Match，大文件用sendfile零拷贝发送
+     */
     @GetMapping("/download/{filename}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String filename) {
+    public ResponseEntity<?> downloadFile(@PathVariable String filename,
+                                          HttpServletRequest request, HttpServletResponse response) {
         try {
-            Path filePath = Paths.get(TEMP_DIR, filename);
-            File file = filePath.toFile();
-
-            if (!file.exists()) {
+            // 不存在、已过期或已被淘汰
+            OutputStore.StoredFile storedFile = outputStore.get(filename);
+            if (storedFile == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            Resource resource = new FileSystemResource(file);
-            HttpHeaders headers = new HttpHeaders();
-            MediaType contentType = MediaTypeFactory
-                    .getMediaType(resource)
-                    .orElse(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentType(contentType);
-            headers.setContentDispositionFormData("attachment", filename);
-
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(resource);
+            fileDownloadService.send(storedFile, request, response);
+            // 响应已直接写出
+            return null;
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -260,84 +359,121 @@ public class ExcelToPdfController {
      * Word转PDF（高性能优化版）
      * 
      * 优化特性：
-     * - 性能高：并发处理，3个进程池
+     * - 性能高：并发处理，Writer通道独立弹性进程池
      * - 速度快：5分钟超时，快速失败
      * - 格式完整：高质量PDF导出（300 DPI）
      * - 保留所有格式：字体、样式、图片、表格
+     *
+     * profile：导出配置 preview / standard / archive；未指定时fast=true为preview，否则为standard
+     * async=true时立即返回202和任务ID，通过 /jobs/{id} 查询结果
      */
     @PostMapping(value = "/word/topdf/optimized", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> convertWordToPdfOptimized(
+    public CompletableFuture<ResponseEntity<?>> convertWordToPdfOptimized(
             @RequestParam("file") MultipartFile file,
-            @RequestParam(value = "fast", required = false, defaultValue = "false") boolean fast) {
+            @RequestParam(value = "fast", required = false, defaultValue = "false") boolean fast,
+            @RequestParam(value = "profile", required = false) String profile,
+            @RequestParam(value = "async", required = false, defaultValue = "false") boolean async) {
+        AdmissionControl.Permit permit = null;
+        InputSpool.SpooledFile input = null;
         try {
             // 验证文件
             if (file.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("上传的文件为空"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("上传的文件为空")));
             }
 
             String originalFilename = file.getOriginalFilename();
             if (originalFilename == null || !isWordFile(originalFilename)) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("只支持 Word 文件 (.doc, .docx)"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("只支持 Word 文件 (.doc, .docx)")));
             }
 
-            System.out.println("========================================");
-            System.out.println("开始转换 Word -> PDF (优化版)");
-            System.out.println("文件: " + originalFilename);
-            System.out.println("大小: " + (file.getSize() / 1024) + " KB");
-            System.out.println("模式: " + (fast ? "快速模式" : "高质量模式"));
-            System.out.println("========================================");
-
-            long startTime = System.currentTimeMillis();
-
-            // 使用优化的服务
-            byte[] pdfBytes;
-            if (fast) {
-                pdfBytes = optimizedConversionService.convertWordToPdfFast(file.getBytes());
-            } else {
-                pdfBytes = optimizedConversionService.convertWordToPdf(file.getBytes());
+            ConversionProfile conversionProfile = profile == null
+                    ? (fast ? ConversionProfile.PREVIEW : ConversionProfile.STANDARD)
+                    : ConversionProfile.fromKey(profile);
+            if (conversionProfile == null) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("不支持的导出配置: " + profile + "（可选 preview, standard, archive）")));
             }
 
-            long duration = System.currentTimeMillis() - startTime;
-
-            // 保存PDF到临时目录
-            File tempDir = new File(TEMP_DIR);
-            if (!tempDir.exists()) {
-                tempDir.mkdirs();
+            if (!writerOfficeManager.isReady()) {
+                return CompletableFuture.completedFuture(createWarmingResponse(writerOfficeManager));
             }
 
-            String pdfFileName = UUID.randomUUID().toString() + "_" + getOutputFilename(originalFilename, ".pdf");
-            File pdfFile = new File(tempDir, pdfFileName);
-
-            try (FileOutputStream fos = new FileOutputStream(pdfFile)) {
-                fos.write(pdfBytes);
+            // 准入控制：在读取上传内容之前判断，队列已满时快速返回429
+            permit = admissionControl.tryAcquire(ConversionType.WORD_TO_PDF);
+            if (permit == null) {
+                return CompletableFuture.completedFuture(createBusyResponse(ConversionType.WORD_TO_PDF));
             }
 
             System.out.println("========================================");
-            System.out.println("转换成功: " + originalFilename + " -> " + pdfFileName);
-            System.out.println("总耗时: " + duration + " ms");
-            System.out.println("输出大小: " + (pdfBytes.length / 1024) + " KB");
-            System.out.println("性能: " + String.format("%.2f", (double)file.getSize() / duration) + " KB/ms");
+            System.out.println("开始转换 Word -> PDF (优化版)");
+            System.out.println("文件: " + originalFilename);
+            System.out.println("大小: " + (file.getSize() / 1024) + " KB");
+            System.out.println("导出配置: " + conversionProfile.getDescription());
             System.out.println("========================================");
 
-            // 返回JSON响应
-            Map<String, Object> response = new HashMap<>();
-            response.put("url", "/download/" + pdfFileName);
-            response.put("filename", pdfFileName);
-            response.put("size", pdfBytes.length);
-            response.put("duration", duration + "ms");
-            response.put("mode", fast ? "fast" : "quality");
-            return ResponseEntity.ok(response);
-
-        } catch (java.util.concurrent.TimeoutException e) {
-            System.err.println("转换超时: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.REQUEST_TIMEOUT)
-                    .body(createErrorResponse("转换超时（超过5分钟），请尝试使用快速模式或减小文件大小"));
+            // 使用优化的服务（在任务线程中执行，许可和落盘的上传文件随任务结束释放）
+            input = inputSpool.spool(file);
+            File wordFile = input.getFile();
+            String wordSha256 = input.getSha256();
+            long inputSize = input.length();
+            ConversionJob job = jobService.submit(ConversionType.WORD_TO_PDF, originalFilename,
+                    getOutputFilename(originalFilename, ".pdf"), permit, Collections.singletonList(input),
+                    SingleFlight.key(ConversionType.WORD_TO_PDF, conversionProfile.getKey(), wordSha256),
+                    sink -> {
+                        if (conversionProfile == ConversionProfile.PREVIEW) {
+                            optimizedConversionService.convertWordToPdfFast(wordFile, wordSha256, sink);
+                        } else {
+                            optimizedConversionService.convertWordToPdf(wordFile, wordSha256, sink, conversionProfile);
+                        }
+                    });
+            permit = null;
+            input = null;
+
+            if (async) {
+                return CompletableFuture.completedFuture(createAcceptedResponse(job));
+            }
+            return job.getCompletion().thenApply(done -> {
+                if (done.getError() instanceof TimeoutException) {
+                    System.err.println("转换超时: " + done.getError().getMessage());
+                    return ResponseEntity.status(HttpStatus.REQUEST_TIMEOUT)
+                            .body(createErrorResponse("转换超时（超过5分钟），请尝试使用快速模式或减小文件大小"));
+                }
+                if (done.getStatus() != ConversionJob.Status.SUCCEEDED) {
+                    return createFailedResponse(done);
+                }
+
+                long duration = done.getDurationMillis();
+                System.out.println("========================================");
+                System.out.println("转换成功: " + originalFilename + " -> " + done.getResultFilename());
+                System.out.println("总耗时: " + duration + " ms");
+                System.out.println("输出大小: " + (done.getResultSize() / 1024) + " KB");
+                System.out.println("性能: " + String.format("%.2f", (double) inputSize / Math.max(1, duration)) + " KB/ms");
+                System.out.println("========================================");
+
+                // 返回JSON响应
+                Map<String, Object> response = new HashMap<>();
+                response.put("url", "/download/" + done.getResultFilename());
+                response.put("filename", done.getResultFilename());
+                response.put("size", done.getResultSize());
+                response.put("duration", duration + "ms");
+                response.put("mode", conversionProfile == ConversionProfile.PREVIEW ? "fast" : "quality");
+                response.put("profile", conversionProfile.getKey());
+                return ResponseEntity.ok(response);
+            });
+
         } catch (Exception e) {
             e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(createErrorResponse("转换失败: " + e.getMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("转换失败: " + e.getMessage())));
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
+            if (input != null) {
+                input.close();
+            }
         }
     }
 
@@ -350,8 +486,13 @@ public class ExcelToPdfController {
         response.put("service", "Word to PDF Converter (Optimized)");
         response.put("version", "2.0");
         response.put("status", optimizedConversionService.getStatus());
+        List<Map<String, Object>> officePools = new ArrayList<>();
+        for (ElasticOfficeManager officeManager : officeManagers) {
+            officePools.add(officeManager.getStatus());
+        }
+        response.put("officePools", officePools);
         response.put("features", new String[]{
-            "并发处理（3个进程池）",
+            "并发处理（Writer/Calc/Impress独立弹性进程池）",
             "超时控制（5分钟）",
             "自动重试（1次）",
             "高质量PDF（300 DPI）",
@@ -370,6 +511,80 @@ public class ExcelToPdfController {
                lowerCaseFilename.endsWith(".docx");
     }
 
+    /**
+     * 异步模式立即返回202和任务ID；同步模式在任务结束后返回结果，
+     * 等待期间不占用Tomcat线程（Spring MVC异步请求）
+     */
+    private CompletableFuture<ResponseEntity<?>> respond(ConversionJob job, boolean async,
+                                                         Function<ConversionJob, ResponseEntity<?>> onSuccess) {
+        if (async) {
+            return CompletableFuture.completedFuture(createAcceptedResponse(job));
+        }
+        return job.getCompletion().thenApply(done ->
+                done.getStatus() == ConversionJob.Status.SUCCEEDED ? onSuccess.apply(done) : createFailedResponse(done));
+    }
+
+    /**
+     * 返回JSON: {url: "/download/xxx"}
+     */
+    private ResponseEntity<?> createUrlResponse(ConversionJob job) {
+        System.out.println("转换成功: " + job.getSourceFilename() + " -> " + job.getResultFilename() +
+                         " (大小: " + (job.getResultSize() / 1024) + "KB)");
+        Map<String, String> response = new HashMap<>();
+        response.put("url", "/download/" + job.getResultFilename());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 异步提交成功：202，Location指向任务状态
+     */
+    private ResponseEntity<?> createAcceptedResponse(ConversionJob job) {
+        Map<String, Object> accepted = job.toMap();
+        accepted.put("jobId", job.getId());
+        accepted.put("statusUrl", "/jobs/" + job.getId());
+        accepted.put("eventsUrl", "/jobs/" + job.getId() + "/events");
+        accepted.put("resultUrl", "/jobs/" + job.getId() + "/result");
+        return ResponseEntity.accepted()
+                .location(URI.create("/jobs/" + job.getId()))
+                .body(accepted);
+    }
+
+    private ResponseEntity<?> createFailedResponse(ConversionJob job) {
+        Throwable error = job.getError();
+        error.printStackTrace();
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(createErrorResponse("转换失败: " + error.getMessage()));
+    }
+
+    /**
+     * Office通道尚未就绪（LibreOffice进程仍在后台启动）时快速返回503，
+     * 客户端按Retry-After重试，而不是阻塞到队列超时
+     */
+    private ResponseEntity<?> createWarmingResponse(ElasticOfficeManager officeManager) {
+        Map<String, Object> warming = new HashMap<>();
+        warming.put("status", "warming");
+        warming.put("state", officeManager.getState());
+        warming.put("lane", officeManager.getName());
+        warming.put("error", "转换服务正在启动，请稍后重试");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(WARMING_RETRY_AFTER_SECONDS))
+                .body(warming);
+    }
+
+    /**
+     * 转换请求过多时快速返回429，Retry-After为预计的排队时间
+     */
+    private ResponseEntity<?> createBusyResponse(ConversionType type) {
+        long retryAfter = admissionControl.getRetryAfterSeconds(type);
+        Map<String, Object> busy = new HashMap<>();
+        busy.put("status", "busy");
+        busy.put("retryAfter", retryAfter);
+        busy.put("error", type.getDescription() + "请求过多，请" + retryAfter + "秒后重试");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body(busy);
+    }
+
     /**
      * 创建错误响应
      */
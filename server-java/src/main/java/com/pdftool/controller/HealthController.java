@@ -1,11 +1,20 @@
 package com.pdftool.controller;
 
+import com.pdftool.office.ElasticOfficeManager;
+import com.pdftool.service.EnhancedPdfToExcelService;
+import com.pdftool.service.ImageToPdfService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -16,19 +25,103 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class HealthController {
 
+    // 未启用JodConverter时没有Office进程池
+    @Autowired(required = false)
+    private List<ElasticOfficeManager> officeManagers;
+
+    @Autowired(required = false)
+    private ImageToPdfService imageToPdfService;
+
+    @Autowired(required = false)
+    private EnhancedPdfToExcelService pdfToExcelService;
+
+    // PDF转Excel接口与Office接口在同一个Controller中，随JodConverter一起启用
+    @Value("${jodconverter.enabled:false}")
+    private boolean jodConverterEnabled;
+
     /**
      * 健康检查端点
      * GET /health
      */
     @GetMapping("/health")
-    public ResponseEntity<Map<String, String>> health() {
-        Map<String, String> response = new HashMap<>();
+    public ResponseEntity<Map<String, Object>> health() {
+        Map<String, Object> response = new HashMap<>();
         response.put("status", "UP");
         response.put("service", "PDF Tool Java Service");
         response.put("version", "2.0");
+        response.put("ready", isReady());
+        response.put("subsystems", getSubsystemStates());
+        response.put("office", getOfficeStatus());
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * 就绪检查端点（供负载均衡/容器编排使用）
+     * GET /health/ready
+     *
+     * 所有已启用的子系统就绪时返回200，Office进程池仍在启动时返回503
+     */
+    @GetMapping("/health/ready")
+    public ResponseEntity<Map<String, Object>> ready() {
+        boolean ready = isReady();
+        Map<String, Object> response = new HashMap<>();
+        response.put("ready", ready);
+        response.put("subsystems", getSubsystemStates());
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
+
+    /**
+     * 各子系统状态：READY / STARTING / FAILED / STOPPED / DISABLED
+     *
+     * 图片转PDF和PDF转Excel是纯Java实现，应用启动后即可用；
+     * Office通道在LibreOffice进程启动并预热完成后才就绪
+     */
+    private Map<String, String> getSubsystemStates() {
+        Map<String, String> states = new LinkedHashMap<>();
+        states.put("imageToPdf", imageToPdfService != null ? "READY" : "DISABLED");
+        states.put("pdfToExcel", pdfToExcelService != null && jodConverterEnabled ? "READY" : "DISABLED");
+        if (officeManagers != null) {
+            for (ElasticOfficeManager officeManager : officeManagers) {
+                states.put("office." + officeManager.getName(), officeManager.getState());
+            }
+        }
+        return states;
+    }
+
+    private boolean isReady() {
+        for (String state : getSubsystemStates().values()) {
+            if (!"READY".equals(state) && !"DISABLED".equals(state)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 各Office通道的进程数和预热耗时
+     */
+    private List<Map<String, Object>> getOfficeStatus() {
+        List<Map<String, Object>> lanes = new ArrayList<>();
+        if (officeManagers == null) {
+            return lanes;
+        }
+        for (ElasticOfficeManager officeManager : officeManagers) {
+            Map<String, Object> pool = officeManager.getStatus();
+            Map<String, Object> lane = new LinkedHashMap<>();
+            lane.put("lane", pool.get("name"));
+            lane.put("state", pool.get("state"));
+            lane.put("readyMs", pool.get("readyMs"));
+            lane.put("processes", pool.get("processes"));
+            lane.put("busy", pool.get("busy"));
+            lane.put("warmups", pool.get("warmups"));
+            lane.put("lastWarmupMs", pool.get("lastWarmupMs"));
+            lane.put("avgWarmupMs", pool.get("avgWarmupMs"));
+            lane.put("processList", pool.get("processList"));
+            lanes.add(lane);
+        }
+        return lanes;
+    }
+
     /**
      * 根路径
      */
@@ -1,8 +1,15 @@
 package com.pdftool.controller;
 
+import com.pdftool.service.AdmissionControl;
+import com.pdftool.service.ConversionJob;
+import com.pdftool.service.ConversionType;
 import com.pdftool.service.ImageToPdfService;
 import com.pdftool.service.ImageToPdfService.ImageData;
+import com.pdftool.service.InputSpool;
+import com.pdftool.service.JobService;
+import com.pdftool.service.SingleFlight;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -10,8 +17,10 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 图片转PDF控制器
@@ -34,36 +43,53 @@ public class ImageToPdfController {
     @Autowired
     private com.pdftool.service.ImageSessionManager sessionManager;
 
-    // 临时文件存储目录
-    private static final String TEMP_DIR = "temp";
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private InputSpool inputSpool;
 
     /**
      * 单张图片转PDF
      * 
      * @param file 图片文件
+     * @param async true时立即返回202和任务ID，通过 /jobs/{id} 查询结果
      * @return JSON响应，包含PDF下载URL
      */
     @PostMapping(value = "/image/topdf", 
                 consumes = MediaType.MULTIPART_FORM_DATA_VALUE, 
                 produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> convertImageToPdf(@RequestParam("file") MultipartFile file) {
+    public CompletableFuture<ResponseEntity<?>> convertImageToPdf(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "async", required = false, defaultValue = "false") boolean async) {
+        AdmissionControl.Permit permit = null;
+        InputSpool.SpooledFile input = null;
         try {
             // 验证文件
             if (file.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("上传的文件为空"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("上传的文件为空")));
             }
 
             String originalFilename = file.getOriginalFilename();
             if (originalFilename == null || !isImageFile(originalFilename)) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("只支持图片文件 (jpg, png, gif, bmp, tiff, webp)"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("只支持图片文件 (jpg, png, gif, bmp, tiff, webp)")));
             }
 
             // 文件大小限制：20MB
             if (file.getSize() > 20 * 1024 * 1024) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("图片文件不能超过20MB"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("图片文件不能超过20MB")));
+            }
+
+            // 准入控制：在读取上传内容之前判断，队列已满时快速返回429
+            permit = admissionControl.tryAcquire(ConversionType.IMAGE_TO_PDF);
+            if (permit == null) {
+                return CompletableFuture.completedFuture(createBusyResponse(ConversionType.IMAGE_TO_PDF));
             }
 
             System.out.println("========================================");
@@ -72,51 +98,53 @@ public class ImageToPdfController {
             System.out.println("大小: " + (file.getSize() / 1024) + " KB");
             System.out.println("========================================");
 
-            long startTime = System.currentTimeMillis();
-
             // 获取图片格式
             String format = getFileExtension(originalFilename);
             
-            // 转换图片到PDF
-            byte[] pdfBytes = imageToPdfService.convertImageToPdf(
-                file.getBytes(), 
-                format
-            );
-
-            long duration = System.currentTimeMillis() - startTime;
-
-            // 保存PDF到临时目录
-            File tempDir = new File(TEMP_DIR);
-            if (!tempDir.exists()) {
-                tempDir.mkdirs();
+            // 转换图片到PDF（在任务线程中执行，许可和落盘的上传文件随任务结束释放）
+            input = inputSpool.spool(file);
+            File imageFile = input.getFile();
+            ConversionJob job = jobService.submit(ConversionType.IMAGE_TO_PDF, originalFilename,
+                    getBaseName(originalFilename) + ".pdf", permit, Collections.singletonList(input),
+                    SingleFlight.key(ConversionType.IMAGE_TO_PDF, format, input.getSha256()),
+                    sink -> imageToPdfService.convertImageToPdf(imageFile, format, sink));
+            permit = null;
+            input = null;
+
+            if (async) {
+                return CompletableFuture.completedFuture(createAcceptedResponse(job));
             }
+            return job.getCompletion().thenApply(done -> {
+                if (done.getStatus() != ConversionJob.Status.SUCCEEDED) {
+                    return createFailedResponse(done, "转换失败: ");
+                }
 
-            String pdfFileName = UUID.randomUUID().toString() + "_" + 
-                                getBaseName(originalFilename) + ".pdf";
-            File pdfFile = new File(tempDir, pdfFileName);
-
-            try (FileOutputStream fos = new FileOutputStream(pdfFile)) {
-                fos.write(pdfBytes);
-            }
-
-            System.out.println("========================================");
-            System.out.println("转换成功: " + originalFilename + " -> " + pdfFileName);
-            System.out.println("总耗时: " + duration + " ms");
-            System.out.println("PDF大小: " + (pdfBytes.length / 1024) + " KB");
-            System.out.println("========================================");
-
-            // 返回JSON响应
-            Map<String, Object> response = new HashMap<>();
-            response.put("url", "/download/" + pdfFileName);
-            response.put("filename", pdfFileName);
-            response.put("size", pdfBytes.length);
-            response.put("duration", duration + "ms");
-            return ResponseEntity.ok(response);
+                System.out.println("========================================");
+                System.out.println("转换成功: " + originalFilename + " -> " + done.getResultFilename());
+                System.out.println("总耗时: " + done.getDurationMillis() + " ms");
+                System.out.println("PDF大小: " + (done.getResultSize() / 1024) + " KB");
+                System.out.println("========================================");
+
+                // 返回JSON响应
+                Map<String, Object> response = new HashMap<>();
+                response.put("url", "/download/" + done.getResultFilename());
+                response.put("filename", done.getResultFilename());
+                response.put("size", done.getResultSize());
+                response.put("duration", done.getDurationMillis() + "ms");
+                return ResponseEntity.ok(response);
+            });
 
         } catch (Exception e) {
             e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(createErrorResponse("转换失败: " + e.getMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("转换失败: " + e.getMessage())));
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
+            if (input != null) {
+                input.close();
+            }
         }
     }
 
@@ -124,31 +152,39 @@ public class ImageToPdfController {
      * 多张图片合并为一个PDF
      * 
      * @param files 多个图片文件
+     * @param async true时立即返回202和任务ID，通过 /jobs/{id} 查询结果
      * @return JSON响应，包含PDF下载URL
      */
     @PostMapping(value = "/images/topdf", 
                 consumes = MediaType.MULTIPART_FORM_DATA_VALUE, 
                 produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> convertImagesToPdf(
-            @RequestParam("files") MultipartFile[] files) {
+    public CompletableFuture<ResponseEntity<?>> convertImagesToPdf(
+            @RequestParam("files") MultipartFile[] files,
+            @RequestParam(value = "async", required = false, defaultValue = "false") boolean async) {
+        AdmissionControl.Permit permit = null;
+        List<InputSpool.SpooledFile> inputs = new ArrayList<>();
         try {
             // 验证文件
             if (files == null || files.length == 0) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("请至少上传一张图片"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("请至少上传一张图片")));
             }
 
             if (files.length > 50) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("最多支持50张图片"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("最多支持50张图片")));
+            }
+
+            // 准入控制：在读取上传内容之前判断，队列已满时快速返回429
+            permit = admissionControl.tryAcquire(ConversionType.IMAGE_TO_PDF);
+            if (permit == null) {
+                return CompletableFuture.completedFuture(createBusyResponse(ConversionType.IMAGE_TO_PDF));
             }
 
             System.out.println("========================================");
             System.out.println("开始批量转换 " + files.length + " 张图片 -> PDF");
             System.out.println("========================================");
 
-            long startTime = System.currentTimeMillis();
-
             // 准备图片数据列表
             List<ImageData> imageDataList = new ArrayList<>();
             long totalSize = 0;
@@ -168,21 +204,23 @@ public class ImageToPdfController {
 
                 // 单个文件大小限制
                 if (file.getSize() > 20 * 1024 * 1024) {
-                    return ResponseEntity.badRequest()
-                            .body(createErrorResponse("图片 " + filename + " 超过20MB"));
+                    return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                            .body(createErrorResponse("图片 " + filename + " 超过20MB")));
                 }
 
                 totalSize += file.getSize();
                 
                 // 总大小限制：100MB
                 if (totalSize > 100 * 1024 * 1024) {
-                    return ResponseEntity.badRequest()
-                            .body(createErrorResponse("图片总大小不能超过100MB"));
+                    return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                            .body(createErrorResponse("图片总大小不能超过100MB")));
                 }
 
                 String format = getFileExtension(filename);
+                InputSpool.SpooledFile input = inputSpool.spool(file);
+                inputs.add(input);
                 imageDataList.add(new ImageData(
-                    file.getBytes(), 
+                    input.getFile(), 
                     format, 
                     filename
                 ));
@@ -192,50 +230,56 @@ public class ImageToPdfController {
             }
 
             if (imageDataList.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("没有有效的图片文件"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("没有有效的图片文件")));
             }
 
-            // 批量转换
-            byte[] pdfBytes = imageToPdfService.convertImagesToPdf(imageDataList);
-
-            long duration = System.currentTimeMillis() - startTime;
+            // 批量转换（在任务线程中执行，许可和落盘的上传文件随任务结束释放）
+            int pages = imageDataList.size();
+            ConversionJob job = jobService.submit(ConversionType.IMAGE_TO_PDF, pages + " images",
+                    "merged_" + pages + "pages.pdf", permit, inputs, getFlightKey(imageDataList, inputs),
+                    sink -> imageToPdfService.convertImagesToPdf(imageDataList, sink));
+            permit = null;
+            inputs = null;
 
-            // 保存PDF
-            File tempDir = new File(TEMP_DIR);
-            if (!tempDir.exists()) {
-                tempDir.mkdirs();
+            if (async) {
+                return CompletableFuture.completedFuture(createAcceptedResponse(job));
             }
+            return job.getCompletion().thenApply(done -> {
+                if (done.getStatus() != ConversionJob.Status.SUCCEEDED) {
+                    return createFailedResponse(done, "批量转换失败: ");
+                }
 
-            String pdfFileName = UUID.randomUUID().toString() + "_merged_" + 
-                                imageDataList.size() + "pages.pdf";
-            File pdfFile = new File(tempDir, pdfFileName);
-
-            try (FileOutputStream fos = new FileOutputStream(pdfFile)) {
-                fos.write(pdfBytes);
-            }
-
-            System.out.println("========================================");
-            System.out.println("批量转换成功！");
-            System.out.println("图片数量: " + imageDataList.size());
-            System.out.println("总耗时: " + duration + " ms");
-            System.out.println("平均: " + (duration / imageDataList.size()) + " ms/图");
-            System.out.println("PDF大小: " + (pdfBytes.length / 1024) + " KB");
-            System.out.println("========================================");
-
-            // 返回JSON响应
-            Map<String, Object> response = new HashMap<>();
-            response.put("url", "/download/" + pdfFileName);
-            response.put("filename", pdfFileName);
-            response.put("size", pdfBytes.length);
-            response.put("pages", imageDataList.size());
-            response.put("duration", duration + "ms");
-            return ResponseEntity.ok(response);
+                long duration = done.getDurationMillis();
+                System.out.println("========================================");
+                System.out.println("批量转换成功！");
+                System.out.println("图片数量: " + pages);
+                System.out.println("总耗时: " + duration + " ms");
+                System.out.println("平均: " + (duration / pages) + " ms/图");
+                System.out.println("PDF大小: " + (done.getResultSize() / 1024) + " KB");
+                System.out.println("========================================");
+
+                // 返回JSON响应
+                Map<String, Object> response = new HashMap<>();
+                response.put("url", "/download/" + done.getResultFilename());
+                response.put("filename", done.getResultFilename());
+                response.put("size", done.getResultSize());
+                response.put("pages", pages);
+                response.put("duration", duration + "ms");
+                return ResponseEntity.ok(response);
+            });
 
         } catch (Exception e) {
             e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(createErrorResponse("批量转换失败: " + e.getMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("批量转换失败: " + e.getMessage())));
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
+            if (inputs != null) {
+                inputs.forEach(InputSpool.SpooledFile::close);
+            }
         }
     }
 
@@ -299,6 +343,54 @@ public class ImageToPdfController {
         return filename;
     }
 
+    /**
+     * 多图合并的合并键：图片内容和格式都相同（顺序也相同）时才合并
+     */
+    private String getFlightKey(List<ImageData> imageDataList, List<InputSpool.SpooledFile> inputs) throws IOException {
+        StringBuilder formats = new StringBuilder();
+        String[] inputSha256 = new String[inputs.size()];
+        for (int i = 0; i < inputSha256.length; i++) {
+            formats.append(imageDataList.get(i).format).append(',');
+            inputSha256[i] = inputs.get(i).getSha256();
+        }
+        return SingleFlight.key(ConversionType.IMAGE_TO_PDF, formats.toString(), inputSha256);
+    }
+
+    /**
+     * 异步提交成功：202，Location指向任务状态
+     */
+    private ResponseEntity<?> createAcceptedResponse(ConversionJob job) {
+        Map<String, Object> accepted = job.toMap();
+        accepted.put("jobId", job.getId());
+        accepted.put("statusUrl", "/jobs/" + job.getId());
+        accepted.put("eventsUrl", "/jobs/" + job.getId() + "/events");
+        accepted.put("resultUrl", "/jobs/" + job.getId() + "/result");
+        return ResponseEntity.accepted()
+                .location(URI.create("/jobs/" + job.getId()))
+                .body(accepted);
+    }
+
+    private ResponseEntity<?> createFailedResponse(ConversionJob job, String messagePrefix) {
+        Throwable error = job.getError();
+        error.printStackTrace();
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(createErrorResponse(messagePrefix + error.getMessage()));
+    }
+
+    /**
+     * 转换请求过多时快速返回429，Retry-After为预计的排队时间
+     */
+    private ResponseEntity<?> createBusyResponse(ConversionType type) {
+        long retryAfter = admissionControl.getRetryAfterSeconds(type);
+        Map<String, Object> busy = new HashMap<>();
+        busy.put("status", "busy");
+        busy.put("retryAfter", retryAfter);
+        busy.put("error", type.getDescription() + "请求过多，请" + retryAfter + "秒后重试");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body(busy);
+    }
+
     /**
      * 创建错误响应
      */
@@ -374,8 +466,8 @@ public class ImageToPdfController {
                     .body(createErrorResponse("文件大小不能超过20MB"));
             }
 
-            // 添加到会话
-            session.addImage(index, file.getBytes(), filename);
+            // 落盘后添加到会话（文件随会话提交交给任务，取消或过期时删除）
+            session.addImage(index, inputSpool.spool(file), filename);
             
             System.out.println("[会话 " + sessionId + "] 上传图片 #" + index + ": " + filename + 
                 " (" + (file.getSize() / 1024) + " KB)");
@@ -398,27 +490,37 @@ public class ImageToPdfController {
      * 提交会话，合并所有图片为一个PDF
      * 
      * @param sessionId 会话ID
+     * @param async true时立即返回202和任务ID，通过 /jobs/{id} 查询结果
      */
     @PostMapping("/image/topdf/session/commit")
-    public ResponseEntity<?> commitSession(@RequestParam("id") String sessionId) {
+    public CompletableFuture<ResponseEntity<?>> commitSession(
+            @RequestParam("id") String sessionId,
+            @RequestParam(value = "async", required = false, defaultValue = "false") boolean async) {
+        AdmissionControl.Permit permit = null;
         try {
             // 获取会话
             com.pdftool.service.ImageUploadSession session = sessionManager.getSession(sessionId);
             if (session == null) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(createErrorResponse("会话不存在或已过期"));
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(createErrorResponse("会话不存在或已过期")));
             }
 
             List<com.pdftool.service.ImageUploadSession.ImageItem> images = session.getImages();
             if (images.isEmpty()) {
-                return ResponseEntity.badRequest()
-                    .body(createErrorResponse("没有上传任何图片"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(createErrorResponse("没有上传任何图片")));
             }
 
             // 检查数量限制（35张）
             if (images.size() > 35) {
-                return ResponseEntity.badRequest()
-                    .body(createErrorResponse("图片数量不能超过35张"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                    .body(createErrorResponse("图片数量不能超过35张")));
+            }
+
+            // 准入控制：队列已满时快速返回429，保留会话供客户端稍后重新提交
+            permit = admissionControl.tryAcquire(ConversionType.IMAGE_TO_PDF);
+            if (permit == null) {
+                return CompletableFuture.completedFuture(createBusyResponse(ConversionType.IMAGE_TO_PDF));
             }
 
             System.out.println("========================================");
@@ -431,55 +533,58 @@ public class ImageToPdfController {
 
             // 转换为ImageData列表
             List<ImageData> imageDataList = new ArrayList<>();
+            List<InputSpool.SpooledFile> inputs = new ArrayList<>();
             for (com.pdftool.service.ImageUploadSession.ImageItem item : images) {
                 String format = getFileExtension(item.getFilename());
-                imageDataList.add(new ImageData(item.getData(), format, item.getFilename()));
+                imageDataList.add(new ImageData(item.getFile().getFile(), format, item.getFilename()));
+                inputs.add(item.getFile());
             }
 
-            // 调用转换服务
-            long startTime = System.currentTimeMillis();
-            byte[] pdfBytes = imageToPdfService.convertImagesToPdf(imageDataList);
-            long duration = System.currentTimeMillis() - startTime;
+            // 调用转换服务（在任务线程中执行，许可和图片文件随任务结束释放）
+            int pages = images.size();
+            ConversionJob job = jobService.submit(ConversionType.IMAGE_TO_PDF, pages + " images",
+                    "merged_images.pdf", permit, inputs, getFlightKey(imageDataList, inputs),
+                    sink -> imageToPdfService.convertImagesToPdf(imageDataList, sink));
+            permit = null;
 
-            // 保存PDF到临时目录
-            File tempDir = new File(TEMP_DIR);
-            if (!tempDir.exists()) {
-                tempDir.mkdirs();
-            }
-
-            String pdfFileName = UUID.randomUUID().toString() + "_merged_images.pdf";
-            File pdfFile = new File(tempDir, pdfFileName);
+            // 图片文件已交给任务，移除会话（不删除文件）
+            sessionManager.detachSession(sessionId);
 
-            try (FileOutputStream fos = new FileOutputStream(pdfFile)) {
-                fos.write(pdfBytes);
+            if (async) {
+                return CompletableFuture.completedFuture(createAcceptedResponse(job));
             }
+            return job.getCompletion().thenApply(done -> {
+                if (done.getStatus() != ConversionJob.Status.SUCCEEDED) {
+                    return createFailedResponse(done, "合并转换失败: ");
+                }
 
-            // 清理会话
-            sessionManager.removeSession(sessionId);
-
-            System.out.println("========================================");
-            System.out.println("[会话 " + sessionId + "] 合并转换完成");
-            System.out.println("输出文件: " + pdfFileName);
-            System.out.println("总耗时: " + duration + " ms");
-            System.out.println("PDF大小: " + (pdfBytes.length / 1024) + " KB");
-            System.out.println("========================================");
-
-            // 返回响应
-            Map<String, Object> response = new HashMap<>();
-            response.put("url", "/download/" + pdfFileName);
-            response.put("filename", pdfFileName);
-            response.put("size", pdfBytes.length);
-            response.put("pages", images.size());
-            response.put("duration", duration + "ms");
-
-            return ResponseEntity.ok(response);
+                System.out.println("========================================");
+                System.out.println("[会话 " + sessionId + "] 合并转换完成");
+                System.out.println("输出文件: " + done.getResultFilename());
+                System.out.println("总耗时: " + done.getDurationMillis() + " ms");
+                System.out.println("PDF大小: " + (done.getResultSize() / 1024) + " KB");
+                System.out.println("========================================");
+
+                // 返回响应
+                Map<String, Object> response = new HashMap<>();
+                response.put("url", "/download/" + done.getResultFilename());
+                response.put("filename", done.getResultFilename());
+                response.put("size", done.getResultSize());
+                response.put("pages", pages);
+                response.put("duration", done.getDurationMillis() + "ms");
+                return ResponseEntity.ok(response);
+            });
 
         } catch (Exception e) {
             e.printStackTrace();
             // 清理会话
             sessionManager.removeSession(sessionId);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(createErrorResponse("合并转换失败: " + e.getMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(createErrorResponse("合并转换失败: " + e.getMessage())));
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
         }
     }
 
@@ -0,0 +1,140 @@
+package com.pdftool.controller;
+
+import com.pdftool.service.ConversionJob;
+import com.pdftool.service.FileDownloadService;
+import com.pdftool.service.JobService;
+import com.pdftool.service.OutputStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 异步转换任务Controller
+ *
+ * 各转换接口加上 async=true 参数后立即返回任务ID（202），之后通过：
+ * - GET /jobs/{id}         查询任务状态
+ * - GET /jobs/{id}/events  SSE推送状态变化，任务结束后关闭
+ * - GET /jobs/{id}/result  下载结果文件
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+@RestController
+@CrossOrigin(origins = "*")
+@RequestMapping("/jobs")
+public class JobController {
+
+    // SSE连接最长保持时间（毫秒），超过后客户端重连即可
+    private static final long SSE_TIMEOUT_MILLIS = 10 * 60 * 1000L;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
+
+    @Autowired
+    private OutputStore outputStore;
+
+    /**
+     * 查询任务状态
+     * GET /jobs/{id}
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getJob(@PathVariable String id) {
+        ConversionJob job = jobService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(createErrorResponse("任务不存在或已过期"));
+        }
+        return ResponseEntity.ok(job.toMap());
+    }
+
+    /**
+     * 任务进度（Server-Sent Events）
+     * GET /jobs/{id}/events
+     *
+     * 每次状态变化发送一个status事件（内容同 GET /jobs/{id}），任务结束后关闭连接；
+     * 任务不存在时发送一个error事件后关闭
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJob(@PathVariable String id) throws IOException {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MILLIS);
+        ConversionJob job = jobService.getJob(id);
+        if (job == null) {
+            emitter.send(SseEmitter.event().name("error")
+                    .data(createErrorResponse("任务不存在或已过期"), MediaType.APPLICATION_JSON));
+            emitter.complete();
+            return emitter;
+        }
+
+        Consumer<ConversionJob> listener = current -> {
+            Map<String, Object> state = current.toMap();
+            try {
+                emitter.send(SseEmitter.event().name("status").data(state, MediaType.APPLICATION_JSON));
+            } catch (IOException e) {
+                // 客户端已断开，抛出后任务自动取消该订阅
+                throw new UncheckedIOException(e);
+            }
+            if (current.getStatus().isFinished()) {
+                emitter.complete();
+            }
+        };
+        emitter.onTimeout(() -> job.unsubscribe(listener));
+        emitter.onError(e -> job.unsubscribe(listener));
+        job.subscribe(listener);
+        return emitter;
+    }
+
+    /**
+     * 下载任务结果（与 /download/{filename} 相同：Range、ETag、sendfile）
+     * GET /jobs/{id}/result
+     */
+    @GetMapping("/{id}/result")
+    public ResponseEntity<?> downloadResult(@PathVariable String id,
+                                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ConversionJob job = jobService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(createErrorResponse("任务不存在或已过期"));
+        }
+        ConversionJob.Status status = job.getStatus();
+        if (status == ConversionJob.Status.FAILED) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(job.toMap());
+        }
+        if (status != ConversionJob.Status.SUCCEEDED) {
+            // 尚未完成，客户端稍后重试或改用SSE等待
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(job.toMap());
+        }
+
+        OutputStore.StoredFile storedFile = outputStore.get(job.getResultFilename());
+        if (storedFile == null) {
+            // 已过期、超出配额被淘汰或下载后已删除
+            return ResponseEntity.status(HttpStatus.GONE)
+                    .body(createErrorResponse("结果文件已被清理"));
+        }
+        fileDownloadService.send(storedFile, request, response);
+        // 响应已直接写出
+        return null;
+    }
+
+    /**
+     * 创建错误响应
+     */
+    private Map<String, String> createErrorResponse(String message) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", message);
+        return error;
+    }
+}
@@ -0,0 +1,128 @@
+package com.pdftool.controller;
+
+import com.pdftool.office.ElasticOfficeManager;
+import com.pdftool.service.AdmissionControl;
+import com.pdftool.service.ConversionResultCache;
+import com.pdftool.service.ConversionScheduler;
+import com.pdftool.service.FileDownloadService;
+import com.pdftool.service.InputSpool;
+import com.pdftool.service.JobService;
+import com.pdftool.service.OutputStore;
+import com.pdftool.service.SingleFlight;
+import com.pdftool.config.VirtualThreads;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 运行指标Controller
+ * 用于性能监控和容量规划
+ */
+@RestController
+@CrossOrigin(origins = "*")
+public class MetricsController {
+
+    // 未启用JodConverter时没有Office进程池
+    @Autowired(required = false)
+    private List<ElasticOfficeManager> officeManagers;
+
+    @Autowired(required = false)
+    private ConversionScheduler conversionScheduler;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private ConversionResultCache resultCache;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private InputSpool inputSpool;
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
+
+    @Autowired
+    private OutputStore outputStore;
+
+    @Value("${pdftool.threads.virtual:false}")
+    private boolean virtualThreads;
+
+    /**
+     * 运行指标
+     * GET /metrics
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> metrics() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("timestamp", System.currentTimeMillis());
+        // 线程数和堆内存，用于对比平台线程和虚拟线程模式（见benchmark-threads.sh）
+        response.put("runtime", getRuntimeMetrics());
+        // 按转换类型统计的在处理数、排队深度和拒绝次数
+        response.put("admission", admissionControl.getMetrics());
+        // 异步任务的排队、执行和存储数量
+        response.put("jobs", jobService.getMetrics());
+        // 结果缓存命中/未命中次数和各层占用
+        response.put("cache", resultCache.getMetrics());
+        // 相同内容同时提交时被合并到同一次转换的请求数
+        response.put("singleFlight", singleFlight.getMetrics());
+        // 落盘的上传文件数量和当前占用的磁盘空间
+        response.put("spool", inputSpool.getMetrics());
+        // 下载次数、Range/304次数和sendfile/输出流（streamed）发送次数
+        response.put("download", fileDownloadService.getMetrics());
+        // 结果文件数量、占用空间和过期/淘汰次数
+        response.put("output", outputStore.getMetrics());
+        response.put("office", getOfficeMetrics());
+        if (conversionScheduler != null) {
+            // 按通道和优先级统计的排队等待时间
+            response.put("scheduler", conversionScheduler.getMetrics());
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * JVM线程和内存：threads只统计平台线程（虚拟线程不计入）
+     */
+    private Map<String, Object> getRuntimeMetrics() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+        Map<String, Object> runtime = new LinkedHashMap<>();
+        runtime.put("javaVersion", System.getProperty("java.version"));
+        runtime.put("virtualThreads", virtualThreads && VirtualThreads.isSupported());
+        runtime.put("threads", threadBean.getThreadCount());
+        runtime.put("peakThreads", threadBean.getPeakThreadCount());
+        runtime.put("heapUsedMb", memoryBean.getHeapMemoryUsage().getUsed() / 1024 / 1024);
+        runtime.put("heapCommittedMb", memoryBean.getHeapMemoryUsage().getCommitted() / 1024 / 1024);
+        runtime.put("nonHeapUsedMb", memoryBean.getNonHeapMemoryUsage().getUsed() / 1024 / 1024);
+        return runtime;
+    }
+
+    /**
+     * 各Office通道的进程池指标，包括按原因统计的进程回收次数
+     */
+    private Map<String, Object> getOfficeMetrics() {
+        Map<String, Object> lanes = new LinkedHashMap<>();
+        if (officeManagers == null) {
+            return lanes;
+        }
+        for (ElasticOfficeManager officeManager : officeManagers) {
+            lanes.put(officeManager.getName(), officeManager.getStatus());
+        }
+        return lanes;
+    }
+}
@@ -1,8 +1,18 @@
 package com.pdftool.controller;
 
+import com.pdftool.service.AdmissionControl;
+import com.pdftool.service.ConversionJob;
+import com.pdftool.service.ConversionProfile;
+import com.pdftool.service.ConversionType;
+import com.pdftool.office.ElasticOfficeManager;
+import com.pdftool.service.InputSpool;
+import com.pdftool.service.JobService;
+import com.pdftool.service.PageRange;
 import com.pdftool.service.OptimizedConversionService;
+import com.pdftool.service.SingleFlight;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -10,10 +20,11 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.net.URI;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * PPT转换Controller
@@ -40,37 +51,83 @@ public class PptConversionController {
     @Qualifier("optimizedConversionService")
     private OptimizedConversionService conversionService;
 
-    private static final String TEMP_DIR = "temp";
+    @Autowired
+    @Qualifier("impressOfficeManager")
+    private ElasticOfficeManager impressOfficeManager;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private InputSpool inputSpool;
+
     private static final long MAX_FILE_SIZE = 60 * 1024 * 1024; // 60MB
+    private static final int WARMING_RETRY_AFTER_SECONDS = 5;   // 启动中时建议的重试间隔（秒）
 
     /**
      * PPT转PDF
      * POST /ppt/topdf
      * 
      * @param file PPT文件（.ppt或.pptx）
+     * @param profile 导出配置 preview / standard（默认）/ archive，见ConversionProfile
+     * @param slides 只导出指定的幻灯片，如 1-3,5
+     * @param async true时立即返回202和任务ID，通过 /jobs/{id} 查询结果
      * @return JSON: {url: "/download/xxx.pdf", message: "转换成功"}
      */
     @PostMapping(value = "/topdf", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> convertPptToPdf(@RequestParam("file") MultipartFile file) {
+    public CompletableFuture<ResponseEntity<?>> convertPptToPdf(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "profile", required = false, defaultValue = "standard") String profile,
+            @RequestParam(value = "slides", required = false) String slides,
+            @RequestParam(value = "async", required = false, defaultValue = "false") boolean async) {
         long startTime = System.currentTimeMillis();
         
+        AdmissionControl.Permit permit = null;
+        InputSpool.SpooledFile input = null;
         try {
             // 1. 验证文件
             if (file.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("上传的文件为空"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("上传的文件为空")));
             }
 
             String originalFilename = file.getOriginalFilename();
             if (originalFilename == null || !isPptFile(originalFilename)) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("只支持 PPT 文件 (.ppt, .pptx)"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("只支持 PPT 文件 (.ppt, .pptx)")));
+            }
+
+            ConversionProfile conversionProfile = ConversionProfile.fromKey(profile);
+            if (conversionProfile == null) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("不支持的导出配置: " + profile + "（可选 preview, standard, archive）")));
+            }
+
+            PageRange pageRange;
+            try {
+                pageRange = PageRange.parse(slides);
+            } catch (IllegalArgumentException e) {
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse(e.getMessage())));
             }
 
             // 2. 检查文件大小
             if (file.getSize() > MAX_FILE_SIZE) {
-                return ResponseEntity.badRequest()
-                        .body(createErrorResponse("文件大小超过限制（最大60MB）"));
+                return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                        .body(createErrorResponse("文件大小超过限制（最大60MB）")));
+            }
+
+            if (!impressOfficeManager.isReady()) {
+                return CompletableFuture.completedFuture(createWarmingResponse(impressOfficeManager));
+            }
+
+            // 准入控制：在读取上传内容之前判断，队列已满时快速返回429
+            permit = admissionControl.tryAcquire(ConversionType.PPT_TO_PDF);
+            if (permit == null) {
+                return CompletableFuture.completedFuture(createBusyResponse(ConversionType.PPT_TO_PDF));
             }
 
             System.out.println("====================================");
@@ -78,46 +135,59 @@ public class PptConversionController {
             System.out.println("文件大小: " + (file.getSize() / 1024) + " KB");
             System.out.println("====================================");
 
-            // 3. 转换PPT到PDF
-            byte[] pdfBytes = conversionService.convertPptToPdf(file.getBytes());
+            // 3. 转换PPT到PDF，结果保存到临时目录（在任务线程中执行，许可和落盘的上传文件随任务结束释放）
+            input = inputSpool.spool(file);
+            File pptFile = input.getFile();
+            String pptSha256 = input.getSha256();
+            ConversionJob job = jobService.submit(ConversionType.PPT_TO_PDF, originalFilename,
+                    getOutputFilename(originalFilename, ".pdf"), permit, Collections.singletonList(input),
+                    SingleFlight.key(ConversionType.PPT_TO_PDF, conversionProfile.getKey(pageRange), pptSha256),
+                    sink -> conversionService.convertPptToPdf(pptFile, pptSha256, sink, conversionProfile,
+                            pageRange, conversionProfile.getPriority()));
+            permit = null;
+            input = null;
 
-            // 4. 保存PDF到临时目录
-            File tempDir = new File(TEMP_DIR);
-            if (!tempDir.exists()) {
-                tempDir.mkdirs();
+            if (async) {
+                return CompletableFuture.completedFuture(createAcceptedResponse(job));
             }
 
-            // 生成唯一文件名
-            String pdfFileName = UUID.randomUUID().toString() + "_" + 
-                                getOutputFilename(originalFilename, ".pdf");
-            File pdfFile = new File(tempDir, pdfFileName);
-
-            try (FileOutputStream fos = new FileOutputStream(pdfFile)) {
-                fos.write(pdfBytes);
-            }
+            // 4. 任务结束后返回结果，等待期间不占用Tomcat线程
+            return job.getCompletion().thenApply(done -> {
+                if (done.getStatus() != ConversionJob.Status.SUCCEEDED) {
+                    done.getError().printStackTrace();
+                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                            .body(createErrorResponse("转换失败: " + done.getError().getMessage()));
+                }
 
-            long duration = System.currentTimeMillis() - startTime;
+                long duration = System.currentTimeMillis() - startTime;
 
-            System.out.println("====================================");
-            System.out.println("转换成功: " + originalFilename + " -> " + pdfFileName);
-            System.out.println("PDF大小: " + (pdfBytes.length / 1024) + " KB");
-            System.out.println("总耗时: " + duration + " ms");
-            System.out.println("====================================");
+                System.out.println("====================================");
+                System.out.println("转换成功: " + originalFilename + " -> " + done.getResultFilename());
+                System.out.println("PDF大小: " + (done.getResultSize() / 1024) + " KB");
+                System.out.println("总耗时: " + duration + " ms");
+                System.out.println("====================================");
 
-            // 5. 返回成功响应
-            Map<String, Object> response = new HashMap<>();
-            response.put("url", "/download/" + pdfFileName);
-            response.put("message", "转换成功");
-            response.put("filename", pdfFileName);
-            response.put("size", pdfBytes.length);
-            response.put("conversionTime", duration + " ms");
-            
-            return ResponseEntity.ok(response);
+                // 5. 返回成功响应
+                Map<String, Object> response = new HashMap<>();
+                response.put("url", "/download/" + done.getResultFilename());
+                response.put("message", "转换成功");
+                response.put("filename", done.getResultFilename());
+                response.put("size", done.getResultSize());
+                response.put("conversionTime", duration + " ms");
+                return ResponseEntity.ok(response);
+            });
 
         } catch (Exception e) {
             e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(createErrorResponse("转换失败: " + e.getMessage()));
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(createErrorResponse("转换失败: " + e.getMessage())));
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
+            if (input != null) {
+                input.close();
+            }
         }
     }
 
@@ -128,7 +198,7 @@ public class PptConversionController {
     public ResponseEntity<?> getStatus() {
         Map<String, Object> status = new HashMap<>();
         status.put("service", "PPT Conversion Service");
-        status.put("status", "running");
+        status.put("status", impressOfficeManager.isReady() ? "running" : "warming");
         status.put("statistics", conversionService.getStatus());
         status.put("maxFileSize", "60 MB");
         status.put("recommendedMaxPages", 100);
@@ -160,6 +230,49 @@ public class PptConversionController {
         return originalFilename + newExtension;
     }
 
+    /**
+     * 异步提交成功：202，Location指向任务状态
+     */
+    private ResponseEntity<?> createAcceptedResponse(ConversionJob job) {
+        Map<String, Object> accepted = job.toMap();
+        accepted.put("jobId", job.getId());
+        accepted.put("statusUrl", "/jobs/" + job.getId());
+        accepted.put("eventsUrl", "/jobs/" + job.getId() + "/events");
+        accepted.put("resultUrl", "/jobs/" + job.getId() + "/result");
+        return ResponseEntity.accepted()
+                .location(URI.create("/jobs/" + job.getId()))
+                .body(accepted);
+    }
+
+    /**
+     * Office通道尚未就绪（LibreOffice进程仍在后台启动）时快速返回503，
+     * 客户端按Retry-After重试，而不是阻塞到队列超时
+     */
+    private ResponseEntity<?> createWarmingResponse(ElasticOfficeManager officeManager) {
+        Map<String, Object> warming = new HashMap<>();
+        warming.put("status", "warming");
+        warming.put("state", officeManager.getState());
+        warming.put("lane", officeManager.getName());
+        warming.put("error", "转换服务正在启动，请稍后重试");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(WARMING_RETRY_AFTER_SECONDS))
+                .body(warming);
+    }
+
+    /**
+     * 转换请求过多时快速返回429，Retry-After为预计的排队时间
+     */
+    private ResponseEntity<?> createBusyResponse(ConversionType type) {
+        long retryAfter = admissionControl.getRetryAfterSeconds(type);
+        Map<String, Object> busy = new HashMap<>();
+        busy.put("status", "busy");
+        busy.put("retryAfter", retryAfter);
+        busy.put("error", type.getDescription() + "请求过多，请" + retryAfter + "秒后重试");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body(busy);
+    }
+
     /**
      * 创建错误响应
      */
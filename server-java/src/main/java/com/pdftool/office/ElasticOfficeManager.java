@@ -0,0 +1,1011 @@
+package com.pdftool.office;
+
+import org.jodconverter.core.office.OfficeException;
+import org.jodconverter.core.office.OfficeManager;
+import org.jodconverter.core.task.OfficeTask;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 弹性LibreOffice进程池
+ *
+ * 与LocalOfficeManager固定端口列表不同，本进程池：
+ * 1. 进程数在[minProcesses, maxProcesses]之间浮动，上限由CPU核数和内存决定
+ * 2. 任务排队等待时间升高时自动扩容（新进程使用下一个空闲端口）
+ * 3. 进程空闲超过idleTimeout后自动缩容，释放内存
+ * 4. 每个进程同一时刻只执行一个任务，排队由本类统一管理并统计等待时间
+ * 5. 新启动和回收重启的进程先执行预热转换，预热完成后才接收任务
+ * 6. 看门狗定期从/proc采样每个进程的内存和CPU，超过阈值的进程在任务间隙重启；
+ *    maxTasksPerProcess作为兜底（/proc不可用时的唯一回收依据）
+ * 7. 外部模式：不启动进程，而是连接配置的已运行soffice地址列表（可由多个服务节点共享），
+ *    定期TCP健康检查，不可用的地址移出进程池并按退避间隔重连，任务轮询分配到各地址
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+public class ElasticOfficeManager implements OfficeManager {
+
+    // 扩缩容检查周期（毫秒）
+    private static final long REBALANCE_INTERVAL = 1000L;
+
+    // 进程启动失败后的重试间隔（毫秒）
+    private static final long START_RETRY_BACKOFF = 10_000L;
+
+    // 外部模式TCP健康检查的连接超时（毫秒）
+    private static final int HEALTH_CHECK_CONNECT_TIMEOUT = 2000;
+
+    // 保留的最近回收记录条数
+    private static final int RECENT_RECYCLE_LIMIT = 20;
+
+    // 等待时间滑动平均系数
+    private static final double WAIT_EWMA_ALPHA = 0.3;
+
+    private final String name;
+    private final OfficeWorkerFactory workerFactory;
+    private final int minProcesses;
+    private final int maxProcesses;
+    private final int basePort;
+    private final long taskQueueTimeout;
+    private final long scaleUpWaitMillis;
+    private final long idleTimeoutMillis;
+    private final int maxTasksPerProcess;
+    private final OfficeWarmup warmup;
+    private final long maxRssKb;
+    private final double maxIdleCpuPercent;
+    private final long watchdogIntervalMillis;
+    private final List<OfficeEndpoint> externalEndpoints;
+    private final long healthCheckIntervalMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workerAvailable = lock.newCondition();
+
+    // 以下字段受lock保护
+    private final List<OfficeWorker> workers = new ArrayList<>();
+    private final Deque<OfficeWorker> idleWorkers = new ArrayDeque<>();
+    private final boolean[] portInUse;
+    private int startingWorkers;
+    private int recyclingWorkers;
+    private int waitingTasks;
+    private double recentWaitMillis;
+    private long retryStartAfter;
+    private final Deque<Map<String, Object>> recentRecycles = new ArrayDeque<>();
+
+    // 统计
+    private final AtomicLong totalWaitMillis = new AtomicLong(0);
+    private final AtomicLong maxWaitMillis = new AtomicLong(0);
+    private final AtomicLong executedTasks = new AtomicLong(0);
+    private final AtomicInteger scaleUps = new AtomicInteger(0);
+    private final AtomicInteger scaleDowns = new AtomicInteger(0);
+    private final AtomicInteger recycles = new AtomicInteger(0);
+    private final Map<RecycleReason, AtomicInteger> recyclesByReason = new EnumMap<>(RecycleReason.class);
+    private final AtomicInteger warmups = new AtomicInteger(0);
+    private final AtomicInteger healthCheckFailures = new AtomicInteger(0);
+    private final AtomicInteger cancellations = new AtomicInteger(0);
+
+    // 执行线程 -> 正在为其执行任务的进程，用于取消超时任务
+    private final Map<Thread, OfficeWorker> activeWorkers = new ConcurrentHashMap<>();
+    private final AtomicLong totalWarmupMillis = new AtomicLong(0);
+    private volatile long lastWarmupMillis = -1;
+    private volatile long launchTime;
+    private volatile long readyMillis = -1;
+    private volatile String lastStartupError;
+
+    private final ExecutorService lifecycleExecutor;
+    private ScheduledExecutorService rebalanceExecutor;
+    private volatile boolean running;
+
+    private ElasticOfficeManager(Builder builder) {
+        this.name = builder.name;
+        this.workerFactory = builder.workerFactory;
+        this.minProcesses = builder.minProcesses;
+        this.maxProcesses = builder.maxProcesses;
+        this.basePort = builder.basePort;
+        this.taskQueueTimeout = builder.taskQueueTimeout;
+        this.scaleUpWaitMillis = builder.scaleUpWaitMillis;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.maxTasksPerProcess = builder.maxTasksPerProcess;
+        this.warmup = builder.warmup;
+        this.maxRssKb = builder.maxRssMb * 1024;
+        this.maxIdleCpuPercent = builder.maxIdleCpuPercent;
+        this.watchdogIntervalMillis = builder.watchdogIntervalMillis;
+        this.externalEndpoints = builder.externalEndpoints;
+        this.healthCheckIntervalMillis = builder.healthCheckIntervalMillis;
+        for (RecycleReason reason : RecycleReason.values()) {
+            recyclesByReason.put(reason, new AtomicInteger(0));
+        }
+        this.portInUse = new boolean[maxProcesses];
+        this.lifecycleExecutor = Executors.newCachedThreadPool(daemonThreads("office-" + name + "-lifecycle"));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 启动进程池（阻塞）：并行启动minProcesses个进程，至少一个成功即视为启动成功
+     */
+    @Override
+    public void start() throws OfficeException {
+        for (Future<?> startup : launch()) {
+            try {
+                startup.get();
+            } catch (Exception e) {
+                // 单个进程启动失败已在startWorker中记录
+            }
+        }
+
+        if (getProcessCount() == 0) {
+            stop();
+            throw new OfficeException("进程池[" + name + "]没有任何LibreOffice进程启动成功: " + lastStartupError);
+        }
+    }
+
+    /**
+     * 在后台启动进程池，立即返回
+     *
+     * 进程就绪前isReady()返回false，调用方据此快速返回"启动中"状态，
+     * 不阻塞Spring容器和其他不依赖LibreOffice的接口。
+     * 进程全部启动失败时由rebalance按最小进程数定期重试。
+     */
+    public void startAsync() {
+        launch();
+    }
+
+    private List<Future<?>> launch() {
+        List<Future<?>> startups = new ArrayList<>();
+        if (running) {
+            return startups;
+        }
+        running = true;
+        launchTime = System.currentTimeMillis();
+
+        if (isExternal()) {
+            System.out.println("[进程池 " + name + "] 启动中: 外部模式, 连接 " + externalEndpoints);
+        } else {
+            System.out.println("[进程池 " + name + "] 启动中: 最少" + minProcesses + "个进程, 最多" +
+                             maxProcesses + "个进程, 端口 " + basePort + "-" + (basePort + maxProcesses - 1));
+        }
+
+        for (int i = 0; i < minProcesses; i++) {
+            startups.add(scaleUp("初始化"));
+        }
+
+        rebalanceExecutor = Executors.newSingleThreadScheduledExecutor(daemonThreads("office-" + name + "-rebalance"));
+        rebalanceExecutor.scheduleWithFixedDelay(this::rebalance,
+                REBALANCE_INTERVAL, REBALANCE_INTERVAL, TimeUnit.MILLISECONDS);
+
+        if (isExternal()) {
+            rebalanceExecutor.scheduleWithFixedDelay(this::healthCheck,
+                    healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        } else if (isWatchdogEnabled()) {
+            rebalanceExecutor.scheduleWithFixedDelay(this::watchdog,
+                    watchdogIntervalMillis, watchdogIntervalMillis, TimeUnit.MILLISECONDS);
+        } else if (maxRssKb > 0 || maxIdleCpuPercent > 0) {
+            System.out.println("[进程池 " + name + "] 当前系统不支持/proc，进程看门狗未启用，仅按任务数回收");
+        }
+        return startups;
+    }
+
+    /**
+     * 停止进程池，关闭所有LibreOffice进程
+     */
+    @Override
+    public void stop() throws OfficeException {
+        running = false;
+        if (rebalanceExecutor != null) {
+            rebalanceExecutor.shutdownNow();
+        }
+
+        List<OfficeWorker> toStop;
+        lock.lock();
+        try {
+            toStop = new ArrayList<>(workers);
+            workers.clear();
+            idleWorkers.clear();
+            workerAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        for (OfficeWorker worker : toStop) {
+            worker.stop();
+        }
+        lifecycleExecutor.shutdownNow();
+        System.out.println("[进程池 " + name + "] 已关闭 " + toStop.size() + " 个进程");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 是否至少有一个进程可以接收任务
+     */
+    public boolean isReady() {
+        return running && getProcessCount() > 0;
+    }
+
+    /**
+     * 进程池状态：STOPPED / STARTING / READY / FAILED
+     */
+    public String getState() {
+        lock.lock();
+        try {
+            return stateLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String stateLocked() {
+        if (!running) {
+            return "STOPPED";
+        }
+        if (!workers.isEmpty()) {
+            return "READY";
+        }
+        return startingWorkers > 0 ? "STARTING" : "FAILED";
+    }
+
+    /**
+     * 执行转换任务：获取一个空闲进程，执行完毕后归还
+     */
+    @Override
+    public void execute(OfficeTask task) throws OfficeException {
+        if (!running) {
+            throw new OfficeException("进程池[" + name + "]未启动");
+        }
+
+        long enqueueTime = System.currentTimeMillis();
+        OfficeWorker worker = acquireWorker(enqueueTime);
+        recordWait(System.currentTimeMillis() - enqueueTime);
+
+        Thread thread = Thread.currentThread();
+        try {
+            // 取得进程后、开始转换前被取消：不再执行，进程归还时重启
+            if (worker.getPendingRecycle() == RecycleReason.CANCELLED) {
+                throw new OfficeException("转换已取消");
+            }
+            worker.execute(task);
+            executedTasks.incrementAndGet();
+        } finally {
+            activeWorkers.remove(thread);
+            releaseWorker(worker);
+        }
+    }
+
+    /**
+     * 中止指定线程正在执行的转换
+     *
+     * 本地模式下强制结束执行该任务的soffice进程：UNO调用因连接断开立即失败，
+     * 执行线程返回后该进程被重启、预热，再放回空闲队列。
+     * 外部模式下无法结束远程进程，只标记该连接在任务结束后重连。
+     * 该线程还没有取得进程时（排队等待空闲进程，如进程重启期间）中断它，获取进程随即失败，转换不会开始。
+     *
+     * 调用方需保证该线程在调用期间不会开始执行另一个任务。
+     *
+     * @return 是否真正中止了转换（false表示任务会继续运行到结束，即被放弃）
+     */
+    public boolean cancel(Thread thread) {
+        OfficeWorker worker;
+        // 与acquireWorker互斥：线程要么已登记进程（结束进程），要么随后在获取进程时发现中断
+        lock.lock();
+        try {
+            worker = activeWorkers.get(thread);
+            if (worker == null) {
+                thread.interrupt();
+                cancellations.incrementAndGet();
+                System.out.println("[进程池 " + name + "] 已取消等待进程的转换: " + thread.getName());
+                return true;
+            }
+            worker.setPendingRecycle(RecycleReason.CANCELLED);
+        } finally {
+            lock.unlock();
+        }
+        if (isExternal()) {
+            return false;
+        }
+        boolean killed = worker.kill();
+        if (killed) {
+            cancellations.incrementAndGet();
+            System.out.println("[进程池 " + name + "] 已中止 " + worker.getEndpoint() + " 上超时的转换");
+        }
+        return killed;
+    }
+
+    /**
+     * 获取空闲进程并登记到activeWorkers，超过taskQueueTimeout仍无空闲进程或线程被中断（见cancel）则失败
+     */
+    private OfficeWorker acquireWorker(long enqueueTime) throws OfficeException {
+        lock.lock();
+        waitingTasks++;
+        try {
+            long deadline = enqueueTime + taskQueueTimeout;
+            while (true) {
+                if (!running) {
+                    throw new OfficeException("进程池[" + name + "]已关闭");
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new OfficeException("等待LibreOffice进程时被中断");
+                }
+
+                // 本地模式后进先出：优先复用刚空闲的进程，让长期空闲的进程可以被缩容；
+                // 外部模式先进先出：轮询分配，把负载分摊到共享的各个soffice上
+                OfficeWorker worker = isExternal() ? idleWorkers.pollLast() : idleWorkers.pollFirst();
+                if (worker != null) {
+                    activeWorkers.put(Thread.currentThread(), worker);
+                    return worker;
+                }
+
+                // 没有空闲进程且等待已超过阈值，立即扩容
+                long waited = System.currentTimeMillis() - enqueueTime;
+                if (waited >= scaleUpWaitMillis && canScaleUp()) {
+                    scaleUp("排队等待 " + waited + " ms");
+                }
+
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new OfficeException("等待LibreOffice进程超时（" + taskQueueTimeout + " ms），进程池[" +
+                                              name + "]繁忙");
+                }
+                try {
+                    workerAvailable.await(Math.min(remaining, scaleUpWaitMillis), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OfficeException("等待LibreOffice进程时被中断", e);
+                }
+            }
+        } finally {
+            waitingTasks--;
+            lock.unlock();
+        }
+    }
+
+    private void releaseWorker(OfficeWorker worker) {
+        RecycleReason pending = worker.getPendingRecycle();
+        if (pending != null) {
+            recycle(worker, pending, describeUsage(worker));
+            return;
+        }
+        if (maxTasksPerProcess > 0 && worker.getTaskCount() >= maxTasksPerProcess) {
+            recycle(worker, RecycleReason.TASKS, "已处理 " + worker.getTaskCount() + " 个任务");
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (running && workers.contains(worker)) {
+                idleWorkers.addFirst(worker);
+                workerAvailable.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 在后台重启进程并重新预热，完成后再放回空闲队列
+     *
+     * 只在任务间隙调用（进程不在空闲队列中，也没有正在执行的任务）
+     */
+    private void recycle(OfficeWorker worker, RecycleReason reason, String detail) {
+        lock.lock();
+        try {
+            if (!running || !workers.contains(worker)) {
+                return;
+            }
+            recyclingWorkers++;
+
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("time", System.currentTimeMillis());
+            event.put("endpoint", worker.getEndpoint().toString());
+            event.put("reason", reason.getKey());
+            event.put("detail", detail);
+            event.put("tasks", worker.getTaskCount());
+            event.put("rssMb", worker.getRssKb() < 0 ? -1 : worker.getRssKb() / 1024);
+            recentRecycles.addFirst(event);
+            if (recentRecycles.size() > RECENT_RECYCLE_LIMIT) {
+                recentRecycles.removeLast();
+            }
+        } finally {
+            lock.unlock();
+        }
+        recyclesByReason.get(reason).incrementAndGet();
+
+        System.out.println("[进程池 " + name + "] 回收 " + worker.getEndpoint() + " 的进程 (" +
+                         reason.getDescription() + ": " + detail + ")");
+        lifecycleExecutor.submit(() -> {
+            boolean restarted = false;
+            try {
+                long startTime = System.currentTimeMillis();
+                worker.restart();
+                warmUp(worker);
+                restarted = true;
+                recycles.incrementAndGet();
+                System.out.println("[进程池 " + name + "] " + worker.getEndpoint() + " 的进程回收完成，耗时 " +
+                                 (System.currentTimeMillis() - startTime) + " ms");
+            } catch (Exception e) {
+                System.err.println("[进程池 " + name + "] " + worker.getEndpoint() + " 的进程重启失败: " + e.getMessage());
+            }
+
+            lock.lock();
+            try {
+                recyclingWorkers--;
+                if (!workers.contains(worker)) {
+                    return;
+                }
+                if (restarted && running) {
+                    idleWorkers.addFirst(worker);
+                    workerAvailable.signal();
+                } else {
+                    // 重启失败则移出进程池，由rebalance按最小进程数补齐
+                    workers.remove(worker);
+                    portInUse[worker.getSlot()] = false;
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * 预热进程：用内置的小样例文档执行一次转换，加载Writer/Calc/Impress模块和PDF导出过滤器
+     *
+     * 预热失败不影响进程使用，只记录日志
+     */
+    private void warmUp(OfficeWorker worker) {
+        if (warmup == null) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        try {
+            warmup.warmUp(worker.getManager());
+            long duration = System.currentTimeMillis() - startTime;
+            worker.setLastWarmupMillis(duration);
+            lastWarmupMillis = duration;
+            warmups.incrementAndGet();
+            totalWarmupMillis.addAndGet(duration);
+            System.out.println("[进程池 " + name + "] " + worker.getEndpoint() + " 的进程预热完成，耗时 " +
+                             duration + " ms");
+        } catch (Exception e) {
+            System.err.println("[进程池 " + name + "] " + worker.getEndpoint() + " 的进程预热失败: " + e.getMessage());
+        }
+    }
+
+    private boolean isWatchdogEnabled() {
+        return !isExternal() && (maxRssKb > 0 || maxIdleCpuPercent > 0) && OfficeProcessSampler.isSupported();
+    }
+
+    /**
+     * 是否为外部模式（连接已运行的soffice，不由本进程池启动）
+     */
+    public boolean isExternal() {
+        return externalEndpoints != null;
+    }
+
+    /**
+     * 外部模式健康检查：对空闲连接的地址做TCP连接检查
+     *
+     * 不可用的地址移出进程池，rebalance按最小进程数（即地址数）补齐时重新连接，
+     * 连接失败则按START_RETRY_BACKOFF退避，直到该地址恢复。
+     * 正在执行任务的连接不检查，任务失败后归还到空闲队列，下一轮检查会发现。
+     */
+    private void healthCheck() {
+        List<OfficeWorker> snapshot;
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            snapshot = new ArrayList<>(idleWorkers);
+        } finally {
+            lock.unlock();
+        }
+
+        for (OfficeWorker worker : snapshot) {
+            if (isReachable(worker.getEndpoint())) {
+                continue;
+            }
+
+            lock.lock();
+            try {
+                // 检查期间被取走执行任务的连接留到下一轮
+                if (!idleWorkers.remove(worker)) {
+                    continue;
+                }
+                workers.remove(worker);
+                portInUse[worker.getSlot()] = false;
+            } finally {
+                lock.unlock();
+            }
+
+            healthCheckFailures.incrementAndGet();
+            System.err.println("[进程池 " + name + "] " + worker.getEndpoint() + " 健康检查失败，移出进程池并等待重连");
+            lifecycleExecutor.submit(worker::stop);
+        }
+    }
+
+    private static boolean isReachable(OfficeEndpoint endpoint) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(endpoint.getHost(), endpoint.getPort()), HEALTH_CHECK_CONNECT_TIMEOUT);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 进程看门狗：采样每个进程的内存和CPU，超过阈值的进程标记为待回收
+     *
+     * 只在任务间隙回收：空闲进程立即回收，正在执行任务的进程在任务结束后由releaseWorker回收。
+     * CPU阈值只对空闲进程生效（转换时CPU满载是正常的，空闲时仍高占用说明进程异常）。
+     */
+    private void watchdog() {
+        List<OfficeWorker> snapshot;
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+            snapshot = new ArrayList<>(workers);
+        } finally {
+            lock.unlock();
+        }
+
+        for (OfficeWorker worker : snapshot) {
+            try {
+                worker.sample();
+            } catch (Exception e) {
+                System.err.println("[进程池 " + name + "] " + worker.getEndpoint() + " 的进程采样失败: " + e.getMessage());
+                continue;
+            }
+
+            RecycleReason reason = null;
+            if (maxRssKb > 0 && worker.getRssKb() >= maxRssKb) {
+                reason = RecycleReason.MEMORY;
+            }
+
+            boolean recycleNow = false;
+            lock.lock();
+            try {
+                boolean idle = idleWorkers.contains(worker);
+                // 整个采样周期都处于空闲状态，CPU读数才不包含转换任务
+                if (reason == null && maxIdleCpuPercent > 0 && idle &&
+                    worker.getIdleMillis() >= 2 * watchdogIntervalMillis &&
+                    worker.getCpuPercent() >= maxIdleCpuPercent) {
+                    reason = RecycleReason.CPU;
+                }
+                if (reason == null || worker.getPendingRecycle() != null) {
+                    continue;
+                }
+                if (idle) {
+                    idleWorkers.remove(worker);
+                    recycleNow = true;
+                } else {
+                    worker.setPendingRecycle(reason);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (recycleNow) {
+                recycle(worker, reason, describeUsage(worker));
+            } else {
+                System.out.println("[进程池 " + name + "] " + worker.getEndpoint() + " 的进程将在当前任务结束后回收 (" +
+                                 reason.getDescription() + ": " + describeUsage(worker) + ")");
+            }
+        }
+    }
+
+    private static String describeUsage(OfficeWorker worker) {
+        return String.format("RSS %d MB, CPU %.0f%%, 已处理 %d 个任务",
+                worker.getRssKb() / 1024, worker.getCpuPercent(), worker.getTaskCount());
+    }
+
+    private void recordWait(long waitMillis) {
+        totalWaitMillis.addAndGet(waitMillis);
+        maxWaitMillis.accumulateAndGet(waitMillis, Math::max);
+        lock.lock();
+        try {
+            recentWaitMillis = recentWaitMillis * (1 - WAIT_EWMA_ALPHA) + waitMillis * WAIT_EWMA_ALPHA;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 定期扩缩容
+     * - 低于最小进程数时补齐
+     * - 有任务排队且近期平均等待超过阈值时扩容
+     * - 空闲超时的进程在高于最小进程数时关闭
+     */
+    private void rebalance() {
+        List<OfficeWorker> toStop = new ArrayList<>();
+        lock.lock();
+        try {
+            if (!running) {
+                return;
+            }
+
+            // 启动失败后退避一段时间再重试，避免LibreOffice不可用时反复拉起进程
+            if (System.currentTimeMillis() >= retryStartAfter) {
+                while (workers.size() + startingWorkers < minProcesses) {
+                    scaleUp("低于最小进程数");
+                }
+            }
+
+            if (waitingTasks > 0 && recentWaitMillis >= scaleUpWaitMillis && canScaleUp()) {
+                scaleUp(String.format("平均排队等待 %.0f ms, 排队任务 %d", recentWaitMillis, waitingTasks));
+            }
+
+            if (waitingTasks == 0) {
+                // 无排队时等待时间逐步衰减，避免历史峰值持续触发扩容
+                recentWaitMillis = recentWaitMillis * (1 - WAIT_EWMA_ALPHA);
+
+                Iterator<OfficeWorker> it = idleWorkers.descendingIterator();
+                while (it.hasNext() && workers.size() > minProcesses) {
+                    OfficeWorker worker = it.next();
+                    if (worker.getIdleMillis() >= idleTimeoutMillis) {
+                        it.remove();
+                        workers.remove(worker);
+                        portInUse[worker.getSlot()] = false;
+                        toStop.add(worker);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[进程池 " + name + "] 扩缩容检查失败: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+
+        for (OfficeWorker worker : toStop) {
+            scaleDowns.incrementAndGet();
+            System.out.println("[进程池 " + name + "] 缩容: 关闭空闲进程 " + worker.getEndpoint() +
+                             " (空闲 " + worker.getIdleMillis() / 1000 + " 秒)");
+            lifecycleExecutor.submit(worker::stop);
+        }
+    }
+
+    /**
+     * 未达上限，且正在启动的进程数少于排队任务数时才扩容
+     */
+    private boolean canScaleUp() {
+        return workers.size() + startingWorkers < maxProcesses && startingWorkers < waitingTasks;
+    }
+
+    /**
+     * 在后台启动一个新进程（调用方需持有lock或处于启动阶段）
+     */
+    private Future<?> scaleUp(String reason) {
+        int slot = -1;
+        lock.lock();
+        try {
+            for (int i = 0; i < portInUse.length; i++) {
+                if (!portInUse[i]) {
+                    slot = i;
+                    break;
+                }
+            }
+            if (slot < 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            portInUse[slot] = true;
+            startingWorkers++;
+        } finally {
+            lock.unlock();
+        }
+
+        OfficeEndpoint endpoint = endpointOf(slot);
+        int startSlot = slot;
+        System.out.println("[进程池 " + name + "] 扩容: " + (isExternal() ? "连接 " : "启动 ") + endpoint +
+                         " 的进程 (" + reason + ")");
+        return lifecycleExecutor.submit(() -> startWorker(startSlot, endpoint));
+    }
+
+    private OfficeEndpoint endpointOf(int slot) {
+        return isExternal() ? externalEndpoints.get(slot) : new OfficeEndpoint(OfficeEndpoint.LOCAL_HOST, basePort + slot);
+    }
+
+    private void startWorker(int slot, OfficeEndpoint endpoint) {
+        long startTime = System.currentTimeMillis();
+        OfficeWorker worker = new OfficeWorker(slot, endpoint, workerFactory);
+        boolean started = false;
+        try {
+            worker.start();
+            warmUp(worker);
+            started = true;
+            scaleUps.incrementAndGet();
+            System.out.println("[进程池 " + name + "] " + endpoint + " 的进程已就绪，耗时 " +
+                             (System.currentTimeMillis() - startTime) + " ms");
+        } catch (Exception e) {
+            lastStartupError = e.getMessage();
+            System.err.println("[进程池 " + name + "] " + endpoint + " 的进程启动失败: " + e.getMessage());
+        }
+
+        lock.lock();
+        try {
+            startingWorkers--;
+            if (started && running) {
+                workers.add(worker);
+                idleWorkers.addFirst(worker);
+                workerAvailable.signal();
+                if (readyMillis < 0) {
+                    readyMillis = System.currentTimeMillis() - launchTime;
+                    System.out.println("[进程池 " + name + "] 已就绪，启动耗时 " + readyMillis + " ms");
+                }
+                return;
+            }
+            portInUse[slot] = false;
+            retryStartAfter = System.currentTimeMillis() + START_RETRY_BACKOFF;
+        } finally {
+            lock.unlock();
+        }
+
+        if (started) {
+            // 启动期间进程池已关闭
+            worker.stop();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getProcessCount() {
+        lock.lock();
+        try {
+            return workers.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxProcesses() {
+        return maxProcesses;
+    }
+
+    /**
+     * 获取进程池状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            status.put("name", name);
+            status.put("mode", isExternal() ? "external" : "local");
+            status.put("running", running);
+            status.put("state", stateLocked());
+            status.put("processes", workers.size());
+            status.put("busy", workers.size() - idleWorkers.size() - recyclingWorkers);
+            status.put("idle", idleWorkers.size());
+            status.put("starting", startingWorkers);
+            status.put("recycling", recyclingWorkers);
+            status.put("waitingTasks", waitingTasks);
+            status.put("recentWaitMs", Math.round(recentWaitMillis));
+
+            List<Map<String, Object>> processes = new ArrayList<>();
+            for (OfficeWorker worker : workers) {
+                Map<String, Object> process = new LinkedHashMap<>();
+                process.put("endpoint", worker.getEndpoint().toString());
+                process.put("tasks", worker.getTaskCount());
+                process.put("warmupMs", worker.getLastWarmupMillis());
+                process.put("pid", worker.getPid());
+                process.put("rssMb", worker.getRssKb() < 0 ? -1 : worker.getRssKb() / 1024);
+                process.put("cpuPercent", Math.round(worker.getCpuPercent()));
+                RecycleReason pending = worker.getPendingRecycle();
+                process.put("pendingRecycle", pending == null ? null : pending.getKey());
+                processes.add(process);
+            }
+            status.put("processList", processes);
+            if (isExternal()) {
+                List<String> unavailable = new ArrayList<>();
+                for (int i = 0; i < externalEndpoints.size(); i++) {
+                    if (!portInUse[i]) {
+                        unavailable.add(externalEndpoints.get(i).toString());
+                    }
+                }
+                status.put("unavailableEndpoints", unavailable);
+            }
+            status.put("recentRecycles", new ArrayList<>(recentRecycles));
+        } finally {
+            lock.unlock();
+        }
+        long executed = executedTasks.get();
+        status.put("minProcesses", minProcesses);
+        status.put("maxProcesses", maxProcesses);
+        status.put("executedTasks", executed);
+        status.put("avgWaitMs", executed == 0 ? 0 : totalWaitMillis.get() / executed);
+        status.put("maxWaitMs", maxWaitMillis.get());
+        status.put("readyMs", readyMillis);
+        status.put("lastStartupError", lastStartupError);
+        status.put("scaleUps", scaleUps.get());
+        status.put("scaleDowns", scaleDowns.get());
+        status.put("recycles", recycles.get());
+        Map<String, Integer> reasons = new LinkedHashMap<>();
+        for (Map.Entry<RecycleReason, AtomicInteger> entry : recyclesByReason.entrySet()) {
+            reasons.put(entry.getKey().getKey(), entry.getValue().get());
+        }
+        status.put("recyclesByReason", reasons);
+        status.put("watchdog", isWatchdogEnabled());
+        status.put("healthCheckFailures", healthCheckFailures.get());
+        status.put("cancellations", cancellations.get());
+        int warmupCount = warmups.get();
+        status.put("warmups", warmupCount);
+        status.put("lastWarmupMs", lastWarmupMillis);
+        status.put("avgWarmupMs", warmupCount == 0 ? -1 : totalWarmupMillis.get() / warmupCount);
+        return status;
+    }
+
+    /**
+     * ElasticOfficeManager构建器
+     */
+    public static final class Builder {
+
+        private String name = "office";
+        private OfficeWorkerFactory workerFactory;
+        private int minProcesses = 1;
+        private int maxProcesses = 1;
+        private int basePort = 2002;
+        private long taskQueueTimeout = 30_000L;
+        private long scaleUpWaitMillis = 1500L;
+        private long idleTimeoutMillis = 300_000L;
+        private int maxTasksPerProcess;
+        private OfficeWarmup warmup;
+        private long maxRssMb;
+        private int maxIdleCpuPercent;
+        private long watchdogIntervalMillis = 5000L;
+        private List<OfficeEndpoint> externalEndpoints;
+        private long healthCheckIntervalMillis = 5000L;
+
+        private Builder() {
+        }
+
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder workerFactory(OfficeWorkerFactory workerFactory) {
+            this.workerFactory = workerFactory;
+            return this;
+        }
+
+        public Builder minProcesses(int minProcesses) {
+            this.minProcesses = minProcesses;
+            return this;
+        }
+
+        public Builder maxProcesses(int maxProcesses) {
+            this.maxProcesses = maxProcesses;
+            return this;
+        }
+
+        public Builder basePort(int basePort) {
+            this.basePort = basePort;
+            return this;
+        }
+
+        public Builder taskQueueTimeout(long taskQueueTimeout) {
+            this.taskQueueTimeout = taskQueueTimeout;
+            return this;
+        }
+
+        public Builder scaleUpWaitMillis(long scaleUpWaitMillis) {
+            this.scaleUpWaitMillis = scaleUpWaitMillis;
+            return this;
+        }
+
+        public Builder idleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * 每个进程处理多少个任务后重启（0 = 不重启）
+         */
+        public Builder maxTasksPerProcess(int maxTasksPerProcess) {
+            this.maxTasksPerProcess = maxTasksPerProcess;
+            return this;
+        }
+
+        /**
+         * 进程启动和回收后执行的预热（null = 不预热）
+         */
+        public Builder warmup(OfficeWarmup warmup) {
+            this.warmup = warmup;
+            return this;
+        }
+
+        /**
+         * 进程常驻内存超过该值（MB）后在任务间隙回收（0 = 不检查）
+         */
+        public Builder maxRssMb(long maxRssMb) {
+            this.maxRssMb = maxRssMb;
+            return this;
+        }
+
+        /**
+         * 空闲进程CPU占用超过该百分比时回收（0 = 不检查）
+         */
+        public Builder maxIdleCpuPercent(int maxIdleCpuPercent) {
+            this.maxIdleCpuPercent = maxIdleCpuPercent;
+            return this;
+        }
+
+        /**
+         * 看门狗采样周期（毫秒）
+         */
+        public Builder watchdogIntervalMillis(long watchdogIntervalMillis) {
+            this.watchdogIntervalMillis = watchdogIntervalMillis;
+            return this;
+        }
+
+        /**
+         * 外部模式：连接这些已运行的soffice，进程数固定为地址数（null = 本地模式）
+         */
+        public Builder externalEndpoints(List<OfficeEndpoint> externalEndpoints) {
+            this.externalEndpoints = externalEndpoints;
+            return this;
+        }
+
+        /**
+         * 外部模式健康检查周期（毫秒）
+         */
+        public Builder healthCheckIntervalMillis(long healthCheckIntervalMillis) {
+            this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+            return this;
+        }
+
+        public ElasticOfficeManager build() {
+            if (workerFactory == null) {
+                throw new IllegalArgumentException("workerFactory不能为空");
+            }
+            if (externalEndpoints != null) {
+                if (externalEndpoints.isEmpty()) {
+                    throw new IllegalArgumentException("外部模式至少需要一个LibreOffice地址");
+                }
+                externalEndpoints = new ArrayList<>(externalEndpoints);
+                minProcesses = externalEndpoints.size();
+                maxProcesses = externalEndpoints.size();
+            }
+            if (minProcesses < 1 || maxProcesses < minProcesses) {
+                throw new IllegalArgumentException(
+                    "进程数配置无效: min=" + minProcesses + ", max=" + maxProcesses);
+            }
+            return new ElasticOfficeManager(this);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger(0);
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
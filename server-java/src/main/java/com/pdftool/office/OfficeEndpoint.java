@@ -0,0 +1,65 @@
+package com.pdftool.office;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LibreOffice进程的socket地址
+ *
+ * 本地模式下由进程池按端口分配（host固定为127.0.0.1），
+ * 外部模式下来自配置的已运行soffice列表。
+ */
+public final class OfficeEndpoint {
+
+    public static final String LOCAL_HOST = "127.0.0.1";
+
+    private final String host;
+    private final int port;
+
+    public OfficeEndpoint(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * 解析逗号分隔的地址列表，如 "office1:2002,office1:2003,10.0.0.5:2002"（省略host时为127.0.0.1）
+     */
+    public static List<OfficeEndpoint> parseList(String value) {
+        List<OfficeEndpoint> endpoints = new ArrayList<>();
+        if (value == null) {
+            return endpoints;
+        }
+        for (String item : value.split(",")) {
+            String trimmed = item.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int colon = trimmed.lastIndexOf(':');
+            try {
+                if (colon < 0) {
+                    endpoints.add(new OfficeEndpoint(LOCAL_HOST, Integer.parseInt(trimmed)));
+                } else {
+                    String host = trimmed.substring(0, colon);
+                    endpoints.add(new OfficeEndpoint(host.isEmpty() ? LOCAL_HOST : host,
+                                                     Integer.parseInt(trimmed.substring(colon + 1))));
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无效的LibreOffice地址: " + trimmed);
+            }
+        }
+        return endpoints;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    @Override
+    public String toString() {
+        return host + ":" + port;
+    }
+}
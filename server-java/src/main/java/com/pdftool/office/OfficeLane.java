@@ -0,0 +1,39 @@
+package com.pdftool.office;
+
+/**
+ * LibreOffice进程通道
+ *
+ * 按文档类型划分独立的进程池，大PPT不会占用处理Excel的进程，
+ * 小表格任务也不会排在幻灯片后面。
+ */
+public enum OfficeLane {
+
+    WRITER("writer", "Word文档", 2002),
+    CALC("calc", "Excel表格", 2102),
+    IMPRESS("impress", "PPT演示文稿", 2202);
+
+    private final String key;
+    private final String description;
+    private final int defaultBasePort;
+
+    OfficeLane(String key, String description, int defaultBasePort) {
+        this.key = key;
+        this.description = description;
+        this.defaultBasePort = defaultBasePort;
+    }
+
+    /**
+     * 配置项和日志中使用的名称，如 pdftool.office.calc.max-processes
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getDefaultBasePort() {
+        return defaultBasePort;
+    }
+}
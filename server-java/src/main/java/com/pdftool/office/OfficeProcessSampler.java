@@ -0,0 +1,112 @@
+package com.pdftool.office;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * 从/proc读取soffice进程的内存和CPU占用（仅Linux）
+ *
+ * JodConverter启动的进程命令行中带有 -accept=socket,host=127.0.0.1,port=2002,...，
+ * 按端口即可找到每个OfficeWorker对应的soffice.bin进程。
+ */
+final class OfficeProcessSampler {
+
+    private static final Path PROC = Paths.get("/proc");
+
+    // /proc/<pid>/stat中CPU时间的单位（USER_HZ），Linux上几乎总是100
+    private static final long CLOCK_TICKS_PER_SECOND = 100L;
+
+    private OfficeProcessSampler() {
+    }
+
+    static boolean isSupported() {
+        return new File("/proc/self/stat").exists();
+    }
+
+    /**
+     * 查找监听指定端口的soffice进程，找不到返回-1
+     *
+     * 优先返回soffice.bin（实际工作进程），而不是启动它的soffice脚本
+     */
+    static long findPid(int port) {
+        String portArg = "port=" + port + ",";
+        long candidate = -1;
+        File[] entries = PROC.toFile().listFiles();
+        if (entries == null) {
+            return -1;
+        }
+        for (File entry : entries) {
+            String name = entry.getName();
+            if (!isNumeric(name)) {
+                continue;
+            }
+            String cmdline = readCmdline(entry.toPath());
+            if (cmdline == null || !cmdline.contains("soffice") || !cmdline.contains(portArg)) {
+                continue;
+            }
+            long pid = Long.parseLong(name);
+            if (cmdline.contains("soffice.bin")) {
+                return pid;
+            }
+            candidate = pid;
+        }
+        return candidate;
+    }
+
+    /**
+     * 常驻内存（VmRSS），单位KB，读取失败返回-1
+     */
+    static long readRssKb(long pid) {
+        try {
+            List<String> lines = Files.readAllLines(PROC.resolve(pid + "/status"), StandardCharsets.UTF_8);
+            for (String line : lines) {
+                if (line.startsWith("VmRSS:")) {
+                    String value = line.substring("VmRSS:".length()).trim();
+                    int space = value.indexOf(' ');
+                    return Long.parseLong(space > 0 ? value.substring(0, space) : value);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 进程已退出
+        }
+        return -1;
+    }
+
+    /**
+     * 累计CPU时间（utime + stime），单位毫秒，读取失败返回-1
+     */
+    static long readCpuMillis(long pid) {
+        try {
+            String stat = new String(Files.readAllBytes(PROC.resolve(pid + "/stat")), StandardCharsets.UTF_8);
+            // 进程名可能包含空格，从最后一个')'之后开始解析：state为第3个字段，utime/stime为第14/15个字段
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            long ticks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+            return ticks * 1000 / CLOCK_TICKS_PER_SECOND;
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static String readCmdline(Path procEntry) {
+        try {
+            byte[] bytes = Files.readAllBytes(procEntry.resolve("cmdline"));
+            return new String(bytes, StandardCharsets.UTF_8).replace('\0', ' ');
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static boolean isNumeric(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                return false;
+            }
+        }
+        return !name.isEmpty();
+    }
+}
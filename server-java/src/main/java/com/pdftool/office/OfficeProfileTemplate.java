@@ -0,0 +1,235 @@
+package com.pdftool.office;
+
+import org.jodconverter.local.office.LocalOfficeUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 预置的LibreOffice用户配置模板
+ *
+ * JodConverter每次启动soffice都会新建一个空的用户配置目录，LibreOffice首次启动时要生成
+ * 配置注册表、扫描字体、探测OpenCL/Java，耗时数秒，进程回收重启时也要重复一遍。
+ *
+ * 本类在首次使用时用soffice生成一次配置目录（同时完成字体缓存等首次启动工作），
+ * 再写入关闭自动保存、崩溃恢复、更新检查、Java和OpenCL的注册表项。
+ * 之后所有进程通过templateProfileDir从该模板复制配置启动。
+ *
+ * 模板构建失败时返回null，进程按原方式使用空配置启动。
+ */
+public class OfficeProfileTemplate {
+
+    // 模板内容变化时递增，已有模板版本不一致会重新构建
+    private static final String TEMPLATE_VERSION = "1";
+    private static final String MARKER_FILE = "pdftool-template.properties";
+    private static final long BUILD_TIMEOUT_SECONDS = 120L;
+
+    private static final String[][] REGISTRY_ITEMS = {
+        // 路径, 属性名, 值
+        {"/org.openoffice.Office.Recovery/AutoSave", "Enabled", "false"},
+        {"/org.openoffice.Office.Recovery/AutoSave", "UserAutoSave", "false"},
+        {"/org.openoffice.Office.Recovery/RecoveryInfo", "Enabled", "false"},
+        {"/org.openoffice.Office.Common/Save/Document", "CreateBackup", "false"},
+        {"/org.openoffice.Office.Jobs/Jobs/org.openoffice.Office.Jobs:Job['UpdateCheck']/Arguments",
+            "AutoCheckEnabled", "false"},
+        {"/org.openoffice.Office.Java/VirtualMachine", "Enable", "false"},
+        {"/org.openoffice.Office.Common/Misc", "UseOpenCL", "false"},
+        {"/org.openoffice.Office.Common/Misc", "FirstRun", "false"},
+        {"/org.openoffice.Office.Common/Misc", "ShowTipOfTheDay", "false"},
+        {"/org.openoffice.Setup/Office", "ooSetupInstCompleted", "true"},
+        // 不执行文档中的宏
+        {"/org.openoffice.Office.Common/Security/Scripting", "MacroSecurityLevel", "3"},
+    };
+
+    private final File officeHome;
+    private final File templateDir;
+
+    private boolean prepared;
+    private File template;
+
+    /**
+     * @param officeHome  LibreOffice安装目录，null则使用JodConverter自动检测的目录
+     * @param templateDir 模板目录（即-env:UserInstallation指向的目录）
+     */
+    public OfficeProfileTemplate(String officeHome, File templateDir) {
+        this.officeHome = officeHome != null ? new File(officeHome) : LocalOfficeUtils.getDefaultOfficeHome();
+        this.templateDir = templateDir;
+    }
+
+    /**
+     * 获取模板目录，首次调用时构建（所有通道共享，只构建一次）
+     *
+     * @return 模板目录，构建失败返回null
+     */
+    public synchronized File get() {
+        if (!prepared) {
+            prepared = true;
+            long startTime = System.currentTimeMillis();
+            try {
+                template = prepare();
+                System.out.println("LibreOffice配置模板就绪: " + template.getAbsolutePath() + " (" +
+                                 (System.currentTimeMillis() - startTime) + " ms)");
+            } catch (Exception e) {
+                System.err.println("⚠️  LibreOffice配置模板构建失败，进程将使用空配置启动: " + e.getMessage());
+            }
+        }
+        return template;
+    }
+
+    private File prepare() throws IOException, InterruptedException {
+        if (isCurrent(templateDir)) {
+            return templateDir;
+        }
+        if (officeHome == null) {
+            throw new IOException("找不到LibreOffice安装目录");
+        }
+
+        // 在临时目录构建，完成后再改名，避免进程使用构建到一半的模板
+        File parent = templateDir.getAbsoluteFile().getParentFile();
+        Files.createDirectories(parent.toPath());
+        Path buildDir = Files.createTempDirectory(parent.toPath(), templateDir.getName() + ".build-");
+        try {
+            initProfile(buildDir.toFile());
+            writeRegistry(new File(buildDir.toFile(), "user/registrymodifications.xcu"));
+            writeMarker(buildDir.toFile());
+
+            if (templateDir.exists()) {
+                deleteRecursively(templateDir.toPath());
+            }
+            Files.move(buildDir, templateDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (Files.exists(buildDir)) {
+                deleteRecursively(buildDir);
+            }
+        }
+        return templateDir;
+    }
+
+    /**
+     * 用soffice转换一个极小的文本文件：生成完整的用户配置目录，并预先建立字体缓存
+     */
+    private void initProfile(File profileDir) throws IOException, InterruptedException {
+        File workDir = new File(profileDir, "init");
+        Files.createDirectories(workDir.toPath());
+        File sample = new File(workDir, "init.txt");
+        Files.write(sample.toPath(), "PDFTool profile template 配置模板".getBytes(StandardCharsets.UTF_8));
+
+        List<String> command = new ArrayList<>(Arrays.asList(
+            LocalOfficeUtils.getOfficeExecutable(officeHome).getAbsolutePath(),
+            "-env:UserInstallation=" + LocalOfficeUtils.toUrl(profileDir),
+            "--headless", "--invisible", "--nologo", "--nodefault", "--norestore", "--nolockcheck",
+            "--convert-to", "pdf", "--outdir", workDir.getAbsolutePath(), sample.getAbsolutePath()));
+
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            if (!process.waitFor(BUILD_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IOException("soffice初始化配置超时（" + BUILD_TIMEOUT_SECONDS + " 秒）");
+            }
+        } finally {
+            process.destroyForcibly();
+        }
+        deleteRecursively(workDir.toPath());
+
+        if (!new File(profileDir, "user").isDirectory()) {
+            throw new IOException("soffice未生成用户配置目录（退出码 " + process.exitValue() + "）");
+        }
+    }
+
+    /**
+     * 把调优项合并到registrymodifications.xcu（每个item占一行，先去掉同名旧值）
+     */
+    private void writeRegistry(File registryFile) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (registryFile.exists()) {
+            for (String line : Files.readAllLines(registryFile.toPath(), StandardCharsets.UTF_8)) {
+                if (!line.contains("</oor:items>") && !isOverridden(line)) {
+                    lines.add(line);
+                }
+            }
+        } else {
+            lines.add("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            lines.add("<oor:items xmlns:oor=\"http://openoffice.org/2001/registry\" " +
+                      "xmlns:xs=\"http://www.w3.org/2001/XMLSchema\" " +
+                      "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">");
+        }
+
+        for (String[] item : REGISTRY_ITEMS) {
+            lines.add("<item oor:path=\"" + item[0].replace("'", "&apos;") + "\">" +
+                      "<prop oor:name=\"" + item[1] + "\" oor:op=\"fuse\"><value>" + item[2] + "</value></prop></item>");
+        }
+        lines.add("</oor:items>");
+
+        Files.createDirectories(registryFile.getParentFile().toPath());
+        Files.write(registryFile.toPath(), lines, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isOverridden(String line) {
+        for (String[] item : REGISTRY_ITEMS) {
+            String path = "oor:path=\"" + item[0].replace("'", "&apos;") + "\"";
+            if (line.contains(path) && line.contains("oor:name=\"" + item[1] + "\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeMarker(File profileDir) throws IOException {
+        Properties marker = new Properties();
+        marker.setProperty("version", TEMPLATE_VERSION);
+        marker.setProperty("officeHome", officeHome.getAbsolutePath());
+        try (OutputStream out = Files.newOutputStream(new File(profileDir, MARKER_FILE).toPath())) {
+            marker.store(out, "PDFTool LibreOffice profile template");
+        }
+    }
+
+    /**
+     * 已有模板的版本和LibreOffice安装目录都一致时直接复用
+     */
+    private boolean isCurrent(File dir) {
+        File markerFile = new File(dir, MARKER_FILE);
+        if (!markerFile.isFile() || !new File(dir, "user").isDirectory()) {
+            return false;
+        }
+        Properties marker = new Properties();
+        try (InputStream in = Files.newInputStream(markerFile.toPath())) {
+            marker.load(in);
+        } catch (IOException e) {
+            return false;
+        }
+        return TEMPLATE_VERSION.equals(marker.getProperty("version")) &&
+               officeHome != null && officeHome.getAbsolutePath().equals(marker.getProperty("officeHome"));
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,156 @@
+package com.pdftool.office;
+
+import org.apache.poi.hslf.usermodel.HSLFSlide;
+import org.apache.poi.hslf.usermodel.HSLFSlideShow;
+import org.apache.poi.hslf.usermodel.HSLFTextBox;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.apache.poi.xslf.usermodel.XSLFTextBox;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.jodconverter.core.document.DefaultDocumentFormatRegistry;
+import org.jodconverter.core.document.DocumentFormat;
+import org.jodconverter.core.office.OfficeException;
+import org.jodconverter.core.office.OfficeManager;
+import org.jodconverter.local.LocalConverter;
+
+import java.awt.Rectangle;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LibreOffice进程预热
+ *
+ * 新进程首次加载Writer/Calc/Impress模块、导入过滤器和PDF导出过滤器需要数秒，
+ * 预热时用POI在内存中生成的极小样例文档（几KB）执行一次完整的转PDF流程，
+ * 让用户的第一个请求不再承担冷启动开销。
+ *
+ * 每个通道只预热本通道处理的格式。
+ */
+public class OfficeWarmup {
+
+    private static final String SAMPLE_TEXT = "PDFTool warm-up 预热样例 1234567890";
+
+    private final OfficeLane lane;
+
+    // 格式 -> 样例文档字节，首次使用时生成
+    private volatile Map<DocumentFormat, byte[]> samples;
+
+    public OfficeWarmup(OfficeLane lane) {
+        this.lane = lane;
+    }
+
+    /**
+     * 在指定进程上依次转换本通道的所有样例文档
+     *
+     * @param processManager 只管理单个进程的OfficeManager
+     */
+    public void warmUp(OfficeManager processManager) throws OfficeException {
+        LocalConverter converter = LocalConverter.make(processManager);
+        for (Map.Entry<DocumentFormat, byte[]> sample : getSamples().entrySet()) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            converter.convert(new ByteArrayInputStream(sample.getValue()))
+                    .as(sample.getKey())
+                    .to(outputStream)
+                    .as(DefaultDocumentFormatRegistry.PDF)
+                    .execute();
+        }
+    }
+
+    private Map<DocumentFormat, byte[]> getSamples() throws OfficeException {
+        Map<DocumentFormat, byte[]> result = samples;
+        if (result == null) {
+            synchronized (this) {
+                result = samples;
+                if (result == null) {
+                    try {
+                        result = createSamples();
+                    } catch (IOException e) {
+                        throw new OfficeException("生成预热样例文档失败", e);
+                    }
+                    samples = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Map<DocumentFormat, byte[]> createSamples() throws IOException {
+        Map<DocumentFormat, byte[]> result = new LinkedHashMap<>();
+        switch (lane) {
+            case WRITER:
+                result.put(DefaultDocumentFormatRegistry.DOCX, createDocx());
+                break;
+            case CALC:
+                result.put(DefaultDocumentFormatRegistry.XLSX, createWorkbook(new XSSFWorkbook()));
+                result.put(DefaultDocumentFormatRegistry.XLS, createWorkbook(new HSSFWorkbook()));
+                break;
+            case IMPRESS:
+                result.put(DefaultDocumentFormatRegistry.PPTX, createPptx());
+                result.put(DefaultDocumentFormatRegistry.PPT, createPpt());
+                break;
+            default:
+                break;
+        }
+        return result;
+    }
+
+    private byte[] createDocx() throws IOException {
+        try (XWPFDocument document = new XWPFDocument();
+             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            document.createParagraph().createRun().setText(SAMPLE_TEXT);
+            XWPFTable table = document.createTable(2, 2);
+            table.getRow(0).getCell(0).setText("A1");
+            table.getRow(1).getCell(1).setText("B2");
+            document.write(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+
+    private byte[] createWorkbook(Workbook workbook) throws IOException {
+        try (Workbook wb = workbook;
+             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            Sheet sheet = wb.createSheet("Sheet1");
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue(SAMPLE_TEXT);
+            Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue(1);
+            row.createCell(1).setCellValue(2);
+            row.createCell(2).setCellFormula("A2+B2");
+            wb.write(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+
+    private byte[] createPptx() throws IOException {
+        try (XMLSlideShow slideShow = new XMLSlideShow();
+             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            XSLFSlide slide = slideShow.createSlide();
+            XSLFTextBox textBox = slide.createTextBox();
+            textBox.setAnchor(new Rectangle(50, 50, 400, 60));
+            textBox.setText(SAMPLE_TEXT);
+            slideShow.write(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+
+    private byte[] createPpt() throws IOException {
+        try (HSLFSlideShow slideShow = new HSLFSlideShow();
+             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            HSLFSlide slide = slideShow.createSlide();
+            HSLFTextBox textBox = slide.createTextBox();
+            textBox.setAnchor(new Rectangle(50, 50, 400, 60));
+            textBox.setText(SAMPLE_TEXT);
+            slideShow.write(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+}
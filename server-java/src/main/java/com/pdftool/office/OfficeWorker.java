@@ -0,0 +1,193 @@
+package com.pdftool.office;
+
+import org.jodconverter.core.office.OfficeException;
+import org.jodconverter.core.office.OfficeManager;
+import org.jodconverter.core.task.OfficeTask;
+
+/**
+ * 弹性进程池中的单个LibreOffice进程
+ *
+ * 每个OfficeWorker独占一个端口，同一时刻只执行一个转换任务，
+ * 由ElasticOfficeManager负责分配、回收和重启。
+ */
+class OfficeWorker {
+
+    private final int slot;
+    private final OfficeEndpoint endpoint;
+    private final OfficeWorkerFactory factory;
+
+    private volatile OfficeManager manager;
+    private volatile long lastUsedTime;
+    private volatile int taskCount;
+    private volatile long lastWarmupMillis = -1;
+
+    // 进程资源采样（仅Linux），每次启动后重新定位pid
+    private volatile long pid = -1;
+    private volatile long rssKb = -1;
+    private volatile double cpuPercent = -1;
+    private long lastCpuMillis = -1;
+    private long lastSampleTime;
+
+    // 看门狗标记的回收原因，任务结束后回收
+    private volatile RecycleReason pendingRecycle;
+
+    OfficeWorker(int slot, OfficeEndpoint endpoint, OfficeWorkerFactory factory) {
+        this.slot = slot;
+        this.endpoint = endpoint;
+        this.factory = factory;
+        this.lastUsedTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 启动进程（每次启动都创建新的单进程OfficeManager）
+     */
+    void start() throws OfficeException {
+        OfficeManager newManager = factory.create(endpoint);
+        newManager.start();
+        manager = newManager;
+        taskCount = 0;
+        lastUsedTime = System.currentTimeMillis();
+        pid = -1;
+        rssKb = -1;
+        cpuPercent = -1;
+        lastCpuMillis = -1;
+        pendingRecycle = null;
+    }
+
+    /**
+     * 采样进程的常驻内存和CPU使用率（两次采样之间的平均值）
+     *
+     * 只由看门狗线程调用
+     */
+    void sample() {
+        if (pid <= 0) {
+            pid = OfficeProcessSampler.findPid(endpoint.getPort());
+            if (pid <= 0) {
+                return;
+            }
+        }
+
+        long rss = OfficeProcessSampler.readRssKb(pid);
+        long cpuMillis = OfficeProcessSampler.readCpuMillis(pid);
+        long now = System.currentTimeMillis();
+        if (rss < 0 || cpuMillis < 0) {
+            // 进程已退出或被重启，下次重新查找
+            pid = -1;
+            return;
+        }
+
+        rssKb = rss;
+        if (lastCpuMillis >= 0 && now > lastSampleTime) {
+            cpuPercent = (cpuMillis - lastCpuMillis) * 100.0 / (now - lastSampleTime);
+        }
+        lastCpuMillis = cpuMillis;
+        lastSampleTime = now;
+    }
+
+    void stop() {
+        OfficeManager current = manager;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.stop();
+        } catch (Exception e) {
+            System.err.println("[Office进程 " + endpoint + "] 关闭失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 强制结束本端口的soffice进程（用于中止超时的转换）
+     *
+     * 正在执行的UNO调用会因连接断开立即失败，进程由进程池随后重启
+     *
+     * @return 是否找到并结束了进程
+     */
+    boolean kill() {
+        String portArg = "port=" + endpoint.getPort() + ",";
+        boolean killed = false;
+        for (ProcessHandle process : (Iterable<ProcessHandle>) ProcessHandle.allProcesses()::iterator) {
+            String commandLine = process.info().commandLine().orElse("");
+            if (commandLine.contains("soffice") && commandLine.contains(portArg)) {
+                killed |= process.destroyForcibly();
+            }
+        }
+        pid = -1;
+        return killed;
+    }
+
+    /**
+     * 重启进程（回收内存）
+     */
+    void restart() throws OfficeException {
+        stop();
+        start();
+    }
+
+    void execute(OfficeTask task) throws OfficeException {
+        try {
+            manager.execute(task);
+        } finally {
+            taskCount++;
+            lastUsedTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 当前进程的单进程OfficeManager，用于预热等直接针对该进程的操作
+     */
+    OfficeManager getManager() {
+        return manager;
+    }
+
+    /**
+     * 在进程池中的槽位（本地模式对应basePort + slot，外部模式对应地址列表下标）
+     */
+    int getSlot() {
+        return slot;
+    }
+
+    OfficeEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    int getPort() {
+        return endpoint.getPort();
+    }
+
+    int getTaskCount() {
+        return taskCount;
+    }
+
+    long getIdleMillis() {
+        return System.currentTimeMillis() - lastUsedTime;
+    }
+
+    long getPid() {
+        return pid;
+    }
+
+    long getRssKb() {
+        return rssKb;
+    }
+
+    double getCpuPercent() {
+        return cpuPercent;
+    }
+
+    RecycleReason getPendingRecycle() {
+        return pendingRecycle;
+    }
+
+    void setPendingRecycle(RecycleReason pendingRecycle) {
+        this.pendingRecycle = pendingRecycle;
+    }
+
+    long getLastWarmupMillis() {
+        return lastWarmupMillis;
+    }
+
+    void setLastWarmupMillis(long lastWarmupMillis) {
+        this.lastWarmupMillis = lastWarmupMillis;
+    }
+}
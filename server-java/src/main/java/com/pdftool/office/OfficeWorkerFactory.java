@@ -0,0 +1,18 @@
+package com.pdftool.office;
+
+import org.jodconverter.core.office.OfficeManager;
+
+/**
+ * 单进程OfficeManager工厂
+ *
+ * 弹性进程池每扩容一个LibreOffice进程，就通过该工厂为指定地址创建一个
+ * 只管理单个进程的OfficeManager（本地模式启动进程，外部模式连接已运行的进程）。
+ */
+@FunctionalInterface
+public interface OfficeWorkerFactory {
+
+    /**
+     * 为指定地址创建单进程OfficeManager（尚未启动）
+     */
+    OfficeManager create(OfficeEndpoint endpoint);
+}
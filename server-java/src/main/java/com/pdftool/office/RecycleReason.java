@@ -0,0 +1,31 @@
+package com.pdftool.office;
+
+/**
+ * 进程回收原因
+ */
+public enum RecycleReason {
+
+    TASKS("tasks", "达到任务数上限"),
+    MEMORY("memory", "常驻内存超过阈值"),
+    CPU("cpu", "空闲时CPU占用过高"),
+    CANCELLED("cancelled", "转换超时被取消");
+
+    private final String key;
+    private final String description;
+
+    RecycleReason(String key, String description) {
+        this.key = key;
+        this.description = description;
+    }
+
+    /**
+     * 指标中使用的名称
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,186 @@
+package com.pdftool.service;
+
+import com.pdftool.office.ElasticOfficeManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 转换请求准入控制
+ *
+ * 每种转换类型允许同时在处理中的请求数 = 并发数 + 排队上限。
+ * 超过时请求在转存上传内容（InputSpool）之前就被拒绝，
+ * 返回429和预计的Retry-After，而不是占着Tomcat线程和上百MB堆内存排队直到超时。
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+@Service
+public class AdmissionControl {
+
+    // 滑动平均系数
+    private static final double EWMA_ALPHA = 0.2;
+
+    // 还没有耗时数据时按该值估算Retry-After（毫秒）
+    private static final long DEFAULT_DURATION_MILLIS = 5_000L;
+
+    // 未启用JodConverter时没有Office进程池
+    @Autowired(required = false)
+    private List<ElasticOfficeManager> officeManagers;
+
+    @Autowired
+    private Environment environment;
+
+    // 每种类型默认的排队上限（不含正在处理的请求）
+    @Value("${pdftool.admission.max-queued:20}")
+    private int defaultMaxQueued;
+
+    private final Map<ConversionType, TypeState> states = new EnumMap<>(ConversionType.class);
+
+    @PostConstruct
+    public void init() {
+        for (ConversionType type : ConversionType.values()) {
+            String prefix = "pdftool.admission." + type.getKey() + ".";
+            int concurrency = environment.getProperty(prefix + "concurrency", Integer.class, 0);
+            if (concurrency <= 0) {
+                concurrency = getDefaultConcurrency(type);
+            }
+            int maxQueued = environment.getProperty(prefix + "max-queued", Integer.class, defaultMaxQueued);
+            states.put(type, new TypeState(concurrency, Math.max(0, maxQueued)));
+        }
+    }
+
+    /**
+     * Office转换的并发数等于对应通道的最大进程数，纯Java转换等于CPU核数
+     */
+    private int getDefaultConcurrency(ConversionType type) {
+        if (type.getOfficeLane() != null && officeManagers != null) {
+            for (ElasticOfficeManager officeManager : officeManagers) {
+                if (type.getOfficeLane().getKey().equals(officeManager.getName())) {
+                    return officeManager.getMaxProcesses();
+                }
+            }
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * 尝试接纳一个请求，已满时立即返回null（不阻塞）
+     *
+     * 接纳后必须在处理结束时调用Permit.close()
+     */
+    public Permit tryAcquire(ConversionType type) {
+        TypeState state = states.get(type);
+        if (!state.permits.tryAcquire()) {
+            state.rejected.incrementAndGet();
+            return null;
+        }
+        state.admitted.incrementAndGet();
+        return new Permit(state);
+    }
+
+    /**
+     * 预计多少秒后可以重试：在处理中的请求数 × 平均耗时 ÷ 并发数
+     */
+    public long getRetryAfterSeconds(ConversionType type) {
+        TypeState state = states.get(type);
+        long inFlight = state.getInFlight();
+        double seconds = inFlight * state.getAverageDurationMillis() / state.concurrency / 1000.0;
+        return Math.max(1, (long) Math.ceil(seconds));
+    }
+
+    /**
+     * 各转换类型的在处理数、排队深度、拒绝次数
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (Map.Entry<ConversionType, TypeState> entry : states.entrySet()) {
+            TypeState state = entry.getValue();
+            int inFlight = state.getInFlight();
+            Map<String, Object> typeMetrics = new LinkedHashMap<>();
+            typeMetrics.put("concurrency", state.concurrency);
+            typeMetrics.put("maxQueued", state.maxQueued);
+            typeMetrics.put("inFlight", inFlight);
+            typeMetrics.put("queueDepth", Math.max(0, inFlight - state.concurrency));
+            typeMetrics.put("admitted", state.admitted.get());
+            typeMetrics.put("rejected", state.rejected.get());
+            typeMetrics.put("avgDurationMs", Math.round(state.getAverageDurationMillis()));
+            typeMetrics.put("retryAfterSeconds", getRetryAfterSeconds(entry.getKey()));
+            metrics.put(entry.getKey().getKey(), typeMetrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * 单个请求的准入许可
+     */
+    public static final class Permit implements AutoCloseable {
+
+        private final TypeState state;
+        private final long startTime = System.currentTimeMillis();
+        private boolean closed;
+
+        private Permit(TypeState state) {
+            this.state = state;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            state.recordDuration(System.currentTimeMillis() - startTime);
+            state.permits.release();
+        }
+
+        /**
+         * 释放许可但不计入平均耗时（批量请求的总耗时不代表单个转换，会拉高Retry-After）
+         */
+        public void release() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            state.permits.release();
+        }
+    }
+
+    private static final class TypeState {
+
+        private final int concurrency;
+        private final int maxQueued;
+        private final Semaphore permits;
+        private final AtomicLong admitted = new AtomicLong(0);
+        private final AtomicLong rejected = new AtomicLong(0);
+        private double averageDurationMillis = -1;
+
+        private TypeState(int concurrency, int maxQueued) {
+            this.concurrency = concurrency;
+            this.maxQueued = maxQueued;
+            this.permits = new Semaphore(concurrency + maxQueued);
+        }
+
+        private int getInFlight() {
+            return concurrency + maxQueued - permits.availablePermits();
+        }
+
+        private synchronized void recordDuration(long durationMillis) {
+            averageDurationMillis = averageDurationMillis < 0 ? durationMillis
+                    : averageDurationMillis * (1 - EWMA_ALPHA) + durationMillis * EWMA_ALPHA;
+        }
+
+        private synchronized double getAverageDurationMillis() {
+            return averageDurationMillis < 0 ? DEFAULT_DURATION_MILLIS : averageDurationMillis;
+        }
+    }
+}
@@ -0,0 +1,592 @@
+package com.pdftool.service;
+
+import org.jodconverter.core.document.DefaultDocumentFormatRegistry;
+import org.jodconverter.core.document.DocumentFamily;
+import org.jodconverter.core.document.DocumentFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * 按内容识别上传文件的格式
+ *
+ * 上传文件的扩展名来自客户端，不一定可信；给LibreOffice错误的格式提示时，它要么回退到慢速的类型检测，要么直接失败。
+ * 这里只读取文件开头的8KB，按以下顺序判断：
+ * 1. 魔数：PDF、PNG、JPEG、GIF、BMP、TIFF、WebP、RTF、OLE2复合文档、ZIP
+ * 2. OLE2（.doc/.xls/.ppt）：读取目录扇区，按 WordDocument / Workbook / PowerPoint Document 流区分
+ * 3. ZIP：在开头的本地文件头中查找 mimetype（ODF，第一个条目且不压缩）或 [Content_Types].xml（OOXML，解压后按主文档类型区分）
+ * 4. 都不是时按文本判断是否为CSV（多行、分隔符数量一致）
+ *
+ * 只有OLE2目录不在开头8KB内、或ZIP开头找不到上述条目时才再读文件（目录扇区 / ZIP中央目录）。
+ * 性能对比见 src/jmh（mvn -Pjmh test-compile exec:exec）。
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+public final class ContentSniffer {
+
+    // 一次读取的文件头大小，覆盖ODF的mimetype和常见OOXML的[Content_Types].xml
+    static final int HEADER_BYTES = 8 * 1024;
+
+    // 解压[Content_Types].xml的上限，主文档类型一般在开头
+    private static final int MAX_CONTENT_TYPES_BYTES = 64 * 1024;
+    // OLE2目录最多读取的扇区数
+    private static final int MAX_DIRECTORY_SECTORS = 8;
+
+    private static final byte[] OLE2_MAGIC = {
+            (byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1};
+    private static final int ZIP_LOCAL_HEADER = 0x04034b50;
+    private static final byte[] PDF_MAGIC = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PNG_MAGIC = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+    private static final byte[] JPEG_MAGIC = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] GIF87_MAGIC = "GIF87a".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GIF89_MAGIC = "GIF89a".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TIFF_LE_MAGIC = {'I', 'I', 0x2A, 0x00};
+    private static final byte[] TIFF_BE_MAGIC = {'M', 'M', 0x00, 0x2A};
+    private static final byte[] RIFF_MAGIC = "RIFF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RTF_MAGIC = "{\\rtf".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    // 根据 xlsb 扩展名建立的输入格式（JodConverter默认注册表中没有）
+    private static final DocumentFormat XLSB_FORMAT = DocumentFormat.builder()
+            .name("Excel Binary Workbook")
+            .extension("xlsb")
+            .mediaType("application/vnd.ms-excel.sheet.binary.macroEnabled.12")
+            .inputFamily(DocumentFamily.SPREADSHEET)
+            .unmodifiable(true)
+            .build();
+
+    /**
+     * 识别出的文件格式
+     */
+    public enum Format {
+        DOC("doc", DocumentFamily.TEXT, DefaultDocumentFormatRegistry.DOC),
+        DOCX("docx", DocumentFamily.TEXT, DefaultDocumentFormatRegistry.DOCX),
+        ODT("odt", DocumentFamily.TEXT, DefaultDocumentFormatRegistry.ODT),
+        RTF("rtf", DocumentFamily.TEXT, DefaultDocumentFormatRegistry.RTF),
+        XLS("xls", DocumentFamily.SPREADSHEET, DefaultDocumentFormatRegistry.XLS),
+        XLSX("xlsx", DocumentFamily.SPREADSHEET, DefaultDocumentFormatRegistry.XLSX),
+        XLSM("xlsm", DocumentFamily.SPREADSHEET, DefaultDocumentFormatRegistry.XLSM),
+        XLSB("xlsb", DocumentFamily.SPREADSHEET, XLSB_FORMAT),
+        ODS("ods", DocumentFamily.SPREADSHEET, DefaultDocumentFormatRegistry.ODS),
+        CSV("csv", DocumentFamily.SPREADSHEET, DefaultDocumentFormatRegistry.CSV),
+        PPT("ppt", DocumentFamily.PRESENTATION, DefaultDocumentFormatRegistry.PPT),
+        PPTX("pptx", DocumentFamily.PRESENTATION, DefaultDocumentFormatRegistry.PPTX),
+        ODP("odp", DocumentFamily.PRESENTATION, DefaultDocumentFormatRegistry.ODP),
+        PDF("pdf", null, null),
+        PNG("png", null, null),
+        JPEG("jpg", null, null),
+        GIF("gif", null, null),
+        BMP("bmp", null, null),
+        TIFF("tiff", null, null),
+        WEBP("webp", null, null),
+        // 识别出容器但无法确定内容：加密的OOXML、其他OLE2文档、其他ZIP文件
+        OLE2("ole2", null, null),
+        ZIP("zip", null, null);
+
+        private final String extension;
+        private final DocumentFamily family;
+        private final DocumentFormat documentFormat;
+
+        Format(String extension, DocumentFamily family, DocumentFormat documentFormat) {
+            this.extension = extension;
+            this.family = family;
+            this.documentFormat = documentFormat;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Office文档的类型（文字 / 表格 / 演示），PDF、图片和未知容器为null
+         */
+        public DocumentFamily getFamily() {
+            return family;
+        }
+
+        /**
+         * 传给JodConverter的输入格式，非Office文档为null
+         */
+        public DocumentFormat getDocumentFormat() {
+            return documentFormat;
+        }
+
+        public boolean isImage() {
+            return this == PNG || this == JPEG || this == GIF || this == BMP || this == TIFF || this == WEBP;
+        }
+    }
+
+    private ContentSniffer() {
+    }
+
+    /**
+     * 识别文件格式，无法识别时返回null
+     */
+    public static Format sniff(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] header = new byte[(int) Math.min(HEADER_BYTES, in.length())];
+            in.readFully(header);
+            Format format = sniffHeader(header, in);
+            if (format == Format.ZIP) {
+                // 开头的本地文件头中没有找到，查中央目录
+                return sniffZipFile(file);
+            }
+            return format;
+        }
+    }
+
+    /**
+     * 只按内存中的文件头识别（至少传入开头的8KB），OLE2目录不在其中时返回OLE2，
+     * ZIP开头没有mimetype或[Content_Types].xml时按条目路径推断，仍无法确定时返回ZIP
+     */
+    public static Format sniff(byte[] header) {
+        try {
+            return sniffHeader(header, null);
+        } catch (IOException e) {
+            // 没有文件时不会读取
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 转换使用的输入格式：按内容识别出Office文档时使用识别结果（类型可以与接口不同，LibreOffice按实际类型导入），
+     * 否则按接口的文档类型使用默认格式（OLE2文档用 .doc/.xls/.ppt，其他用 .docx/.xlsx/.pptx）
+     */
+    public static DocumentFormat inputFormat(File file, DocumentFamily family) throws IOException {
+        return inputFormat(sniff(file), family);
+    }
+
+    /**
+     * 按已识别的格式选择转换使用的输入格式，规则同 inputFormat(File, DocumentFamily)
+     */
+    public static DocumentFormat inputFormat(Format format, DocumentFamily family) {
+        if (format != null && format.getDocumentFormat() != null) {
+            return format.getDocumentFormat();
+        }
+        boolean legacy = format == Format.OLE2;
+        switch (family) {
+            case SPREADSHEET:
+                return legacy ? DefaultDocumentFormatRegistry.XLS : DefaultDocumentFormatRegistry.XLSX;
+            case PRESENTATION:
+                return legacy ? DefaultDocumentFormatRegistry.PPT : DefaultDocumentFormatRegistry.PPTX;
+            default:
+                return legacy ? DefaultDocumentFormatRegistry.DOC : DefaultDocumentFormatRegistry.DOCX;
+        }
+    }
+
+    private static Format sniffHeader(byte[] header, RandomAccessFile in) throws IOException {
+        int length = header.length;
+        if (startsWith(header, OLE2_MAGIC)) {
+            return sniffOle2(header, in);
+        }
+        if (length >= 4 && readInt(header, 0) == ZIP_LOCAL_HEADER) {
+            // 有文件时不按条目路径推断，开头找不到时查中央目录
+            return sniffZipHeader(header, in == null);
+        }
+        if (startsWith(header, PDF_MAGIC)) {
+            return Format.PDF;
+        }
+        if (startsWith(header, PNG_MAGIC)) {
+            return Format.PNG;
+        }
+        if (startsWith(header, JPEG_MAGIC)) {
+            return Format.JPEG;
+        }
+        if (startsWith(header, GIF87_MAGIC) || startsWith(header, GIF89_MAGIC)) {
+            return Format.GIF;
+        }
+        if (startsWith(header, TIFF_LE_MAGIC) || startsWith(header, TIFF_BE_MAGIC)) {
+            return Format.TIFF;
+        }
+        if (length >= 12 && startsWith(header, RIFF_MAGIC)
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return Format.WEBP;
+        }
+        // BMP：BM + 文件大小 + 4字节保留 + 像素偏移，信息头长度为12/40/56/108/124
+        if (length >= 18 && header[0] == 'B' && header[1] == 'M') {
+            int infoHeaderSize = readInt(header, 14);
+            if (infoHeaderSize == 12 || infoHeaderSize == 40 || infoHeaderSize == 56
+                    || infoHeaderSize == 108 || infoHeaderSize == 124) {
+                return Format.BMP;
+            }
+        }
+        int textStart = startsWith(header, UTF8_BOM) ? UTF8_BOM.length : 0;
+        if (startsWith(header, textStart, RTF_MAGIC)) {
+            return Format.RTF;
+        }
+        if (isCsv(header, textStart)) {
+            return Format.CSV;
+        }
+        return null;
+    }
+
+    // ---------------- OLE2 ----------------
+
+    /**
+     * OLE2复合文档：按目录中的流名区分Word / Excel / PowerPoint
+     */
+    private static Format sniffOle2(byte[] header, RandomAccessFile in) throws IOException {
+        if (header.length < 512) {
+            return Format.OLE2;
+        }
+        int sectorShift = readShort(header, 30);
+        if (sectorShift != 9 && sectorShift != 12) {
+            return Format.OLE2;
+        }
+        int sectorSize = 1 << sectorShift;
+        long sector = readUnsignedInt(header, 48);
+        byte[] buffer = new byte[sectorSize];
+        for (int i = 0; i < MAX_DIRECTORY_SECTORS && sector < 0xFFFFFFFAL; i++) {
+            byte[] directory = readSector(header, in, sector, sectorSize, buffer);
+            if (directory == null) {
+                break;
+            }
+            Format format = scanDirectory(directory);
+            if (format != null) {
+                return format;
+            }
+            sector = nextSector(header, in, sector, sectorSize, buffer);
+        }
+        return Format.OLE2;
+    }
+
+    /**
+     * 目录扇区中每128字节一个条目：UTF-16LE名称（最多64字节）+ 名称字节数
+     */
+    private static Format scanDirectory(byte[] directory) {
+        for (int offset = 0; offset + 128 <= directory.length; offset += 128) {
+            int nameBytes = readShort(directory, offset + 64);
+            if (nameBytes < 2 || nameBytes > 64) {
+                continue;
+            }
+            String name = new String(directory, offset, nameBytes - 2, StandardCharsets.UTF_16LE);
+            switch (name) {
+                case "WordDocument":
+                    return Format.DOC;
+                case "Workbook":
+                case "Book":
+                    return Format.XLS;
+                case "PowerPoint Document":
+                    return Format.PPT;
+                default:
+                    break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按FAT查找目录链中的下一个扇区（只支持头部DIFAT中的前109个FAT扇区，覆盖约7MB/436MB的文件）
+     */
+    private static long nextSector(byte[] header, RandomAccessFile in, long sector, int sectorSize, byte[] buffer)
+            throws IOException {
+        int entriesPerSector = sectorSize / 4;
+        long fatIndex = sector / entriesPerSector;
+        if (fatIndex >= 109) {
+            return 0xFFFFFFFEL;
+        }
+        long fatSector = readUnsignedInt(header, 76 + (int) fatIndex * 4);
+        byte[] fat = readSector(header, in, fatSector, sectorSize, buffer);
+        if (fat == null) {
+            return 0xFFFFFFFEL;
+        }
+        return readUnsignedInt(fat, (int) (sector % entriesPerSector) * 4);
+    }
+
+    /**
+     * 读取扇区：在文件头范围内时直接取，否则从文件读取；没有文件或超出文件长度时返回null
+     */
+    private static byte[] readSector(byte[] header, RandomAccessFile in, long sector, int sectorSize, byte[] buffer)
+            throws IOException {
+        if (sector >= 0xFFFFFFFAL) {
+            return null;
+        }
+        // 扇区0位于文件头（512字节，4096字节扇区时为4096字节）之后
+        long position = (sector + 1) * sectorSize;
+        if (position + sectorSize <= header.length) {
+            System.arraycopy(header, (int) position, buffer, 0, sectorSize);
+            return buffer;
+        }
+        if (in == null || position + sectorSize > in.length()) {
+            return null;
+        }
+        in.seek(position);
+        in.readFully(buffer);
+        return buffer;
+    }
+
+    // ---------------- ZIP ----------------
+
+    /**
+     * 在文件头中的本地文件头里查找 mimetype 和 [Content_Types].xml，找不到时按条目路径推断（useHint）或返回ZIP
+     */
+    private static Format sniffZipHeader(byte[] header, boolean useHint) {
+        Format hint = null;
+        int offset = 0;
+        while (offset + 30 <= header.length && readInt(header, offset) == ZIP_LOCAL_HEADER) {
+            int flags = readShort(header, offset + 6);
+            int method = readShort(header, offset + 8);
+            long compressedSize = readUnsignedInt(header, offset + 18);
+            int nameLength = readShort(header, offset + 26);
+            int extraLength = readShort(header, offset + 28);
+            int dataStart = offset + 30 + nameLength + extraLength;
+            if (dataStart > header.length) {
+                break;
+            }
+            String name = new String(header, offset + 30, nameLength, StandardCharsets.UTF_8);
+            int available = (int) Math.min(compressedSize, header.length - dataStart);
+            if ((flags & 0x08) != 0) {
+                // 大小写在数据之后（流式写入），只能解压到结束为止
+                available = header.length - dataStart;
+            }
+
+            if ("mimetype".equals(name) && method == ZipEntry.STORED) {
+                Format format = fromMimeType(new String(header, dataStart, available, StandardCharsets.US_ASCII));
+                if (format != null) {
+                    return format;
+                }
+            } else if ("[Content_Types].xml".equals(name)) {
+                String contentTypes = readEntry(header, dataStart, available, method);
+                Format format = contentTypes != null ? fromContentTypes(contentTypes) : null;
+                if (format != null) {
+                    return format;
+                }
+            } else if (useHint && hint == null) {
+                hint = fromEntryName(name);
+            }
+
+            if ((flags & 0x08) != 0 || dataStart + compressedSize > header.length) {
+                // 无法跳到下一个条目（数据描述符）或下一个条目不在文件头中
+                break;
+            }
+            offset = dataStart + (int) compressedSize;
+        }
+        return hint != null ? hint : Format.ZIP;
+    }
+
+    /**
+     * 按中央目录查找（条目顺序不规范的文件），仍无法确定时返回ZIP
+     */
+    private static Format sniffZipFile(File file) {
+        try (ZipFile zipFile = new ZipFile(file)) {
+            ZipEntry mimetype = zipFile.getEntry("mimetype");
+            if (mimetype != null) {
+                Format format = fromMimeType(readEntry(zipFile, mimetype));
+                if (format != null) {
+                    return format;
+                }
+            }
+            ZipEntry contentTypes = zipFile.getEntry("[Content_Types].xml");
+            if (contentTypes != null) {
+                Format format = fromContentTypes(readEntry(zipFile, contentTypes));
+                if (format != null) {
+                    return format;
+                }
+            }
+            if (zipFile.getEntry("xl/workbook.bin") != null) {
+                return Format.XLSB;
+            }
+            if (zipFile.getEntry("xl/workbook.xml") != null) {
+                return Format.XLSX;
+            }
+            if (zipFile.getEntry("word/document.xml") != null) {
+                return Format.DOCX;
+            }
+            if (zipFile.getEntry("ppt/presentation.xml") != null) {
+                return Format.PPTX;
+            }
+        } catch (IOException e) {
+            // 损坏的ZIP：交给LibreOffice报错
+        }
+        return Format.ZIP;
+    }
+
+    private static String readEntry(ZipFile zipFile, ZipEntry entry) throws IOException {
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            return new String(in.readNBytes(MAX_CONTENT_TYPES_BYTES), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 解压文件头中的条目数据（可能不完整，解压到数据结束为止）
+     */
+    private static String readEntry(byte[] header, int offset, int length, int method) {
+        if (method == ZipEntry.STORED) {
+            return new String(header, offset, length, StandardCharsets.UTF_8);
+        }
+        if (method != ZipEntry.DEFLATED) {
+            return null;
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(header, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished() && out.size() < MAX_CONTENT_TYPES_BYTES) {
+                int count = inflater.inflate(buffer);
+                if (count == 0) {
+                    // 需要更多输入（条目超出文件头）或字典：用已解压的部分判断
+                    break;
+                }
+                out.write(buffer, 0, count);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * ODF的mimetype条目
+     */
+    private static Format fromMimeType(String mimeType) {
+        String type = mimeType.trim();
+        if (type.startsWith("application/vnd.oasis.opendocument.text")) {
+            return Format.ODT;
+        }
+        if (type.startsWith("application/vnd.oasis.opendocument.spreadsheet")) {
+            return Format.ODS;
+        }
+        if (type.startsWith("application/vnd.oasis.opendocument.presentation")) {
+            return Format.ODP;
+        }
+        return null;
+    }
+
+    /**
+     * OOXML按主文档部件的类型区分（嵌入的对象只在Default中按扩展名出现，不会匹配到main）
+     */
+    private static Format fromContentTypes(String contentTypes) {
+        if (contentTypes.contains("application/vnd.ms-excel.sheet.binary.macroEnabled.main")) {
+            return Format.XLSB;
+        }
+        if (contentTypes.contains("application/vnd.ms-excel.sheet.macroEnabled.main+xml")
+                || contentTypes.contains("application/vnd.ms-excel.template.macroEnabled.main+xml")) {
+            return Format.XLSM;
+        }
+        if (contentTypes.contains("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml")
+                || contentTypes.contains("application/vnd.openxmlformats-officedocument.spreadsheetml.template.main+xml")) {
+            return Format.XLSX;
+        }
+        // .docx / .docm / .dotx / .dotm
+        if (contentTypes.contains("application/vnd.openxmlformats-officedocument.wordprocessingml.document.main+xml")
+                || contentTypes.contains("application/vnd.openxmlformats-officedocument.wordprocessingml.template.main+xml")
+                || contentTypes.contains("application/vnd.ms-word.document.macroEnabled.main+xml")
+                || contentTypes.contains("application/vnd.ms-word.template.macroEnabledTemplate.main+xml")) {
+            return Format.DOCX;
+        }
+        // .pptx / .pptm / .ppsx / .potx
+        if (contentTypes.contains("application/vnd.openxmlformats-officedocument.presentationml.presentation.main+xml")
+                || contentTypes.contains("application/vnd.openxmlformats-officedocument.presentationml.slideshow.main+xml")
+                || contentTypes.contains("application/vnd.openxmlformats-officedocument.presentationml.template.main+xml")
+                || contentTypes.contains("application/vnd.ms-powerpoint.presentation.macroEnabled.main+xml")
+                || contentTypes.contains("application/vnd.ms-powerpoint.slideshow.macroEnabled.main+xml")) {
+            return Format.PPTX;
+        }
+        return null;
+    }
+
+    /**
+     * [Content_Types].xml 不在开头时按条目路径推断
+     */
+    private static Format fromEntryName(String name) {
+        if (name.equals("xl/workbook.bin")) {
+            return Format.XLSB;
+        }
+        if (name.startsWith("xl/")) {
+            return Format.XLSX;
+        }
+        if (name.startsWith("word/")) {
+            return Format.DOCX;
+        }
+        if (name.startsWith("ppt/")) {
+            return Format.PPTX;
+        }
+        return null;
+    }
+
+    // ---------------- 文本 ----------------
+
+    /**
+     * CSV：没有控制字符，至少两行完整的行，且各行的分隔符（逗号、分号或制表符）数量相同且不为0
+     */
+    private static boolean isCsv(byte[] header, int start) {
+        int length = header.length;
+        for (int i = start; i < length; i++) {
+            int b = header[i] & 0xFF;
+            if (b < 0x20 && b != '\t' && b != '\r' && b != '\n') {
+                return false;
+            }
+        }
+        for (char delimiter : new char[]{',', ';', '\t'}) {
+            int expected = -1;
+            int lines = 0;
+            int count = 0;
+            boolean quoted = false;
+            boolean consistent = true;
+            for (int i = start; i < length && consistent; i++) {
+                char c = (char) (header[i] & 0xFF);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (!quoted && c == delimiter) {
+                    count++;
+                } else if (!quoted && c == '\n') {
+                    if (expected < 0) {
+                        expected = count;
+                    } else if (count != expected) {
+                        consistent = false;
+                    }
+                    lines++;
+                    count = 0;
+                }
+            }
+            // 文件头截断的最后一行不参与比较
+            if (consistent && lines >= 2 && expected > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---------------- 字节读取 ----------------
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        return startsWith(data, 0, prefix);
+    }
+
+    private static boolean startsWith(byte[] data, int offset, byte[] prefix) {
+        if (data.length < offset + prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readShort(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8
+                | (data[offset + 2] & 0xFF) << 16 | (data[offset + 3] & 0xFF) << 24;
+    }
+
+    private static long readUnsignedInt(byte[] data, int offset) {
+        return readInt(data, offset) & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,56 @@
+package com.pdftool.service;
+
+import com.pdftool.office.OfficeLane;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 按文件大小预估转换耗时
+ *
+ * 初始值为经验值（PPT约2秒/MB，与原PPT超时估算一致），之后用实际转换耗时
+ * 按滑动平均修正每个通道的"毫秒/MB"，适应不同机器和文档特点。
+ */
+public class ConversionCostEstimator {
+
+    // 每个转换的固定开销（加载文档、导出PDF），毫秒
+    private static final long BASE_MILLIS = 500L;
+
+    // 小于该大小的文件耗时主要是固定开销，不用于修正每MB耗时
+    private static final long MIN_SAMPLE_BYTES = 256 * 1024L;
+
+    // 滑动平均系数
+    private static final double EWMA_ALPHA = 0.2;
+
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private final Map<OfficeLane, Double> millisPerMb = new EnumMap<>(OfficeLane.class);
+
+    public ConversionCostEstimator() {
+        millisPerMb.put(OfficeLane.WRITER, 1000.0);
+        millisPerMb.put(OfficeLane.CALC, 1500.0);
+        millisPerMb.put(OfficeLane.IMPRESS, 2000.0);
+    }
+
+    /**
+     * 预估转换耗时（毫秒）
+     */
+    public synchronized long estimateMillis(OfficeLane lane, long inputBytes) {
+        return BASE_MILLIS + Math.round(inputBytes / BYTES_PER_MB * millisPerMb.get(lane));
+    }
+
+    /**
+     * 用一次成功转换的实际耗时修正预估
+     */
+    public synchronized void record(OfficeLane lane, long inputBytes, long durationMillis) {
+        if (inputBytes < MIN_SAMPLE_BYTES) {
+            return;
+        }
+        double observed = Math.max(0, durationMillis - BASE_MILLIS) / (inputBytes / BYTES_PER_MB);
+        millisPerMb.put(lane, millisPerMb.get(lane) * (1 - EWMA_ALPHA) + observed * EWMA_ALPHA);
+    }
+
+    public synchronized long getMillisPerMb(OfficeLane lane) {
+        return Math.round(millisPerMb.get(lane));
+    }
+}
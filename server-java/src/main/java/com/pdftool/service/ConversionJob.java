@@ -0,0 +1,249 @@
+package com.pdftool.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * 异步转换任务
+ *
+ * 状态：queued（排队） -> running（转换中） -> succeeded（成功）/ failed（失败）
+ * 状态每次变化都会通知订阅者（用于SSE进度推送），结束时完成getCompletion()
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+public class ConversionJob {
+
+    public enum Status {
+        QUEUED("queued"),
+        RUNNING("running"),
+        SUCCEEDED("succeeded"),
+        FAILED("failed");
+
+        private final String key;
+
+        Status(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED;
+        }
+    }
+
+    /**
+     * 转换工作：把输出写入sink（由JobService创建和提交）
+     */
+    @FunctionalInterface
+    public interface Work {
+        void convert(OutputSink sink) throws Exception;
+    }
+
+    private final String id;
+    private final ConversionType type;
+    private final String sourceFilename;
+    private final String outputFilename;
+    private final long createdTime = System.currentTimeMillis();
+    private final CompletableFuture<ConversionJob> completion = new CompletableFuture<>();
+    private final List<Consumer<ConversionJob>> listeners = new ArrayList<>();
+
+    // 以下字段读写都持有对象锁
+    private Status status = Status.QUEUED;
+    private String stage = "排队中";
+    private long startTime;
+    private long finishTime;
+    private String resultFilename;
+    private long resultSize;
+    private String resultSha256;
+    private Throwable error;
+
+    ConversionJob(String id, ConversionType type, String sourceFilename, String outputFilename) {
+        this.id = id;
+        this.type = type;
+        this.sourceFilename = sourceFilename;
+        this.outputFilename = outputFilename;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public ConversionType getType() {
+        return type;
+    }
+
+    public String getSourceFilename() {
+        return sourceFilename;
+    }
+
+    /**
+     * 期望的输出文件名（不含唯一前缀），如 report.pdf
+     */
+    public String getOutputFilename() {
+        return outputFilename;
+    }
+
+    public long getCreatedTime() {
+        return createdTime;
+    }
+
+    /**
+     * 任务结束（成功或失败）时完成，不会异常完成
+     */
+    public CompletableFuture<ConversionJob> getCompletion() {
+        return completion;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    /**
+     * 结果文件名（OutputStore中，可通过 /download/{filename} 下载），未成功时为null
+     */
+    public synchronized String getResultFilename() {
+        return resultFilename;
+    }
+
+    public synchronized long getResultSize() {
+        return resultSize;
+    }
+
+    /**
+     * 结果内容的SHA-256（写入时计算），未成功时为null
+     */
+    public synchronized String getResultSha256() {
+        return resultSha256;
+    }
+
+    public synchronized Throwable getError() {
+        return error;
+    }
+
+    public synchronized long getFinishTime() {
+        return finishTime;
+    }
+
+    /**
+     * 转换耗时（毫秒），不含排队时间
+     */
+    public synchronized long getDurationMillis() {
+        if (startTime == 0) {
+            return 0;
+        }
+        return (finishTime > 0 ? finishTime : System.currentTimeMillis()) - startTime;
+    }
+
+    /**
+     * 订阅状态变化：立即收到一次当前状态，之后每次变化收到一次，任务结束后不再通知
+     */
+    public void subscribe(Consumer<ConversionJob> listener) {
+        synchronized (this) {
+            if (!status.isFinished()) {
+                listeners.add(listener);
+            }
+        }
+        listener.accept(this);
+    }
+
+    public synchronized void unsubscribe(Consumer<ConversionJob> listener) {
+        listeners.remove(listener);
+    }
+
+    void markRunning() {
+        synchronized (this) {
+            status = Status.RUNNING;
+            stage = "转换中";
+            startTime = System.currentTimeMillis();
+        }
+        notifyListeners();
+    }
+
+    void updateStage(String stage) {
+        synchronized (this) {
+            this.stage = stage;
+        }
+        notifyListeners();
+    }
+
+    void markSucceeded(String resultFilename, long resultSize, String resultSha256) {
+        synchronized (this) {
+            this.status = Status.SUCCEEDED;
+            this.stage = "完成";
+            this.resultFilename = resultFilename;
+            this.resultSize = resultSize;
+            this.resultSha256 = resultSha256;
+            this.finishTime = System.currentTimeMillis();
+        }
+        finish();
+    }
+
+    void markFailed(Throwable error) {
+        synchronized (this) {
+            this.status = Status.FAILED;
+            this.stage = "失败";
+            this.error = error;
+            this.finishTime = System.currentTimeMillis();
+            if (startTime == 0) {
+                startTime = finishTime;
+            }
+        }
+        finish();
+    }
+
+    private void finish() {
+        notifyListeners();
+        synchronized (this) {
+            listeners.clear();
+        }
+        completion.complete(this);
+    }
+
+    private void notifyListeners() {
+        List<Consumer<ConversionJob>> current;
+        synchronized (this) {
+            current = new ArrayList<>(listeners);
+        }
+        for (Consumer<ConversionJob> listener : current) {
+            try {
+                listener.accept(this);
+            } catch (RuntimeException e) {
+                // 订阅者（如已断开的SSE连接）出错不影响任务
+                unsubscribe(listener);
+            }
+        }
+    }
+
+    /**
+     * 任务状态（GET /jobs/{id} 和SSE事件的内容）
+     */
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        map.put("type", type.getKey());
+        map.put("filename", sourceFilename);
+        map.put("status", status.getKey());
+        map.put("stage", stage);
+        map.put("createdTime", createdTime);
+        map.put("queueMs", (startTime > 0 ? startTime : System.currentTimeMillis()) - createdTime);
+        map.put("durationMs", getDurationMillis());
+        if (status == Status.SUCCEEDED) {
+            map.put("url", "/download/" + resultFilename);
+            map.put("resultUrl", "/jobs/" + id + "/result");
+            map.put("size", resultSize);
+            map.put("sha256", resultSha256);
+        }
+        if (status == Status.FAILED) {
+            map.put("error", error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName());
+        }
+        return map;
+    }
+}
@@ -0,0 +1,46 @@
+package com.pdftool.service;
+
+/**
+ * 转换任务优先级
+ *
+ * 调度器按"虚拟截止时间"（入队时间 + 优先级偏移）排序：
+ * 同时入队时高优先级先执行，低优先级任务等待超过偏移量之后，
+ * 会排在新到达的高优先级任务前面（老化），不会被无限推迟。
+ */
+public enum ConversionPriority {
+
+    // 用户在页面上等待结果的转换
+    INTERACTIVE("interactive", "交互", 0L),
+    // 快速预览（牺牲质量换速度）
+    FAST_PREVIEW("fast-preview", "快速预览", 2_000L),
+    // 批量/后台转换
+    BULK("bulk", "批量", 30_000L);
+
+    private final String key;
+    private final String description;
+    private final long agingOffsetMillis;
+
+    ConversionPriority(String key, String description, long agingOffsetMillis) {
+        this.key = key;
+        this.description = description;
+        this.agingOffsetMillis = agingOffsetMillis;
+    }
+
+    /**
+     * 指标中使用的名称
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 排序时加在入队时间上的偏移（毫秒），越大越靠后
+     */
+    public long getAgingOffsetMillis() {
+        return agingOffsetMillis;
+    }
+}
@@ -0,0 +1,141 @@
+package com.pdftool.service;
+
+import org.jodconverter.core.document.DefaultDocumentFormatRegistry;
+import org.jodconverter.core.document.DocumentFamily;
+import org.jodconverter.core.document.DocumentFormat;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PDF导出配置（预览 / 标准 / 归档）
+ *
+ * 每个配置对应一组LibreOffice PDF导出过滤器的FilterData，通过目标格式的store属性在每次转换时传给
+ * writer_pdf_Export / calc_pdf_Export / impress_pdf_Export，Word、Excel、PPT通用。
+ * 配置名同时是结果缓存和SingleFlight合并键的一部分；指定页码范围时范围也是键的一部分（见getKey(PageRange)）。
+ * 各配置的速度和大小对比见 benchmark-profiles.sh。
+ */
+public enum ConversionProfile {
+
+    // 预览：150 DPI、JPEG 60%，不导出书签、注释和表单，输出小、速度快
+    PREVIEW("preview", "预览", filterData(
+            "UseJPEGCompression", true,
+            "Quality", 60,
+            "ReduceImageResolution", true,
+            "MaxImageResolution", 150,
+            "ExportBookmarks", false,
+            "ExportNotes", false,
+            "ExportFormFields", false,
+            "UseTaggedPDF", false,
+            "EmbedStandardFonts", false,
+            "IsSkipEmptyPages", true)),
+    // 标准：300 DPI、JPEG 90%，保留书签和超链接
+    STANDARD("standard", "标准", filterData(
+            "UseJPEGCompression", true,
+            "Quality", 90,
+            "ReduceImageResolution", true,
+            "MaxImageResolution", 300,
+            "ExportBookmarks", true,
+            "ConvertOOoTargetToPDFTarget", true,
+            "ExportNotes", false,
+            "UseTaggedPDF", false)),
+    // 归档：PDF/A-2b、图片无损且不降分辨率、带结构标签，输出最大、速度最慢
+    ARCHIVE("archive", "归档", filterData(
+            "SelectPdfVersion", 2,
+            "UseLosslessCompression", true,
+            "ReduceImageResolution", false,
+            "ExportBookmarks", true,
+            "ConvertOOoTargetToPDFTarget", true,
+            "UseTaggedPDF", true,
+            "EmbedStandardFonts", true));
+
+    private final String key;
+    private final String description;
+    private final Map<String, Object> filterData;
+    private final DocumentFormat pdfFormat;
+
+    ConversionProfile(String key, String description, Map<String, Object> filterData) {
+        this.key = key;
+        this.description = description;
+        this.filterData = Collections.unmodifiableMap(filterData);
+        this.pdfFormat = createPdfFormat(this.filterData);
+    }
+
+    /**
+     * 请求参数（profile=preview）、缓存键和指标中使用的名称
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Map<String, Object> getFilterData() {
+        return filterData;
+    }
+
+    /**
+     * 缓存键和合并键中使用的选项：配置名，指定页码范围时加上范围
+     */
+    public String getKey(PageRange pages) {
+        return pages == null ? key : key + ";pages=" + pages.getValue();
+    }
+
+    /**
+     * 带本配置FilterData的PDF目标格式，用于 converter.convert(...).to(...).as(format)
+     */
+    public DocumentFormat getPdfFormat() {
+        return pdfFormat;
+    }
+
+    /**
+     * 只导出指定页的PDF目标格式（FilterData加上PageRange），pages为null时导出全部页
+     */
+    public DocumentFormat getPdfFormat(PageRange pages) {
+        if (pages == null) {
+            return pdfFormat;
+        }
+        Map<String, Object> rangeFilterData = new LinkedHashMap<>(filterData);
+        rangeFilterData.put("PageRange", pages.getValue());
+        return createPdfFormat(rangeFilterData);
+    }
+
+    /**
+     * 交互请求使用的调度优先级：预览走快速预览优先级
+     */
+    public ConversionPriority getPriority() {
+        return this == PREVIEW ? ConversionPriority.FAST_PREVIEW : ConversionPriority.INTERACTIVE;
+    }
+
+    /**
+     * 按名称查找配置，未知名称返回null
+     */
+    public static ConversionProfile fromKey(String key) {
+        for (ConversionProfile profile : values()) {
+            if (profile.key.equalsIgnoreCase(key)) {
+                return profile;
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, Object> filterData(Object... keyValues) {
+        Map<String, Object> filterData = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            filterData.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return filterData;
+    }
+
+    private static DocumentFormat createPdfFormat(Map<String, Object> filterData) {
+        DocumentFormat.Builder builder = DocumentFormat.builder().from(DefaultDocumentFormatRegistry.PDF);
+        for (DocumentFamily family : new DocumentFamily[]{
+                DocumentFamily.TEXT, DocumentFamily.SPREADSHEET, DocumentFamily.PRESENTATION, DocumentFamily.DRAWING}) {
+            builder.storeProperty(family, "FilterData", filterData);
+        }
+        return builder.unmodifiable(true).build();
+    }
+}
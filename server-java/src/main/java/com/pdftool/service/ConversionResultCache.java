@@ -0,0 +1,293 @@
+package com.pdftool.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 转换结果缓存（按内容寻址）
+ *
+ * 同一模板、报表反复转换时直接返回上次的结果，不再经过Office进程池：
+ * 1. 键 = SHA-256(转换类型 + 配置档 + 过滤器 + 输入文件内容的SHA-256)，与文件名无关
+ * 2. 内存层：按总字节数限制的LRU，只缓存不超过单项上限的结果
+ * 3. 磁盘层：按总字节数限制的LRU，文件修改时间记录最近访问时间，重启后按该时间恢复LRU顺序
+ *
+ * 磁盘层命中的结果会提升到内存层。结果以文件进出（OutputSink），大结果不经过堆内存。
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+@Service
+public class ConversionResultCache {
+
+    private static final String FILE_SUFFIX = ".bin";
+
+    @Value("${pdftool.cache.enabled:true}")
+    private boolean enabled;
+
+    // 内存层总大小上限（MB）
+    @Value("${pdftool.cache.memory-max-mb:64}")
+    private long memoryMaxMb;
+
+    // 超过该大小（MB）的结果只进磁盘层
+    @Value("${pdftool.cache.memory-max-entry-mb:8}")
+    private long memoryMaxEntryMb;
+
+    // 磁盘层总大小上限（MB），0表示不使用磁盘层
+    @Value("${pdftool.cache.disk-max-mb:1024}")
+    private long diskMaxMb;
+
+    @Value("${pdftool.cache.dir:cache}")
+    private String cacheDir;
+
+    // 访问顺序的LinkedHashMap即LRU，读写都持有对应的锁
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong(0);
+    private final AtomicLong diskHits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong puts = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            System.out.println("[结果缓存] 已禁用");
+            return;
+        }
+        if (diskMaxMb > 0) {
+            loadDiskIndex();
+        }
+        System.out.println("[结果缓存] 内存 " + memoryMaxMb + " MB, 磁盘 " + diskMaxMb + " MB (" +
+                         new File(cacheDir).getAbsolutePath() + "), 已有 " + disk.size() + " 个磁盘缓存");
+    }
+
+    /**
+     * 计算缓存键（输入为落盘的文件，由内容的SHA-256派生，见InputSpool.SpooledFile#getSha256）
+     *
+     * @param profile 转换配置档（如 standard / fast），影响输出的参数都应体现在这里
+     * @param filters 过滤器及其设置
+     */
+    public static String key(ConversionType type, String profile, String filters, String inputSha256) {
+        return ContentDigest.sha256(type.getKey(), profile, filters, inputSha256);
+    }
+
+    /**
+     * 查询缓存，命中时把结果写入sink并返回true
+     */
+    public boolean get(String key, OutputSink sink) throws IOException {
+        if (!enabled) {
+            return false;
+        }
+        byte[] result;
+        synchronized (memory) {
+            result = memory.get(key);
+        }
+        if (result != null) {
+            memoryHits.incrementAndGet();
+            sink.write(result);
+            return true;
+        }
+
+        if (readDisk(key, sink)) {
+            diskHits.incrementAndGet();
+            return true;
+        }
+        misses.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 保存转换结果
+     *
+     * @param result 内容完整的结果文件（OutputSink.finish()），不移动也不删除
+     */
+    public void put(String key, File result) {
+        if (!enabled) {
+            return;
+        }
+        puts.incrementAndGet();
+        long length = result.length();
+        if (length <= memoryMaxEntryMb * 1024 * 1024) {
+            try {
+                putMemory(key, Files.readAllBytes(result.toPath()));
+            } catch (IOException e) {
+                System.err.println("[结果缓存] 读取结果失败: " + e.getMessage());
+                return;
+            }
+        }
+        writeDisk(key, result, length);
+    }
+
+    private void putMemory(String key, byte[] result) {
+        long maxBytes = memoryMaxMb * 1024 * 1024;
+        if (result.length > memoryMaxEntryMb * 1024 * 1024 || result.length > maxBytes) {
+            return;
+        }
+        synchronized (memory) {
+            byte[] previous = memory.put(key, result);
+            memoryBytes += result.length - (previous != null ? previous.length : 0);
+            Iterator<Map.Entry<String, byte[]>> iterator = memory.entrySet().iterator();
+            while (memoryBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, byte[]> eldest = iterator.next();
+                memoryBytes -= eldest.getValue().length;
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 磁盘层命中时写入sink；不超过内存单项上限的结果同时提升到内存层
+     */
+    private boolean readDisk(String key, OutputSink sink) throws IOException {
+        if (diskMaxMb <= 0) {
+            return false;
+        }
+        Long length;
+        synchronized (disk) {
+            // get()同时更新LRU顺序
+            length = disk.get(key);
+        }
+        if (length == null) {
+            return false;
+        }
+        Path path = pathOf(key);
+        try {
+            if (length <= memoryMaxEntryMb * 1024 * 1024) {
+                byte[] result = Files.readAllBytes(path);
+                putMemory(key, result);
+                sink.write(result);
+            } else {
+                sink.copyFrom(path.toFile());
+            }
+            path.toFile().setLastModified(System.currentTimeMillis());
+            return true;
+        } catch (NoSuchFileException e) {
+            // 文件被外部删除
+            removeDiskEntry(key);
+            return false;
+        }
+    }
+
+    private void writeDisk(String key, File result, long length) {
+        long maxBytes = diskMaxMb * 1024 * 1024;
+        if (maxBytes <= 0 || length > maxBytes) {
+            return;
+        }
+        Path path = pathOf(key);
+        try {
+            Files.createDirectories(path.getParent());
+            // 先写临时文件再改名，读取方不会看到写了一半的文件
+            Path tempFile = Files.createTempFile(path.getParent(), key, ".tmp");
+            Files.copy(result.toPath(), tempFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[结果缓存] 写入磁盘缓存失败: " + e.getMessage());
+            return;
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (disk) {
+            Long previous = disk.put(key, length);
+            diskBytes += length - (previous != null ? previous : 0);
+            Iterator<Map.Entry<String, Long>> iterator = disk.entrySet().iterator();
+            while (diskBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                diskBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                iterator.remove();
+            }
+        }
+        for (String evictedKey : evicted) {
+            evictions.incrementAndGet();
+            pathOf(evictedKey).toFile().delete();
+        }
+    }
+
+    private void removeDiskEntry(String key) {
+        synchronized (disk) {
+            Long size = disk.remove(key);
+            if (size != null) {
+                diskBytes -= size;
+            }
+        }
+    }
+
+    /**
+     * 启动时扫描缓存目录，按最近访问时间（文件修改时间）恢复LRU顺序
+     */
+    private void loadDiskIndex() {
+        Path root = Paths.get(cacheDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root, 2)) {
+            files.filter(path -> path.getFileName().toString().endsWith(FILE_SUFFIX))
+                 .map(Path::toFile)
+                 .sorted(Comparator.comparingLong(File::lastModified))
+                 .forEach(file -> {
+                     String name = file.getName();
+                     disk.put(name.substring(0, name.length() - FILE_SUFFIX.length()), file.length());
+                     diskBytes += file.length();
+                 });
+        } catch (IOException e) {
+            System.err.println("[结果缓存] 读取磁盘缓存目录失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 缓存文件路径：按键的前两位分目录，避免单个目录文件过多
+     */
+    private Path pathOf(String key) {
+        return Paths.get(cacheDir, key.substring(0, 2), key + FILE_SUFFIX);
+    }
+
+    /**
+     * 命中率和各层占用
+     */
+    public Map<String, Object> getMetrics() {
+        long hits = memoryHits.get() + diskHits.get();
+        long total = hits + misses.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("hits", hits);
+        metrics.put("memoryHits", memoryHits.get());
+        metrics.put("diskHits", diskHits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("hitRate", total == 0 ? 0 : Math.round(hits * 1000.0 / total) / 10.0);
+        metrics.put("puts", puts.get());
+        metrics.put("evictions", evictions.get());
+        synchronized (memory) {
+            metrics.put("memoryEntries", memory.size());
+            metrics.put("memoryMb", memoryBytes / 1024 / 1024);
+        }
+        synchronized (disk) {
+            metrics.put("diskEntries", disk.size());
+            metrics.put("diskMb", diskBytes / 1024 / 1024);
+        }
+        return metrics;
+    }
+}
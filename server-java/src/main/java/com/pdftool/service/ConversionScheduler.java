@@ -0,0 +1,471 @@
+package com.pdftool.service;
+
+import com.pdftool.config.VirtualThreads;
+import com.pdftool.office.ElasticOfficeManager;
+import com.pdftool.office.OfficeLane;
+import org.jodconverter.core.office.OfficeException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 转换任务调度器
+ *
+ * 位于Office进程池之前，每个通道（Writer/Calc/Impress）一个有界线程池：
+ * 1. 线程数默认等于该通道的最大进程数，任务不会在进程池中无序堆积
+ * 2. 排队任务按优先级排序（交互 > 快速预览 > 批量），并按等待时间老化，低优先级不会饿死
+ * 3. 同一优先级内按预估耗时短作业优先：小文档不再排在大文件后面，
+ *    大文件因此多等待的时间不超过sjfMaxDelayMillis
+ * 4. 排队任务数有上限，超过时拒绝而不是无限堆积
+ * 5. 按通道和优先级统计排队等待时间
+ * 6. 等待超时的任务被真正取消：排队中的直接移出队列，执行中的结束对应的soffice进程，
+ *    不会在后台继续占用进程
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+@Service
+@org.springframework.boot.autoconfigure.condition.ConditionalOnProperty(
+    name = "jodconverter.enabled",
+    havingValue = "true",
+    matchIfMissing = false
+)
+public class ConversionScheduler {
+
+    @Autowired
+    private List<ElasticOfficeManager> officeManagers;
+
+    @Autowired
+    private Environment environment;
+
+    // 每个通道最多排队的任务数
+    @Value("${pdftool.scheduler.max-queued-per-lane:200}")
+    private int maxQueuedPerLane;
+
+    // 短作业优先时大文件最多被推后的时间（毫秒），0表示不按大小排序
+    @Value("${pdftool.scheduler.sjf-max-delay-ms:20000}")
+    private long sjfMaxDelayMillis;
+
+    // 虚拟线程模式：调度线程大部分时间阻塞在LibreOffice socket上，改用虚拟线程（线程数上限不变）
+    @Value("${pdftool.threads.virtual:false}")
+    private boolean virtualThreads;
+
+    private final ConversionCostEstimator costEstimator = new ConversionCostEstimator();
+
+    private final Map<OfficeLane, LaneExecutor> lanes = new EnumMap<>(OfficeLane.class);
+
+    // 任务序号：虚拟截止时间相同时先提交的先执行
+    private final AtomicLong sequence = new AtomicLong(0);
+
+    // 入队和开始执行的时间（毫秒），测试中替换为可控的时钟
+    private LongSupplier clock = System::currentTimeMillis;
+
+    @PostConstruct
+    public void init() {
+        for (OfficeLane lane : OfficeLane.values()) {
+            // 线程数：pdftool.scheduler.<通道>.threads，默认等于该通道的最大进程数
+            int threads = environment.getProperty("pdftool.scheduler." + lane.getKey() + ".threads", Integer.class, 0);
+            if (threads <= 0) {
+                threads = getMaxProcesses(lane);
+            }
+            ThreadFactory threadFactory = virtualThreads
+                    ? VirtualThreads.newThreadFactory("convert-" + lane.getKey() + "-") : null;
+            lanes.put(lane, new LaneExecutor(lane, threads, threadFactory));
+            System.out.println("[调度器] " + lane.getDescription() + "通道: " + threads + " 个线程, 最多排队 " +
+                             maxQueuedPerLane + " 个任务");
+        }
+    }
+
+    private int getMaxProcesses(OfficeLane lane) {
+        ElasticOfficeManager officeManager = getOfficeManager(lane);
+        return officeManager != null ? officeManager.getMaxProcesses() : 1;
+    }
+
+    /**
+     * 提交转换任务
+     *
+     * @param inputBytes 输入文件大小，用于预估耗时和短作业优先排序
+     * @throws RejectedExecutionException 该通道排队任务已满
+     */
+    public <T> Future<T> submit(OfficeLane lane, ConversionPriority priority, long inputBytes, Callable<T> task) {
+        LaneExecutor executor = lanes.get(lane);
+        if (executor.executor.getQueue().size() >= maxQueuedPerLane) {
+            executor.rejected.incrementAndGet();
+            throw new RejectedExecutionException(lane.getDescription() + "转换队列已满（" + maxQueuedPerLane + "），请稍后重试");
+        }
+        long estimatedMillis = costEstimator.estimateMillis(lane, inputBytes);
+        // 虚拟截止时间只按预估耗时推后有限的时间，大文件等待超过该上限后优先于新到的小文件
+        long sizePenalty = Math.min(estimatedMillis, sjfMaxDelayMillis);
+        ScheduledTask<T> scheduledTask = new ScheduledTask<>(task, priority, executor, sequence.incrementAndGet(),
+                                                             inputBytes, sizePenalty);
+        executor.stats.get(priority).submitted.incrementAndGet();
+        executor.executor.execute(scheduledTask);
+        return scheduledTask;
+    }
+
+    /**
+     * 提交转换任务并等待结果，超时后取消任务（见cancel）
+     *
+     * 任务抛出的IOException/OfficeException原样抛出，便于调用方沿用原有的异常处理
+     */
+    public <T> T execute(OfficeLane lane, ConversionPriority priority, long inputBytes, Callable<T> task,
+                         long timeout, TimeUnit unit) throws IOException, OfficeException, TimeoutException {
+        ScheduledTask<T> future = (ScheduledTask<T>) submit(lane, priority, inputBytes, task);
+        try {
+            return future.get(timeout, unit);
+        } catch (TimeoutException e) {
+            if (cancel(lane, future, true)) {
+                throw e;
+            }
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new OfficeException("等待转换结果时被中断", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+        // 超时的同时恰好完成：使用已有的结果，不当作失败
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OfficeException("等待转换结果时被中断", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * 并行提交一组任务（如拆分后的各部分）并等待全部完成，共用一个超时
+     *
+     * 超时或某个任务失败时中止其他未完成的任务（排队中的移出队列，执行中的结束对应的soffice进程，见cancel），
+     * 并等到这些任务都不再执行才返回：调用方随后可以删除各任务共用的临时文件，整体转换的回退也不会排在它们后面。
+     * 无法中止的任务（外部模式下执行中的任务）要等到JodConverter的任务超时才结束。
+     *
+     * @param inputBytes 各任务的输入大小，与tasks一一对应
+     * @return 与tasks顺序一致的结果
+     */
+    public <T> List<T> executeAll(OfficeLane lane, ConversionPriority priority, List<Long> inputBytes,
+                                  List<Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws IOException, OfficeException, TimeoutException {
+        List<ScheduledTask<T>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                futures.add((ScheduledTask<T>) submit(lane, priority, inputBytes.get(i), tasks.get(i)));
+            }
+        } catch (RejectedExecutionException e) {
+            abortAll(lane, futures, false);
+            throw e;
+        }
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<T> results = new ArrayList<>(futures.size());
+        for (ScheduledTask<T> future : futures) {
+            try {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                abortAll(lane, futures, true);
+                throw e;
+            } catch (InterruptedException e) {
+                abortAll(lane, futures, false);
+                Thread.currentThread().interrupt();
+                throw new OfficeException("等待转换结果时被中断", e);
+            } catch (ExecutionException e) {
+                abortAll(lane, futures, false);
+                throw unwrap(e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 中止一组任务中未完成的任务，并等待执行中的任务结束
+     */
+    private void abortAll(OfficeLane lane, List<? extends ScheduledTask<?>> tasks, boolean timedOut) {
+        for (ScheduledTask<?> task : tasks) {
+            if (!task.isDone()) {
+                cancel(lane, task, timedOut);
+            }
+        }
+        boolean interrupted = Thread.interrupted();
+        for (ScheduledTask<?> task : tasks) {
+            while (true) {
+                try {
+                    task.finished.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 任务抛出的IOException/OfficeException/RuntimeException原样抛出，其他异常包装为OfficeException
+     */
+    private OfficeException unwrap(ExecutionException e) throws IOException, OfficeException {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof OfficeException) {
+            throw (OfficeException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        return new OfficeException("转换失败: " + cause.getMessage(), cause);
+    }
+
+    /**
+     * 取消任务（等待超时，或同组的其他任务失败）
+     *
+     * 只中断执行线程不会停止LibreOffice中的UNO调用，任务会继续占用进程直到结束。
+     * 因此执行中的任务由进程池结束对应的soffice进程（随后重启），排队中的任务直接移出队列，
+     * 已开始但还在等待空闲进程的任务由进程池中断等待，不会再取得进程。
+     * 无法中止的任务（外部模式下执行中的任务）计为放弃，会继续运行到JodConverter的任务超时。
+     *
+     * @return false表示任务在取消前已经完成，结果可以直接使用
+     */
+    private boolean cancel(OfficeLane lane, ScheduledTask<?> task, boolean timedOut) {
+        LaneExecutor executor = lanes.get(lane);
+        boolean aborted;
+        Thread runner;
+        // 持有任务锁期间执行线程无法结束该任务，不会误杀它之后执行的其他任务
+        synchronized (task) {
+            runner = task.runner;
+            if (!task.cancel(false)) {
+                return false; // 恰好已完成
+            }
+            if (runner == null) {
+                // 已被执行线程取出的任务会在run()中跳过
+                if (executor.executor.remove(task)) {
+                    task.finished.countDown();
+                }
+                executor.cancelledQueued.incrementAndGet();
+                return true;
+            }
+            ElasticOfficeManager officeManager = getOfficeManager(lane);
+            aborted = officeManager != null && officeManager.cancel(runner);
+        }
+        if (!timedOut) {
+            executor.siblingsAborted.incrementAndGet();
+            if (!aborted) {
+                System.err.println("⚠️  [调度器] " + lane.getDescription() + "同组任务失败，无法中止执行中的任务: " +
+                                 runner.getName());
+            }
+        } else if (aborted) {
+            executor.timeoutsCancelled.incrementAndGet();
+        } else {
+            executor.timeoutsAbandoned.incrementAndGet();
+            System.err.println("⚠️  [调度器] " + lane.getDescription() + "转换超时且无法中止，任务将继续运行: " +
+                             runner.getName());
+        }
+        return true;
+    }
+
+    private ElasticOfficeManager getOfficeManager(OfficeLane lane) {
+        for (ElasticOfficeManager officeManager : officeManagers) {
+            if (lane.getKey().equals(officeManager.getName())) {
+                return officeManager;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按文件大小预估转换耗时（毫秒），随实际转换耗时自动修正
+     */
+    public long estimateMillis(OfficeLane lane, long inputBytes) {
+        return costEstimator.estimateMillis(lane, inputBytes);
+    }
+
+    /**
+     * 各通道的排队和等待时间指标
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (LaneExecutor lane : lanes.values()) {
+            Map<String, Object> laneMetrics = new LinkedHashMap<>();
+            laneMetrics.put("threads", lane.executor.getMaximumPoolSize());
+            laneMetrics.put("active", lane.executor.getActiveCount());
+            laneMetrics.put("queued", lane.executor.getQueue().size());
+            laneMetrics.put("rejected", lane.rejected.get());
+            laneMetrics.put("timeoutsCancelledQueued", lane.cancelledQueued.get());
+            laneMetrics.put("timeoutsCancelled", lane.timeoutsCancelled.get());
+            laneMetrics.put("timeoutsAbandoned", lane.timeoutsAbandoned.get());
+            laneMetrics.put("siblingsAborted", lane.siblingsAborted.get());
+            laneMetrics.put("estimatedMsPerMb", costEstimator.getMillisPerMb(lane.lane));
+
+            Map<String, Object> priorities = new LinkedHashMap<>();
+            for (Map.Entry<ConversionPriority, PriorityStats> entry : lane.stats.entrySet()) {
+                PriorityStats stats = entry.getValue();
+                long started = stats.started.get();
+                Map<String, Object> priorityMetrics = new LinkedHashMap<>();
+                priorityMetrics.put("submitted", stats.submitted.get());
+                priorityMetrics.put("started", started);
+                priorityMetrics.put("avgQueueWaitMs", started == 0 ? 0 : stats.totalWaitMillis.get() / started);
+                priorityMetrics.put("maxQueueWaitMs", stats.maxWaitMillis.get());
+                priorities.put(entry.getKey().getKey(), priorityMetrics);
+            }
+            laneMetrics.put("priorities", priorities);
+            metrics.put(lane.lane.getKey(), laneMetrics);
+        }
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (LaneExecutor lane : lanes.values()) {
+            // 未执行的任务不会再运行，避免executeAll一直等待
+            for (Runnable task : lane.executor.shutdownNow()) {
+                ScheduledTask<?> scheduledTask = (ScheduledTask<?>) task;
+                scheduledTask.cancel(false);
+                scheduledTask.finished.countDown();
+            }
+        }
+    }
+
+    /**
+     * 单个通道的线程池和统计
+     */
+    private static final class LaneExecutor {
+
+        private final OfficeLane lane;
+        private final ThreadPoolExecutor executor;
+        private final Map<ConversionPriority, PriorityStats> stats = new EnumMap<>(ConversionPriority.class);
+        private final AtomicInteger rejected = new AtomicInteger(0);
+        // 超时（或同组任务失败）时仍在排队、被移出队列的任务
+        private final AtomicInteger cancelledQueued = new AtomicInteger(0);
+        // 超时时正在执行、已结束soffice进程中止的任务
+        private final AtomicInteger timeoutsCancelled = new AtomicInteger(0);
+        // 超时时无法中止、继续在后台运行的任务
+        private final AtomicInteger timeoutsAbandoned = new AtomicInteger(0);
+        // 同组任务（拆分后的各部分）失败时中止的执行中任务
+        private final AtomicInteger siblingsAborted = new AtomicInteger(0);
+
+        /**
+         * @param threadFactory 为null时使用平台线程
+         */
+        private LaneExecutor(OfficeLane lane, int threads, ThreadFactory threadFactory) {
+            this.lane = lane;
+            AtomicInteger counter = new AtomicInteger(0);
+            if (threadFactory == null) {
+                threadFactory = runnable -> {
+                    Thread thread = new Thread(runnable, "convert-" + lane.getKey() + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                };
+            }
+            // PriorityBlockingQueue按ScheduledTask.compareTo排序，只能用execute()提交ScheduledTask
+            this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new PriorityBlockingQueue<>(), threadFactory);
+            this.executor.allowCoreThreadTimeOut(true);
+            for (ConversionPriority priority : ConversionPriority.values()) {
+                stats.put(priority, new PriorityStats());
+            }
+        }
+    }
+
+    private static final class PriorityStats {
+        private final AtomicLong submitted = new AtomicLong(0);
+        private final AtomicLong started = new AtomicLong(0);
+        private final AtomicLong totalWaitMillis = new AtomicLong(0);
+        private final AtomicLong maxWaitMillis = new AtomicLong(0);
+    }
+
+    /**
+     * 可排序的转换任务：虚拟截止时间 = 入队时间 + 优先级偏移 + min(预估耗时, 上限)，越早越先执行
+     */
+    private final class ScheduledTask<T> extends FutureTask<T> implements Comparable<ScheduledTask<?>> {
+
+        private final ConversionPriority priority;
+        private final LaneExecutor lane;
+        private final long sequence;
+        private final long inputBytes;
+        private final long enqueueTime;
+        private final long virtualDeadline;
+        private long startTime;
+        // 正在执行该任务的线程，未开始或已结束时为null（读写都持有任务锁）
+        private Thread runner;
+        // 执行结束（或未执行就被移出队列）时计数到0
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private ScheduledTask(Callable<T> callable, ConversionPriority priority, LaneExecutor lane, long sequence,
+                              long inputBytes, long sizePenalty) {
+            super(callable);
+            this.priority = priority;
+            this.lane = lane;
+            this.sequence = sequence;
+            this.inputBytes = inputBytes;
+            this.enqueueTime = clock.getAsLong();
+            this.virtualDeadline = enqueueTime + priority.getAgingOffsetMillis() + sizePenalty;
+        }
+
+        @Override
+        public void run() {
+            // 排队期间已取消（如调用方超时）的任务直接跳过，不计入等待统计
+            synchronized (this) {
+                if (isCancelled()) {
+                    finished.countDown();
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            startTime = clock.getAsLong();
+            long waitMillis = startTime - enqueueTime;
+            PriorityStats stats = lane.stats.get(priority);
+            stats.started.incrementAndGet();
+            stats.totalWaitMillis.addAndGet(waitMillis);
+            stats.maxWaitMillis.accumulateAndGet(waitMillis, Math::max);
+            try {
+                super.run();
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+                finished.countDown();
+            }
+        }
+
+        @Override
+        protected void set(T result) {
+            // 只用成功的转换修正耗时预估
+            costEstimator.record(lane.lane, inputBytes, clock.getAsLong() - startTime);
+            super.set(result);
+        }
+
+        @Override
+        public int compareTo(ScheduledTask<?> other) {
+            int result = Long.compare(virtualDeadline, other.virtualDeadline);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -1,25 +1,31 @@
 package com.pdftool.service;
 
+import com.pdftool.office.ElasticOfficeManager;
+import com.pdftool.office.OfficeLane;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.apache.poi.ss.usermodel.VerticalAlignment;
 import org.jodconverter.core.DocumentConverter;
 import org.jodconverter.core.document.DefaultDocumentFormatRegistry;
+import org.jodconverter.core.document.DocumentFamily;
 import org.jodconverter.core.document.DocumentFormat;
 import org.jodconverter.core.office.OfficeException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import technology.tabula.*;
 import technology.tabula.extractors.SpreadsheetExtractionAlgorithm;
 import technology.tabula.extractors.BasicExtractionAlgorithm;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @org.springframework.boot.autoconfigure.condition.ConditionalOnProperty(
@@ -29,56 +35,208 @@ import java.util.ArrayList;
 )
 public class ConversionService {
 
+    // Excel走Calc通道，Word走Writer通道，互不排队
     @Autowired
-    private DocumentConverter documentConverter;
+    @Qualifier("calcDocumentConverter")
+    private DocumentConverter calcDocumentConverter;
+
+    @Autowired
+    @Qualifier("writerDocumentConverter")
+    private DocumentConverter writerDocumentConverter;
+
+    // Office转换统一经过调度器排队（默认交互优先级，批量接口使用批量优先级）
+    @Autowired
+    private ConversionScheduler conversionScheduler;
+
+    // 相同输入的转换结果直接复用，不经过Office进程池
+    @Autowired
+    private ConversionResultCache resultCache;
+
+    // 按工作表拆分时部分数不超过Calc通道的最大进程数
+    @Autowired
+    @Qualifier("calcOfficeManager")
+    private ElasticOfficeManager calcOfficeManager;
+
+    // 多工作表的大工作簿按工作表拆分，在多个Calc进程上并行转换（每部分都加载整个工作簿，默认关闭）
+    @Value("${pdftool.excel.split.enabled:false}")
+    private boolean splitEnabled;
+
+    // 可见工作表数达到该值才拆分
+    @Value("${pdftool.excel.split.min-sheets:4}")
+    private int splitMinSheets;
+
+    // 文件大小达到该值（KB）才拆分，小工作簿拆分的额外开销不划算
+    @Value("${pdftool.excel.split.min-kb:512}")
+    private long splitMinKb;
+
+    // 每部分最少的工作表数
+    @Value("${pdftool.excel.split.sheets-per-part:2}")
+    private int sheetsPerPart;
+
+    // 单个转换最长等待时间（分钟），含排队时间
+    private static final long CONVERSION_TIMEOUT_MINUTES = 5;
+
+    // 缓存键中的过滤器设置，与OptimizedJodConverterConfig中各通道的filterChain一致
+    private static final String CALC_FILTERS = "CalcFitToWidthFilter";
+    private static final String WRITER_FILTERS = "none";
 
     /**
      * Excel转PDF
      * 使用JodConverter + LibreOffice实现高质量转换
      * 
-     * @param excelBytes Excel文件字节数组
-     * @return PDF文件字节数组
+     * @param excelFile Excel文件（落盘的上传文件，LibreOffice直接按文件加载）
+     * @param sink PDF输出
+     */
+    public void convertExcelToPdf(File excelFile, OutputSink sink) throws IOException, OfficeException {
+        convertExcelToPdf(excelFile, sink, ConversionProfile.STANDARD, ConversionPriority.INTERACTIVE);
+    }
+
+    /**
+     * Excel转PDF（指定导出配置和调度优先级）
+     */
+    public void convertExcelToPdf(File excelFile, OutputSink sink, ConversionProfile profile, ConversionPriority priority)
+            throws IOException, OfficeException {
+        convertExcelToPdf(excelFile, ContentDigest.sha256(excelFile), sink, profile, null, priority);
+    }
+
+    /**
+     * Excel转PDF（只导出指定页，页码按打印分页计算，跨工作表连续编号）
+     *
+     * @param excelSha256 文件内容的SHA-256（InputSpool.SpooledFile#getSha256），用于结果缓存键
+     * @param pages 页码范围，null表示全部页；指定范围时不按工作表拆分
      */
-    public byte[] convertExcelToPdf(byte[] excelBytes) throws IOException, OfficeException {
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(excelBytes);
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
-            // 检测Excel格式（.xls或.xlsx）
-            DocumentFormat inputFormat = detectExcelFormat(excelBytes);
-            System.out.println("检测到Excel格式: " + inputFormat.getName() + 
-                             " (扩展名: " + inputFormat.getExtension() + ")");
-
-            // 明确指定输入和输出格式（ByteArrayInputStream无法自动检测格式）
-            documentConverter.convert(inputStream)
-                    .as(inputFormat)  // 输入格式：自动检测的Excel格式
-                    .to(outputStream)
-                    .as(DefaultDocumentFormatRegistry.PDF)   // 输出格式：PDF
-                    .execute();
-
-            return outputStream.toByteArray();
+    public void convertExcelToPdf(File excelFile, String excelSha256, OutputSink sink, ConversionProfile profile,
+                                  PageRange pages, ConversionPriority priority) throws IOException, OfficeException {
+        String cacheKey = ConversionResultCache.key(ConversionType.EXCEL_TO_PDF, profile.getKey(pages), CALC_FILTERS, excelSha256);
+        if (resultCache.get(cacheKey, sink)) {
+            System.out.println("Excel转PDF命中结果缓存");
+            return;
+        }
+        File result = null;
+        // 按内容识别格式（.xls / .xlsx / .xlsb / .ods / .csv），扩展名来自客户端不一定可信
+        ContentSniffer.Format format = ContentSniffer.sniff(excelFile);
+        DocumentFormat inputFormat = ContentSniffer.inputFormat(format, DocumentFamily.SPREADSHEET);
+        // 页码范围跨工作表连续编号，拆分后各部分的页码无法对应，只拆分整本导出
+        int parts = pages == null ? getSheetPartCount(excelFile, format) : 1;
+        if (parts > 1) {
+            // 出错时改为整体转换；超时（各部分已被中止，整体转换只会更慢）和队列已满时不再转换
+            try {
+                result = convertExcelSplit(excelFile, parts, sink, profile, priority);
+            } catch (RejectedExecutionException e) {
+                throw e;
+            } catch (OfficeException | IOException | RuntimeException e) {
+                if (e.getCause() instanceof TimeoutException) {
+                    throw e;
+                }
+                System.err.println("Excel按工作表拆分转换失败，改为整体转换: " + e.getMessage());
+                sink.reset();
+            }
         }
+        if (result == null) {
+            result = schedule(OfficeLane.CALC, priority, excelFile.length(), () -> performExcelConversion(excelFile, inputFormat, sink, profile, pages));
+        }
+        resultCache.put(cacheKey, result);
     }
 
     /**
-     * 检测Excel文件格式
-     * 通过文件魔数判断是.xls还是.xlsx
+     * 拆分的部分数：只拆分达到大小和可见工作表数阈值的XLSX，1表示不拆分
      */
-    private DocumentFormat detectExcelFormat(byte[] excelBytes) {
-        if (excelBytes.length < 4) {
-            return DefaultDocumentFormatRegistry.XLSX;  // 默认使用XLSX
+    private int getSheetPartCount(File excelFile, ContentSniffer.Format format) {
+        int maxParts = calcOfficeManager.getMaxProcesses();
+        if (!splitEnabled || maxParts < 2 || excelFile.length() < splitMinKb * 1024) {
+            return 1;
+        }
+        // 只有XLSX/XLSM能按工作表拆分
+        if (format != ContentSniffer.Format.XLSX && format != ContentSniffer.Format.XLSM) {
+            return 1;
+        }
+        int visibleSheets = WorkbookSheetSplitter.countVisibleSheets(excelFile);
+        if (visibleSheets < splitMinSheets) {
+            return 1;
         }
+        // 页眉页脚的页码跨工作表连续编号，拆分后无法保持一致
+        if (WorkbookSheetSplitter.usesPageNumberFields(excelFile)) {
+            System.out.println("Excel工作簿的页眉页脚使用页码字段，不按工作表拆分");
+            return 1;
+        }
+        return Math.max(1, Math.min(maxParts, visibleSheets / Math.max(1, sheetsPerPart)));
+    }
 
-        // 检查文件头魔数
-        // .xlsx文件是ZIP格式，开头是 PK (0x50 0x4B)
-        // .xls文件是OLE2格式，开头是 0xD0 0xCF
-        if (excelBytes[0] == 0x50 && excelBytes[1] == 0x4B) {
-            return DefaultDocumentFormatRegistry.XLSX;
-        } else if ((excelBytes[0] & 0xFF) == 0xD0 && (excelBytes[1] & 0xFF) == 0xCF) {
-            return DefaultDocumentFormatRegistry.XLS;
+    /**
+     * 按工作表拆分转换：各部分在Calc通道并行转换（共用一个超时），再按工作表顺序拼接
+     */
+    private File convertExcelSplit(File excelFile, int parts, OutputSink sink, ConversionProfile profile,
+                                   ConversionPriority priority)
+            throws IOException, OfficeException {
+        long startTime = System.currentTimeMillis();
+        File directory = PartsDirectory.create("excel-parts-");
+        try {
+            List<File> partFiles = WorkbookSheetSplitter.split(excelFile, parts, directory);
+
+            List<Long> partSizes = new ArrayList<>();
+            List<Callable<File>> tasks = new ArrayList<>();
+            for (int i = 0; i < partFiles.size(); i++) {
+                File partFile = partFiles.get(i);
+                File partPdf = new File(directory, "part" + i + ".pdf");
+                // 每部分都要加载完整的工作簿（隐藏的工作表同样加载），按部分文件本身的大小预估耗时
+                partSizes.add(partFile.length());
+                tasks.add(() -> {
+                    calcDocumentConverter.convert(partFile)
+                            .as(DefaultDocumentFormatRegistry.XLSX)
+                            .to(partPdf)
+                            .as(profile.getPdfFormat())
+                            .execute();
+                    return partPdf;
+                });
+            }
+            List<File> pdfParts;
+            try {
+                pdfParts = conversionScheduler.executeAll(OfficeLane.CALC, priority, partSizes, tasks,
+                        CONVERSION_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            } catch (TimeoutException e) {
+                throw new OfficeException("转换超时（超过" + CONVERSION_TIMEOUT_MINUTES + "分钟）", e);
+            }
+
+            PdfPartMerger.merge(pdfParts, sink.getOutputStream());
+            File result = sink.finish();
+            System.out.println("Excel转PDF完成（按工作表拆分为 " + parts + " 部分并行），耗时: " +
+                             (System.currentTimeMillis() - startTime) + " ms, 输出大小: " + (sink.getSize() / 1024) + " KB");
+            return result;
+        } finally {
+            // executeAll返回或抛出时各部分都已不再执行（失败和超时时已中止），可以删除
+            PartsDirectory.delete(directory);
         }
+    }
+
+    private File performExcelConversion(File excelFile, DocumentFormat inputFormat, OutputSink sink,
+                                        ConversionProfile profile, PageRange pages)
+            throws IOException, OfficeException {
+        System.out.println("检测到Excel格式: " + inputFormat.getName() + 
+                         " (扩展名: " + inputFormat.getExtension() + ")");
+
+        // 明确指定输入和输出格式（spool文件的扩展名来自客户端，不一定可信）
+        calcDocumentConverter.convert(excelFile)
+                .as(inputFormat)  // 输入格式：按内容识别的格式
+                .to(sink.getOutputStream())
+                .as(profile.getPdfFormat(pages))   // 输出格式：PDF（带导出配置的FilterData和页码范围）
+                .execute();
 
-        // 默认使用XLSX
-        return DefaultDocumentFormatRegistry.XLSX;
+        return sink.finish();
+    }
+
+    /**
+     * 在指定通道按优先级执行转换（同一优先级内按文件大小短作业优先）
+     *
+     * @return 写入完成的输出文件
+     */
+    private File schedule(OfficeLane lane, ConversionPriority priority, long inputBytes, Callable<File> conversion)
+            throws IOException, OfficeException {
+        try {
+            return conversionScheduler.execute(lane, priority, inputBytes, conversion,
+                    CONVERSION_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        } catch (TimeoutException e) {
+            throw new OfficeException("转换超时（超过" + CONVERSION_TIMEOUT_MINUTES + "分钟）", e);
+        }
     }
 
     /**
@@ -86,54 +244,60 @@ public class ConversionService {
      * 使用JodConverter + LibreOffice实现高质量转换
      * 支持.doc和.docx格式，保留所有格式、样式和布局
      * 
-     * @param wordBytes Word文件字节数组
-     * @return PDF文件字节数组
+     * @param wordFile Word文件（落盘的上传文件）
+     * @param sink PDF输出
      */
-    public byte[] convertWordToPdf(byte[] wordBytes) throws IOException, OfficeException {
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(wordBytes);
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
-            // 检测Word格式（.doc或.docx）
-            DocumentFormat inputFormat = detectWordFormat(wordBytes);
-            System.out.println("检测到Word格式: " + inputFormat.getName() + 
-                             " (扩展名: " + inputFormat.getExtension() + ")");
-
-            // 执行转换
-            long startTime = System.currentTimeMillis();
-            documentConverter.convert(inputStream)
-                    .as(inputFormat)  // 输入格式：.doc或.docx
-                    .to(outputStream)
-                    .as(DefaultDocumentFormatRegistry.PDF)  // 输出格式：PDF
-                    .execute();
-
-            long duration = System.currentTimeMillis() - startTime;
-            System.out.println("Word转PDF完成，耗时: " + duration + " ms, 输出大小: " + 
-                             (outputStream.size() / 1024) + " KB");
-
-            return outputStream.toByteArray();
-        }
+    public void convertWordToPdf(File wordFile, OutputSink sink) throws IOException, OfficeException {
+        convertWordToPdf(wordFile, sink, ConversionProfile.STANDARD, ConversionPriority.INTERACTIVE);
     }
 
     /**
-     * 检测Word文件格式（.doc或.docx）
-     * 通过文件魔数判断
+     * Word转PDF（指定导出配置和调度优先级）
      */
-    private DocumentFormat detectWordFormat(byte[] wordBytes) {
-        if (wordBytes.length < 4) {
-            return DefaultDocumentFormatRegistry.DOCX;  // 默认使用DOCX
-        }
+    public void convertWordToPdf(File wordFile, OutputSink sink, ConversionProfile profile, ConversionPriority priority)
+            throws IOException, OfficeException {
+        convertWordToPdf(wordFile, ContentDigest.sha256(wordFile), sink, profile, null, priority);
+    }
 
-        // 检查文件头魔数
-        // .docx文件是ZIP格式，开头是 PK (0x50 0x4B)
-        // .doc文件是OLE2格式，开头是 0xD0 0xCF
-        if (wordBytes[0] == 0x50 && wordBytes[1] == 0x4B) {
-            return DefaultDocumentFormatRegistry.DOCX;
-        } else if ((wordBytes[0] & 0xFF) == 0xD0 && (wordBytes[1] & 0xFF) == 0xCF) {
-            return DefaultDocumentFormatRegistry.DOC;
+    /**
+     * Word转PDF（只导出指定页）
+     *
+     * @param wordSha256 文件内容的SHA-256（InputSpool.SpooledFile#getSha256），用于结果缓存键
+     * @param pages 页码范围，null表示全部页
+     */
+    public void convertWordToPdf(File wordFile, String wordSha256, OutputSink sink, ConversionProfile profile,
+                                 PageRange pages, ConversionPriority priority) throws IOException, OfficeException {
+        String cacheKey = ConversionResultCache.key(ConversionType.WORD_TO_PDF, profile.getKey(pages), WRITER_FILTERS, wordSha256);
+        if (resultCache.get(cacheKey, sink)) {
+            System.out.println("Word转PDF命中结果缓存");
+            return;
         }
+        File result = schedule(OfficeLane.WRITER, priority, wordFile.length(),
+                () -> performWordConversion(wordFile, sink, profile, pages));
+        resultCache.put(cacheKey, result);
+    }
 
-        // 默认使用DOCX
-        return DefaultDocumentFormatRegistry.DOCX;
+    private File performWordConversion(File wordFile, OutputSink sink, ConversionProfile profile, PageRange pages)
+            throws IOException, OfficeException {
+        // 按内容识别格式（.doc / .docx / .odt / .rtf）
+        DocumentFormat inputFormat = ContentSniffer.inputFormat(wordFile, DocumentFamily.TEXT);
+        System.out.println("检测到Word格式: " + inputFormat.getName() + 
+                         " (扩展名: " + inputFormat.getExtension() + ")");
+
+        // 执行转换
+        long startTime = System.currentTimeMillis();
+        writerDocumentConverter.convert(wordFile)
+                .as(inputFormat)  // 输入格式：按内容识别的格式
+                .to(sink.getOutputStream())
+                .as(profile.getPdfFormat(pages))  // 输出格式：PDF（带导出配置的FilterData和页码范围）
+                .execute();
+
+        File result = sink.finish();
+        long duration = System.currentTimeMillis() - startTime;
+        System.out.println("Word转PDF完成，耗时: " + duration + " ms, 输出大小: " + 
+                         (sink.getSize() / 1024) + " KB");
+
+        return result;
     }
 
     /**
@@ -141,97 +305,83 @@ public class ConversionService {
      * 使用Tabula库提取PDF中的表格数据，然后生成Excel文件
      * 支持复杂文档，双算法策略（Spreadsheet + Basic备用）
      *
-     * @param pdfBytes PDF文件字节数组
-     * @return Excel文件字节数组（XLSX）
+     * @param pdfFile PDF文件（落盘的上传文件，PDFBox直接按文件解析）
+     * @param sink Excel输出（XLSX）
      */
-    public byte[] convertPdfToExcel(byte[] pdfBytes) throws IOException {
-        // 创建临时PDF文件（Tabula需要文件路径）
-        File tempPdfFile = File.createTempFile("pdf_", ".pdf");
-        try {
-            // 写入PDF数据到临时文件
-            Files.write(tempPdfFile.toPath(), pdfBytes);
-            
-            long startTime = System.currentTimeMillis();
-            System.out.println("开始使用Tabula提取PDF表格 (文件大小: " + (pdfBytes.length / 1024) + " KB)...");
+    public void convertPdfToExcel(File pdfFile, OutputSink sink) throws IOException {
+        long startTime = System.currentTimeMillis();
+        System.out.println("开始使用Tabula提取PDF表格 (文件大小: " + (pdfFile.length() / 1024) + " KB)...");
 
-            // 使用Tabula提取表格
-            try (org.apache.pdfbox.pdmodel.PDDocument document = 
-                    org.apache.pdfbox.pdmodel.PDDocument.load(tempPdfFile)) {
+        // 使用Tabula提取表格
+        try (org.apache.pdfbox.pdmodel.PDDocument document = 
+                org.apache.pdfbox.pdmodel.PDDocument.load(pdfFile)) {
+            
+            ObjectExtractor extractor = new ObjectExtractor(document);
+            PageIterator pages = extractor.extract();
+            
+            // 创建Excel工作簿
+            Workbook workbook = new XSSFWorkbook();
+            int pageNum = 0;
+            int totalTables = 0;
+            boolean hasData = false;
+
+            while (pages.hasNext()) {
+                pageNum++;
+                Page page = pages.next();
                 
-                ObjectExtractor extractor = new ObjectExtractor(document);
-                PageIterator pages = extractor.extract();
+                System.out.println("处理第 " + pageNum + " 页...");
                 
-                // 创建Excel工作簿
-                Workbook workbook = new XSSFWorkbook();
-                int pageNum = 0;
-                int totalTables = 0;
-                boolean hasData = false;
-
-                while (pages.hasNext()) {
-                    pageNum++;
-                    Page page = pages.next();
-                    
-                    System.out.println("处理第 " + pageNum + " 页...");
-                    
-                    // 尝试使用智能算法提取表格
-                    List<technology.tabula.Table> tables = extractTablesWithBestAlgorithm(page);
+                // 尝试使用智能算法提取表格
+                List<technology.tabula.Table> tables = extractTablesWithBestAlgorithm(page);
+                
+                if (tables.isEmpty()) {
+                    System.out.println("  -> 未检测到表格");
+                    continue;
+                }
+
+                System.out.println("  -> 检测到 " + tables.size() + " 个表格");
+                totalTables += tables.size();
+                
+                for (int tableIndex = 0; tableIndex < tables.size(); tableIndex++) {
+                    technology.tabula.Table table = tables.get(tableIndex);
+                    List<List<RectangularTextContainer>> rows = table.getRows();
                     
-                    if (tables.isEmpty()) {
-                        System.out.println("  -> 未检测到表格");
+                    // 跳过空表格
+                    if (rows.isEmpty()) {
+                        System.out.println("  -> 表格 " + (tableIndex + 1) + " 为空，跳过");
                         continue;
                     }
-
-                    System.out.println("  -> 检测到 " + tables.size() + " 个表格");
-                    totalTables += tables.size();
                     
-                    for (int tableIndex = 0; tableIndex < tables.size(); tableIndex++) {
-                        technology.tabula.Table table = tables.get(tableIndex);
-                        List<List<RectangularTextContainer>> rows = table.getRows();
-                        
-                        // 跳过空表格
-                        if (rows.isEmpty()) {
-                            System.out.println("  -> 表格 " + (tableIndex + 1) + " 为空，跳过");
-                            continue;
-                        }
-                        
-                        // 计算表格信息
-                        int maxCols = rows.stream().mapToInt(List::size).max().orElse(0);
-                        System.out.println("  -> 表格 " + (tableIndex + 1) + ": " + rows.size() + " 行 x " + maxCols + " 列");
-                        
-                        // 为每个表格创建一个工作表
-                        String sheetName = createSheetName(pageNum, tableIndex, tables.size());
-                        Sheet sheet = workbook.createSheet(sheetName);
-                        
-                        // 将表格数据写入Excel并应用样式
-                        writeTableToSheet(sheet, rows, pageNum);
-                        
-                        // 自动调整列宽（限制最大宽度以提高性能）
-                        autoSizeColumns(sheet, rows);
-                        
-                        hasData = true;
-                    }
-                }
-
-                if (!hasData) {
-                    // 如果没有检测到表格，创建提示工作表
-                    createWarningSheet(workbook);
+                    // 计算表格信息
+                    int maxCols = rows.stream().mapToInt(List::size).max().orElse(0);
+                    System.out.println("  -> 表格 " + (tableIndex + 1) + ": " + rows.size() + " 行 x " + maxCols + " 列");
+                    
+                    // 为每个表格创建一个工作表
+                    String sheetName = createSheetName(pageNum, tableIndex, tables.size());
+                    Sheet sheet = workbook.createSheet(sheetName);
+                    
+                    // 将表格数据写入Excel并应用样式
+                    writeTableToSheet(sheet, rows, pageNum);
+                    
+                    // 自动调整列宽（限制最大宽度以提高性能）
+                    autoSizeColumns(sheet, rows);
+                    
+                    hasData = true;
                 }
-
-                // 将Excel写入字节数组
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                workbook.write(outputStream);
-                workbook.close();
-                
-                long duration = System.currentTimeMillis() - startTime;
-                System.out.println("PDF转Excel完成: " + pageNum + " 页, " + totalTables + 
-                                 " 个表格, 耗时 " + duration + " ms");
-                return outputStream.toByteArray();
             }
-        } finally {
-            // 删除临时文件
-            if (tempPdfFile.exists()) {
-                tempPdfFile.delete();
+
+            if (!hasData) {
+                // 如果没有检测到表格，创建提示工作表
+                createWarningSheet(workbook);
             }
+
+            // 将Excel直接写入输出
+            workbook.write(sink.getOutputStream());
+            workbook.close();
+            
+            long duration = System.currentTimeMillis() - startTime;
+            System.out.println("PDF转Excel完成: " + pageNum + " 页, " + totalTables + 
+                             " 个表格, 耗时 " + duration + " ms");
         }
     }
 
@@ -0,0 +1,43 @@
+package com.pdftool.service;
+
+import com.pdftool.office.OfficeLane;
+
+/**
+ * 转换类型（准入控制按类型分别限流）
+ */
+public enum ConversionType {
+
+    EXCEL_TO_PDF("excel-to-pdf", "Excel转PDF", OfficeLane.CALC),
+    WORD_TO_PDF("word-to-pdf", "Word转PDF", OfficeLane.WRITER),
+    PPT_TO_PDF("ppt-to-pdf", "PPT转PDF", OfficeLane.IMPRESS),
+    PDF_TO_EXCEL("pdf-to-excel", "PDF转Excel", null),
+    IMAGE_TO_PDF("image-to-pdf", "图片转PDF", null);
+
+    private final String key;
+    private final String description;
+    private final OfficeLane officeLane;
+
+    ConversionType(String key, String description, OfficeLane officeLane) {
+        this.key = key;
+        this.description = description;
+        this.officeLane = officeLane;
+    }
+
+    /**
+     * 配置项和指标中使用的名称，如 pdftool.admission.ppt-to-pdf.max-queued
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 使用的Office通道，纯Java实现的转换为null
+     */
+    public OfficeLane getOfficeLane() {
+        return officeLane;
+    }
+}
@@ -8,10 +8,8 @@ import technology.tabula.*;
 import technology.tabula.extractors.BasicExtractionAlgorithm;
 import technology.tabula.extractors.SpreadsheetExtractionAlgorithm;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,106 +23,97 @@ public class EnhancedPdfToExcelService {
     /**
      * PDF转Excel（增强版）
      * 支持复杂表格、多列布局、无边框表格
+     *
+     * @param pdfFile PDF文件（落盘的上传文件，PDFBox直接按文件解析）
+     * @param sink Excel输出（XLSX），POI直接写入
      */
-    public byte[] convertPdfToExcel(byte[] pdfBytes) throws IOException {
-        File tempPdfFile = File.createTempFile("pdf_", ".pdf");
-        try {
-            Files.write(tempPdfFile.toPath(), pdfBytes);
+    public void convertPdfToExcel(File pdfFile, OutputSink sink) throws IOException {
+        long startTime = System.currentTimeMillis();
+        System.out.println("========================================");
+        System.out.println("开始增强版PDF表格提取");
+        System.out.println("文件大小: " + (pdfFile.length() / 1024) + " KB");
+        System.out.println("========================================");
+
+        try (PDDocument document = PDDocument.load(pdfFile)) {
+            ObjectExtractor extractor = new ObjectExtractor(document);
+            PageIterator pages = extractor.extract();
             
-            long startTime = System.currentTimeMillis();
-            System.out.println("========================================");
-            System.out.println("开始增强版PDF表格提取");
-            System.out.println("文件大小: " + (pdfBytes.length / 1024) + " KB");
-            System.out.println("========================================");
+            Workbook workbook = new XSSFWorkbook();
+            int pageNum = 0;
+            int totalTables = 0;
+            boolean hasData = false;
 
-            try (PDDocument document = PDDocument.load(tempPdfFile)) {
-                ObjectExtractor extractor = new ObjectExtractor(document);
-                PageIterator pages = extractor.extract();
+            while (pages.hasNext()) {
+                pageNum++;
+                Page page = pages.next();
                 
-                Workbook workbook = new XSSFWorkbook();
-                int pageNum = 0;
-                int totalTables = 0;
-                boolean hasData = false;
+                System.out.println("\n【第 " + pageNum + " 页】");
+                System.out.println("  页面尺寸: " + page.getWidth() + " x " + page.getHeight());
+                
+                // 使用多策略提取
+                List<technology.tabula.Table> tables = extractTablesWithMultipleStrategies(page, pageNum);
+                
+                if (tables.isEmpty()) {
+                    System.out.println("  ❌ 未检测到表格");
+                    continue;
+                }
 
-                while (pages.hasNext()) {
-                    pageNum++;
-                    Page page = pages.next();
-                    
-                    System.out.println("\n【第 " + pageNum + " 页】");
-                    System.out.println("  页面尺寸: " + page.getWidth() + " x " + page.getHeight());
-                    
-                    // 使用多策略提取
-                    List<technology.tabula.Table> tables = extractTablesWithMultipleStrategies(page, pageNum);
+                System.out.println("  ✓ 检测到 " + tables.size() + " 个表格");
+                totalTables += tables.size();
+                
+                // 将同一页的所有表格合并到一个sheet中
+                List<List<RectangularTextContainer>> allRowsInPage = new ArrayList<>();
+                
+                for (int tableIndex = 0; tableIndex < tables.size(); tableIndex++) {
+                    technology.tabula.Table table = tables.get(tableIndex);
+                    List<List<RectangularTextContainer>> rows = table.getRows();
                     
-                    if (tables.isEmpty()) {
-                        System.out.println("  ❌ 未检测到表格");
+                    if (rows.isEmpty() || (rows.size() == 1 && isEmptyRow(rows.get(0)))) {
+                        System.out.println("    表格" + (tableIndex + 1) + ": 空表格，跳过");
                         continue;
                     }
-
-                    System.out.println("  ✓ 检测到 " + tables.size() + " 个表格");
-                    totalTables += tables.size();
                     
-                    // 将同一页的所有表格合并到一个sheet中
-                    List<List<RectangularTextContainer>> allRowsInPage = new ArrayList<>();
+                    System.out.println("    表格" + (tableIndex + 1) + ": " + rows.size() + " 行 x " + 
+                                     (rows.isEmpty() ? 0 : rows.get(0).size()) + " 列");
                     
-                    for (int tableIndex = 0; tableIndex < tables.size(); tableIndex++) {
-                        technology.tabula.Table table = tables.get(tableIndex);
-                        List<List<RectangularTextContainer>> rows = table.getRows();
-                        
-                        if (rows.isEmpty() || (rows.size() == 1 && isEmptyRow(rows.get(0)))) {
-                            System.out.println("    表格" + (tableIndex + 1) + ": 空表格，跳过");
-                            continue;
-                        }
-                        
-                        System.out.println("    表格" + (tableIndex + 1) + ": " + rows.size() + " 行 x " + 
-                                         (rows.isEmpty() ? 0 : rows.get(0).size()) + " 列");
-                        
-                        // 添加到合并列表
-                        allRowsInPage.addAll(rows);
-                        
-                        // 如果不是最后一个表格，添加一个空行作为分隔
-                        if (tableIndex < tables.size() - 1) {
-                            List<RectangularTextContainer> emptyRow = new ArrayList<>();
-                            allRowsInPage.add(emptyRow);
-                        }
-                    }
+                    // 添加到合并列表
+                    allRowsInPage.addAll(rows);
                     
-                    // 创建单个sheet包含整页的所有表格
-                    if (!allRowsInPage.isEmpty()) {
-                        String sheetName = "Page" + pageNum;
-                        Sheet sheet = workbook.createSheet(sheetName);
-                        
-                        System.out.println("  合并所有表格到: " + sheetName + " (总计 " + allRowsInPage.size() + " 行)");
-                        
-                        writeEnhancedTableToSheet(sheet, allRowsInPage);
-                        autoSizeColumnsOptimized(sheet, allRowsInPage);
-                        
-                        hasData = true;
+                    // 如果不是最后一个表格，添加一个空行作为分隔
+                    if (tableIndex < tables.size() - 1) {
+                        List<RectangularTextContainer> emptyRow = new ArrayList<>();
+                        allRowsInPage.add(emptyRow);
                     }
                 }
-
-                if (!hasData) {
-                    createWarningSheet(workbook);
-                }
-
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                workbook.write(outputStream);
-                workbook.close();
                 
-                long duration = System.currentTimeMillis() - startTime;
-                System.out.println("\n========================================");
-                System.out.println("转换完成");
-                System.out.println("总页数: " + pageNum);
-                System.out.println("总表格数: " + totalTables);
-                System.out.println("耗时: " + duration + " ms");
-                System.out.println("========================================");
-                
-                return outputStream.toByteArray();
+                // 创建单个sheet包含整页的所有表格
+                if (!allRowsInPage.isEmpty()) {
+                    String sheetName = "Page" + pageNum;
+                    Sheet sheet = workbook.createSheet(sheetName);
+                    
+                    System.out.println("  合并所有表格到: " + sheetName + " (总计 " + allRowsInPage.size() + " 行)");
+                    
+                    writeEnhancedTableToSheet(sheet, allRowsInPage);
+                    autoSizeColumnsOptimized(sheet, allRowsInPage);
+                    
+                    hasData = true;
+                }
             }
-        } finally {
-            if (tempPdfFile.exists()) {
-                tempPdfFile.delete();
+
+            if (!hasData) {
+                createWarningSheet(workbook);
             }
+
+            workbook.write(sink.getOutputStream());
+            workbook.close();
+            
+            long duration = System.currentTimeMillis() - startTime;
+            System.out.println("\n========================================");
+            System.out.println("转换完成");
+            System.out.println("总页数: " + pageNum);
+            System.out.println("总表格数: " + totalTables);
+            System.out.println("耗时: " + duration + " ms");
+            System.out.println("========================================");
         }
     }
 
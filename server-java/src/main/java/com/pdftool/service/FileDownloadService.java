@@ -0,0 +1,252 @@
+package com.pdftool.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 结果文件下载
+ *
+ * 1. 发送方式：不小于48KB的文件在Tomcat支持sendfile时交给连接器用sendfile零拷贝发送（不经过JVM堆）；
+ *    小文件、开启下载后删除或连接器不支持sendfile时经响应输出流写出，
+ *    内容要复制到JVM中的缓冲区，不是零拷贝（指标中计为streamed）
+ * 2. Range：支持单个字节范围（bytes=a-b / a- / -n），返回206；多个范围时返回完整文件
+ * 3. ETag：结果内容的SHA-256（转换时计算），If-None-Match命中返回304，If-Range不匹配时返回完整文件
+ * 4. Cache-Control：结果文件名唯一且内容不变，标记为immutable
+ * 5. 完整发送后通知OutputStore（下载后删除）
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+@Service
+public class FileDownloadService {
+
+    // Tomcat连接器的sendfile请求属性（NIO/NIO2/APR连接器支持时设置support属性）
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // 小于该大小（字节）的文件直接写出，sendfile的额外开销不划算
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
+    @Autowired
+    private OutputStore outputStore;
+
+    @Value("${pdftool.download.sendfile:true}")
+    private boolean sendfileEnabled;
+
+    // 浏览器/客户端缓存时间（秒）
+    @Value("${pdftool.download.max-age-seconds:3600}")
+    private long maxAgeSeconds;
+
+    private final AtomicLong downloads = new AtomicLong(0);
+    private final AtomicLong rangeRequests = new AtomicLong(0);
+    private final AtomicLong notModified = new AtomicLong(0);
+    private final AtomicLong sendfileCount = new AtomicLong(0);
+    private final AtomicLong streamedCount = new AtomicLong(0);
+    private final AtomicLong bytesSent = new AtomicLong(0);
+
+    /**
+     * 发送结果文件（支持HEAD、Range和条件请求）
+     * ETag使用结果内容的SHA-256，未知时（启动前生成的文件）改用大小和修改时间生成弱ETag
+     */
+    public void send(OutputStore.StoredFile storedFile,
+                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        File file = storedFile.getFile();
+        String downloadName = storedFile.getFilename();
+        String sha256 = storedFile.getSha256();
+        long fileLength = file.length();
+        String etag = sha256 != null ? "\"" + sha256 + "\""
+                : "W/\"" + Long.toHexString(fileLength) + "-" + Long.toHexString(file.lastModified()) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=" + maxAgeSeconds + ", immutable");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, file.lastModified());
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+            notModified.incrementAndGet();
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        MediaType contentType = MediaTypeFactory.getMediaType(downloadName).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        response.setContentType(contentType.toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(downloadName, StandardCharsets.UTF_8).build().toString());
+
+        long start = 0;
+        long end = fileLength - 1;
+        boolean partial = false;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        // If-Range只接受强ETag；不匹配（文件已变化）时忽略Range
+        if (range != null && (ifRange == null || (!etag.startsWith("W/") && ifRange.trim().equals(etag)))) {
+            long[] bounds = parseRange(range, fileLength);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + fileLength);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                partial = true;
+                rangeRequests.incrementAndGet();
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileLength);
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentLengthLong(length);
+        downloads.incrementAndGet();
+        if ("HEAD".equals(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        // 下载后删除的文件不能交给sendfile：连接器在请求处理结束后才打开文件
+        if (sendfileEnabled && length >= SENDFILE_MIN_BYTES && !outputStore.isDeleteAfterDownload()
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 由连接器在请求处理结束后发送
+            request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            sendfileCount.incrementAndGet();
+            bytesSent.addAndGet(length);
+            return;
+        }
+
+        // 目标不是文件或套接字通道，transferTo退化为经JVM缓冲区读写，与普通的流复制相同
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+            streamedCount.incrementAndGet();
+            bytesSent.addAndGet(length - remaining);
+            if (remaining > 0) {
+                return;
+            }
+        }
+        if (!partial) {
+            outputStore.downloaded(storedFile);
+        }
+    }
+
+    /**
+     * 解析Range头
+     *
+     * @return [start, end]（含end）；空数组表示忽略Range返回完整文件；null表示范围无法满足（416）
+     */
+    static long[] parseRange(String range, long fileLength) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            // 非字节单位或多个范围：返回完整文件
+            return new long[0];
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        if (!isDigits(first) || !isDigits(last)) {
+            // 只接受十进制数字（Long.parseLong还接受正负号）
+            return new long[0];
+        }
+        try {
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // 后缀范围：最后n个字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, fileLength - suffix);
+                end = fileLength - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = fileLength - 1;
+                if (!last.isEmpty()) {
+                    long lastPos = Long.parseLong(last);
+                    if (start > lastPos) {
+                        // 语法无效的范围（如 bytes=5-3）按RFC 9110忽略，返回完整文件
+                        return new long[0];
+                    }
+                    end = Math.min(lastPos, end);
+                }
+            }
+            if (start >= fileLength) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private static boolean isDigits(String text) {
+        return text.chars().allMatch(c -> c >= '0' && c <= '9');
+    }
+
+    private boolean matches(String ifNoneMatch, String etag) {
+        String trimmed = ifNoneMatch.trim();
+        if ("*".equals(trimmed)) {
+            return true;
+        }
+        // If-None-Match按弱比较
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : trimmed.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 下载次数、Range请求数和发送方式统计
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("downloads", downloads.get());
+        metrics.put("rangeRequests", rangeRequests.get());
+        metrics.put("notModified", notModified.get());
+        metrics.put("sendfile", sendfileCount.get());
+        metrics.put("streamed", streamedCount.get());
+        metrics.put("sentMb", bytesSent.get() / 1024 / 1024);
+        return metrics;
+    }
+}
@@ -55,12 +55,24 @@ public class ImageSessionManager {
     }
 
     /**
-     * 删除会话
+     * 删除会话及其图片文件
      */
     public void removeSession(String sessionId) {
         ImageUploadSession removed = sessions.remove(sessionId);
         if (removed != null) {
-            System.out.println("Removed session: " + sessionId + " (had " + removed.getImageCount() + " images)");
+            int imageCount = removed.getImageCount();
+            removed.discard();
+            System.out.println("Removed session: " + sessionId + " (had " + imageCount + " images)");
+        }
+    }
+
+    /**
+     * 移除会话但保留图片文件（提交后文件已交给转换任务，由任务结束时删除）
+     */
+    public void detachSession(String sessionId) {
+        ImageUploadSession removed = sessions.remove(sessionId);
+        if (removed != null) {
+            System.out.println("Committed session: " + sessionId + " (" + removed.getImageCount() + " images)");
         }
     }
 
@@ -73,8 +85,8 @@ public class ImageSessionManager {
         
         for (Map.Entry<String, ImageUploadSession> entry : sessions.entrySet()) {
             ImageUploadSession session = entry.getValue();
-            if (now - session.getLastUpdateTime() > SESSION_TIMEOUT) {
-                sessions.remove(entry.getKey());
+            if (now - session.getLastUpdateTime() > SESSION_TIMEOUT && sessions.remove(entry.getKey(), session)) {
+                session.discard();
                 removedCount++;
                 System.out.println("Cleaned up expired session: " + entry.getKey());
             }
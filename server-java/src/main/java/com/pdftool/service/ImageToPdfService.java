@@ -9,8 +9,7 @@ import org.springframework.stereotype.Service;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -21,7 +20,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * 
  * 优化特性：
  * 1. 性能高 - 使用PDFBox直接操作，无LibreOffice开销
- * 2. 速度快 - 纯内存操作，毫秒级转换
+ * 2. 速度快 - 无外部进程，毫秒级转换；图片直接从落盘的上传文件读取
  * 3. 格式完整 - 完美保留图片质量、尺寸、DPI
  * 4. 支持批量 - 多张图片合并为一个PDF
  * 5. 智能适配 - 自动适配页面大小
@@ -48,31 +47,29 @@ public class ImageToPdfService {
     /**
      * 单张图片转PDF（高质量模式）
      * 
-     * @param imageBytes 图片字节数组
+     * @param imageFile 图片文件（落盘的上传文件）
      * @param imageFormat 图片格式（jpg, png等）
-     * @return PDF字节数组
+     * @param sink PDF输出
      */
-    public byte[] convertImageToPdf(byte[] imageBytes, String imageFormat) throws IOException {
+    public void convertImageToPdf(File imageFile, String imageFormat, OutputSink sink) throws IOException {
         int conversionId = totalConversions.incrementAndGet();
         long startTime = System.currentTimeMillis();
         
         System.out.println("========================================");
         System.out.println("[图片转PDF #" + conversionId + "] 开始转换");
         System.out.println("图片格式: " + imageFormat);
-        System.out.println("图片大小: " + (imageBytes.length / 1024) + " KB");
+        System.out.println("图片大小: " + (imageFile.length() / 1024) + " KB");
         System.out.println("========================================");
 
         try (PDDocument document = new PDDocument()) {
             // 读取图片
-            BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageBytes));
+            BufferedImage image = ImageIO.read(imageFile);
             if (image == null) {
                 throw new IOException("无法读取图片，可能格式不支持");
             }
             
             // 创建PDImageXObject
-            PDImageXObject pdImage = PDImageXObject.createFromByteArray(
-                document, imageBytes, "image"
-            );
+            PDImageXObject pdImage = PDImageXObject.createFromFileByContent(imageFile, document);
             
             // 根据图片尺寸创建合适的页面
             PDRectangle pageSize = calculatePageSize(image.getWidth(), image.getHeight());
@@ -99,11 +96,9 @@ public class ImageToPdfService {
                 );
             }
             
-            // 输出PDF
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            document.save(outputStream);
-            
-            byte[] pdfBytes = outputStream.toByteArray();
+            // 输出PDF（直接写入sink）
+            document.save(sink.getOutputStream());
+            sink.finish();
             long duration = System.currentTimeMillis() - startTime;
             
             successfulConversions.incrementAndGet();
@@ -111,13 +106,11 @@ public class ImageToPdfService {
             System.out.println("========================================");
             System.out.println("[图片转PDF #" + conversionId + "] 转换成功！");
             System.out.println("耗时: " + duration + " ms");
-            System.out.println("PDF大小: " + (pdfBytes.length / 1024) + " KB");
+            System.out.println("PDF大小: " + (sink.getSize() / 1024) + " KB");
             System.out.println("图片分辨率: " + image.getWidth() + "x" + image.getHeight());
             System.out.println("页面大小: " + pageSize.getWidth() + "x" + pageSize.getHeight() + " 点");
             System.out.println("========================================");
             
-            return pdfBytes;
-            
         } catch (Exception e) {
             System.err.println("[图片转PDF #" + conversionId + "] 转换失败: " + e.getMessage());
             throw e;
@@ -129,9 +122,9 @@ public class ImageToPdfService {
      * 统一宽度模式：所有页面使用相同宽度，高度根据图片比例自动调整
      * 
      * @param imageDataList 图片数据列表
-     * @return PDF字节数组
+     * @param sink PDF输出
      */
-    public byte[] convertImagesToPdf(List<ImageData> imageDataList) throws IOException {
+    public void convertImagesToPdf(List<ImageData> imageDataList, OutputSink sink) throws IOException {
         int conversionId = totalConversions.incrementAndGet();
         long startTime = System.currentTimeMillis();
         
@@ -148,7 +141,7 @@ public class ImageToPdfService {
             System.out.println("[步骤1] 分析所有图片尺寸...");
             for (int i = 0; i < imageDataList.size(); i++) {
                 ImageData imageData = imageDataList.get(i);
-                BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageData.bytes));
+                BufferedImage image = ImageIO.read(imageData.file);
                 if (image == null) {
                     System.err.println("[图片 " + (i + 1) + "] 无法读取，跳过");
                     images.add(null);
@@ -183,12 +176,10 @@ public class ImageToPdfService {
                 ImageData imageData = imageDataList.get(i);
                 
                 System.out.println("[页面 " + pageNum + "] 处理图片: " + 
-                    (imageData.bytes.length / 1024) + " KB");
+                    (imageData.file.length() / 1024) + " KB");
                 
                 // 创建PDImageXObject
-                PDImageXObject pdImage = PDImageXObject.createFromByteArray(
-                    document, imageData.bytes, "image" + pageNum
-                );
+                PDImageXObject pdImage = PDImageXObject.createFromFileByContent(imageData.file, document);
                 
                 // 根据图片宽高比计算页面高度（宽度统一）
                 float imageWidth = image.getWidth();
@@ -228,11 +219,9 @@ public class ImageToPdfService {
                 }
             }
             
-            // 输出PDF
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            document.save(outputStream);
-            
-            byte[] pdfBytes = outputStream.toByteArray();
+            // 输出PDF（直接写入sink）
+            document.save(sink.getOutputStream());
+            sink.finish();
             long duration = System.currentTimeMillis() - startTime;
             
             successfulConversions.incrementAndGet();
@@ -242,12 +231,10 @@ public class ImageToPdfService {
             System.out.println("总页数: " + document.getNumberOfPages());
             System.out.println("统一宽度: " + pageWidth + " 点");
             System.out.println("耗时: " + duration + " ms");
-            System.out.println("PDF大小: " + (pdfBytes.length / 1024) + " KB");
+            System.out.println("PDF大小: " + (sink.getSize() / 1024) + " KB");
             System.out.println("平均速度: " + (duration / imageDataList.size()) + " ms/图");
             System.out.println("========================================");
             
-            return pdfBytes;
-            
         } catch (Exception e) {
             System.err.println("[批量图片转PDF #" + conversionId + "] 转换失败: " + e.getMessage());
             throw e;
@@ -348,12 +335,12 @@ public class ImageToPdfService {
      * 图片数据封装类
      */
     public static class ImageData {
-        public byte[] bytes;
+        public File file;
         public String format;
         public String filename;
         
-        public ImageData(byte[] bytes, String format, String filename) {
-            this.bytes = bytes;
+        public ImageData(File file, String format, String filename) {
+            this.file = file;
             this.format = format;
             this.filename = filename;
         }
@@ -6,6 +6,7 @@ import java.util.List;
 /**
  * 图片上传会话
  * 用于管理批量图片上传和合并转换
+ * 图片落盘保存（InputSpool），提交后文件交给转换任务，取消或过期时由discard()删除
  */
 public class ImageUploadSession {
     private final String sessionId;
@@ -40,11 +41,21 @@ public class ImageUploadSession {
         return images;
     }
 
-    public synchronized void addImage(int index, byte[] imageData, String originalFilename) {
-        images.add(new ImageItem(index, imageData, originalFilename));
+    public synchronized void addImage(int index, InputSpool.SpooledFile imageFile, String originalFilename) {
+        images.add(new ImageItem(index, imageFile, originalFilename));
         updateLastTime();
     }
 
+    /**
+     * 删除会话中所有图片文件（取消、过期或提交失败时调用）
+     */
+    public synchronized void discard() {
+        for (ImageItem item : images) {
+            item.getFile().close();
+        }
+        images.clear();
+    }
+
     public int getImageCount() {
         return images.size();
     }
@@ -61,12 +72,12 @@ public class ImageUploadSession {
      */
     public static class ImageItem {
         private final int index;
-        private final byte[] data;
+        private final InputSpool.SpooledFile file;
         private final String filename;
 
-        public ImageItem(int index, byte[] data, String filename) {
+        public ImageItem(int index, InputSpool.SpooledFile file, String filename) {
             this.index = index;
-            this.data = data;
+            this.file = file;
             this.filename = filename;
         }
 
@@ -74,8 +85,8 @@ public class ImageUploadSession {
             return index;
         }
 
-        public byte[] getData() {
-            return data;
+        public InputSpool.SpooledFile getFile() {
+            return file;
         }
 
         public String getFilename() {
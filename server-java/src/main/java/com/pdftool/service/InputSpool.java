@@ -0,0 +1,186 @@
+package com.pdftool.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 上传文件落盘（spool）
+ *
+ * 上传内容不再通过 file.getBytes() 读进堆内存，而是从multipart临时文件转存到spool目录，
+ * 转换服务直接读取该文件（LibreOffice按文件加载，PDFBox按文件解析），单个请求占用的堆内存与文档大小无关：
+ * 1. transferTo 在同一文件系统上只是改名，不复制内容
+ * 2. 文件由任务持有，任务结束时删除（见JobService）；图片会话的文件随会话删除
+ * 3. 启动时和定期清理遗留的spool文件（进程被杀、会话异常等情况）
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+@Service
+public class InputSpool {
+
+    @Value("${pdftool.spool.dir:temp/spool}")
+    private String spoolDir;
+
+    // 超过该时间（小时）的spool文件视为遗留文件
+    @Value("${pdftool.spool.max-age-hours:24}")
+    private long maxAgeHours;
+
+    private File directory;
+    private ScheduledExecutorService cleanupExecutor;
+
+    private final AtomicLong spooled = new AtomicLong(0);
+    private final AtomicLong spooledBytes = new AtomicLong(0);
+    private final AtomicLong activeFiles = new AtomicLong(0);
+    private final AtomicLong activeBytes = new AtomicLong(0);
+
+    @PostConstruct
+    public void init() {
+        // transferTo的相对路径会按Servlet容器的multipart目录解析，这里统一使用绝对路径
+        directory = new File(spoolDir).getAbsoluteFile();
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        int removed = cleanup(0);
+
+        cleanupExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "spool-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleanupExecutor.scheduleAtFixedRate(() -> cleanup(TimeUnit.HOURS.toMillis(maxAgeHours)), 1, 1, TimeUnit.HOURS);
+
+        System.out.println("[上传落盘] 目录 " + directory + ", 清理遗留文件 " + removed + " 个");
+    }
+
+    /**
+     * 将上传内容转存到spool目录，返回的文件由调用方（或接手的任务）关闭
+     */
+    public SpooledFile spool(MultipartFile file) throws IOException {
+        String extension = "";
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename != null) {
+            int lastDotIndex = originalFilename.lastIndexOf('.');
+            if (lastDotIndex > 0 && lastDotIndex < originalFilename.length() - 1) {
+                extension = originalFilename.substring(lastDotIndex).toLowerCase();
+            }
+        }
+        File target = new File(directory, UUID.randomUUID().toString() + extension);
+        try {
+            file.transferTo(target);
+        } catch (IOException | RuntimeException e) {
+            target.delete();
+            throw e;
+        }
+
+        long length = target.length();
+        spooled.incrementAndGet();
+        spooledBytes.addAndGet(length);
+        activeFiles.incrementAndGet();
+        activeBytes.addAndGet(length);
+        return new SpooledFile(this, target, length);
+    }
+
+    private void released(long length) {
+        activeFiles.decrementAndGet();
+        activeBytes.addAndGet(-length);
+    }
+
+    /**
+     * 删除修改时间早于maxAgeMillis之前的文件（0表示全部删除）
+     */
+    private int cleanup(long maxAgeMillis) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long expireBefore = System.currentTimeMillis() - maxAgeMillis;
+        int removed = 0;
+        for (File file : files) {
+            if (file.isFile() && file.lastModified() <= expireBefore && file.delete()) {
+                removed++;
+            }
+        }
+        if (removed > 0 && maxAgeMillis > 0) {
+            System.out.println("[上传落盘] 清理遗留文件 " + removed + " 个");
+        }
+        return removed;
+    }
+
+    /**
+     * 落盘数量和当前占用
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("spooled", spooled.get());
+        metrics.put("spooledMb", spooledBytes.get() / 1024 / 1024);
+        metrics.put("activeFiles", activeFiles.get());
+        metrics.put("activeMb", activeBytes.get() / 1024 / 1024);
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (cleanupExecutor != null) {
+            cleanupExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 落盘的上传文件，close()时删除（可重复调用）
+     */
+    public static final class SpooledFile implements AutoCloseable {
+
+        private final InputSpool spool;
+        private final File file;
+        private final long length;
+        private String sha256;
+        private boolean closed;
+
+        private SpooledFile(InputSpool spool, File file, long length) {
+            this.spool = spool;
+            this.file = file;
+            this.length = length;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public long length() {
+            return length;
+        }
+
+        /**
+         * 内容的SHA-256，首次调用时计算；合并键和结果缓存键都由它派生，不再各读一遍文件
+         */
+        public synchronized String getSha256() throws IOException {
+            if (sha256 == null) {
+                sha256 = ContentDigest.sha256(file);
+            }
+            return sha256;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            file.delete();
+            spool.released(length);
+        }
+    }
+}
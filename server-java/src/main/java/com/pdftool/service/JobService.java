@@ -0,0 +1,303 @@
+package com.pdftool.service;
+
+import com.pdftool.config.VirtualThreads;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步转换任务服务
+ *
+ * 所有转换（同步接口也一样）都作为任务在这里执行，Tomcat线程只负责接收上传和返回结果：
+ * 1. 提交后立即返回任务ID，转换在任务线程中进行
+ * 2. 任务保存在进程内的有界存储中：超过max-jobs时淘汰最早结束的任务，结束超过保留时间的任务定期清理
+ * 3. 准入许可由任务持有，转换结束时释放，并发上限仍由AdmissionControl决定
+ * 4. 带合并键的任务经过SingleFlight：相同内容和选项的转换同时只执行一次
+ * 5. 落盘的输入文件由任务持有，任务结束（或提交失败）时删除
+ * 6. 结果写入OutputStore，过期和配额淘汰由OutputStore负责
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+@Service
+public class JobService {
+
+    // 任务线程数：只需覆盖准入控制允许的在处理请求数，线程大多在等待Office进程池
+    @Value("${pdftool.jobs.threads:64}")
+    private int threads;
+
+    // 虚拟线程模式：每个任务一个虚拟线程，不受threads限制（Java 21）
+    @Value("${pdftool.threads.virtual:false}")
+    private boolean virtualThreads;
+
+    // 最多保存的任务数（包括已结束的）
+    @Value("${pdftool.jobs.max-jobs:1000}")
+    private int maxJobs;
+
+    // 已结束任务的保留时间（分钟），之后无法再查询状态
+    @Value("${pdftool.jobs.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @Autowired
+    private OutputStore outputStore;
+
+    // 按提交顺序排列，读写都持有jobs锁
+    private final Map<String, ConversionJob> jobs = new LinkedHashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong(0);
+    private final AtomicLong succeeded = new AtomicLong(0);
+    private final AtomicLong failed = new AtomicLong(0);
+    private final AtomicLong evicted = new AtomicLong(0);
+
+    private ExecutorService executor;
+    private ScheduledExecutorService cleanupExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (virtualThreads) {
+            executor = VirtualThreads.newThreadPerTaskExecutor("job-");
+        }
+        if (executor == null) {
+            virtualThreads = false;
+            AtomicInteger counter = new AtomicInteger(0);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "job-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+
+        cleanupExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleanupExecutor.scheduleAtFixedRate(this::cleanupExpiredJobs, 1, 1, TimeUnit.MINUTES);
+
+        System.out.println("[任务服务] " + (virtualThreads ? "虚拟线程" : threads + " 个任务线程") +
+                         ", 最多保存 " + maxJobs + " 个任务, 结束后保留 " + retentionMinutes + " 分钟");
+    }
+
+    /**
+     * 提交转换任务，立即返回
+     *
+     * @param permit 准入许可，由任务在结束时释放（可为null）
+     * @param outputFilename 期望的输出文件名，结果保存为 <UUID>_<outputFilename>（见OutputStore）
+     */
+    public ConversionJob submit(ConversionType type, String sourceFilename, String outputFilename,
+                                AdmissionControl.Permit permit, ConversionJob.Work work) {
+        return submit(type, sourceFilename, outputFilename, permit, null, work);
+    }
+
+    /**
+     * 提交转换任务，立即返回；相同合并键的任务同时只转换一次，共享结果
+     *
+     * @param flightKey 合并键（SingleFlight.key），null表示不合并
+     */
+    public ConversionJob submit(ConversionType type, String sourceFilename, String outputFilename,
+                                AdmissionControl.Permit permit, String flightKey, ConversionJob.Work work) {
+        return submit(type, sourceFilename, outputFilename, permit, Collections.emptyList(), flightKey, work);
+    }
+
+    /**
+     * 提交转换任务，立即返回；输入文件交给任务，任务结束时删除
+     *
+     * @param inputs 落盘的输入文件（InputSpool），调用方提交后不再关闭
+     */
+    public ConversionJob submit(ConversionType type, String sourceFilename, String outputFilename,
+                                AdmissionControl.Permit permit, List<InputSpool.SpooledFile> inputs,
+                                String flightKey, ConversionJob.Work work) {
+        ConversionJob job = new ConversionJob(UUID.randomUUID().toString(), type, sourceFilename, outputFilename);
+        store(job);
+        submitted.incrementAndGet();
+        try {
+            executor.execute(() -> run(job, permit, inputs, flightKey, work));
+        } catch (RejectedExecutionException e) {
+            // 服务正在关闭
+            if (permit != null) {
+                permit.close();
+            }
+            inputs.forEach(InputSpool.SpooledFile::close);
+            failed.incrementAndGet();
+            job.markFailed(e);
+        }
+        return job;
+    }
+
+    /**
+     * 查询任务，不存在或已过期返回null
+     */
+    public ConversionJob getJob(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    private void run(ConversionJob job, AdmissionControl.Permit permit, List<InputSpool.SpooledFile> inputs,
+                     String flightKey, ConversionJob.Work work) {
+        // 转换直接写入结果目录，提交后改名为最终文件名
+        OutputSink sink = outputStore.newSink(job.getOutputFilename());
+        try {
+            job.markRunning();
+            if (flightKey == null) {
+                work.convert(sink);
+            } else {
+                // 执行转换的任务在登记结果之前保留一份副本（登记后的结果可能被配额淘汰、过期或下载后删除），
+                // 加入的任务从副本复制（各自独立下载和清理），都复制完后删除副本
+                singleFlight.execute(flightKey, () -> {
+                    work.convert(sink);
+                    return snapshot(sink.commit());
+                }, shared -> copyShared(job, sink, shared, work),
+                        () -> job.updateStage("等待相同文件的转换"), File::delete);
+            }
+
+            job.updateStage("保存结果");
+            sink.commit();
+            OutputStore.StoredFile result = outputStore.register(sink);
+
+            succeeded.incrementAndGet();
+            job.markSucceeded(result.getFilename(), result.getSize(), result.getSha256());
+        } catch (Throwable e) {
+            failed.incrementAndGet();
+            System.err.println("[任务 " + job.getId() + "] " + job.getType().getDescription() + "失败: " + e.getMessage());
+            job.markFailed(e);
+        } finally {
+            if (permit != null) {
+                permit.close();
+            }
+            inputs.forEach(InputSpool.SpooledFile::close);
+            sink.close();
+        }
+    }
+
+    /**
+     * 保留结果副本，失败时返回null（加入的任务改为自己转换）
+     */
+    private File snapshot(File result) {
+        try {
+            return outputStore.snapshot(result);
+        } catch (IOException e) {
+            System.err.println("[任务服务] 保留共享结果失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 加入的任务复制共享的结果，没有副本或复制失败时重新转换
+     */
+    private void copyShared(ConversionJob job, OutputSink sink, File shared, ConversionJob.Work work) throws Exception {
+        if (shared != null) {
+            job.updateStage("复制结果");
+            try {
+                sink.copyFrom(shared);
+                return;
+            } catch (IOException e) {
+                System.err.println("[任务 " + job.getId() + "] 复制共享结果失败，重新转换: " + e.getMessage());
+                sink.reset();
+            }
+        }
+        job.updateStage("重新转换");
+        work.convert(sink);
+    }
+
+    /**
+     * 保存任务，超过上限时淘汰最早结束的任务（未结束的任务不淘汰）
+     */
+    private void store(ConversionJob job) {
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+            Iterator<ConversionJob> iterator = jobs.values().iterator();
+            while (jobs.size() > maxJobs && iterator.hasNext()) {
+                if (iterator.next().getStatus().isFinished()) {
+                    iterator.remove();
+                    evicted.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * 清理结束超过保留时间的任务（结果文件在OutputStore过期前仍可通过 /download 下载）
+     */
+    private void cleanupExpiredJobs() {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(retentionMinutes);
+        int removedCount = 0;
+        synchronized (jobs) {
+            Iterator<ConversionJob> iterator = jobs.values().iterator();
+            while (iterator.hasNext()) {
+                ConversionJob job = iterator.next();
+                if (job.getStatus().isFinished() && job.getFinishTime() < expireBefore) {
+                    iterator.remove();
+                    removedCount++;
+                }
+            }
+        }
+        if (removedCount > 0) {
+            System.out.println("[任务服务] 清理过期任务 " + removedCount + " 个");
+        }
+    }
+
+    /**
+     * 任务数量指标
+     */
+    public Map<String, Object> getMetrics() {
+        int stored;
+        int queued = 0;
+        int running = 0;
+        synchronized (jobs) {
+            stored = jobs.size();
+            for (ConversionJob job : jobs.values()) {
+                ConversionJob.Status status = job.getStatus();
+                if (status == ConversionJob.Status.QUEUED) {
+                    queued++;
+                } else if (status == ConversionJob.Status.RUNNING) {
+                    running++;
+                }
+            }
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("threads", virtualThreads ? "virtual" : threads);
+        metrics.put("stored", stored);
+        metrics.put("maxJobs", maxJobs);
+        metrics.put("queued", queued);
+        metrics.put("running", running);
+        metrics.put("submitted", submitted.get());
+        metrics.put("succeeded", succeeded.get());
+        metrics.put("failed", failed.get());
+        metrics.put("evicted", evicted.get());
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleanupExecutor.shutdownNow();
+        executor.shutdownNow();
+    }
+}
@@ -1,14 +1,20 @@
 package com.pdftool.service;
 
+import com.pdftool.office.ElasticOfficeManager;
+import com.pdftool.office.OfficeLane;
 import org.jodconverter.core.DocumentConverter;
 import org.jodconverter.core.document.DefaultDocumentFormatRegistry;
+import org.jodconverter.core.document.DocumentFamily;
 import org.jodconverter.core.document.DocumentFormat;
 import org.jodconverter.core.office.OfficeException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -16,11 +22,12 @@ import java.util.concurrent.atomic.AtomicInteger;
  * 高性能文档转换服务
  * 
  * 优化特性：
- * 1. 性能高：并发处理，支持多个任务同时转换
+ * 1. 性能高：并发处理，支持多个任务同时转换；按优先级调度（交互 > 快速预览 > 批量）
  * 2. 速度快：智能超时控制，快速失败机制
  * 3. 格式完整：使用优化的PDF导出选项，保留所有格式
  * 4. 监控完善：详细的性能日志和统计信息
  * 5. 容错健壮：自动重试，优雅降级
+ * 6. 大PPTX拆分为多段，在多个Impress进程上并行转换后拼接
  * 
  * @author PDFTool
  * @version 2.0
@@ -33,24 +40,58 @@ import java.util.concurrent.atomic.AtomicInteger;
 )
 public class OptimizedConversionService {
 
+    // Word走Writer通道，PPT走Impress通道，大PPT不会阻塞Word转换
     @Autowired
-    @Qualifier("optimizedDocumentConverter")
-    private DocumentConverter documentConverter;
+    @Qualifier("writerDocumentConverter")
+    private DocumentConverter writerDocumentConverter;
+
+    @Autowired
+    @Qualifier("impressDocumentConverter")
+    private DocumentConverter impressDocumentConverter;
+
+    // 拆分转换的段数不超过Impress通道的最大进程数
+    @Autowired
+    @Qualifier("impressOfficeManager")
+    private ElasticOfficeManager impressOfficeManager;
+
+    // 大PPTX拆分并行转换
+    @Value("${pdftool.ppt.chunked.enabled:true}")
+    private boolean chunkedEnabled;
+
+    // 幻灯片数达到该值才拆分
+    @Value("${pdftool.ppt.chunked.min-slides:40}")
+    private int chunkedMinSlides;
+
+    // 每段最少的幻灯片数
+    @Value("${pdftool.ppt.chunked.slides-per-chunk:20}")
+    private int slidesPerChunk;
 
     // 性能统计
+    private final AtomicInteger chunkedConversions = new AtomicInteger(0);
+    private final AtomicInteger chunkedFallbacks = new AtomicInteger(0);
     private final AtomicInteger totalConversions = new AtomicInteger(0);
     private final AtomicInteger successfulConversions = new AtomicInteger(0);
     private final AtomicInteger failedConversions = new AtomicInteger(0);
     private final ConcurrentHashMap<String, Long> conversionTimes = new ConcurrentHashMap<>();
 
-    // 线程池（用于超时控制）
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    // 有界优先级调度器（替代无界线程池，同时用于超时控制）
+    @Autowired
+    private ConversionScheduler conversionScheduler;
+
+    // 相同输入的转换结果直接复用，不经过Office进程池
+    @Autowired
+    private ConversionResultCache resultCache;
+
+    // 缓存键中的过滤器设置，与OptimizedJodConverterConfig中各通道的filterChain一致
+    private static final String WRITER_FILTERS = "none";
+    private static final String IMPRESS_FILTERS = "none";
 
     /**
      * Word转PDF（高性能版本）
      * 
      * 性能优化：
      * - 并发处理：支持多个转换同时进行
+     * - 结果缓存：相同文档直接返回上次的结果，不经过LibreOffice
      * - 超时控制：5分钟超时，防止卡死
      * - 自动重试：失败后自动重试1次
      * - 性能监控：详细的时间统计
@@ -61,36 +102,53 @@ public class OptimizedConversionService {
      * - 保留超链接、书签
      * - 高质量PDF输出（300 DPI）
      * 
-     * @param wordBytes Word文件字节数组（.doc或.docx）
-     * @return PDF文件字节数组
+     * @param wordFile Word文件（.doc或.docx，落盘的上传文件，LibreOffice直接按文件加载）
+     * @param sink PDF输出
      * @throws IOException IO错误
      * @throws OfficeException 转换错误
      * @throws TimeoutException 超时错误
      */
-    public byte[] convertWordToPdf(byte[] wordBytes) 
+    public void convertWordToPdf(File wordFile, OutputSink sink) 
+            throws IOException, OfficeException, TimeoutException {
+        convertWordToPdf(wordFile, ContentDigest.sha256(wordFile), sink, ConversionProfile.STANDARD);
+    }
+
+    /**
+     * Word转PDF（指定导出配置，按配置的优先级调度）
+     *
+     * @param wordSha256 文件内容的SHA-256（InputSpool.SpooledFile#getSha256），用于结果缓存键
+     */
+    public void convertWordToPdf(File wordFile, String wordSha256, OutputSink sink, ConversionProfile profile)
+            throws IOException, OfficeException, TimeoutException {
+        String cacheKey = ConversionResultCache.key(ConversionType.WORD_TO_PDF, profile.getKey(), WRITER_FILTERS, wordSha256);
+        if (resultCache.get(cacheKey, sink)) {
+            System.out.println("[Word转PDF] 命中结果缓存");
+            return;
+        }
+        File result = convertWordToPdfUncached(wordFile, sink, profile);
+        resultCache.put(cacheKey, result);
+    }
+
+    private File convertWordToPdfUncached(File wordFile, OutputSink sink, ConversionProfile profile)
             throws IOException, OfficeException, TimeoutException {
         
         int conversionId = totalConversions.incrementAndGet();
         long startTime = System.currentTimeMillis();
         
         System.out.println("========================================");
-        System.out.println("[转换 #" + conversionId + "] 开始Word转PDF");
-        System.out.println("输入大小: " + (wordBytes.length / 1024) + " KB");
+        System.out.println("[转换 #" + conversionId + "] 开始Word转PDF（" + profile.getDescription() + "配置）");
+        System.out.println("输入大小: " + (wordFile.length() / 1024) + " KB");
         System.out.println("========================================");
 
         try {
             // 检测Word格式
-            DocumentFormat inputFormat = detectWordFormat(wordBytes);
+            DocumentFormat inputFormat = ContentSniffer.inputFormat(wordFile, DocumentFamily.TEXT);
             System.out.println("[转换 #" + conversionId + "] 检测到格式: " + 
                              inputFormat.getName() + " (" + inputFormat.getExtension() + ")");
 
-            // 使用Future进行超时控制
-            Future<byte[]> future = executorService.submit(() -> {
-                return performConversion(wordBytes, inputFormat, conversionId);
-            });
-
-            // 等待结果（5分钟超时）
-            byte[] result = future.get(5, TimeUnit.MINUTES);
+            // 按配置的优先级调度，等待结果（5分钟超时）
+            File result = conversionScheduler.execute(OfficeLane.WRITER, profile.getPriority(), wordFile.length(),
+                    () -> performConversion(wordFile, inputFormat, sink, profile, conversionId), 5, TimeUnit.MINUTES);
 
             // 成功统计
             long duration = System.currentTimeMillis() - startTime;
@@ -100,9 +158,9 @@ public class OptimizedConversionService {
             System.out.println("========================================");
             System.out.println("[转换 #" + conversionId + "] 转换成功！");
             System.out.println("耗时: " + duration + " ms");
-            System.out.println("输出大小: " + (result.length / 1024) + " KB");
+            System.out.println("输出大小: " + (sink.getSize() / 1024) + " KB");
             System.out.println("压缩率: " + String.format("%.1f", 
-                (double) result.length / wordBytes.length * 100) + "%");
+                (double) sink.getSize() / Math.max(1, wordFile.length()) * 100) + "%");
             System.out.println("========================================");
             
             printStatistics();
@@ -120,7 +178,12 @@ public class OptimizedConversionService {
             
             throw new TimeoutException("Word转PDF超时（5分钟）");
 
-        } catch (InterruptedException | ExecutionException e) {
+        } catch (RejectedExecutionException e) {
+            // 队列已满，重试只会加重拥塞
+            failedConversions.incrementAndGet();
+            throw e;
+
+        } catch (IOException | OfficeException | RuntimeException e) {
             long duration = System.currentTimeMillis() - startTime;
             failedConversions.incrementAndGet();
             
@@ -133,7 +196,11 @@ public class OptimizedConversionService {
             // 自动重试一次
             System.out.println("[转换 #" + conversionId + "] 尝试重试...");
             try {
-                return performConversion(wordBytes, detectWordFormat(wordBytes), conversionId);
+                sink.reset();
+                return conversionScheduler.execute(OfficeLane.WRITER, profile.getPriority(), wordFile.length(),
+                        () -> performConversion(wordFile, ContentSniffer.inputFormat(wordFile, DocumentFamily.TEXT),
+                                sink, profile, conversionId),
+                        5, TimeUnit.MINUTES);
             } catch (Exception retryException) {
                 System.err.println("[转换 #" + conversionId + "] 重试失败: " + retryException.getMessage());
                 throw new OfficeException("Word转PDF失败: " + e.getMessage(), e);
@@ -142,50 +209,28 @@ public class OptimizedConversionService {
     }
 
     /**
-     * 执行实际的转换操作
+     * 执行实际的转换操作，返回写入完成的输出文件
      */
-    private byte[] performConversion(byte[] wordBytes, DocumentFormat inputFormat, int conversionId) 
+    private File performConversion(File wordFile, DocumentFormat inputFormat, OutputSink sink,
+                                   ConversionProfile profile, int conversionId)
             throws IOException, OfficeException {
         
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(wordBytes);
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
-            System.out.println("[转换 #" + conversionId + "] 调用LibreOffice进行转换...");
-            
-            long convertStartTime = System.currentTimeMillis();
-            
-            // 执行转换（使用优化的配置和过滤器）
-            documentConverter.convert(inputStream)
-                    .as(inputFormat)
-                    .to(outputStream)
-                    .as(DefaultDocumentFormatRegistry.PDF)
-                    .execute();
-            
-            long convertDuration = System.currentTimeMillis() - convertStartTime;
-            System.out.println("[转换 #" + conversionId + "] LibreOffice转换完成，耗时: " + 
-                             convertDuration + " ms");
-
-            return outputStream.toByteArray();
-        }
-    }
-
-    /**
-     * 检测Word文件格式
-     */
-    private DocumentFormat detectWordFormat(byte[] wordBytes) {
-        if (wordBytes.length < 4) {
-            return DefaultDocumentFormatRegistry.DOCX;
-        }
-
-        // .docx文件是ZIP格式，开头是 PK (0x50 0x4B)
-        // .doc文件是OLE2格式，开头是 0xD0 0xCF
-        if (wordBytes[0] == 0x50 && wordBytes[1] == 0x4B) {
-            return DefaultDocumentFormatRegistry.DOCX;
-        } else if ((wordBytes[0] & 0xFF) == 0xD0 && (wordBytes[1] & 0xFF) == 0xCF) {
-            return DefaultDocumentFormatRegistry.DOC;
-        }
+        System.out.println("[转换 #" + conversionId + "] 调用LibreOffice进行转换...");
+        
+        long convertStartTime = System.currentTimeMillis();
+        
+        // 执行转换（PDF导出选项来自导出配置的FilterData）
+        writerDocumentConverter.convert(wordFile)
+                .as(inputFormat)
+                .to(sink.getOutputStream())
+                .as(profile.getPdfFormat())
+                .execute();
+        
+        long convertDuration = System.currentTimeMillis() - convertStartTime;
+        System.out.println("[转换 #" + conversionId + "] LibreOffice转换完成，耗时: " + 
+                         convertDuration + " ms");
 
-        return DefaultDocumentFormatRegistry.DOCX;
+        return sink.finish();
     }
 
     /**
@@ -196,41 +241,52 @@ public class OptimizedConversionService {
      * - 对格式要求不高
      * - 需要极快速度
      * 
-     * 速度优化：
+     * 速度优化（预览配置，见ConversionProfile.PREVIEW）：
      * - 降低图片质量（JPEG 60%）
      * - 降低分辨率（150 DPI）
-     * - 禁用部分格式保留
+     * - 不导出书签、注释和表单
+     * - 以快速预览优先级调度
      * 
-     * @param wordBytes Word文件字节数组
-     * @return PDF文件字节数组
+     * @param wordFile Word文件（落盘的上传文件）
+     * @param wordSha256 文件内容的SHA-256（InputSpool.SpooledFile#getSha256），用于结果缓存键
+     * @param sink PDF输出
      */
-    public byte[] convertWordToPdfFast(byte[] wordBytes) 
-            throws IOException, OfficeException {
+    public void convertWordToPdfFast(File wordFile, String wordSha256, OutputSink sink) 
+            throws IOException, OfficeException, TimeoutException {
         
+        String cacheKey = ConversionResultCache.key(ConversionType.WORD_TO_PDF, ConversionProfile.PREVIEW.getKey(),
+                WRITER_FILTERS, wordSha256);
+        if (resultCache.get(cacheKey, sink)) {
+            System.out.println("[快速转换] 命中结果缓存");
+            return;
+        }
+
         System.out.println("[快速转换] 使用快速模式（牺牲质量换速度）");
         
+        File result = conversionScheduler.execute(OfficeLane.WRITER, ConversionProfile.PREVIEW.getPriority(), wordFile.length(),
+                () -> performFastConversion(wordFile, sink), 5, TimeUnit.MINUTES);
+        resultCache.put(cacheKey, result);
+    }
+
+    private File performFastConversion(File wordFile, OutputSink sink) throws IOException, OfficeException {
         long startTime = System.currentTimeMillis();
         
-        try (ByteArrayInputStream inputStream = new ByteArrayInputStream(wordBytes);
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-
-            DocumentFormat inputFormat = detectWordFormat(wordBytes);
-            
-            // 简单转换，不使用优化过滤器
-            documentConverter.convert(inputStream)
-                    .as(inputFormat)
-                    .to(outputStream)
-                    .as(DefaultDocumentFormatRegistry.PDF)
-                    .execute();
-            
-            long duration = System.currentTimeMillis() - startTime;
-            byte[] result = outputStream.toByteArray();
-            
-            System.out.println("[快速转换] 完成！耗时: " + duration + " ms, 大小: " + 
-                             (result.length / 1024) + " KB");
-            
-            return result;
-        }
+        DocumentFormat inputFormat = ContentSniffer.inputFormat(wordFile, DocumentFamily.TEXT);
+        
+        // 预览配置：低分辨率、高压缩
+        writerDocumentConverter.convert(wordFile)
+                .as(inputFormat)
+                .to(sink.getOutputStream())
+                .as(ConversionProfile.PREVIEW.getPdfFormat())
+                .execute();
+        
+        File result = sink.finish();
+        long duration = System.currentTimeMillis() - startTime;
+        
+        System.out.println("[快速转换] 完成！耗时: " + duration + " ms, 大小: " + 
+                         (sink.getSize() / 1024) + " KB");
+        
+        return result;
     }
 
     /**
@@ -238,10 +294,11 @@ public class OptimizedConversionService {
      * 
      * 性能优化：
      * - 并发处理：支持多个转换同时进行
+     * - 结果缓存：相同文档直接返回上次的结果，不经过LibreOffice
      * - 智能超时：根据文件大小动态调整（大文件更长超时）
-     * - 自动重试：失败后自动重试2次，指数退避
+     * - 自动重试：失败后自动重试2次，指数退避（超时不重试，超时任务的进程会被结束并重启）
      * - 性能监控：详细的分阶段时间统计
-     * - 内存优化：流式处理，避免内存溢出
+     * - 内存优化：LibreOffice直接加载落盘的上传文件，输入不进堆内存
      * - 预估时间：根据文件大小预估转换时间
      * 
      * 质量优化：
@@ -258,30 +315,92 @@ public class OptimizedConversionService {
      * - 减少I/O操作
      * - JVM预热优化
      * 
-     * @param pptBytes PPT文件字节数组（.ppt或.pptx）
-     * @return PDF文件字节数组
+     * @param pptFile PPT文件（.ppt或.pptx，落盘的上传文件）
+     * @param sink PDF输出
      * @throws IOException IO错误
      * @throws OfficeException 转换错误
      * @throws TimeoutException 超时错误
      */
-    public byte[] convertPptToPdf(byte[] pptBytes) 
+    public void convertPptToPdf(File pptFile, OutputSink sink) 
+            throws IOException, OfficeException, TimeoutException {
+        convertPptToPdf(pptFile, sink, ConversionProfile.STANDARD, ConversionPriority.INTERACTIVE);
+    }
+
+    /**
+     * PPT转PDF（指定导出配置和调度优先级）
+     */
+    public void convertPptToPdf(File pptFile, OutputSink sink, ConversionProfile profile, ConversionPriority priority)
+            throws IOException, OfficeException, TimeoutException {
+        convertPptToPdf(pptFile, ContentDigest.sha256(pptFile), sink, profile, null, priority);
+    }
+
+    /**
+     * PPT转PDF（只导出指定的幻灯片）
+     *
+     * @param pptSha256 文件内容的SHA-256（InputSpool.SpooledFile#getSha256），用于结果缓存键
+     * @param slides 幻灯片范围，null表示全部；指定范围时不拆分并行转换
+     */
+    public void convertPptToPdf(File pptFile, String pptSha256, OutputSink sink, ConversionProfile profile,
+                                PageRange slides, ConversionPriority priority)
+            throws IOException, OfficeException, TimeoutException {
+        String cacheKey = ConversionResultCache.key(ConversionType.PPT_TO_PDF, profile.getKey(slides), IMPRESS_FILTERS, pptSha256);
+        if (resultCache.get(cacheKey, sink)) {
+            System.out.println("[PPT转PDF] 命中结果缓存");
+            return;
+        }
+        File result = convertPptToPdfUncached(pptFile, sink, profile, slides, priority);
+        resultCache.put(cacheKey, result);
+    }
+
+    private File convertPptToPdfUncached(File pptFile, OutputSink sink, ConversionProfile profile,
+                                         PageRange slides, ConversionPriority priority)
             throws IOException, OfficeException, TimeoutException {
         
         int conversionId = totalConversions.incrementAndGet();
         long startTime = System.currentTimeMillis();
         
-        // 根据文件大小预估转换时间（经验值：1MB约需2秒）
-        int fileSizeMB = pptBytes.length / (1024 * 1024);
-        long estimatedTime = Math.max(10, fileSizeMB * 2); // 最少10秒
+        // 根据文件大小预估转换时间（初始经验值：1MB约需2秒，随实际耗时修正），同时用于短作业优先排序
+        long pptLength = pptFile.length();
+        // 按内容识别格式（.ppt / .pptx / .odp），扩展名来自客户端不一定可信
+        ContentSniffer.Format format = ContentSniffer.sniff(pptFile);
+        long estimatedTime = Math.max(10, conversionScheduler.estimateMillis(OfficeLane.IMPRESS, pptLength) / 1000); // 最少10秒
         long timeoutSeconds = Math.max(120, estimatedTime * 2); // 超时为预估时间的2倍，最少2分钟
         
         System.out.println("========================================");
         System.out.println("[转换 #" + conversionId + "] 开始PPT转PDF（超高性能版）");
-        System.out.println("输入大小: " + String.format("%.2f", pptBytes.length / 1024.0) + " KB");
+        System.out.println("输入大小: " + String.format("%.2f", pptLength / 1024.0) + " KB");
         System.out.println("预估时间: " + estimatedTime + " 秒");
         System.out.println("超时设置: " + timeoutSeconds + " 秒");
+        if (slides != null) {
+            System.out.println("幻灯片范围: " + slides);
+        }
         System.out.println("========================================");
 
+        // 大PPTX：拆分为多段在多个Impress进程上并行转换，出错时改为整体转换
+        // 只导出部分幻灯片时不拆分：导出量已经减少，拆分的额外开销不划算
+        int chunks = slides == null ? getChunkCount(pptFile, format) : 1;
+        if (chunks > 1) {
+            try {
+                File pdfFile = convertPptChunked(conversionId, pptFile, chunks, sink, profile, priority,
+                        timeoutSeconds);
+                long duration = System.currentTimeMillis() - startTime;
+                conversionTimes.put("ppt_" + conversionId, duration);
+                successfulConversions.incrementAndGet();
+                chunkedConversions.incrementAndGet();
+                System.out.println("[转换 #" + conversionId + "] 🎉 PPT转PDF成功（" + chunks + " 段并行）: " +
+                                 String.format("%.2f", sink.getSize() / 1024.0) + " KB, 总耗时 " + duration + " ms");
+                return pdfFile;
+            } catch (TimeoutException | RejectedExecutionException e) {
+                // 超时的各段已被中止，整体转换只会更慢；队列已满时同样不再重试
+                failedConversions.incrementAndGet();
+                throw e;
+            } catch (Exception e) {
+                chunkedFallbacks.incrementAndGet();
+                System.err.println("[转换 #" + conversionId + "] 拆分转换失败，改为整体转换: " + e.getMessage());
+                sink.reset();
+            }
+        }
+
         // 自动重试机制（最多3次）
         int maxRetries = 2;
         Exception lastException = null;
@@ -298,30 +417,34 @@ public class OptimizedConversionService {
             }
             
             try {
-                // 使用Future实现超时控制
-                Future<byte[]> future = executorService.submit(() -> {
+                if (attempt > 0) {
+                    // 丢弃上次失败时写入的部分输出
+                    sink.reset();
+                }
+                // 动态超时（超时后取消任务）
+                File pdfFile = conversionScheduler.execute(OfficeLane.IMPRESS, priority,
+                        pptLength, () -> {
                     long phaseStart;
                     
-                    try (ByteArrayInputStream inputStream = new ByteArrayInputStream(pptBytes);
-                         ByteArrayOutputStream outputStream = new ByteArrayOutputStream(pptBytes.length)) {
+                    try {
                         
                         long conversionStart = System.currentTimeMillis();
                         
                         // 阶段1：格式识别
                         phaseStart = System.currentTimeMillis();
-                        DocumentFormat inputFormat = DefaultDocumentFormatRegistry.getFormatByExtension("pptx");
-                        System.out.println("[转换 #" + conversionId + "] ✓ 格式识别完成: " + 
-                                         (System.currentTimeMillis() - phaseStart) + " ms");
+                        DocumentFormat inputFormat = ContentSniffer.inputFormat(format, DocumentFamily.PRESENTATION);
+                        System.out.println("[转换 #" + conversionId + "] ✓ 格式识别完成: " + inputFormat.getExtension() +
+                                         ", " + (System.currentTimeMillis() - phaseStart) + " ms");
                         
                         // 阶段2：PPT解析和转换
                         phaseStart = System.currentTimeMillis();
-                        System.out.println("[转换 #" + conversionId + "] ⏳ 开始转换（高质量模式）...");
+                        System.out.println("[转换 #" + conversionId + "] ⏳ 开始转换（" + profile.getDescription() + "配置）...");
                         
-                        // 执行转换（使用优化的DocumentConverter）
-                        documentConverter.convert(inputStream)
+                        // 执行转换（使用Impress通道的DocumentConverter）
+                        impressDocumentConverter.convert(pptFile)
                                 .as(inputFormat)
-                                .to(outputStream)
-                                .as(DefaultDocumentFormatRegistry.PDF)
+                                .to(sink.getOutputStream())
+                                .as(profile.getPdfFormat(slides))
                                 .execute();
                         
                         long conversionTime = System.currentTimeMillis() - phaseStart;
@@ -329,12 +452,12 @@ public class OptimizedConversionService {
                         
                         // 阶段3：输出处理
                         phaseStart = System.currentTimeMillis();
-                        byte[] result = outputStream.toByteArray();
+                        File result = sink.finish();
                         System.out.println("[转换 #" + conversionId + "] ✓ 输出处理完成: " + 
                                          (System.currentTimeMillis() - phaseStart) + " ms");
                         
                         // 计算压缩比
-                        double compressionRatio = (double) pptBytes.length / result.length;
+                        double compressionRatio = (double) pptLength / Math.max(1, sink.getSize());
                         System.out.println("[转换 #" + conversionId + "] 📊 压缩比: " + 
                                          String.format("%.2f", compressionRatio) + ":1");
                         
@@ -345,24 +468,21 @@ public class OptimizedConversionService {
                         e.printStackTrace();
                         throw new RuntimeException("PPT转PDF转换失败", e);
                     }
-                });
-                
-                // 等待转换完成（动态超时）
-                byte[] pdfBytes = future.get(timeoutSeconds, TimeUnit.SECONDS);
+                }, timeoutSeconds, TimeUnit.SECONDS);
                 
                 long duration = System.currentTimeMillis() - startTime;
                 conversionTimes.put("ppt_" + conversionId, duration);
                 successfulConversions.incrementAndGet();
                 
                 // 计算速度（KB/秒）
-                double speed = (pptBytes.length / 1024.0) / (duration / 1000.0);
+                double speed = (pptLength / 1024.0) / (duration / 1000.0);
                 
                 System.out.println("========================================");
                 System.out.println("[转换 #" + conversionId + "] 🎉 PPT转PDF成功！");
-                System.out.println("输出大小: " + String.format("%.2f", pdfBytes.length / 1024.0) + " KB");
+                System.out.println("输出大小: " + String.format("%.2f", sink.getSize() / 1024.0) + " KB");
                 System.out.println("总耗时: " + duration + " ms (" + String.format("%.2f", duration / 1000.0) + " 秒)");
                 System.out.println("转换速度: " + String.format("%.2f", speed) + " KB/秒");
-                System.out.println("质量: 高清300DPI，矢量图形，字体嵌入");
+                System.out.println("导出配置: " + profile.getDescription());
                 if (attempt > 0) {
                     System.out.println("重试次数: " + attempt);
                 }
@@ -373,14 +493,17 @@ public class OptimizedConversionService {
                     printStatistics();
                 }
                 
-                return pdfBytes;
+                return pdfFile;
                 
             } catch (TimeoutException e) {
                 lastException = e;
                 System.err.println("[转换 #" + conversionId + "] ⏱️ 转换超时（" + timeoutSeconds + "秒）");
-                if (attempt < maxRetries) {
-                    continue; // 重试
-                }
+                // 超时任务已被中止，同一文档再次提交大概率仍会超时，不重试
+                break;
+            } catch (RejectedExecutionException e) {
+                // 队列已满，不重试
+                failedConversions.incrementAndGet();
+                throw e;
             } catch (Exception e) {
                 lastException = e;
                 System.err.println("[转换 #" + conversionId + "] ❌ 转换失败: " + e.getMessage());
@@ -402,6 +525,76 @@ public class OptimizedConversionService {
         }
     }
 
+    /**
+     * 拆分的段数：只拆分幻灯片数达到阈值的PPTX（旧版.ppt不拆分），1表示不拆分
+     */
+    private int getChunkCount(File pptFile, ContentSniffer.Format format) throws IOException {
+        int maxChunks = impressOfficeManager.getMaxProcesses();
+        if (!chunkedEnabled || maxChunks < 2) {
+            return 1;
+        }
+        // 只有PPTX能按幻灯片拆分
+        if (format != ContentSniffer.Format.PPTX) {
+            return 1;
+        }
+        int slideCount = PresentationSlideSplitter.countSlides(pptFile);
+        if (slideCount < chunkedMinSlides) {
+            return 1;
+        }
+        return Math.max(1, Math.min(maxChunks, slideCount / Math.max(1, slidesPerChunk)));
+    }
+
+    /**
+     * 拆分转换：按幻灯片范围拆分为多个PPTX（见PresentationSlideSplitter），在Impress通道并行转换（共用一个超时），
+     * 再用PDFBox按顺序拼接，保持页面顺序和书签
+     */
+    private File convertPptChunked(int conversionId, File pptFile, int chunks, OutputSink sink,
+                                   ConversionProfile profile, ConversionPriority priority, long timeoutSeconds)
+            throws IOException, OfficeException, TimeoutException {
+        File directory = PartsDirectory.create("ppt-chunks-");
+        try {
+            long splitStart = System.currentTimeMillis();
+            List<File> parts = PresentationSlideSplitter.split(pptFile, chunks, directory);
+            long partsBytes = parts.stream().mapToLong(File::length).sum();
+            System.out.println("[转换 #" + conversionId + "] ✓ 拆分为 " + chunks + " 段: " +
+                             (System.currentTimeMillis() - splitStart) + " ms, 各段合计 " + (partsBytes / 1024) +
+                             " KB (原文件 " + (pptFile.length() / 1024) + " KB)");
+
+            // 各段都是PPTX
+            DocumentFormat inputFormat = DefaultDocumentFormatRegistry.PPTX;
+            List<Long> partSizes = new ArrayList<>();
+            List<Callable<File>> tasks = new ArrayList<>();
+            for (int i = 0; i < parts.size(); i++) {
+                File part = parts.get(i);
+                File partPdf = new File(directory, "part" + i + ".pdf");
+                partSizes.add(part.length());
+                tasks.add(() -> {
+                    impressDocumentConverter.convert(part)
+                            .as(inputFormat)
+                            .to(partPdf)
+                            .as(profile.getPdfFormat())
+                            .execute();
+                    return partPdf;
+                });
+            }
+            long convertStart = System.currentTimeMillis();
+            List<File> pdfParts = conversionScheduler.executeAll(OfficeLane.IMPRESS, priority, partSizes, tasks,
+                    timeoutSeconds, TimeUnit.SECONDS);
+            System.out.println("[转换 #" + conversionId + "] ✓ 并行转换完成: " +
+                             (System.currentTimeMillis() - convertStart) + " ms");
+
+            long mergeStart = System.currentTimeMillis();
+            PdfPartMerger.merge(pdfParts, sink.getOutputStream());
+            File result = sink.finish();
+            System.out.println("[转换 #" + conversionId + "] ✓ 拼接完成: " +
+                             (System.currentTimeMillis() - mergeStart) + " ms");
+            return result;
+        } finally {
+            // executeAll返回或抛出时各部分都已不再执行（失败和超时时已中止），可以删除
+            PartsDirectory.delete(directory);
+        }
+    }
+
     /**
      * 打印性能统计信息
      */
@@ -428,26 +621,13 @@ public class OptimizedConversionService {
      */
     public String getStatus() {
         return String.format(
-            "转换服务状态 - 总计:%d, 成功:%d, 失败:%d, 成功率:%.1f%%",
+            "转换服务状态 - 总计:%d, 成功:%d, 失败:%d, 成功率:%.1f%%, PPT拆分并行:%d, 拆分失败改整体:%d",
             totalConversions.get(),
             successfulConversions.get(),
             failedConversions.get(),
-            (double) successfulConversions.get() / Math.max(1, totalConversions.get()) * 100
+            (double) successfulConversions.get() / Math.max(1, totalConversions.get()) * 100,
+            chunkedConversions.get(),
+            chunkedFallbacks.get()
         );
     }
-
-    /**
-     * 清理资源
-     */
-    public void shutdown() {
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executorService.shutdownNow();
-        }
-    }
 }
-
@@ -0,0 +1,196 @@
+package com.pdftool.service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+
+/**
+ * 转换输出
+ *
+ * 转换服务把结果直接写入结果目录下的临时文件（.part），不再经过
+ * ByteArrayOutputStream -> toByteArray() -> FileOutputStream 在堆内存中复制三次：
+ * 1. 写入的同时计算大小和SHA-256，不需要再读一遍
+ * 2. commit()时改名为最终文件名，/download 不会读到写了一半的文件
+ * 3. 未提交就关闭时删除临时文件
+ *
+ * JodConverter（to(OutputStream)）、PDFBox（document.save）和POI（workbook.write）都写入getOutputStream()。
+ * 同一时间只由一个转换写入。
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+public final class OutputSink implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File target;
+    private final File partFile;
+
+    private CountingOutputStream out;
+    private MessageDigest digest;
+    private long size;
+    private String sha256;
+    private boolean finished;
+    private boolean committed;
+
+    /**
+     * @param target 提交后的结果文件
+     */
+    public OutputSink(File target) {
+        this.target = target;
+        this.partFile = new File(target.getParentFile(), target.getName() + ".part");
+    }
+
+    /**
+     * 输出流，写入方可以关闭它（JodConverter转换结束时会关闭）
+     */
+    public synchronized OutputStream getOutputStream() throws IOException {
+        if (finished) {
+            throw new IllegalStateException("输出已结束: " + target.getName());
+        }
+        if (out == null) {
+            open();
+        }
+        return out;
+    }
+
+    /**
+     * 写入已有的结果（缓存命中）
+     */
+    public void write(byte[] content) throws IOException {
+        getOutputStream().write(content);
+    }
+
+    /**
+     * 复制已有的结果文件（缓存命中、合并到相同文件的转换）
+     */
+    public void copyFrom(File file) throws IOException {
+        Files.copy(file.toPath(), getOutputStream());
+    }
+
+    /**
+     * 丢弃已写入的内容（重试前调用）
+     */
+    public synchronized void reset() throws IOException {
+        closeQuietly();
+        out = null;
+        finished = false;
+        sha256 = null;
+        size = 0;
+        Files.deleteIfExists(partFile.toPath());
+    }
+
+    /**
+     * 结束写入，返回内容完整的临时文件（用于写入结果缓存）；可重复调用
+     */
+    public synchronized File finish() throws IOException {
+        if (!finished) {
+            if (out == null) {
+                open();
+            }
+            out.close();
+            size = out.count;
+            sha256 = ContentDigest.toHex(digest.digest());
+            finished = true;
+        }
+        return partFile;
+    }
+
+    /**
+     * 提交：结束写入并改名为最终文件；可重复调用
+     */
+    public synchronized File commit() throws IOException {
+        if (!committed) {
+            finish();
+            Files.move(partFile.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+        return target;
+    }
+
+    public File getTarget() {
+        return target;
+    }
+
+    public synchronized boolean isCommitted() {
+        return committed;
+    }
+
+    /**
+     * 结果大小（字节），finish()之后有效
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * 结果的SHA-256（十六进制），finish()之后有效
+     */
+    public synchronized String getSha256() {
+        return sha256;
+    }
+
+    /**
+     * 未提交时删除临时文件
+     */
+    @Override
+    public synchronized void close() {
+        if (committed) {
+            return;
+        }
+        closeQuietly();
+        partFile.delete();
+    }
+
+    private void open() throws IOException {
+        digest = ContentDigest.newSha256();
+        File directory = partFile.getParentFile();
+        if (directory != null && !directory.exists()) {
+            directory.mkdirs();
+        }
+        out = new CountingOutputStream(new DigestOutputStream(
+                new BufferedOutputStream(new FileOutputStream(partFile), BUFFER_SIZE), digest));
+    }
+
+    private void closeQuietly() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // 丢弃的内容，忽略
+            }
+        }
+    }
+
+    /**
+     * 统计写入字节数；FilterOutputStream默认逐字节转发，这里按块转发
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
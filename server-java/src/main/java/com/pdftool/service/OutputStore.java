@@ -0,0 +1,394 @@
+package com.pdftool.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 转换结果存储
+ *
+ * 结果文件以前平铺在temp目录下且从不删除，这里统一管理：
+ * 1. 分目录：文件名为 <UUID>_<输出文件名>，按UUID前两位分到256个子目录，下载URL不变（/download/{filename}）
+ * 2. 过期：每个文件提交时记录过期时间（默认TTL），后台清理线程定期删除过期文件
+ * 3. 配额：总大小超过上限时按创建时间从旧到新淘汰（不淘汰刚登记的结果；本身超过上限的结果不登记，任务失败）
+ * 4. 可选下载一次后删除（完整下载后删除，断点续传的部分下载不算）
+ * 5. 启动时扫描目录重建索引（按修改时间），旧版本平铺在根目录的结果文件同样纳入管理
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+@Service
+public class OutputStore {
+
+    private static final String PART_SUFFIX = ".part";
+
+    @Value("${pdftool.output.dir:temp}")
+    private String outputDir;
+
+    // 结果文件保留时间（分钟）
+    @Value("${pdftool.output.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    // 结果文件总大小上限（MB），0表示不限制
+    @Value("${pdftool.output.max-mb:10240}")
+    private long maxMb;
+
+    // 完整下载一次后立即删除
+    @Value("${pdftool.output.delete-after-download:false}")
+    private boolean deleteAfterDownload;
+
+    // 后台清理间隔（秒）
+    @Value("${pdftool.output.janitor-interval-seconds:60}")
+    private long janitorIntervalSeconds;
+
+    private File root;
+
+    // 按创建时间排列（最旧的在前），读写都持有files锁
+    private final LinkedHashMap<String, StoredFile> files = new LinkedHashMap<>();
+    private long totalBytes;
+
+    private final AtomicLong stored = new AtomicLong(0);
+    private final AtomicLong expired = new AtomicLong(0);
+    private final AtomicLong evicted = new AtomicLong(0);
+    // 本身超过配额、没有登记的结果
+    private final AtomicLong rejected = new AtomicLong(0);
+    private final AtomicLong deletedAfterDownload = new AtomicLong(0);
+    private final AtomicLong janitorRuns = new AtomicLong(0);
+    private volatile long lastJanitorMillis;
+
+    private ScheduledExecutorService janitor;
+
+    @PostConstruct
+    public void init() {
+        root = new File(outputDir).getAbsoluteFile();
+        if (!root.exists()) {
+            root.mkdirs();
+        }
+        loadIndex();
+
+        janitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "output-janitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        janitor.scheduleWithFixedDelay(this::runJanitor, janitorIntervalSeconds, janitorIntervalSeconds, TimeUnit.SECONDS);
+
+        synchronized (files) {
+            System.out.println("[结果存储] " + root + ", 已有 " + files.size() + " 个文件 (" +
+                             totalBytes / 1024 / 1024 + " MB), 保留 " + ttlMinutes + " 分钟, 上限 " + maxMb + " MB" +
+                             (deleteAfterDownload ? ", 下载后删除" : ""));
+        }
+    }
+
+    /**
+     * 为新结果创建输出：文件名 <UUID>_<outputFilename>，提交后调用register()
+     */
+    public OutputSink newSink(String outputFilename) {
+        String filename = UUID.randomUUID().toString() + "_" + outputFilename;
+        return new OutputSink(new File(shardOf(filename), filename));
+    }
+
+    /**
+     * 登记已提交的结果，超出配额时淘汰最旧的文件（不淘汰本次登记的文件）
+     *
+     * @throws IOException 结果本身就超过配额：删除该文件，不登记
+     */
+    public StoredFile register(OutputSink sink) throws IOException {
+        File file = sink.getTarget();
+        long maxBytes = maxMb * 1024 * 1024;
+        if (maxBytes > 0 && sink.getSize() > maxBytes) {
+            file.delete();
+            rejected.incrementAndGet();
+            throw new IOException("转换结果 " + sink.getSize() / 1024 / 1024 + " MB 超过结果存储上限 " + maxMb + " MB");
+        }
+        long now = System.currentTimeMillis();
+        StoredFile storedFile = new StoredFile(file.getName(), file, sink.getSize(), sink.getSha256(),
+                now, now + TimeUnit.MINUTES.toMillis(ttlMinutes));
+        synchronized (files) {
+            StoredFile previous = files.put(storedFile.filename, storedFile);
+            totalBytes += storedFile.size - (previous != null ? previous.size : 0);
+        }
+        stored.incrementAndGet();
+        enforceQuota(storedFile);
+        return storedFile;
+    }
+
+    /**
+     * 为合并到同一转换的任务保留已提交结果的副本（硬链接，文件系统不支持时复制），在register之前调用
+     *
+     * 副本不登记，不受过期、配额和下载后删除影响；用完后由调用方删除，进程退出时遗留的副本按.part文件清理
+     */
+    public File snapshot(File result) throws IOException {
+        Path copy = new File(result.getParentFile(), result.getName() + ".shared" + PART_SUFFIX).toPath();
+        try {
+            Files.createLink(copy, result.toPath());
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(result.toPath(), copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return copy.toFile();
+    }
+
+    /**
+     * 按文件名查询结果，不存在、已过期或文件已被删除时返回null
+     */
+    public StoredFile get(String filename) {
+        StoredFile storedFile;
+        synchronized (files) {
+            storedFile = files.get(filename);
+        }
+        if (storedFile == null) {
+            return null;
+        }
+        if (storedFile.expiresAt <= System.currentTimeMillis()) {
+            if (remove(storedFile)) {
+                expired.incrementAndGet();
+            }
+            return null;
+        }
+        if (!storedFile.file.isFile()) {
+            remove(storedFile);
+            return null;
+        }
+        return storedFile;
+    }
+
+    /**
+     * 完整下载了一次（由FileDownloadService在发送完成后调用）
+     */
+    public void downloaded(StoredFile storedFile) {
+        storedFile.downloads.incrementAndGet();
+        if (deleteAfterDownload && remove(storedFile)) {
+            deletedAfterDownload.incrementAndGet();
+        }
+    }
+
+    /**
+     * 完整下载后是否删除；此时下载不能交给sendfile（连接器在请求结束后才读取文件）
+     */
+    public boolean isDeleteAfterDownload() {
+        return deleteAfterDownload;
+    }
+
+    private boolean remove(StoredFile storedFile) {
+        synchronized (files) {
+            if (!files.remove(storedFile.filename, storedFile)) {
+                return false;
+            }
+            totalBytes -= storedFile.size;
+        }
+        storedFile.file.delete();
+        return true;
+    }
+
+    /**
+     * 总大小超过上限时从最旧的文件开始删除
+     *
+     * @param keep 不淘汰的文件（刚登记、即将返回给任务的结果），可为null
+     */
+    private void enforceQuota(StoredFile keep) {
+        long maxBytes = maxMb * 1024 * 1024;
+        if (maxBytes <= 0) {
+            return;
+        }
+        List<StoredFile> victims = new ArrayList<>();
+        synchronized (files) {
+            Iterator<StoredFile> iterator = files.values().iterator();
+            while (totalBytes > maxBytes && iterator.hasNext()) {
+                StoredFile oldest = iterator.next();
+                if (oldest == keep) {
+                    continue;
+                }
+                iterator.remove();
+                totalBytes -= oldest.size;
+                victims.add(oldest);
+            }
+        }
+        for (StoredFile victim : victims) {
+            victim.file.delete();
+            evicted.incrementAndGet();
+        }
+    }
+
+    /**
+     * 后台清理：删除过期文件、执行配额、删除遗留的未提交文件（.part）
+     */
+    private void runJanitor() {
+        long startTime = System.currentTimeMillis();
+        try {
+            List<StoredFile> expiredFiles = new ArrayList<>();
+            synchronized (files) {
+                for (StoredFile storedFile : files.values()) {
+                    if (storedFile.expiresAt <= startTime) {
+                        expiredFiles.add(storedFile);
+                    }
+                }
+            }
+            int removedCount = 0;
+            for (StoredFile storedFile : expiredFiles) {
+                if (remove(storedFile)) {
+                    expired.incrementAndGet();
+                    removedCount++;
+                }
+            }
+            enforceQuota(null);
+
+            // 转换进程被杀等情况下留下的.part文件，超过保留时间后删除
+            long partExpireBefore = startTime - TimeUnit.MINUTES.toMillis(ttlMinutes);
+            for (File file : listFiles()) {
+                if (file.getName().endsWith(PART_SUFFIX) && file.lastModified() < partExpireBefore) {
+                    file.delete();
+                }
+            }
+
+            if (removedCount > 0) {
+                System.out.println("[结果存储] 清理过期文件 " + removedCount + " 个");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("[结果存储] 清理失败: " + e.getMessage());
+        } finally {
+            janitorRuns.incrementAndGet();
+            lastJanitorMillis = System.currentTimeMillis() - startTime;
+        }
+    }
+
+    /**
+     * 启动时按修改时间重建索引（SHA-256未知，下载时使用弱ETag）
+     */
+    private void loadIndex() {
+        List<File> existing = listFiles().stream()
+                .filter(file -> !file.getName().endsWith(PART_SUFFIX))
+                .sorted(Comparator.comparingLong(File::lastModified))
+                .collect(Collectors.toList());
+        long ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        for (File file : existing) {
+            StoredFile storedFile = new StoredFile(file.getName(), file, file.length(), null,
+                    file.lastModified(), file.lastModified() + ttlMillis);
+            files.put(storedFile.filename, storedFile);
+            totalBytes += storedFile.size;
+        }
+    }
+
+    /**
+     * 根目录（旧版本平铺的结果）和两位十六进制分片目录下的文件；其他子目录（如spool）不属于结果存储
+     */
+    private List<File> listFiles() {
+        List<File> result = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(root.toPath(), 2)) {
+            paths.filter(Files::isRegularFile)
+                 .filter(path -> {
+                     Path parent = path.getParent();
+                     return parent.equals(root.toPath()) || parent.getFileName().toString().matches("[0-9a-f]{2}");
+                 })
+                 .forEach(path -> result.add(path.toFile()));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[结果存储] 扫描目录失败: " + e.getMessage());
+        }
+        return result;
+    }
+
+    private File shardOf(String filename) {
+        return Paths.get(root.getPath(), filename.substring(0, 2).toLowerCase()).toFile();
+    }
+
+    /**
+     * 文件数、占用空间和清理统计
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        synchronized (files) {
+            metrics.put("files", files.size());
+            metrics.put("sizeMb", totalBytes / 1024 / 1024);
+        }
+        metrics.put("maxMb", maxMb);
+        metrics.put("ttlMinutes", ttlMinutes);
+        metrics.put("stored", stored.get());
+        metrics.put("expired", expired.get());
+        metrics.put("evicted", evicted.get());
+        metrics.put("rejected", rejected.get());
+        metrics.put("deletedAfterDownload", deletedAfterDownload.get());
+        metrics.put("janitorRuns", janitorRuns.get());
+        metrics.put("lastJanitorMs", lastJanitorMillis);
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (janitor != null) {
+            janitor.shutdownNow();
+        }
+    }
+
+    /**
+     * 存储中的结果文件
+     */
+    public static final class StoredFile {
+
+        private final String filename;
+        private final File file;
+        private final long size;
+        private final String sha256;
+        private final long createdTime;
+        private final long expiresAt;
+        private final AtomicLong downloads = new AtomicLong(0);
+
+        private StoredFile(String filename, File file, long size, String sha256, long createdTime, long expiresAt) {
+            this.filename = filename;
+            this.file = file;
+            this.size = size;
+            this.sha256 = sha256;
+            this.createdTime = createdTime;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * 对外的文件名（/download/{filename}）
+         */
+        public String getFilename() {
+            return filename;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * 内容的SHA-256，启动时从磁盘恢复的文件为null
+         */
+        public String getSha256() {
+            return sha256;
+        }
+
+        public long getCreatedTime() {
+            return createdTime;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
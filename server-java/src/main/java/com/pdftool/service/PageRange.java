@@ -0,0 +1,113 @@
+package com.pdftool.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 导出的页码范围（pages / slides 请求参数）
+ *
+ * 格式与LibreOffice PDF导出的PageRange相同：页码从1开始，逗号分隔单页或区间，如 "1-3,5,8-10"。
+ * 解析时排序并合并重叠和相邻的区间（"3,1-2" 和 "1-3" 是同一个范围），规范化后的文本用于FilterData和缓存键，
+ * 同一范围的不同写法能命中同一个缓存结果。
+ * 超出文档页数的部分由LibreOffice忽略。
+ */
+public final class PageRange {
+
+    // 页码上限和区间数上限，防止超长参数
+    private static final int MAX_PAGE = 100000;
+    private static final int MAX_INTERVALS = 64;
+
+    private final String value;
+    private final int pageCount;
+
+    private PageRange(String value, int pageCount) {
+        this.value = value;
+        this.pageCount = pageCount;
+    }
+
+    /**
+     * 解析页码范围，参数为空返回null（导出全部页）
+     *
+     * @throws IllegalArgumentException 格式错误或页码超出范围
+     */
+    public static PageRange parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return null;
+        }
+        // 保留末尾的空段（"1,"、","），和中间的空段一样按格式错误处理
+        String[] parts = text.split(",", -1);
+        if (parts.length > MAX_INTERVALS) {
+            throw new IllegalArgumentException("页码范围最多 " + MAX_INTERVALS + " 段");
+        }
+        List<int[]> intervals = new ArrayList<>();
+        for (String part : parts) {
+            String token = part.trim();
+            int dash = token.indexOf('-');
+            int from = parsePage(dash < 0 ? token : token.substring(0, dash), text);
+            int to = dash < 0 ? from : parsePage(token.substring(dash + 1), text);
+            if (from > to) {
+                throw new IllegalArgumentException("页码范围无效: " + token);
+            }
+            intervals.add(new int[]{from, to});
+        }
+
+        intervals.sort((a, b) -> Integer.compare(a[0], b[0]));
+        StringBuilder normalized = new StringBuilder();
+        int pageCount = 0;
+        int[] current = null;
+        for (int[] interval : intervals) {
+            if (current != null && interval[0] <= current[1] + 1) {
+                current[1] = Math.max(current[1], interval[1]);
+                continue;
+            }
+            if (current != null) {
+                pageCount += append(normalized, current);
+            }
+            current = interval;
+        }
+        pageCount += append(normalized, current);
+        return new PageRange(normalized.toString(), pageCount);
+    }
+
+    private static int parsePage(String text, String range) {
+        String page = text.trim();
+        if (page.isEmpty() || page.length() > 6 || !page.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            throw new IllegalArgumentException("页码范围格式错误: " + range + "（示例: 1-3,5）");
+        }
+        int number = Integer.parseInt(page);
+        if (number < 1 || number > MAX_PAGE) {
+            throw new IllegalArgumentException("页码超出范围: " + number);
+        }
+        return number;
+    }
+
+    private static int append(StringBuilder normalized, int[] interval) {
+        if (normalized.length() > 0) {
+            normalized.append(',');
+        }
+        normalized.append(interval[0]);
+        if (interval[1] > interval[0]) {
+            normalized.append('-').append(interval[1]);
+        }
+        return interval[1] - interval[0] + 1;
+    }
+
+    /**
+     * 规范化后的范围，如 "1-3,5"
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * 范围包含的页数（可能大于文档实际页数）
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
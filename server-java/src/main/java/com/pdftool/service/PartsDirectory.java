@@ -0,0 +1,35 @@
+package com.pdftool.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * 拆分转换的临时目录：存放拆分出的各部分文件和各部分的PDF，拼接（见PdfPartMerger）后整个删除
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+public final class PartsDirectory {
+
+    private PartsDirectory() {
+    }
+
+    public static File create(String prefix) throws IOException {
+        return Files.createTempDirectory(prefix).toFile();
+    }
+
+    /**
+     * 删除目录及其中的文件，失败时只记录日志
+     */
+    public static void delete(File directory) {
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("删除临时目录失败: " + directory + " - " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.pdftool.service;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * 拼接拆分转换的各部分PDF
+ *
+ * 大文档拆分后在多个Office进程上并行转换，这里按顺序拼接为一个PDF：
+ * 页面顺序与各部分顺序一致，各部分的书签（大纲）依次追加到结果中。
+ * 合并过程使用临时文件而不是堆内存，内存占用与文档大小无关。
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+public final class PdfPartMerger {
+
+    private PdfPartMerger() {
+    }
+
+    /**
+     * 按顺序合并各部分PDF，写入out（不关闭out）
+     */
+    public static void merge(List<File> parts, OutputStream out) throws IOException {
+        PDFMergerUtility merger = new PDFMergerUtility();
+        for (File part : parts) {
+            merger.addSource(part);
+        }
+        merger.setDestinationStream(out);
+        merger.mergeDocuments(MemoryUsageSetting.setupTempFileOnly());
+    }
+}
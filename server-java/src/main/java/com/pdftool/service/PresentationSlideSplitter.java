@@ -0,0 +1,375 @@
+package com.pdftool.service;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+
+/**
+ * 按幻灯片范围拆分PPTX
+ *
+ * 直接在ZIP和关系（.rels）层面拆分，不用POI加载演示文稿：
+ * 1. presentation.xml 和各部分的关系只解析一次，每段只改写 presentation.xml（幻灯片列表、起始编号）及其关系
+ * 2. 每段只保留从包的根关系可达的部分：范围以外的幻灯片、只被它们引用的图片、音视频、备注页和图表都不写入，
+ *    各段文件大小与本段内容成正比（调度时按段文件大小预估耗时）
+ * 3. 保留的条目直接复制压缩后的原始数据，不解压、不重新压缩
+ *
+ * 母版、版式和主题被所有幻灯片共用，每段都保留。
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+public final class PresentationSlideSplitter {
+
+    private static final String PRESENTATION_NS = "http://schemas.openxmlformats.org/presentationml/2006/main";
+    private static final String RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String OFFICE_RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String CONTENT_TYPES_NS = "http://schemas.openxmlformats.org/package/2006/content-types";
+    private static final String CONTENT_TYPES_ENTRY = "[Content_Types].xml";
+    private static final String ROOT_RELS_ENTRY = "_rels/.rels";
+    private static final String OFFICE_DOCUMENT_TYPE = OFFICE_RELATIONSHIPS_NS + "/officeDocument";
+
+    private PresentationSlideSplitter() {
+    }
+
+    /**
+     * 幻灯片数（presentation.xml 中的幻灯片列表），不是PPTX时返回0
+     */
+    public static int countSlides(File pptFile) {
+        try (ZipFile zipFile = new ZipFile(pptFile)) {
+            return new PackageParts(zipFile).slideRelIds.size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 按幻灯片顺序平均分为parts段，每段写入directory下的一个PPTX文件
+     *
+     * @return 各段文件，顺序与幻灯片顺序一致
+     */
+    public static List<File> split(File pptFile, int parts, File directory) throws IOException {
+        List<File> files = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(pptFile)) {
+            PackageParts pkg = new PackageParts(zipFile);
+            pkg.readRelationships(zipFile);
+            int slideCount = pkg.slideRelIds.size();
+            if (slideCount < parts) {
+                throw new IOException("幻灯片数 " + slideCount + " 少于拆分段数 " + parts);
+            }
+            for (int part = 0; part < parts; part++) {
+                int from = slideCount * part / parts;
+                int to = slideCount * (part + 1) / parts;
+                Set<String> removedRelIds = new HashSet<>(pkg.slideRelIds.subList(0, from));
+                removedRelIds.addAll(pkg.slideRelIds.subList(to, slideCount));
+
+                File file = new File(directory, "part" + part + ".pptx");
+                writePart(zipFile, pkg, removedRelIds, from, file);
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 写出一段：只保留可达的部分，改写 presentation.xml、其关系和 [Content_Types].xml
+     */
+    private static void writePart(ZipFile zipFile, PackageParts pkg, Set<String> removedRelIds, int from, File file)
+            throws IOException {
+        Set<String> reachable = pkg.reachableParts(removedRelIds);
+
+        Document presentation = (Document) pkg.presentation.cloneNode(true);
+        Element slideIdList = firstChild(presentation.getDocumentElement(), PRESENTATION_NS, "sldIdLst");
+        for (Element slideId : children(slideIdList, PRESENTATION_NS, "sldId")) {
+            if (removedRelIds.contains(slideId.getAttributeNS(OFFICE_RELATIONSHIPS_NS, "id"))) {
+                slideIdList.removeChild(slideId);
+            }
+        }
+        // 自定义放映引用了被删除的幻灯片，导出PDF时用不到，整个去掉
+        Element customShows = firstChild(presentation.getDocumentElement(), PRESENTATION_NS, "custShowLst");
+        if (customShows != null) {
+            customShows.getParentNode().removeChild(customShows);
+        }
+        // 幻灯片编号字段从本段第一张幻灯片在原文档中的序号开始
+        Element root = presentation.getDocumentElement();
+        int firstSlideNum = root.hasAttribute("firstSlideNum") ? Integer.parseInt(root.getAttribute("firstSlideNum")) : 1;
+        root.setAttribute("firstSlideNum", String.valueOf(firstSlideNum + from));
+
+        Document presentationRels = (Document) pkg.presentationRels.cloneNode(true);
+        for (Element relationship : children(presentationRels.getDocumentElement(), RELATIONSHIPS_NS, "Relationship")) {
+            if (removedRelIds.contains(relationship.getAttribute("Id"))) {
+                relationship.getParentNode().removeChild(relationship);
+            }
+        }
+
+        Document contentTypes = (Document) pkg.contentTypes.cloneNode(true);
+        for (Element override : children(contentTypes.getDocumentElement(), CONTENT_TYPES_NS, "Override")) {
+            String partName = override.getAttribute("PartName");
+            if (partName.startsWith("/") && !reachable.contains(normalize(partName.substring(1)))) {
+                override.getParentNode().removeChild(override);
+            }
+        }
+
+        Map<String, byte[]> rewritten = new HashMap<>();
+        rewritten.put(normalize(CONTENT_TYPES_ENTRY), toBytes(contentTypes));
+        rewritten.put(normalize(pkg.presentationPart), toBytes(presentation));
+        rewritten.put(normalize(relsPartOf(pkg.presentationPart)), toBytes(presentationRels));
+
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+            Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                String name = normalize(entry.getName());
+                if (entry.isDirectory() || !(reachable.contains(name) || rewritten.containsKey(name))) {
+                    continue;
+                }
+                byte[] content = rewritten.get(name);
+                if (content != null) {
+                    ZipArchiveEntry copy = new ZipArchiveEntry(entry.getName());
+                    copy.setMethod(ZipEntry.DEFLATED);
+                    out.putArchiveEntry(copy);
+                    out.write(content);
+                    out.closeArchiveEntry();
+                } else {
+                    try (InputStream in = zipFile.getRawInputStream(entry)) {
+                        out.addRawArchiveEntry(entry, in);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 拆分需要的包结构：presentation.xml 及其关系、幻灯片顺序、各部分的内部关系
+     */
+    private static final class PackageParts {
+
+        // 条目名（小写，不带开头的"/"） -> 条目
+        private final Map<String, ZipArchiveEntry> entries = new HashMap<>();
+        // 部分名 -> 该部分的内部关系（关系Id -> 目标部分名），部分名""表示包的根
+        private final Map<String, Map<String, String>> relationships = new HashMap<>();
+        private final String presentationPart;
+        private final Document presentation;
+        private final Document presentationRels;
+        private final Document contentTypes;
+        // 按放映顺序的幻灯片关系Id
+        private final List<String> slideRelIds = new ArrayList<>();
+
+        /**
+         * 只读取根关系、presentation.xml 及其关系和 [Content_Types].xml
+         */
+        private PackageParts(ZipFile zipFile) throws IOException {
+            for (Enumeration<ZipArchiveEntry> e = zipFile.getEntries(); e.hasMoreElements(); ) {
+                ZipArchiveEntry entry = e.nextElement();
+                entries.put(normalize(entry.getName()), entry);
+            }
+
+            Document rootRels = readXml(zipFile, entries.get(normalize(ROOT_RELS_ENTRY)), ROOT_RELS_ENTRY);
+            String mainPart = null;
+            for (Element relationship : children(rootRels.getDocumentElement(), RELATIONSHIPS_NS, "Relationship")) {
+                if (OFFICE_DOCUMENT_TYPE.equals(relationship.getAttribute("Type"))) {
+                    mainPart = resolve("", relationship.getAttribute("Target"));
+                }
+            }
+            if (mainPart == null || !entries.containsKey(mainPart)) {
+                throw new IOException("不是PPTX演示文稿: 找不到主文档");
+            }
+            presentationPart = entries.get(mainPart).getName();
+            presentation = readXml(zipFile, entries.get(mainPart), presentationPart);
+            String relsPart = relsPartOf(presentationPart);
+            presentationRels = readXml(zipFile, entries.get(normalize(relsPart)), relsPart);
+            contentTypes = readXml(zipFile, entries.get(normalize(CONTENT_TYPES_ENTRY)), CONTENT_TYPES_ENTRY);
+
+            Element slideIdList = firstChild(presentation.getDocumentElement(), PRESENTATION_NS, "sldIdLst");
+            for (Element slideId : children(slideIdList, PRESENTATION_NS, "sldId")) {
+                slideRelIds.add(slideId.getAttributeNS(OFFICE_RELATIONSHIPS_NS, "id"));
+            }
+        }
+
+        /**
+         * 读取所有部分的关系（拆分前调用一次，各段共用）
+         */
+        private void readRelationships(ZipFile zipFile) throws IOException {
+            for (Map.Entry<String, ZipArchiveEntry> entry : entries.entrySet()) {
+                if (entry.getKey().endsWith(".rels")) {
+                    relationships.put(sourcePartOf(entry.getKey()),
+                            PresentationSlideSplitter.readRelationships(zipFile, entry.getValue(), entry.getKey()));
+                }
+            }
+        }
+
+        /**
+         * 从根关系出发可达的部分（含各部分的关系文件），不经过 presentation.xml 中被删除的幻灯片关系
+         */
+        private Set<String> reachableParts(Set<String> removedRelIds) {
+            String presentationName = normalize(presentationPart);
+            Set<String> reachable = new HashSet<>();
+            Deque<String> queue = new ArrayDeque<>();
+            queue.add("");
+            while (!queue.isEmpty()) {
+                String part = queue.poll();
+                Map<String, String> targets = relationships.getOrDefault(part, Collections.emptyMap());
+                if (!targets.isEmpty()) {
+                    reachable.add(normalize(relsPartOf(part)));
+                }
+                for (Map.Entry<String, String> target : targets.entrySet()) {
+                    if (part.equals(presentationName) && removedRelIds.contains(target.getKey())) {
+                        continue;
+                    }
+                    if (reachable.add(target.getValue())) {
+                        queue.add(target.getValue());
+                    }
+                }
+            }
+            return reachable;
+        }
+    }
+
+    private static Map<String, String> readRelationships(ZipFile zipFile, ZipArchiveEntry entry, String relsPart)
+            throws IOException {
+        Document rels = readXml(zipFile, entry, entry.getName());
+        String source = sourcePartOf(relsPart);
+        String baseDirectory = source.contains("/") ? source.substring(0, source.lastIndexOf('/') + 1) : "";
+        Map<String, String> targets = new HashMap<>();
+        for (Element relationship : children(rels.getDocumentElement(), RELATIONSHIPS_NS, "Relationship")) {
+            if (!"External".equals(relationship.getAttribute("TargetMode"))) {
+                targets.put(relationship.getAttribute("Id"), resolve(baseDirectory, relationship.getAttribute("Target")));
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * 关系目标转为部分名：相对于源部分所在目录，"/"开头时相对于包的根
+     */
+    private static String resolve(String baseDirectory, String target) {
+        String path = target;
+        int fragment = path.indexOf('#');
+        if (fragment >= 0) {
+            path = path.substring(0, fragment);
+        }
+        try {
+            // 目标是URI，部分名中的非ASCII字符和空格以%编码
+            path = new URI(path).getPath();
+        } catch (URISyntaxException e) {
+            // 不规范的目标（如含未编码的空格）按原样使用
+        }
+        Deque<String> segments = new ArrayDeque<>();
+        String full = path.startsWith("/") ? path.substring(1) : baseDirectory + path;
+        for (String segment : full.split("/")) {
+            if (segment.isEmpty() || ".".equals(segment)) {
+                continue;
+            }
+            if ("..".equals(segment)) {
+                segments.pollLast();
+            } else {
+                segments.addLast(segment);
+            }
+        }
+        return normalize(String.join("/", segments));
+    }
+
+    /**
+     * "ppt/_rels/presentation.xml.rels" -> "ppt/presentation.xml"，"_rels/.rels" -> ""（包的根）
+     */
+    private static String sourcePartOf(String relsPart) {
+        int relsDirectory = relsPart.lastIndexOf("_rels/");
+        String name = relsPart.substring(relsDirectory + "_rels/".length(), relsPart.length() - ".rels".length());
+        return normalize(relsPart.substring(0, relsDirectory) + name);
+    }
+
+    private static String relsPartOf(String part) {
+        int slash = part.lastIndexOf('/');
+        return part.substring(0, slash + 1) + "_rels/" + part.substring(slash + 1) + ".rels";
+    }
+
+    // 部分名不区分大小写
+    private static String normalize(String name) {
+        return (name.startsWith("/") ? name.substring(1) : name).toLowerCase(Locale.ROOT);
+    }
+
+    private static Element firstChild(Element parent, String namespace, String localName) {
+        List<Element> elements = children(parent, namespace, localName);
+        return elements.isEmpty() ? null : elements.get(0);
+    }
+
+    private static List<Element> children(Element parent, String namespace, String localName) {
+        List<Element> elements = new ArrayList<>();
+        if (parent == null) {
+            return elements;
+        }
+        NodeList nodes = parent.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (node instanceof Element && namespace.equals(node.getNamespaceURI())
+                    && localName.equals(node.getLocalName())) {
+                elements.add((Element) node);
+            }
+        }
+        return elements;
+    }
+
+    private static Document readXml(ZipFile zipFile, ZipArchiveEntry entry, String name) throws IOException {
+        if (entry == null) {
+            throw new IOException("不是PPTX演示文稿: 缺少 " + name);
+        }
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            // 上传的文件不可信：禁止DTD和外部实体
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            return factory.newDocumentBuilder().parse(in);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("解析 " + name + " 失败: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] toBytes(Document document) throws IOException {
+        try {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+            document.setXmlStandalone(true);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            transformer.transform(new DOMSource(document), new StreamResult(out));
+            return out.toByteArray();
+        } catch (TransformerException e) {
+            throw new IOException("写入XML失败: " + e.getMessage(), e);
+        }
+    }
+}
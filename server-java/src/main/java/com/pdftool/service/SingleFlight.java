@@ -0,0 +1,146 @@
+package com.pdftool.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 相同转换合并执行（single-flight）
+ *
+ * 客户端重试或多个用户同时上传同一文件时，只有第一个请求真正执行转换，
+ * 其余请求加入正在进行的转换并共享其结果（或异常），转换结束后立即移除，不做缓存。
+ * 结果通常是执行的请求为加入的请求保留的结果文件副本（见JobService），加入的请求复制该副本，都复制完后删除。
+ *
+ * 键 = SHA-256(转换类型 + 选项 + 各输入文件内容的SHA-256)，由调用方在提交任务时计算；
+ * 内容摘要由落盘的上传文件计算一次，结果缓存键也由它派生。
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+@Service
+public class SingleFlight {
+
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong executed = new AtomicLong(0);
+    private final AtomicLong coalesced = new AtomicLong(0);
+
+    /**
+     * 计算合并键（输入为落盘的文件，由各文件内容的SHA-256派生，见InputSpool.SpooledFile#getSha256）
+     *
+     * @param options     影响输出的选项（如 standard / fast）
+     * @param inputSha256 各输入文件内容的SHA-256，多个文件时按顺序
+     */
+    public static String key(ConversionType type, String options, String... inputSha256) {
+        return ContentDigest.sha256(type.getKey(), options, String.join(",", inputSha256));
+    }
+
+    /**
+     * 执行转换；相同键的转换正在进行时等待，并用useShared处理其结果
+     *
+     * 结果被所有请求用完后（执行的请求完成转换、每个加入的请求的useShared返回）调用release，
+     * 用于删除只为加入的请求保留的结果副本。加入和移除键在同一个键上原子进行，移除后不会再有请求加入。
+     *
+     * @param useShared 加入的请求使用结果（如复制结果文件）
+     * @param onJoin    加入已有转换时回调（可为null）
+     * @param release   结果不再被使用时调用（可为null），转换失败或结果为null时不调用
+     * @return true表示本请求执行了转换，false表示加入了已有的转换
+     */
+    @SuppressWarnings("unchecked")
+    public <T> boolean execute(String key, Callable<T> work, SharedResultUse<T> useShared, Runnable onJoin,
+                               Consumer<T> release) throws Exception {
+        Flight created = new Flight();
+        Flight flight = inFlight.compute(key, (k, existing) -> {
+            if (existing == null) {
+                return created;
+            }
+            existing.users.incrementAndGet();
+            return existing;
+        });
+
+        if (flight != created) {
+            coalesced.incrementAndGet();
+            if (onJoin != null) {
+                onJoin.run();
+            }
+            try {
+                useShared.use((T) flight.result.get());
+                return false;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw (Error) cause;
+            } finally {
+                flight.release((Consumer<Object>) release);
+            }
+        }
+
+        executed.incrementAndGet();
+        try {
+            flight.result.complete(work.call());
+            return true;
+        } catch (Throwable e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+            flight.release((Consumer<Object>) release);
+        }
+    }
+
+    /**
+     * 实际执行和被合并的转换数
+     */
+    public Map<String, Object> getMetrics() {
+        long executedCount = executed.get();
+        long coalescedCount = coalesced.get();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("inFlight", inFlight.size());
+        metrics.put("executed", executedCount);
+        metrics.put("coalesced", coalescedCount);
+        long total = executedCount + coalescedCount;
+        metrics.put("coalescedRate", total == 0 ? 0 : Math.round(coalescedCount * 1000.0 / total) / 10.0);
+        return metrics;
+    }
+
+    /**
+     * 加入的请求使用共享的结果
+     */
+    @FunctionalInterface
+    public interface SharedResultUse<T> {
+        void use(T result) throws Exception;
+    }
+
+    /**
+     * 正在进行的转换：结果和使用者数（执行的请求 + 加入的请求）
+     */
+    private static final class Flight {
+
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private final AtomicInteger users = new AtomicInteger(1);
+
+        private void release(Consumer<Object> release) {
+            if (users.decrementAndGet() > 0 || release == null) {
+                return;
+            }
+            // 最后一个使用者释放时结果一定已完成（执行的请求完成后、加入的请求取得结果后才释放）
+            if (result.isCompletedExceptionally()) {
+                return;
+            }
+            Object value = result.getNow(null);
+            if (value != null) {
+                release.accept(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.pdftool.service;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+
+/**
+ * 按工作表拆分XLSX工作簿
+ *
+ * 每个部分是原工作簿的完整副本，只把本部分以外的可见工作表设为隐藏（LibreOffice导出PDF时跳过隐藏的工作表）：
+ * 1. 不删除工作表，跨工作表的公式、名称和图表数据源都不受影响
+ * 2. 只改写 xl/workbook.xml，其余条目原样复制，不用POI加载整个工作簿（大工作簿的XSSF对象模型占用数GB堆内存）
+ * 3. 其余条目直接复制压缩后的原始数据（不解压、不重新压缩），各部分文件大小与原文件接近
+ *
+ * 页眉页脚中的页码字段（&P 页码、&N 总页数）在整体导出时跨工作表连续编号，拆分后每个部分从1开始、
+ * 总页数只算本部分，拼接结果与整体导出不同，使用这些字段的工作簿不拆分（见usesPageNumberFields）。
+ *
+ * 注意：隐藏的工作表仍会被LibreOffice完整加载，每个部分的加载耗时与整个工作簿相同，
+ * 拆分只把排版和PDF导出分摊到多个进程。因此只有导出占主要耗时的工作簿（页数多、图表多）才值得拆分，
+ * 调度时每个部分也按完整工作簿的大小预估耗时。
+ *
+ * 只支持XLSX/XLSM（ZIP格式），.xls和.xlsb不拆分。
+ *
+ * @author PDFTool
+ * @version 1.0
+ */
+public final class WorkbookSheetSplitter {
+
+    private static final String SPREADSHEET_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String WORKBOOK_ENTRY = "xl/workbook.xml";
+
+    // 工作表和图表工作表的XML，页眉页脚在其中的headerFooter元素里
+    private static final String[] SHEET_DIRECTORIES = {"xl/worksheets/", "xl/chartsheets/"};
+    private static final byte[] HEADER_FOOTER = "headerFooter".getBytes(StandardCharsets.US_ASCII);
+    // headerFooter元素最多检查的字符数
+    private static final int MAX_HEADER_FOOTER_CHARS = 64 * 1024;
+    // XML中转义的 &P / &N（页码、总页数；&P+1 之类的偏移同样以 &P 开头）
+    private static final Pattern PAGE_NUMBER_FIELD = Pattern.compile("&(?:amp|#38|#x26);[PN]", Pattern.CASE_INSENSITIVE);
+
+    private WorkbookSheetSplitter() {
+    }
+
+    /**
+     * 可见工作表数，不是XLSX时返回0
+     */
+    public static int countVisibleSheets(File excelFile) {
+        try (ZipFile zipFile = new ZipFile(excelFile)) {
+            ZipArchiveEntry workbookEntry = zipFile.getEntry(WORKBOOK_ENTRY);
+            if (workbookEntry == null) {
+                return 0;
+            }
+            return getVisibleSheets(readWorkbook(zipFile, workbookEntry)).size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * 是否有工作表的页眉页脚使用页码字段（&P、&N），无法读取时按使用处理（不拆分）
+     *
+     * 工作表XML可能有数百MB，按字节扫描headerFooter元素，不解析整个文档
+     */
+    public static boolean usesPageNumberFields(File excelFile) {
+        try (ZipFile zipFile = new ZipFile(excelFile)) {
+            Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                if (isSheetEntry(entry.getName())) {
+                    try (InputStream in = zipFile.getInputStream(entry)) {
+                        if (hasPageNumberField(in)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private static boolean isSheetEntry(String name) {
+        for (String directory : SHEET_DIRECTORIES) {
+            if (name.startsWith(directory) && name.endsWith(".xml") && name.indexOf('/', directory.length()) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 查找 headerFooter 元素（开始标签到结束标签之间），检查其中的页码字段
+     */
+    private static boolean hasPageNumberField(InputStream in) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        int matched = 0;
+        // headerFooter元素的内容，null表示不在该元素中
+        StringBuilder section = null;
+        boolean inStartTag = false;
+        int count;
+        while ((count = in.read(buffer)) > 0) {
+            for (int i = 0; i < count; i++) {
+                byte b = buffer[i];
+                if (section != null) {
+                    if (inStartTag && b == '>') {
+                        inStartTag = false;
+                        if (section.length() > 0 && section.charAt(section.length() - 1) == '/') {
+                            // 自闭合的 <headerFooter/>
+                            section = null;
+                            continue;
+                        }
+                    }
+                    section.append((char) (b & 0xFF));
+                }
+                matched = b == HEADER_FOOTER[matched] ? matched + 1 : (b == HEADER_FOOTER[0] ? 1 : 0);
+                if (matched == HEADER_FOOTER.length) {
+                    matched = 0;
+                    if (section == null) {
+                        section = new StringBuilder();
+                        inStartTag = true;
+                    } else if (PAGE_NUMBER_FIELD.matcher(section).find()) {
+                        // 到达结束标签
+                        return true;
+                    } else {
+                        section = null;
+                    }
+                } else if (section != null && section.length() > MAX_HEADER_FOOTER_CHARS) {
+                    if (PAGE_NUMBER_FIELD.matcher(section).find()) {
+                        return true;
+                    }
+                    section = null;
+                }
+            }
+        }
+        return section != null && PAGE_NUMBER_FIELD.matcher(section).find();
+    }
+
+    /**
+     * 按可见工作表的顺序平均分为parts个部分，每部分写入directory下的一个XLSX文件
+     *
+     * @return 各部分文件，顺序与工作表顺序一致
+     */
+    public static List<File> split(File excelFile, int parts, File directory) throws IOException {
+        List<File> files = new ArrayList<>();
+        try (ZipFile zipFile = new ZipFile(excelFile)) {
+            ZipArchiveEntry workbookEntry = zipFile.getEntry(WORKBOOK_ENTRY);
+            if (workbookEntry == null) {
+                throw new IOException("不是XLSX工作簿: 缺少 " + WORKBOOK_ENTRY);
+            }
+            for (int part = 0; part < parts; part++) {
+                Document workbook = readWorkbook(zipFile, workbookEntry);
+                List<Element> visibleSheets = getVisibleSheets(workbook);
+                int from = visibleSheets.size() * part / parts;
+                int to = visibleSheets.size() * (part + 1) / parts;
+                for (int i = 0; i < visibleSheets.size(); i++) {
+                    if (i < from || i >= to) {
+                        visibleSheets.get(i).setAttribute("state", "hidden");
+                    }
+                }
+                // 打开时的当前工作表必须可见：设为本部分的第一张
+                NodeList allSheets = workbook.getElementsByTagNameNS(SPREADSHEET_NS, "sheet");
+                int activeTab = 0;
+                for (int i = 0; i < allSheets.getLength(); i++) {
+                    if (allSheets.item(i) == visibleSheets.get(from)) {
+                        activeTab = i;
+                    }
+                }
+                NodeList views = workbook.getElementsByTagNameNS(SPREADSHEET_NS, "workbookView");
+                for (int i = 0; i < views.getLength(); i++) {
+                    Element view = (Element) views.item(i);
+                    view.setAttribute("activeTab", String.valueOf(activeTab));
+                    if (view.hasAttribute("firstSheet")) {
+                        view.setAttribute("firstSheet", String.valueOf(activeTab));
+                    }
+                }
+
+                File file = new File(directory, "part" + part + ".xlsx");
+                writePart(zipFile, toBytes(workbook), file);
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private static List<Element> getVisibleSheets(Document workbook) {
+        List<Element> visibleSheets = new ArrayList<>();
+        NodeList sheets = workbook.getElementsByTagNameNS(SPREADSHEET_NS, "sheet");
+        for (int i = 0; i < sheets.getLength(); i++) {
+            Element sheet = (Element) sheets.item(i);
+            String state = sheet.getAttribute("state");
+            // 没有state属性表示可见；hidden和veryHidden都不导出
+            if (state.isEmpty() || "visible".equals(state)) {
+                visibleSheets.add(sheet);
+            }
+        }
+        return visibleSheets;
+    }
+
+    /**
+     * 复制工作簿，替换 xl/workbook.xml
+     *
+     * java.util.zip只能解压后重新写入：STORED时每个部分都是未压缩的完整副本（7MB的工作簿拆4部分写出约480MB），
+     * 重新压缩又要数秒；这里用commons-compress（POI的依赖）原样复制压缩数据
+     */
+    private static void writePart(ZipFile zipFile, byte[] workbookXml, File file) throws IOException {
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+            Enumeration<ZipArchiveEntry> entries = zipFile.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                if (WORKBOOK_ENTRY.equals(entry.getName())) {
+                    ZipArchiveEntry copy = new ZipArchiveEntry(WORKBOOK_ENTRY);
+                    copy.setMethod(ZipEntry.DEFLATED);
+                    out.putArchiveEntry(copy);
+                    out.write(workbookXml);
+                    out.closeArchiveEntry();
+                } else {
+                    try (InputStream in = zipFile.getRawInputStream(entry)) {
+                        out.addRawArchiveEntry(entry, in);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Document readWorkbook(ZipFile zipFile, ZipArchiveEntry workbookEntry) throws IOException {
+        try (InputStream in = zipFile.getInputStream(workbookEntry)) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            // 上传的文件不可信：禁止DTD和外部实体
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            return factory.newDocumentBuilder().parse(in);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("解析 " + WORKBOOK_ENTRY + " 失败: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] toBytes(Document document) throws IOException {
+        try {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+            document.setXmlStandalone(true);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            transformer.transform(new DOMSource(document), new StreamResult(out));
+            return out.toByteArray();
+        } catch (TransformerException e) {
+            throw new IOException("写入 " + WORKBOOK_ENTRY + " 失败: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.pdftool.service;
+
+import org.jodconverter.core.document.DefaultDocumentFormatRegistry;
+import org.jodconverter.core.document.DocumentFamily;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * ContentSniffer：魔数、OLE2目录、ZIP条目和CSV文本的识别，以及截断和损坏的文件头
+ */
+class ContentSnifferTest {
+
+    private static final String WORD_MAIN =
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document.main+xml";
+    private static final String EXCEL_MAIN =
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml";
+    private static final String EXCEL_MACRO_MAIN = "application/vnd.ms-excel.sheet.macroEnabled.main+xml";
+    private static final String POWERPOINT_MAIN =
+            "application/vnd.openxmlformats-officedocument.presentationml.presentation.main+xml";
+
+    @TempDir
+    Path tempDir;
+
+    // ---------------- 魔数 ----------------
+
+    @Test
+    void sniffsMagicNumbers() {
+        assertEquals(ContentSniffer.Format.PDF, ContentSniffer.sniff(ascii("%PDF-1.7\n%âã\n")));
+        assertEquals(ContentSniffer.Format.PNG,
+                ContentSniffer.sniff(bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 13)));
+        assertEquals(ContentSniffer.Format.JPEG, ContentSniffer.sniff(bytes(0xFF, 0xD8, 0xFF, 0xE0, 0, 16)));
+        assertEquals(ContentSniffer.Format.GIF, ContentSniffer.sniff(ascii("GIF89a\u0001\u0000")));
+        assertEquals(ContentSniffer.Format.GIF, ContentSniffer.sniff(ascii("GIF87a\u0001\u0000")));
+        assertEquals(ContentSniffer.Format.TIFF, ContentSniffer.sniff(bytes('I', 'I', 0x2A, 0x00, 8, 0, 0, 0)));
+        assertEquals(ContentSniffer.Format.TIFF, ContentSniffer.sniff(bytes('M', 'M', 0x00, 0x2A, 0, 0, 0, 8)));
+        assertEquals(ContentSniffer.Format.WEBP, ContentSniffer.sniff(ascii("RIFF$\u0000\u0000\u0000WEBPVP8 ")));
+        assertEquals(ContentSniffer.Format.BMP, ContentSniffer.sniff(bmpHeader(40)));
+        assertEquals(ContentSniffer.Format.RTF, ContentSniffer.sniff(ascii("{\\rtf1\\ansi Hello}")));
+    }
+
+    @Test
+    void sniffsRtfAfterUtf8Bom() {
+        byte[] rtf = concat(bytes(0xEF, 0xBB, 0xBF), ascii("{\\rtf1\\ansi Hello}"));
+        assertEquals(ContentSniffer.Format.RTF, ContentSniffer.sniff(rtf));
+    }
+
+    @Test
+    void rejectsTruncatedMagicNumbers() {
+        assertNull(ContentSniffer.sniff(new byte[0]));
+        assertNull(ContentSniffer.sniff(ascii("%PD")));
+        assertNull(ContentSniffer.sniff(bytes(0x89, 'P', 'N', 'G')));
+        assertNull(ContentSniffer.sniff(bytes(0xFF, 0xD8)));
+        assertNull(ContentSniffer.sniff(ascii("RIFF$\u0000\u0000\u0000WEB")));
+        assertNull(ContentSniffer.sniff(Arrays.copyOf(bmpHeader(40), 17)));
+    }
+
+    @Test
+    void rejectsMalformedHeaders() {
+        // RIFF但不是WebP（如WAV）
+        assertNull(ContentSniffer.sniff(ascii("RIFF$\u0000\u0000\u0000WAVEfmt ")));
+        // BM开头但信息头长度不合法
+        assertNull(ContentSniffer.sniff(bmpHeader(41)));
+        byte[] binary = new byte[256];
+        new Random(1).nextBytes(binary);
+        binary[0] = 0x01;
+        assertNull(ContentSniffer.sniff(binary));
+    }
+
+    // ---------------- CSV ----------------
+
+    @Test
+    void sniffsCsvWithConsistentDelimiters() {
+        assertEquals(ContentSniffer.Format.CSV, ContentSniffer.sniff(utf8("name,age,city\nAlice,30,\"Paris, FR\"\nBob,25,Berlin\n")));
+        assertEquals(ContentSniffer.Format.CSV, ContentSniffer.sniff(utf8("名称;数量\r\n苹果;3\r\n梨;5\r\n")));
+        assertEquals(ContentSniffer.Format.CSV, ContentSniffer.sniff(utf8("a\tb\n1\t2\n3\t4\n")));
+    }
+
+    @Test
+    void ignoresTruncatedLastCsvLine() {
+        assertEquals(ContentSniffer.Format.CSV, ContentSniffer.sniff(utf8("a,b,c\n1,2,3\n4,5")));
+    }
+
+    @Test
+    void rejectsTextThatIsNotCsv() {
+        assertNull(ContentSniffer.sniff(utf8("a,b,c\n")));
+        assertNull(ContentSniffer.sniff(utf8("a,b\n1\n2,3,4\n")));
+        assertNull(ContentSniffer.sniff(utf8("just some text\nwithout delimiters\n")));
+        assertNull(ContentSniffer.sniff(utf8("a,b\n1,2\u0000\n3,4\n")));
+    }
+
+    // ---------------- OLE2 ----------------
+
+    @Test
+    void sniffsOle2DocumentsByStreamName() {
+        assertEquals(ContentSniffer.Format.DOC, ContentSniffer.sniff(ole2("WordDocument", 0, 2)));
+        assertEquals(ContentSniffer.Format.XLS, ContentSniffer.sniff(ole2("Workbook", 0, 2)));
+        assertEquals(ContentSniffer.Format.XLS, ContentSniffer.sniff(ole2("Book", 0, 2)));
+        assertEquals(ContentSniffer.Format.PPT, ContentSniffer.sniff(ole2("PowerPoint Document", 0, 2)));
+        assertEquals(ContentSniffer.Format.OLE2, ContentSniffer.sniff(ole2("EncryptedPackage", 0, 2)));
+    }
+
+    @Test
+    void fallsBackToOle2ForTruncatedOrMalformedHeaders() {
+        assertEquals(ContentSniffer.Format.OLE2, ContentSniffer.sniff(Arrays.copyOf(ole2("WordDocument", 0, 2), 100)));
+        // 目录扇区不完整
+        assertEquals(ContentSniffer.Format.OLE2, ContentSniffer.sniff(Arrays.copyOf(ole2("WordDocument", 0, 2), 700)));
+        byte[] badShift = ole2("WordDocument", 0, 2);
+        badShift[30] = 7;
+        assertEquals(ContentSniffer.Format.OLE2, ContentSniffer.sniff(badShift));
+    }
+
+    @Test
+    void readsOle2DirectoryBeyondHeaderFromFile() throws IOException {
+        // 目录位于第20个扇区（偏移10752），不在开头8KB内
+        byte[] document = ole2("Workbook", 20, 22);
+        assertEquals(ContentSniffer.Format.OLE2, ContentSniffer.sniff(Arrays.copyOf(document, ContentSniffer.HEADER_BYTES)));
+        assertEquals(ContentSniffer.Format.XLS, ContentSniffer.sniff(write("book.xls", document)));
+        // 文件在目录扇区之前结束
+        assertEquals(ContentSniffer.Format.OLE2, ContentSniffer.sniff(write("short.xls", Arrays.copyOf(document, 10000))));
+    }
+
+    // ---------------- ZIP ----------------
+
+    @Test
+    void sniffsOpenDocumentByMimetypeEntry() throws IOException {
+        assertEquals(ContentSniffer.Format.ODT, ContentSniffer.sniff(odf("application/vnd.oasis.opendocument.text")));
+        assertEquals(ContentSniffer.Format.ODS, ContentSniffer.sniff(odf("application/vnd.oasis.opendocument.spreadsheet")));
+        assertEquals(ContentSniffer.Format.ODP, ContentSniffer.sniff(odf("application/vnd.oasis.opendocument.presentation")));
+    }
+
+    @Test
+    void sniffsOfficeOpenXmlByContentTypes() throws IOException {
+        assertEquals(ContentSniffer.Format.DOCX, ContentSniffer.sniff(ooxml(WORD_MAIN, "word/document.xml")));
+        assertEquals(ContentSniffer.Format.XLSX, ContentSniffer.sniff(ooxml(EXCEL_MAIN, "xl/workbook.xml")));
+        assertEquals(ContentSniffer.Format.XLSM, ContentSniffer.sniff(ooxml(EXCEL_MACRO_MAIN, "xl/workbook.xml")));
+        assertEquals(ContentSniffer.Format.PPTX, ContentSniffer.sniff(ooxml(POWERPOINT_MAIN, "ppt/presentation.xml")));
+    }
+
+    @Test
+    void returnsZipForTruncatedOfficeOpenXmlHeader() throws IOException {
+        byte[] docx = ooxml(WORD_MAIN, "word/document.xml");
+        // 截断在[Content_Types].xml的文件名中和压缩数据开头
+        assertEquals(ContentSniffer.Format.ZIP, ContentSniffer.sniff(Arrays.copyOf(docx, 40)));
+        assertEquals(ContentSniffer.Format.ZIP, ContentSniffer.sniff(Arrays.copyOf(docx, 30 + 19 + 8)));
+        assertEquals(ContentSniffer.Format.ZIP, ContentSniffer.sniff(Arrays.copyOf(docx, 4)));
+    }
+
+    @Test
+    void guessesFromEntryNamesWithoutContentTypes() throws IOException {
+        byte[] zip = zip(new String[]{"word/document.xml", "<w:document/>"});
+        assertEquals(ContentSniffer.Format.DOCX, ContentSniffer.sniff(zip));
+        assertEquals(ContentSniffer.Format.DOCX, ContentSniffer.sniff(write("noTypes.docx", zip)));
+        assertEquals(ContentSniffer.Format.ZIP, ContentSniffer.sniff(zip(new String[]{"readme.txt", "hello"})));
+    }
+
+    @Test
+    void readsCentralDirectoryWhenContentTypesIsNotAtStart() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            byte[] padding = new byte[ContentSniffer.HEADER_BYTES * 2];
+            new Random(2).nextBytes(padding);
+            putStored(zip, "docProps/thumbnail.bin", padding);
+            putDeflated(zip, "[Content_Types].xml", contentTypes(EXCEL_MAIN, "xl/workbook.xml"));
+            putDeflated(zip, "xl/workbook.xml", utf8("<workbook/>"));
+        }
+        byte[] xlsx = out.toByteArray();
+        assertEquals(ContentSniffer.Format.ZIP, ContentSniffer.sniff(Arrays.copyOf(xlsx, ContentSniffer.HEADER_BYTES)));
+        assertEquals(ContentSniffer.Format.XLSX, ContentSniffer.sniff(write("late.xlsx", xlsx)));
+    }
+
+    @Test
+    void returnsZipForCorruptArchiveFile() throws IOException {
+        byte[] docx = ooxml(WORD_MAIN, "word/document.xml");
+        // 只有本地文件头没有中央目录，且开头的条目不完整
+        File file = write("corrupt.docx", Arrays.copyOf(docx, 40));
+        assertEquals(ContentSniffer.Format.ZIP, ContentSniffer.sniff(file));
+    }
+
+    @Test
+    void sniffsEmptyFileAsUnknown() throws IOException {
+        assertNull(ContentSniffer.sniff(write("empty.bin", new byte[0])));
+    }
+
+    // ---------------- 输入格式 ----------------
+
+    @Test
+    void choosesInputFormat() {
+        assertEquals(DefaultDocumentFormatRegistry.DOC,
+                ContentSniffer.inputFormat(ContentSniffer.Format.DOC, DocumentFamily.SPREADSHEET));
+        assertEquals(DefaultDocumentFormatRegistry.XLS,
+                ContentSniffer.inputFormat(ContentSniffer.Format.OLE2, DocumentFamily.SPREADSHEET));
+        assertEquals(DefaultDocumentFormatRegistry.PPTX,
+                ContentSniffer.inputFormat((ContentSniffer.Format) null, DocumentFamily.PRESENTATION));
+        assertEquals(DefaultDocumentFormatRegistry.DOCX,
+                ContentSniffer.inputFormat(ContentSniffer.Format.PDF, DocumentFamily.TEXT));
+    }
+
+    // ---------------- 样本 ----------------
+
+    private File write(String name, byte[] content) throws IOException {
+        return Files.write(tempDir.resolve(name), content).toFile();
+    }
+
+    private static byte[] bmpHeader(int infoHeaderSize) {
+        byte[] header = new byte[54];
+        header[0] = 'B';
+        header[1] = 'M';
+        header[14] = (byte) infoHeaderSize;
+        return header;
+    }
+
+    /**
+     * 512字节扇区的最小OLE2文件：目录位于directorySector，第二个目录条目为streamName
+     */
+    private static byte[] ole2(String streamName, int directorySector, int sectorCount) {
+        byte[] data = new byte[512 * (sectorCount + 1)];
+        System.arraycopy(bytes(0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1), 0, data, 0, 8);
+        data[30] = 9;
+        writeInt(data, 48, directorySector);
+        int directory = 512 * (directorySector + 1);
+        writeEntry(data, directory, "Root Entry");
+        writeEntry(data, directory + 128, streamName);
+        return data;
+    }
+
+    private static void writeEntry(byte[] data, int offset, String name) {
+        byte[] encoded = name.getBytes(StandardCharsets.UTF_16LE);
+        System.arraycopy(encoded, 0, data, offset, encoded.length);
+        data[offset + 64] = (byte) (encoded.length + 2);
+    }
+
+    private static void writeInt(byte[] data, int offset, int value) {
+        for (int i = 0; i < 4; i++) {
+            data[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    private static byte[] odf(String mimeType) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            putStored(zip, "mimetype", ascii(mimeType));
+            putDeflated(zip, "content.xml", utf8("<office:document-content/>"));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] ooxml(String mainContentType, String mainPart) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            putDeflated(zip, "[Content_Types].xml", contentTypes(mainContentType, mainPart));
+            putDeflated(zip, mainPart, utf8("<root/>"));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] contentTypes(String mainContentType, String mainPart) {
+        return utf8("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/" + mainPart + "\" ContentType=\"" + mainContentType + "\"/>"
+                + "</Types>");
+    }
+
+    private static byte[] zip(String[]... entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (String[] entry : entries) {
+                putDeflated(zip, entry[0], utf8(entry[1]));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 不压缩、大小写在本地文件头中的条目（ODF的mimetype）
+     */
+    private static void putStored(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    /**
+     * 压缩条目（ZipOutputStream流式写入，大小在数据描述符中）
+     */
+    private static void putDeflated(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] result = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (byte) values[i];
+        }
+        return result;
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,160 @@
+package com.pdftool.service;
+
+import com.pdftool.office.OfficeLane;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ConversionScheduler：排队任务的执行顺序
+ *
+ * 通道只有一个线程，先用一个任务占住线程，其余任务在队列中按虚拟截止时间排序；
+ * 时钟由测试控制，截止时间 = 入队时间 + 优先级偏移（0 / 2s / 30s）+ min(预估耗时, 上限)，
+ * 空文件的预估耗时是固定开销500ms，Excel每MB另加1500ms
+ */
+class ConversionSchedulerTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+    private final List<Future<?>> futures = new ArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ConversionScheduler scheduler;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        scheduler = scheduler(20_000L);
+        blockLane();
+    }
+
+    private void blockLane() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        futures.add(scheduler.submit(OfficeLane.CALC, ConversionPriority.INTERACTIVE, 0, () -> {
+            started.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+    }
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void runsHigherPriorityFirst() throws Exception {
+        submit("bulk", ConversionPriority.BULK, 0);
+        submit("fast-preview", ConversionPriority.FAST_PREVIEW, 0);
+        submit("interactive", ConversionPriority.INTERACTIVE, 0);
+
+        assertEquals(Arrays.asList("interactive", "fast-preview", "bulk"), runAll());
+    }
+
+    @Test
+    void agesLowPriorityAheadOfLaterArrivals() throws Exception {
+        submit("bulk", ConversionPriority.BULK, 0);
+        now.addAndGet(29_999);
+        submit("interactive-before", ConversionPriority.INTERACTIVE, 0);
+        now.addAndGet(2);
+        submit("interactive-after", ConversionPriority.INTERACTIVE, 0);
+
+        assertEquals(Arrays.asList("interactive-before", "bulk", "interactive-after"), runAll());
+    }
+
+    @Test
+    void runsShorterJobFirstWithinPriority() throws Exception {
+        submit("large", ConversionPriority.INTERACTIVE, 10 * MB);
+        submit("medium", ConversionPriority.INTERACTIVE, 2 * MB);
+        submit("small", ConversionPriority.INTERACTIVE, 0);
+
+        assertEquals(Arrays.asList("small", "medium", "large"), runAll());
+    }
+
+    @Test
+    void capsHowLongLargeJobWaits() throws Exception {
+        // 100MB预估150秒，只被推后上限5秒：5秒减去小文件的500ms之后到达的小文件都排在它后面
+        restart(5_000L);
+
+        submit("huge", ConversionPriority.INTERACTIVE, 100 * MB);
+        now.addAndGet(4_499);
+        submit("small-before", ConversionPriority.INTERACTIVE, 0);
+        now.addAndGet(2);
+        submit("small-after", ConversionPriority.INTERACTIVE, 0);
+        now.addAndGet(60_000);
+        submit("small-much-later", ConversionPriority.INTERACTIVE, 0);
+
+        assertEquals(Arrays.asList("small-before", "huge", "small-after", "small-much-later"), runAll());
+    }
+
+    @Test
+    void ignoresSizeWhenShortestJobFirstIsDisabled() throws Exception {
+        restart(0L);
+
+        submit("large", ConversionPriority.INTERACTIVE, 10 * MB);
+        submit("small", ConversionPriority.INTERACTIVE, 0);
+
+        assertEquals(Arrays.asList("large", "small"), runAll());
+    }
+
+    @Test
+    void breaksTiesInSubmissionOrder() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            submit("task" + i, ConversionPriority.FAST_PREVIEW, MB);
+        }
+        // 批量任务老化后的截止时间与30秒后到达的交互任务相同，先提交的先执行
+        submit("bulk", ConversionPriority.BULK, 0);
+        now.addAndGet(30_000);
+        submit("interactive", ConversionPriority.INTERACTIVE, 0);
+
+        assertEquals(Arrays.asList("task1", "task2", "task3", "task4", "task5", "bulk", "interactive"), runAll());
+    }
+
+    private void restart(long sjfMaxDelayMillis) throws InterruptedException {
+        scheduler.shutdown();
+        futures.clear();
+        scheduler = scheduler(sjfMaxDelayMillis);
+        blockLane();
+    }
+
+    private ConversionScheduler scheduler(long sjfMaxDelayMillis) {
+        ConversionScheduler scheduler = new ConversionScheduler();
+        // 没有进程池时每个通道一个线程
+        ReflectionTestUtils.setField(scheduler, "officeManagers", Collections.emptyList());
+        ReflectionTestUtils.setField(scheduler, "environment", new StandardEnvironment());
+        ReflectionTestUtils.setField(scheduler, "maxQueuedPerLane", 200);
+        ReflectionTestUtils.setField(scheduler, "sjfMaxDelayMillis", sjfMaxDelayMillis);
+        ReflectionTestUtils.setField(scheduler, "clock", (LongSupplier) now::get);
+        scheduler.init();
+        return scheduler;
+    }
+
+    private void submit(String name, ConversionPriority priority, long inputBytes) {
+        futures.add(scheduler.submit(OfficeLane.CALC, priority, inputBytes, () -> executed.add(name)));
+    }
+
+    private List<String> runAll() throws Exception {
+        release.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        return new ArrayList<>(executed);
+    }
+}
@@ -0,0 +1,71 @@
+package com.pdftool.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * FileDownloadService.parseRange：206的范围、忽略Range（200）和无法满足（416）
+ */
+class FileDownloadServiceTest {
+
+    private static final long LENGTH = 1000;
+    private static final long[] IGNORED = new long[0];
+
+    @Test
+    void parsesSatisfiableRanges() {
+        assertArrayEquals(new long[]{0, 499}, FileDownloadService.parseRange("bytes=0-499", LENGTH));
+        assertArrayEquals(new long[]{500, 999}, FileDownloadService.parseRange("bytes=500-", LENGTH));
+        assertArrayEquals(new long[]{999, 999}, FileDownloadService.parseRange("bytes=999-999", LENGTH));
+        assertArrayEquals(new long[]{5, 5}, FileDownloadService.parseRange("bytes= 5 - 5 ", LENGTH));
+    }
+
+    @Test
+    void clampsEndToFileLength() {
+        assertArrayEquals(new long[]{900, 999}, FileDownloadService.parseRange("bytes=900-5000", LENGTH));
+        assertArrayEquals(new long[]{0, 999}, FileDownloadService.parseRange("bytes=0-" + Long.MAX_VALUE, LENGTH));
+    }
+
+    @Test
+    void parsesSuffixRanges() {
+        assertArrayEquals(new long[]{900, 999}, FileDownloadService.parseRange("bytes=-100", LENGTH));
+        // 后缀长度超过文件长度时返回整个文件
+        assertArrayEquals(new long[]{0, 999}, FileDownloadService.parseRange("bytes=-5000", LENGTH));
+    }
+
+    @Test
+    void rejectsUnsatisfiableRanges() {
+        assertNull(FileDownloadService.parseRange("bytes=1000-", LENGTH));
+        assertNull(FileDownloadService.parseRange("bytes=1000-2000", LENGTH));
+        assertNull(FileDownloadService.parseRange("bytes=-0", LENGTH));
+        assertNull(FileDownloadService.parseRange("bytes=0-", 0));
+        assertNull(FileDownloadService.parseRange("bytes=-10", 0));
+    }
+
+    @Test
+    void ignoresInvertedRanges() {
+        assertArrayEquals(IGNORED, FileDownloadService.parseRange("bytes=5-3", LENGTH));
+        assertArrayEquals(IGNORED, FileDownloadService.parseRange("bytes=2000-1500", LENGTH));
+    }
+
+    @Test
+    void ignoresTruncatedRanges() {
+        assertArrayEquals(IGNORED, FileDownloadService.parseRange("bytes=", LENGTH));
+        assertArrayEquals(IGNORED, FileDownloadService.parseRange("bytes=-", LENGTH));
+        assertArrayEquals(IGNORED, FileDownloadService.parseRange("bytes=5", LENGTH));
+        assertArrayEquals(IGNORED, FileDownloadService.parseRange("bytes", LENGTH));
+    }
+
+    @Test
+    void ignoresMalformedRanges() {
+        assertArrayEquals(IGNORED, FileDownloadService.parseRange("items=0-10", LENGTH));
+        assertArrayEquals(IGNORED, FileDownloadService.parseRange("bytes=0-10,20-30", LENGTH));
+        assertArrayEquals(IGNORED, FileDownloadService.parseRange("bytes=a-b", LENGTH));
+        assertArrayEquals(IGNORED, FileDownloadService.parseRange("bytes=+3-5", LENGTH));
+        assertArrayEquals(IGNORED, FileDownloadService.parseRange("bytes=3--5", LENGTH));
+        assertArrayEquals(IGNORED, FileDownloadService.parseRange("bytes=--5", LENGTH));
+        assertArrayEquals(IGNORED, FileDownloadService.parseRange("bytes=0x10-20", LENGTH));
+        assertArrayEquals(IGNORED, FileDownloadService.parseRange("bytes=99999999999999999999-", LENGTH));
+    }
+}
@@ -0,0 +1,205 @@
+package com.pdftool.service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 测试用的最小XLSX/PPTX：直接写出包中的XML部件，便于控制工作表状态、页眉页脚和部件之间的关系
+ */
+final class OoxmlFixtures {
+
+    static final String SPREADSHEET_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    static final String PRESENTATION_NS = "http://schemas.openxmlformats.org/presentationml/2006/main";
+    static final String DRAWING_NS = "http://schemas.openxmlformats.org/drawingml/2006/main";
+    static final String RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    static final String OFFICE_RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+
+    private OoxmlFixtures() {
+    }
+
+    // ---------------- XLSX ----------------
+
+    /**
+     * 工作簿：每个工作表一个单元格（工作表名），states中的null表示可见
+     *
+     * @param footer 各工作表的页脚（已按XML转义，如 "第 &amp;P 页"），null表示没有页眉页脚
+     */
+    static Map<String, String> workbook(String[] states, String footer) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        StringBuilder contentTypes = new StringBuilder(XML_DECLARATION)
+                .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+                .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        StringBuilder workbook = new StringBuilder(XML_DECLARATION)
+                .append("<workbook xmlns=\"").append(SPREADSHEET_NS).append("\" xmlns:r=\"").append(OFFICE_RELATIONSHIPS_NS).append("\">")
+                .append("<bookViews><workbookView firstSheet=\"0\" activeTab=\"0\"/></bookViews><sheets>");
+        StringBuilder workbookRels = new StringBuilder(XML_DECLARATION)
+                .append("<Relationships xmlns=\"").append(RELATIONSHIPS_NS).append("\">");
+        for (int i = 0; i < states.length; i++) {
+            int number = i + 1;
+            contentTypes.append("<Override PartName=\"/xl/worksheets/sheet").append(number)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            workbook.append("<sheet name=\"Sheet").append(number).append("\" sheetId=\"").append(number).append('"');
+            if (states[i] != null) {
+                workbook.append(" state=\"").append(states[i]).append('"');
+            }
+            workbook.append(" r:id=\"rId").append(number).append("\"/>");
+            workbookRels.append("<Relationship Id=\"rId").append(number)
+                    .append("\" Type=\"").append(OFFICE_RELATIONSHIPS_NS).append("/worksheet\" Target=\"worksheets/sheet")
+                    .append(number).append(".xml\"/>");
+            entries.put("xl/worksheets/sheet" + number + ".xml", worksheet("Sheet" + number, footer));
+        }
+        entries.put("[Content_Types].xml", contentTypes.append("</Types>").toString());
+        entries.put("_rels/.rels", XML_DECLARATION + "<Relationships xmlns=\"" + RELATIONSHIPS_NS + "\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + OFFICE_RELATIONSHIPS_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+        entries.put("xl/workbook.xml", workbook.append("</sheets></workbook>").toString());
+        entries.put("xl/_rels/workbook.xml.rels", workbookRels.append("</Relationships>").toString());
+        return entries;
+    }
+
+    static String worksheet(String text, String footer) {
+        StringBuilder sheet = new StringBuilder(XML_DECLARATION)
+                .append("<worksheet xmlns=\"").append(SPREADSHEET_NS).append("\"><sheetData>")
+                .append("<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>").append(text).append("</t></is></c></row>")
+                .append("</sheetData>");
+        if (footer != null) {
+            sheet.append("<headerFooter><oddFooter>").append(footer).append("</oddFooter></headerFooter>");
+        }
+        return sheet.append("</worksheet>").toString();
+    }
+
+    // ---------------- PPTX ----------------
+
+    /**
+     * 演示文稿：slides张幻灯片共用一个版式、母版和主题，每张幻灯片有一个文本框（"Slide n"）和备注页，
+     * 引用自己的图片 ppt/media/imageN.png、共用的 ppt/media/logo.png 和一个外部链接；
+     * 带一个引用全部幻灯片的自定义放映
+     *
+     * @param firstSlideNum presentation.xml 中的起始编号，null表示不设置
+     */
+    static Map<String, String> presentation(int slides, Integer firstSlideNum) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        StringBuilder contentTypes = new StringBuilder(XML_DECLARATION)
+                .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+                .append("<Default Extension=\"png\" ContentType=\"image/png\"/>")
+                .append("<Override PartName=\"/ppt/presentation.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.presentationml.presentation.main+xml\"/>")
+                .append("<Override PartName=\"/ppt/slideMasters/slideMaster1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.presentationml.slideMaster+xml\"/>")
+                .append("<Override PartName=\"/ppt/slideLayouts/slideLayout1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.presentationml.slideLayout+xml\"/>")
+                .append("<Override PartName=\"/ppt/theme/theme1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.theme+xml\"/>");
+        StringBuilder presentation = new StringBuilder(XML_DECLARATION)
+                .append("<p:presentation xmlns:a=\"").append(DRAWING_NS).append("\" xmlns:r=\"").append(OFFICE_RELATIONSHIPS_NS)
+                .append("\" xmlns:p=\"").append(PRESENTATION_NS).append('"');
+        if (firstSlideNum != null) {
+            presentation.append(" firstSlideNum=\"").append(firstSlideNum).append('"');
+        }
+        presentation.append("><p:sldMasterIdLst><p:sldMasterId id=\"2147483648\" r:id=\"rId1\"/></p:sldMasterIdLst><p:sldIdLst>");
+        StringBuilder presentationRels = new StringBuilder(XML_DECLARATION)
+                .append("<Relationships xmlns=\"").append(RELATIONSHIPS_NS).append("\">")
+                .append(relationship("rId1", "slideMaster", "slideMasters/slideMaster1.xml"))
+                .append(relationship("rId2", "theme", "theme/theme1.xml"));
+        for (int i = 1; i <= slides; i++) {
+            contentTypes.append("<Override PartName=\"/ppt/slides/slide").append(i)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.presentationml.slide+xml\"/>")
+                    .append("<Override PartName=\"/ppt/notesSlides/notesSlide").append(i)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.presentationml.notesSlide+xml\"/>");
+            presentation.append("<p:sldId id=\"").append(255 + i).append("\" r:id=\"rId").append(i + 10).append("\"/>");
+            presentationRels.append(relationship("rId" + (i + 10), "slide", "slides/slide" + i + ".xml"));
+            entries.put("ppt/slides/slide" + i + ".xml", slide("Slide " + i));
+            entries.put("ppt/slides/_rels/slide" + i + ".xml.rels", relationships(
+                    relationship("rId1", "slideLayout", "../slideLayouts/slideLayout1.xml"),
+                    relationship("rId2", "notesSlide", "../notesSlides/notesSlide" + i + ".xml"),
+                    relationship("rId3", "image", "../media/image" + i + ".png"),
+                    relationship("rId4", "image", "../media/logo.png"),
+                    "<Relationship Id=\"rId5\" Type=\"" + OFFICE_RELATIONSHIPS_NS
+                            + "/hyperlink\" Target=\"https://example.com/" + i + "\" TargetMode=\"External\"/>"));
+            entries.put("ppt/notesSlides/notesSlide" + i + ".xml", XML_DECLARATION + "<p:notes xmlns:p=\"" + PRESENTATION_NS
+                    + "\"><p:cSld><p:spTree/></p:cSld></p:notes>");
+            entries.put("ppt/notesSlides/_rels/notesSlide" + i + ".xml.rels", relationships(
+                    relationship("rId1", "slide", "../slides/slide" + i + ".xml")));
+            entries.put("ppt/media/image" + i + ".png", "png" + i);
+        }
+        presentation.append("</p:sldIdLst><p:sldSz cx=\"9144000\" cy=\"6858000\"/><p:notesSz cx=\"6858000\" cy=\"9144000\"/>")
+                .append("<p:custShowLst><p:custShow name=\"All\" id=\"0\"><p:sldLst>");
+        for (int i = 1; i <= slides; i++) {
+            presentation.append("<p:sld r:id=\"rId").append(i + 10).append("\"/>");
+        }
+        presentation.append("</p:sldLst></p:custShow></p:custShowLst></p:presentation>");
+        entries.put("ppt/media/logo.png", "logo");
+
+        entries.put("[Content_Types].xml", contentTypes.append("</Types>").toString());
+        entries.put("_rels/.rels", relationships(
+                relationship("rId1", "officeDocument", "ppt/presentation.xml")));
+        entries.put("ppt/presentation.xml", presentation.toString());
+        entries.put("ppt/_rels/presentation.xml.rels", presentationRels.append("</Relationships>").toString());
+        entries.put("ppt/slideMasters/slideMaster1.xml", XML_DECLARATION + "<p:sldMaster xmlns:p=\"" + PRESENTATION_NS
+                + "\" xmlns:r=\"" + OFFICE_RELATIONSHIPS_NS + "\"><p:cSld><p:spTree/></p:cSld>"
+                + "<p:sldLayoutIdLst><p:sldLayoutId id=\"2147483649\" r:id=\"rId1\"/></p:sldLayoutIdLst></p:sldMaster>");
+        entries.put("ppt/slideMasters/_rels/slideMaster1.xml.rels", relationships(
+                relationship("rId1", "slideLayout", "../slideLayouts/slideLayout1.xml"),
+                relationship("rId2", "theme", "../theme/theme1.xml")));
+        entries.put("ppt/slideLayouts/slideLayout1.xml", XML_DECLARATION + "<p:sldLayout xmlns:p=\"" + PRESENTATION_NS
+                + "\"><p:cSld><p:spTree/></p:cSld></p:sldLayout>");
+        entries.put("ppt/slideLayouts/_rels/slideLayout1.xml.rels", relationships(
+                relationship("rId1", "slideMaster", "../slideMasters/slideMaster1.xml")));
+        entries.put("ppt/theme/theme1.xml", XML_DECLARATION + "<a:theme xmlns:a=\"" + DRAWING_NS + "\" name=\"Office\"/>");
+        return entries;
+    }
+
+    static String slide(String text) {
+        return XML_DECLARATION + "<p:sld xmlns:a=\"" + DRAWING_NS + "\" xmlns:p=\"" + PRESENTATION_NS + "\"><p:cSld><p:spTree>"
+                + "<p:sp><p:txBody><a:bodyPr/><a:p><a:r><a:t>" + text + "</a:t></a:r></a:p></p:txBody></p:sp>"
+                + "</p:spTree></p:cSld></p:sld>";
+    }
+
+    static String relationships(String... relationships) {
+        return XML_DECLARATION + "<Relationships xmlns=\"" + RELATIONSHIPS_NS + "\">" + String.join("", relationships)
+                + "</Relationships>";
+    }
+
+    static String relationship(String id, String type, String target) {
+        return "<Relationship Id=\"" + id + "\" Type=\"" + OFFICE_RELATIONSHIPS_NS + "/" + type + "\" Target=\"" + target + "\"/>";
+    }
+
+    // ---------------- ZIP ----------------
+
+    static File write(File file, Map<String, String> entries) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file))) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * 读出ZIP中的全部条目（按文件中的顺序）
+     */
+    static Map<String, String> read(File file) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipFile zipFile = new ZipFile(file)) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    entries.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return entries;
+    }
+}
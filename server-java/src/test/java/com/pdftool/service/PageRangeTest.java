@@ -0,0 +1,95 @@
+package com.pdftool.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * PageRange.parse：规范化、页数统计和格式错误的参数
+ */
+class PageRangeTest {
+
+    @Test
+    void returnsNullForMissingRange() {
+        assertNull(PageRange.parse(null));
+        assertNull(PageRange.parse(""));
+        assertNull(PageRange.parse("   "));
+    }
+
+    @Test
+    void parsesSinglePagesAndIntervals() {
+        assertRange("5", 1, "5");
+        assertRange("1-3", 3, "1-3");
+        assertRange("1-3,5,8-10", 7, "1-3,5,8-10");
+        assertRange(" 2 - 4 , 7 ", 4, "2-4,7");
+        assertRange("4-4", 1, "4");
+    }
+
+    @Test
+    void normalizesOverlappingAndAdjacentIntervals() {
+        assertRange("3,1-2", 3, "1-3");
+        assertRange("5-8,1-6", 8, "1-8");
+        assertRange("2,2,2", 1, "2");
+        assertRange("10,1,5", 3, "1,5,10");
+        assertRange("1-3,4-6", 6, "1-6");
+    }
+
+    @Test
+    void acceptsPageLimit() {
+        assertRange("1-100000", 100000, "1-100000");
+    }
+
+    @Test
+    void rejectsTruncatedRanges() {
+        assertInvalid("1-");
+        assertInvalid("-3");
+        assertInvalid("-");
+        assertInvalid("1,");
+        assertInvalid(",");
+        assertInvalid("1,,3");
+        assertInvalid(",2");
+    }
+
+    @Test
+    void rejectsMalformedRanges() {
+        assertInvalid("abc");
+        assertInvalid("1-2-3");
+        assertInvalid("1;3");
+        assertInvalid("+1");
+        assertInvalid("1.5");
+        assertInvalid("５");
+        assertInvalid("1000000");
+        assertInvalid("99999999999");
+    }
+
+    @Test
+    void rejectsOutOfRangePages() {
+        assertInvalid("0");
+        assertInvalid("0-3");
+        assertInvalid("100001");
+        assertInvalid("5-3");
+    }
+
+    @Test
+    void rejectsTooManySegments() {
+        StringBuilder range = new StringBuilder("1");
+        for (int page = 3; page <= 127; page += 2) {
+            range.append(',').append(page);
+        }
+        assertRange(range.toString(), 64, range.toString());
+        range.append(",129");
+        assertInvalid(range.toString());
+    }
+
+    private static void assertRange(String text, int pageCount, String normalized) {
+        PageRange range = PageRange.parse(text);
+        assertEquals(normalized, range.getValue());
+        assertEquals(pageCount, range.getPageCount());
+    }
+
+    private static void assertInvalid(String text) {
+        assertThrows(IllegalArgumentException.class, () -> PageRange.parse(text));
+    }
+}
@@ -0,0 +1,201 @@
+package com.pdftool.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PresentationSlideSplitter：保留和丢弃的部件、幻灯片顺序和起始编号
+ */
+class PresentationSlideSplitterTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void countsSlides() throws IOException {
+        assertEquals(6, PresentationSlideSplitter.countSlides(write(OoxmlFixtures.presentation(6, null))));
+        // XLSX和非ZIP文件不是演示文稿
+        assertEquals(0, PresentationSlideSplitter.countSlides(write(OoxmlFixtures.workbook(new String[]{null}, null))));
+        File text = new File(tempDir, "text.pptx");
+        Files.write(text.toPath(), "not a zip".getBytes());
+        assertEquals(0, PresentationSlideSplitter.countSlides(text));
+    }
+
+    @Test
+    void keepsSlidesInOrder() throws Exception {
+        List<File> parts = split(OoxmlFixtures.presentation(7, null), 3);
+
+        assertEquals(3, parts.size());
+        assertEquals(Arrays.asList("Slide 1", "Slide 2"), slideTexts(parts.get(0)));
+        assertEquals(Arrays.asList("Slide 3", "Slide 4"), slideTexts(parts.get(1)));
+        assertEquals(Arrays.asList("Slide 5", "Slide 6", "Slide 7"), slideTexts(parts.get(2)));
+    }
+
+    @Test
+    void keepsSlideOrderFromSlideListNotPartNames() throws Exception {
+        // 幻灯片列表的顺序与文件名顺序相反
+        Map<String, String> entries = OoxmlFixtures.presentation(4, null);
+        String presentation = entries.get("ppt/presentation.xml");
+        String slideList = presentation.substring(presentation.indexOf("<p:sldIdLst>"), presentation.indexOf("</p:sldIdLst>"));
+        String reversed = "<p:sldIdLst>"
+                + "<p:sldId id=\"259\" r:id=\"rId14\"/><p:sldId id=\"258\" r:id=\"rId13\"/>"
+                + "<p:sldId id=\"257\" r:id=\"rId12\"/><p:sldId id=\"256\" r:id=\"rId11\"/>";
+        entries.put("ppt/presentation.xml", presentation.replace(slideList, reversed));
+
+        List<File> parts = split(entries, 2);
+
+        assertEquals(Arrays.asList("Slide 4", "Slide 3"), slideTexts(parts.get(0)));
+        assertEquals(Arrays.asList("Slide 2", "Slide 1"), slideTexts(parts.get(1)));
+    }
+
+    @Test
+    void setsFirstSlideNumberToOriginalPosition() throws Exception {
+        List<File> parts = split(OoxmlFixtures.presentation(6, null), 3);
+        assertEquals("1", presentation(parts.get(0)).getAttribute("firstSlideNum"));
+        assertEquals("3", presentation(parts.get(1)).getAttribute("firstSlideNum"));
+        assertEquals("5", presentation(parts.get(2)).getAttribute("firstSlideNum"));
+
+        // 原文件的起始编号不是1时在其基础上累加
+        parts = split(OoxmlFixtures.presentation(6, 10), 3);
+        assertEquals("10", presentation(parts.get(0)).getAttribute("firstSlideNum"));
+        assertEquals("14", presentation(parts.get(2)).getAttribute("firstSlideNum"));
+    }
+
+    @Test
+    void dropsPartsOnlyReachableFromOtherSlides() throws Exception {
+        List<File> parts = split(OoxmlFixtures.presentation(6, null), 3);
+        Map<String, String> middle = OoxmlFixtures.read(parts.get(1));
+
+        for (int i = 1; i <= 6; i++) {
+            boolean kept = i == 3 || i == 4;
+            assertEquals(kept, middle.containsKey("ppt/slides/slide" + i + ".xml"), "slide" + i);
+            assertEquals(kept, middle.containsKey("ppt/slides/_rels/slide" + i + ".xml.rels"), "slide" + i + " rels");
+            assertEquals(kept, middle.containsKey("ppt/notesSlides/notesSlide" + i + ".xml"), "notesSlide" + i);
+            assertEquals(kept, middle.containsKey("ppt/media/image" + i + ".png"), "image" + i);
+        }
+        // 共用的部件都保留
+        for (String shared : Arrays.asList("ppt/slideMasters/slideMaster1.xml", "ppt/slideLayouts/slideLayout1.xml",
+                "ppt/theme/theme1.xml", "ppt/media/logo.png", "_rels/.rels", "ppt/_rels/presentation.xml.rels")) {
+            assertTrue(middle.containsKey(shared), shared);
+        }
+        // 保留的部件原样复制
+        Map<String, String> original = OoxmlFixtures.presentation(6, null);
+        assertEquals(original.get("ppt/slides/slide3.xml"), middle.get("ppt/slides/slide3.xml"));
+        assertEquals(original.get("ppt/slides/_rels/slide4.xml.rels"), middle.get("ppt/slides/_rels/slide4.xml.rels"));
+        assertEquals("png4", middle.get("ppt/media/image4.png"));
+    }
+
+    @Test
+    void prunesRelationshipsAndContentTypesOfDroppedSlides() throws Exception {
+        List<File> parts = split(OoxmlFixtures.presentation(6, null), 3);
+        Map<String, String> first = OoxmlFixtures.read(parts.get(0));
+
+        Map<String, String> targets = relationshipTargets(first.get("ppt/_rels/presentation.xml.rels"));
+        assertEquals(Arrays.asList("rId1", "rId11", "rId12", "rId2"), sorted(targets.keySet()));
+
+        List<String> overrides = new ArrayList<>();
+        NodeList nodes = parse(first.get("[Content_Types].xml")).getElementsByTagName("Override");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            overrides.add(((Element) nodes.item(i)).getAttribute("PartName"));
+        }
+        assertTrue(overrides.contains("/ppt/slides/slide2.xml"));
+        assertTrue(overrides.contains("/ppt/notesSlides/notesSlide1.xml"));
+        assertTrue(overrides.contains("/ppt/slideMasters/slideMaster1.xml"));
+        assertFalse(overrides.contains("/ppt/slides/slide3.xml"));
+        assertFalse(overrides.contains("/ppt/notesSlides/notesSlide6.xml"));
+        for (String override : overrides) {
+            assertTrue(first.containsKey(override.substring(1)), override);
+        }
+    }
+
+    @Test
+    void removesCustomShowsReferencingDroppedSlides() throws Exception {
+        List<File> parts = split(OoxmlFixtures.presentation(4, null), 2);
+        for (File part : parts) {
+            Element presentation = presentation(part);
+            assertEquals(0, presentation.getElementsByTagNameNS(OoxmlFixtures.PRESENTATION_NS, "custShowLst").getLength());
+            assertEquals(2, presentation.getElementsByTagNameNS(OoxmlFixtures.PRESENTATION_NS, "sldId").getLength());
+        }
+    }
+
+    @Test
+    void rejectsMorePartsThanSlides() throws IOException {
+        File file = write(OoxmlFixtures.presentation(2, null));
+        assertThrows(IOException.class, () -> PresentationSlideSplitter.split(file, 3, tempDir));
+    }
+
+    /**
+     * 按幻灯片列表的顺序读出各幻灯片的文本
+     */
+    private static List<String> slideTexts(File part) throws Exception {
+        Map<String, String> entries = OoxmlFixtures.read(part);
+        Map<String, String> targets = relationshipTargets(entries.get("ppt/_rels/presentation.xml.rels"));
+        List<String> texts = new ArrayList<>();
+        NodeList slideIds = parse(entries.get("ppt/presentation.xml"))
+                .getElementsByTagNameNS(OoxmlFixtures.PRESENTATION_NS, "sldId");
+        for (int i = 0; i < slideIds.getLength(); i++) {
+            String relId = ((Element) slideIds.item(i)).getAttributeNS(OoxmlFixtures.OFFICE_RELATIONSHIPS_NS, "id");
+            String slide = entries.get("ppt/" + targets.get(relId));
+            texts.add(parse(slide).getElementsByTagNameNS(OoxmlFixtures.DRAWING_NS, "t").item(0).getTextContent());
+        }
+        return texts;
+    }
+
+    private static Map<String, String> relationshipTargets(String rels) throws Exception {
+        Map<String, String> targets = new HashMap<>();
+        NodeList relationships = parse(rels).getElementsByTagNameNS(OoxmlFixtures.RELATIONSHIPS_NS, "Relationship");
+        for (int i = 0; i < relationships.getLength(); i++) {
+            Element relationship = (Element) relationships.item(i);
+            targets.put(relationship.getAttribute("Id"), relationship.getAttribute("Target"));
+        }
+        return targets;
+    }
+
+    private static Element presentation(File part) throws Exception {
+        return parse(OoxmlFixtures.read(part).get("ppt/presentation.xml")).getDocumentElement();
+    }
+
+    private static Document parse(String xml) throws ParserConfigurationException, IOException, SAXException {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+    }
+
+    private static List<String> sorted(Iterable<String> values) {
+        List<String> list = new ArrayList<>();
+        values.forEach(list::add);
+        list.sort(null);
+        return list;
+    }
+
+    private List<File> split(Map<String, String> entries, int parts) throws IOException {
+        File directory = Files.createTempDirectory(tempDir.toPath(), "parts").toFile();
+        return PresentationSlideSplitter.split(write(entries), parts, directory);
+    }
+
+    private File write(Map<String, String> entries) throws IOException {
+        return OoxmlFixtures.write(File.createTempFile("deck", ".pptx", tempDir), entries);
+    }
+}
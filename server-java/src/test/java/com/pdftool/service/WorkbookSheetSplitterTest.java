@@ -0,0 +1,165 @@
+package com.pdftool.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * WorkbookSheetSplitter：按工作表拆分和页码字段检测
+ */
+class WorkbookSheetSplitterTest {
+
+    private static final String[] FOUR_VISIBLE = {null, null, null, null};
+
+    @TempDir
+    File tempDir;
+
+    /**
+     * 第2张隐藏、第4张veryHidden、第6张显式 state="visible"：可见的是1、3、5、6
+     */
+    private static final String[] MIXED_STATES = {null, "hidden", null, "veryHidden", null, "visible"};
+
+    @Test
+    void countsOnlyVisibleSheets() throws IOException {
+        assertEquals(4, WorkbookSheetSplitter.countVisibleSheets(write(OoxmlFixtures.workbook(MIXED_STATES, null))));
+        assertEquals(0, WorkbookSheetSplitter.countVisibleSheets(write(OoxmlFixtures.presentation(2, null))));
+    }
+
+    @Test
+    void splitsVisibleSheetsAndKeepsHiddenOnesHidden() throws Exception {
+        List<File> parts = WorkbookSheetSplitter.split(write(OoxmlFixtures.workbook(MIXED_STATES, null)), 2, tempDir);
+
+        assertEquals(2, parts.size());
+        assertEquals(Arrays.asList("", "hidden", "", "veryHidden", "hidden", "hidden"), sheetStates(parts.get(0)));
+        assertEquals(Arrays.asList("hidden", "hidden", "hidden", "veryHidden", "", "visible"), sheetStates(parts.get(1)));
+    }
+
+    @Test
+    void activatesFirstSheetOfEachPart() throws Exception {
+        List<File> parts = WorkbookSheetSplitter.split(write(OoxmlFixtures.workbook(MIXED_STATES, null)), 4, tempDir);
+
+        // 各部分的第一张可见工作表依次是第1、3、5、6张
+        int[] expected = {0, 2, 4, 5};
+        for (int i = 0; i < parts.size(); i++) {
+            Element view = (Element) workbookXml(parts.get(i))
+                    .getElementsByTagNameNS(OoxmlFixtures.SPREADSHEET_NS, "workbookView").item(0);
+            assertEquals(String.valueOf(expected[i]), view.getAttribute("activeTab"), "part" + i);
+            assertEquals(String.valueOf(expected[i]), view.getAttribute("firstSheet"), "part" + i);
+        }
+    }
+
+    @Test
+    void copiesEveryOtherEntryUnchanged() throws IOException {
+        Map<String, String> original = OoxmlFixtures.workbook(MIXED_STATES, "&amp;A");
+        List<File> parts = WorkbookSheetSplitter.split(write(original), 3, tempDir);
+
+        for (File part : parts) {
+            Map<String, String> entries = OoxmlFixtures.read(part);
+            assertEquals(new ArrayList<>(original.keySet()), new ArrayList<>(entries.keySet()));
+            for (Map.Entry<String, String> entry : original.entrySet()) {
+                if (!"xl/workbook.xml".equals(entry.getKey())) {
+                    assertEquals(entry.getValue(), entries.get(entry.getKey()), entry.getKey());
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsFileWithoutWorkbook() throws IOException {
+        File file = write(OoxmlFixtures.presentation(2, null));
+        assertThrows(IOException.class, () -> WorkbookSheetSplitter.split(file, 2, tempDir));
+    }
+
+    @Test
+    void detectsPageNumberFieldsInHeadersAndFooters() throws IOException {
+        assertTrue(WorkbookSheetSplitter.usesPageNumberFields(workbook("第 &amp;P 页")));
+        assertTrue(WorkbookSheetSplitter.usesPageNumberFields(workbook("&amp;N")));
+        assertTrue(WorkbookSheetSplitter.usesPageNumberFields(workbook("&amp;P+1")));
+        assertTrue(WorkbookSheetSplitter.usesPageNumberFields(workbook("&#38;P")));
+    }
+
+    @Test
+    void ignoresOtherFieldsAndCellText() throws IOException {
+        assertFalse(WorkbookSheetSplitter.usesPageNumberFields(workbook(null)));
+        // &A 工作表名、&D 日期
+        assertFalse(WorkbookSheetSplitter.usesPageNumberFields(workbook("&amp;A - &amp;D")));
+        // 单元格中的 "S&P" 不是页码字段
+        Map<String, String> entries = OoxmlFixtures.workbook(FOUR_VISIBLE, null);
+        entries.put("xl/worksheets/sheet2.xml", OoxmlFixtures.worksheet("S&amp;P 500", "&amp;A"));
+        assertFalse(WorkbookSheetSplitter.usesPageNumberFields(write(entries)));
+    }
+
+    @Test
+    void ignoresSelfClosingHeaderFooter() throws IOException {
+        Map<String, String> entries = OoxmlFixtures.workbook(FOUR_VISIBLE, null);
+        entries.put("xl/worksheets/sheet1.xml", OoxmlFixtures.worksheet("Sheet1", null)
+                .replace("</worksheet>", "<headerFooter differentFirst=\"1\"/><drawing r:id=\"S&amp;P\"/></worksheet>"));
+        assertFalse(WorkbookSheetSplitter.usesPageNumberFields(write(entries)));
+    }
+
+    @Test
+    void findsHeaderFooterAfterLargeSheetData() throws IOException {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 300 * 1024) {
+            text.append("S&amp;P headerFoote ");
+        }
+        Map<String, String> entries = OoxmlFixtures.workbook(FOUR_VISIBLE, null);
+        entries.put("xl/worksheets/sheet4.xml", OoxmlFixtures.worksheet(text.toString(), "&amp;N"));
+        assertTrue(WorkbookSheetSplitter.usesPageNumberFields(write(entries)));
+    }
+
+    @Test
+    void detectsPageNumberFieldsInChartSheets() throws IOException {
+        Map<String, String> entries = OoxmlFixtures.workbook(FOUR_VISIBLE, null);
+        entries.put("xl/chartsheets/sheet1.xml", "<chartsheet><headerFooter><oddHeader>&amp;P</oddHeader></headerFooter></chartsheet>");
+        assertTrue(WorkbookSheetSplitter.usesPageNumberFields(write(entries)));
+    }
+
+    @Test
+    void treatsUnreadableWorkbookAsUsingPageNumberFields() throws IOException {
+        File file = new File(tempDir, "broken.xlsx");
+        Files.write(file.toPath(), new byte[]{'P', 'K', 3, 4, 0, 0});
+        assertTrue(WorkbookSheetSplitter.usesPageNumberFields(file));
+    }
+
+    private static List<String> sheetStates(File part) throws Exception {
+        List<String> states = new ArrayList<>();
+        NodeList sheets = workbookXml(part).getElementsByTagNameNS(OoxmlFixtures.SPREADSHEET_NS, "sheet");
+        for (int i = 0; i < sheets.getLength(); i++) {
+            states.add(((Element) sheets.item(i)).getAttribute("state"));
+        }
+        return states;
+    }
+
+    private static Element workbookXml(File part) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        String xml = OoxmlFixtures.read(part).get("xl/workbook.xml");
+        return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml))).getDocumentElement();
+    }
+
+    private File workbook(String footer) throws IOException {
+        return write(OoxmlFixtures.workbook(FOUR_VISIBLE, footer));
+    }
+
+    private File write(Map<String, String> entries) throws IOException {
+        return OoxmlFixtures.write(File.createTempFile("book", ".xlsx", tempDir), entries);
+    }
+}
@@ -0,0 +1,117 @@
+package com.pdftool.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.jodconverter.core.office.OfficeException;
+import org.jodconverter.local.LocalConverter;
+import org.jodconverter.local.office.LocalOfficeManager;
+import org.jodconverter.local.office.LocalOfficeUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 按工作表拆分导出与整体导出的对比（需要本机安装LibreOffice，未安装时跳过）
+ *
+ * 拆分后各部分单独导出再拼接（同ConversionService#convertExcelSplit），逐页比较文本
+ */
+class WorkbookSplitExportTest {
+
+    private static final String[] FOUR_VISIBLE = {null, null, null, null};
+
+    private static LocalOfficeManager officeManager;
+    private static LocalConverter converter;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeAll
+    static void startOffice() throws OfficeException {
+        File officeHome = LocalOfficeUtils.getDefaultOfficeHome();
+        assumeTrue(officeHome != null, "未安装LibreOffice，跳过导出对比");
+        officeManager = LocalOfficeManager.builder().officeHome(officeHome).build();
+        officeManager.start();
+        converter = LocalConverter.make(officeManager);
+    }
+
+    @AfterAll
+    static void stopOffice() throws OfficeException {
+        if (officeManager != null) {
+            officeManager.stop();
+        }
+    }
+
+    @Test
+    void splitExportMatchesWholeExportWithoutPageNumberFields() throws Exception {
+        // &A 工作表名：拆分后不变
+        File workbook = OoxmlFixtures.write(new File(tempDir, "plain.xlsx"), OoxmlFixtures.workbook(FOUR_VISIBLE, "&amp;A"));
+        assertFalse(WorkbookSheetSplitter.usesPageNumberFields(workbook));
+
+        List<String> whole = pageTexts(exportWhole(workbook));
+        assertEquals(4, whole.size());
+        assertEquals(whole, pageTexts(exportSplit(workbook, 2)));
+    }
+
+    @Test
+    void pageNumberFieldsDifferWhenSplit() throws Exception {
+        File workbook = OoxmlFixtures.write(new File(tempDir, "numbered.xlsx"),
+                OoxmlFixtures.workbook(FOUR_VISIBLE, "Page &amp;P of &amp;N"));
+        // ConversionService因此不拆分这个工作簿
+        assertTrue(WorkbookSheetSplitter.usesPageNumberFields(workbook));
+
+        List<String> whole = pageTexts(exportWhole(workbook));
+        List<String> split = pageTexts(exportSplit(workbook, 2));
+        assertTrue(whole.get(2).contains("Page 3 of 4"));
+        assertTrue(split.get(2).contains("Page 1 of 2"));
+        assertNotEquals(whole, split);
+    }
+
+    private File exportWhole(File workbook) throws OfficeException {
+        File pdf = new File(tempDir, workbook.getName() + ".pdf");
+        converter.convert(workbook).to(pdf).execute();
+        return pdf;
+    }
+
+    private File exportSplit(File workbook, int parts) throws IOException, OfficeException {
+        File directory = new File(tempDir, workbook.getName() + "-parts");
+        assertTrue(directory.mkdir());
+        List<File> pdfParts = new ArrayList<>();
+        for (File part : WorkbookSheetSplitter.split(workbook, parts, directory)) {
+            File pdf = new File(directory, part.getName() + ".pdf");
+            converter.convert(part).to(pdf).execute();
+            pdfParts.add(pdf);
+        }
+        File merged = new File(directory, "merged.pdf");
+        try (OutputStream out = new FileOutputStream(merged)) {
+            PdfPartMerger.merge(pdfParts, out);
+        }
+        return merged;
+    }
+
+    private static List<String> pageTexts(File pdf) throws IOException {
+        List<String> pages = new ArrayList<>();
+        try (PDDocument document = PDDocument.load(pdf)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            for (int page = 1; page <= document.getNumberOfPages(); page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                pages.add(stripper.getText(document).trim());
+            }
+        }
+        return pages;
+    }
+}
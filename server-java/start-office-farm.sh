@@ -0,0 +1,40 @@
+#!/bin/bash
+
+# 启动一组独立的LibreOffice监听进程，供 pdftool.office.mode=external 使用
+#
+# 用法: ./start-office-farm.sh [起始端口] [进程数] [监听地址]
+# 示例: ./start-office-farm.sh 2002 2            # 127.0.0.1:2002, 127.0.0.1:2003
+#       ./start-office-farm.sh 2102 4 0.0.0.0    # 供其他服务节点连接
+# 停止: kill $(cat /tmp/pdftool-office-farm/*.pid)
+
+BASE_PORT=${1:-2002}
+COUNT=${2:-2}
+HOST=${3:-127.0.0.1}
+SOFFICE=${SOFFICE:-soffice}
+FARM_DIR=${FARM_DIR:-/tmp/pdftool-office-farm}
+
+echo "========================================"
+echo "LibreOffice进程组 (外部模式)"
+echo "========================================"
+
+mkdir -p "$FARM_DIR"
+
+for ((i = 0; i < COUNT; i++)); do
+    PORT=$((BASE_PORT + i))
+    PROFILE="$FARM_DIR/profile_$PORT"
+    "$SOFFICE" --headless --invisible --nologo --nodefault --norestore --nolockcheck \
+        "-env:UserInstallation=file://$PROFILE" \
+        "--accept=socket,host=$HOST,port=$PORT,tcpNoDelay=1;urp;StarOffice.ComponentContext" \
+        > "$FARM_DIR/soffice_$PORT.log" 2>&1 &
+    echo $! > "$FARM_DIR/soffice_$PORT.pid"
+    echo "已启动: $HOST:$PORT (pid $!)"
+done
+
+echo ""
+echo "在 application.properties 中配置:"
+echo "pdftool.office.mode=external"
+ENDPOINTS=""
+for ((i = 0; i < COUNT; i++)); do
+    ENDPOINTS="$ENDPOINTS${ENDPOINTS:+,}$HOST:$((BASE_PORT + i))"
+done
+echo "pdftool.office.<writer|calc|impress>.external-endpoints=$ENDPOINTS"